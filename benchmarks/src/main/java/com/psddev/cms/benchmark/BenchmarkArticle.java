@@ -0,0 +1,65 @@
+package com.psddev.cms.benchmark;
+
+import com.psddev.cms.db.Content;
+import com.psddev.cms.db.Directory;
+import com.psddev.cms.db.Site;
+import com.psddev.cms.db.ToolUi;
+import com.psddev.cms.view.ViewBinding;
+import com.psddev.dari.util.StorageItem;
+import com.psddev.dari.util.StringUtils;
+
+/**
+ * Synthetic content type seeded by {@link BenchmarkEnvironment}.
+ */
+@ViewBinding(value = BenchmarkArticleViewModel.class, types = BenchmarkArticle.VIEW_TYPE)
+public class BenchmarkArticle extends Content implements Directory.Item {
+
+    public static final String VIEW_TYPE = "benchmark";
+
+    @Indexed
+    private String headline;
+
+    @ToolUi.RichText
+    private String body;
+
+    private StorageItem image;
+
+    private BenchmarkArticle related;
+
+    public String getHeadline() {
+        return headline;
+    }
+
+    public void setHeadline(String headline) {
+        this.headline = headline;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public StorageItem getImage() {
+        return image;
+    }
+
+    public void setImage(StorageItem image) {
+        this.image = image;
+    }
+
+    public BenchmarkArticle getRelated() {
+        return related;
+    }
+
+    public void setRelated(BenchmarkArticle related) {
+        this.related = related;
+    }
+
+    @Override
+    public String createPermalink(Site site) {
+        return "/" + StringUtils.toNormalized(getHeadline());
+    }
+}
@@ -0,0 +1,47 @@
+package com.psddev.cms.benchmark;
+
+import com.psddev.cms.view.ViewModel;
+import com.psddev.cms.view.servlet.HttpParameter;
+import com.psddev.cms.view.servlet.HttpServletPath;
+
+/**
+ * View model for {@link BenchmarkArticle} that exercises request injection
+ * and nested view creation.
+ */
+public class BenchmarkArticleViewModel extends ViewModel<BenchmarkArticle> {
+
+    @HttpParameter
+    private String q;
+
+    @HttpParameter("page")
+    private int pageNumber;
+
+    @HttpServletPath
+    private String path;
+
+    public String getHeadline() {
+        return model.getHeadline();
+    }
+
+    public String getBody() {
+        return model.getBody();
+    }
+
+    public String getQuery() {
+        return q;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Object getRelated() {
+        BenchmarkArticle related = model.getRelated();
+
+        return related != null ? createView(BenchmarkArticle.VIEW_TYPE, related) : null;
+    }
+}
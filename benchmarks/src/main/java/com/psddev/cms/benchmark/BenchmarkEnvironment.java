@@ -0,0 +1,175 @@
+package com.psddev.cms.benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockServletContext;
+
+import com.psddev.cms.db.Directory;
+import com.psddev.cms.db.Site;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.SqlDatabase;
+import com.psddev.dari.util.CollectionUtils;
+import com.psddev.dari.util.CompactMap;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StorageItem;
+
+/**
+ * Shared benchmark environment backed by an in-memory H2 database and a
+ * mock servlet container.
+ *
+ * <p>The database can be pointed elsewhere using the
+ * {@code cms.benchmark.jdbcUrl} system property.</p>
+ */
+public final class BenchmarkEnvironment {
+
+    public static final String DATABASE_NAME = "benchmark";
+    public static final String SITE_URL = "http://benchmark.example.com/";
+
+    private static boolean initialized;
+
+    private BenchmarkEnvironment() {
+    }
+
+    /**
+     * Configures Dari to use the benchmark database. Safe to call more
+     * than once.
+     */
+    public static synchronized void initialize() {
+        if (initialized) {
+            return;
+        }
+
+        Map<String, Object> dari = new CompactMap<>();
+
+        CollectionUtils.putByPath(dari, "defaultDatabase", DATABASE_NAME);
+        CollectionUtils.putByPath(dari, "database/" + DATABASE_NAME + "/class", SqlDatabase.class.getName());
+        CollectionUtils.putByPath(dari, "database/" + DATABASE_NAME + "/jdbcUrl", System.getProperty(
+                "cms.benchmark.jdbcUrl",
+                "jdbc:h2:mem:" + DATABASE_NAME + ";DB_CLOSE_DELAY=-1;MODE=MySQL"));
+
+        Settings.putPermanentOverrides("dari", dari);
+        Settings.putPermanentOverrides("PRODUCTION", Boolean.TRUE);
+
+        initialized = true;
+    }
+
+    /**
+     * Deletes any previously seeded content and creates a site with the
+     * given number of articles.
+     *
+     * @return Never {@code null}.
+     */
+    public static Seed seed(int articleCount) {
+        initialize();
+
+        Query.from(BenchmarkArticle.class).deleteAll();
+        Query.from(Site.class).where("name = ?", DATABASE_NAME).deleteAll();
+
+        Site site = new Site();
+
+        site.setName(DATABASE_NAME);
+        site.setUrls(Collections.singletonList(SITE_URL));
+        site.save();
+
+        Database database = Database.Static.getDefault();
+        List<BenchmarkArticle> articles = new ArrayList<>();
+
+        database.beginWrites();
+
+        try {
+            BenchmarkArticle previous = null;
+
+            for (int i = 0; i < articleCount; ++ i) {
+                BenchmarkArticle article = new BenchmarkArticle();
+
+                article.setHeadline("Benchmark Article " + i);
+                article.setBody(createBody(i));
+                article.setImage(StorageItem.Static.createUrl("http://benchmark.example.com/images/" + i + ".jpg"));
+
+                // Only one level of related content to keep view trees small.
+                if (i % 2 == 1) {
+                    previous.setRelated(article);
+                    previous.save();
+                }
+
+                article.as(Site.ObjectModification.class).setOwner(site);
+                article.as(Directory.ObjectModification.class).addSitePath(site, article.createPermalink(site), Directory.PathType.PERMALINK);
+                article.save();
+                articles.add(article);
+                previous = article;
+            }
+
+            database.commitWrites();
+
+        } finally {
+            database.endWrites();
+        }
+
+        return new Seed(site, articles);
+    }
+
+    private static String createBody(int i) {
+        StringBuilder body = new StringBuilder();
+
+        for (int p = 0; p < 10; ++ p) {
+            body.append("<p>Paragraph ").append(p).append(" of article ").append(i);
+            body.append(" with <b>bold</b>, <i>italic</i> and a <a href=\"http://example.com/").append(p).append("\">link</a>.");
+            body.append("<span style=\"color: red\">Styled</span> text that the cleaner removes.</p>");
+        }
+
+        return body.toString();
+    }
+
+    /**
+     * Creates a mock request for the given {@code path} on the seeded site.
+     *
+     * @return Never {@code null}.
+     */
+    public static MockHttpServletRequest createRequest(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(new MockServletContext(), "GET", path);
+
+        request.setServerName("benchmark.example.com");
+        request.setServletPath(path);
+        request.addParameter("q", "benchmark");
+        request.addParameter("page", "2");
+
+        return request;
+    }
+
+    /**
+     * Creates a mock response.
+     *
+     * @return Never {@code null}.
+     */
+    public static MockHttpServletResponse createResponse() {
+        return new MockHttpServletResponse();
+    }
+
+    /**
+     * Seeded content.
+     */
+    public static final class Seed {
+
+        private final Site site;
+        private final List<BenchmarkArticle> articles;
+
+        public Seed(Site site, List<BenchmarkArticle> articles) {
+            this.site = site;
+            this.articles = Collections.unmodifiableList(articles);
+        }
+
+        public Site getSite() {
+            return site;
+        }
+
+        public List<BenchmarkArticle> getArticles() {
+            return articles;
+        }
+    }
+}
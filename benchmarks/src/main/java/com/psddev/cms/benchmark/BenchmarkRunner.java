@@ -0,0 +1,35 @@
+package com.psddev.cms.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks and writes the results as JSON so that runs can be
+ * compared.
+ *
+ * <p>Build with {@code mvn -P benchmarks package} and run with
+ * {@code java -jar benchmarks/target/benchmarks.jar}. All standard JMH
+ * options are supported, e.g. {@code -p articleCount=10000} to change the
+ * amount of seeded content or {@code -rff other.json} to change the result
+ * file, which defaults to {@code jmh-result.json}.</p>
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] arguments) throws CommandLineOptionException, RunnerException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(arguments))
+                .resultFormat(ResultFormatType.JSON)
+                .result("jmh-result.json")
+                .build();
+
+        new Runner(options).run();
+    }
+}
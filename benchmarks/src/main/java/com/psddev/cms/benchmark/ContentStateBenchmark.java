@@ -0,0 +1,133 @@
+package com.psddev.cms.benchmark;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.el.ELContext;
+import javax.el.ELManager;
+import javax.el.ExpressionFactory;
+import javax.servlet.http.HttpServletRequest;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.psddev.cms.tool.page.content.EditSession;
+import com.psddev.cms.tool.page.content.ValueExpressionCache;
+
+/**
+ * Cost of merging the submitted inputs into an {@link EditSession} and of
+ * evaluating the dynamic texts against the number of fields on the form,
+ * comparing full submissions with delta submissions and parsed with
+ * cached EL expressions.
+ *
+ * <p>This doesn't measure the whole {@code contentState} request, which
+ * also updates the object using all the inputs and finds the differences
+ * regardless of how many of them were submitted.</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class ContentStateBenchmark {
+
+    @Param({ "10", "50", "200" })
+    public int fieldCount;
+
+    private Map<String, String[]> fullParameters;
+    private Map<String, String[]> deltaParameters;
+    private String sessionKey;
+    private ExpressionFactory expressionFactory;
+    private ELContext elContext;
+    private String[] templates;
+    private int revision;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fullParameters = new LinkedHashMap<>();
+
+        for (int i = 0; i < fieldCount; ++ i) {
+            fullParameters.put("field" + i, new String[] { "Value of field " + i });
+        }
+
+        deltaParameters = new LinkedHashMap<>();
+        deltaParameters.put("field0", new String[] { "Changed" });
+        deltaParameters.put(EditSession.DELTA_PARAMETER, new String[] { "true" });
+
+        sessionKey = EditSession.createKey(UUID.randomUUID(), UUID.randomUUID().toString(), "benchmark");
+        EditSession.findOrCreate(sessionKey).update(fullParameters, false, null);
+
+        Map<String, Object> content = new HashMap<>();
+
+        templates = new String[fieldCount];
+
+        for (int i = 0; i < fieldCount; ++ i) {
+            content.put("field" + i, "Value of field " + i);
+            templates[i] = "${content.field" + i + "} (" + i + ")";
+        }
+
+        ELManager manager = new ELManager();
+
+        manager.defineBean("content", content);
+
+        expressionFactory = ELManager.getExpressionFactory();
+        elContext = manager.getELContext();
+    }
+
+    private void processFields(HttpServletRequest request, Blackhole blackhole) {
+        for (int i = 0; i < fieldCount; ++ i) {
+            blackhole.consume(request.getParameter("field" + i));
+        }
+    }
+
+    @Benchmark
+    public void fullSubmission(Blackhole blackhole) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        request.setParameters(fullParameters);
+
+        Map<String, String[]> parameters = EditSession
+                .findOrCreate(sessionKey)
+                .update(request.getParameterMap(), false, null);
+
+        processFields(EditSession.wrapRequest(request, parameters), blackhole);
+    }
+
+    @Benchmark
+    public void deltaSubmission(Blackhole blackhole) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+
+        request.setParameters(deltaParameters);
+        request.setParameter("field0", "Changed " + (++ revision));
+
+        Map<String, String[]> parameters = EditSession
+                .findOrCreate(sessionKey)
+                .update(request.getParameterMap(), true, null);
+
+        processFields(EditSession.wrapRequest(request, parameters), blackhole);
+    }
+
+    @Benchmark
+    public void parsedDynamicTexts(Blackhole blackhole) {
+        for (String template : templates) {
+            blackhole.consume(expressionFactory.createValueExpression(elContext, template, String.class).getValue(elContext));
+        }
+    }
+
+    @Benchmark
+    public void cachedDynamicTexts(Blackhole blackhole) {
+        for (String template : templates) {
+            blackhole.consume(ValueExpressionCache.get(expressionFactory, elContext, template, String.class).getValue(elContext));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.psddev.cms.benchmark;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.psddev.cms.db.FrameFilter;
+import com.psddev.dari.util.HtmlWriter;
+
+/**
+ * Frame capture of a large page through {@link FrameFilter}, compared with
+ * the previous implementation that captured the whole page before escaping
+ * it.
+ *
+ * <p>Run with {@code -prof gc} to compare the memory allocated per
+ * operation ({@code gc.alloc.rate.norm}).</p>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@SuppressWarnings("deprecation")
+public class FrameFilterBenchmark {
+
+    private static final int WRITE_SIZE = 4096;
+
+    @Param({ "2097152" })
+    public int pageSize;
+
+    private String page;
+    private MockHttpServletRequest request;
+    private FilterChain chain;
+    private BenchmarkFrameFilter filter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StringBuilder html = new StringBuilder(pageSize);
+
+        while (html.length() < pageSize) {
+            html.append("<div class=\"cms-objectBegin\" data-object=\"{&quot;id&quot;:1}\">Lorem ipsum & dolor sit amet.</div>\n");
+        }
+
+        html.setLength(pageSize);
+
+        page = html.toString();
+        request = BenchmarkEnvironment.createRequest("/");
+        request.addParameter("_frame", "true");
+        chain = (chainRequest, chainResponse) -> writePage(chainResponse.getWriter());
+        filter = new BenchmarkFrameFilter();
+    }
+
+    // Writes the page in pieces like a JSP would.
+    private void writePage(Writer writer) throws IOException {
+        for (int i = 0, length = page.length(); i < length; i += WRITE_SIZE) {
+            writer.write(page, i, Math.min(WRITE_SIZE, length - i));
+        }
+    }
+
+    /**
+     * Previous implementation that captured the whole page in a
+     * {@link StringWriter} first.
+     */
+    @Benchmark
+    public void captured() throws IOException {
+        StringWriter capture = new StringWriter();
+
+        writePage(new PrintWriter(capture));
+
+        HtmlWriter writer = new HtmlWriter(new DiscardingWriter());
+
+        writer.writeTag("!doctype html");
+        writer.writeStart("html");
+            writer.writeStart("body");
+                writer.writeStart("textarea", "id", "frameBody");
+                    writer.writeHtml(capture.toString());
+                writer.writeEnd();
+            writer.writeEnd();
+        writer.writeEnd();
+    }
+
+    /**
+     * Current implementation that escapes the page in chunks.
+     */
+    @Benchmark
+    public void streamed() throws IOException, ServletException {
+        filter.run(request, new DiscardingResponse(BenchmarkEnvironment.createResponse()), chain);
+    }
+
+    private static final class BenchmarkFrameFilter extends FrameFilter {
+
+        public void run(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+            doRequest(request, response, chain);
+        }
+    }
+
+    // Keeps the mock response from holding on to the output.
+    private static final class DiscardingResponse extends HttpServletResponseWrapper {
+
+        private final PrintWriter writer = new PrintWriter(new DiscardingWriter());
+
+        public DiscardingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public PrintWriter getWriter() {
+            return writer;
+        }
+    }
+
+    private static final class DiscardingWriter extends Writer {
+
+        @Override
+        public void write(char[] buffer, int offset, int length) {
+        }
+
+        @Override
+        public void write(String string, int offset, int length) {
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.psddev.cms.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.psddev.cms.db.CropOption;
+import com.psddev.cms.db.ImageTag;
+
+/**
+ * {@link ImageTag} HTML and URL generation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class ImageTagBenchmark {
+
+    @Param({ "1000" })
+    public int articleCount;
+
+    private List<BenchmarkArticle> articles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        articles = BenchmarkEnvironment.seed(articleCount).getArticles();
+    }
+
+    private BenchmarkArticle randomArticle() {
+        return articles.get(ThreadLocalRandom.current().nextInt(articles.size()));
+    }
+
+    @Benchmark
+    public String toHtml() {
+        return new ImageTag.Builder(randomArticle().getImage())
+                .setWidth(640)
+                .setHeight(360)
+                .setCropOption(CropOption.AUTOMATIC)
+                .addAttribute("alt", "Benchmark")
+                .toHtml();
+    }
+
+    @Benchmark
+    public String toUrl() {
+        return new ImageTag.Builder(randomArticle().getImage())
+                .setWidth(320)
+                .setHeight(180)
+                .toUrl();
+    }
+}
@@ -0,0 +1,81 @@
+package com.psddev.cms.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.psddev.cms.db.Directory;
+import com.psddev.cms.db.Site;
+import com.psddev.cms.view.JsonViewRenderer;
+import com.psddev.cms.view.ViewModel;
+import com.psddev.cms.view.ViewResponse;
+import com.psddev.cms.view.servlet.ServletViewModelCreator;
+
+/**
+ * Public page render path: site lookup, main object resolution, view model
+ * creation and rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+    @Param({ "1000" })
+    public int articleCount;
+
+    private BenchmarkEnvironment.Seed seed;
+    private List<BenchmarkArticle> articles;
+    private JsonViewRenderer renderer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        seed = BenchmarkEnvironment.seed(articleCount);
+        articles = seed.getArticles();
+        renderer = new JsonViewRenderer();
+    }
+
+    private BenchmarkArticle randomArticle() {
+        return articles.get(ThreadLocalRandom.current().nextInt(articles.size()));
+    }
+
+    @Benchmark
+    public Map.Entry<String, Site> findSite() {
+        return Site.Static.findByUrl(BenchmarkEnvironment.SITE_URL + randomArticle().createPermalink(seed.getSite()).substring(1));
+    }
+
+    @Benchmark
+    public Object findMainObject() {
+        BenchmarkArticle article = randomArticle();
+
+        return Directory.Static.findByPath(seed.getSite(), article.createPermalink(seed.getSite()));
+    }
+
+    @Benchmark
+    public Object createViewModel() {
+        BenchmarkArticle article = randomArticle();
+        MockHttpServletRequest request = BenchmarkEnvironment.createRequest(article.createPermalink(seed.getSite()));
+
+        return new ServletViewModelCreator(request).createViewModel(BenchmarkArticleViewModel.class, article, new ViewResponse());
+    }
+
+    @Benchmark
+    public String render() {
+        BenchmarkArticle article = randomArticle();
+        MockHttpServletRequest request = BenchmarkEnvironment.createRequest(article.createPermalink(seed.getSite()));
+        ViewModel<?> viewModel = new ServletViewModelCreator(request).createViewModel(BenchmarkArticleViewModel.class, article, new ViewResponse());
+
+        return renderer.render(viewModel, null).get();
+    }
+}
@@ -0,0 +1,68 @@
+package com.psddev.cms.benchmark;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import com.psddev.cms.db.RichTextCleaner;
+import com.psddev.cms.db.RichTextDatabase;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.ReferentialText;
+
+/**
+ * Rich text publishable processing through {@link RichTextDatabase}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class RichTextBenchmark {
+
+    @Param({ "1000" })
+    public int articleCount;
+
+    private List<BenchmarkArticle> articles;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        articles = BenchmarkEnvironment.seed(articleCount).getArticles();
+    }
+
+    private BenchmarkArticle randomArticle() {
+        return articles.get(ThreadLocalRandom.current().nextInt(articles.size()));
+    }
+
+    /**
+     * Uncached conversion of the rich text into publishables.
+     */
+    @Benchmark
+    public List<Object> toPublishables() {
+        return new ReferentialText(randomArticle().getBody(), true).toPublishables(true, new RichTextCleaner());
+    }
+
+    /**
+     * Reads an article through {@link RichTextDatabase}, which cleans all
+     * rich text fields.
+     */
+    @Benchmark
+    public BenchmarkArticle readThroughDatabase() {
+        RichTextDatabase database = new RichTextDatabase();
+
+        database.setDelegate(Database.Static.getDefault());
+
+        return Query.from(BenchmarkArticle.class)
+                .where("_id = ?", randomArticle())
+                .using(database)
+                .first();
+    }
+}
@@ -0,0 +1,73 @@
+package com.psddev.cms.benchmark;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import com.psddev.cms.tool.Search;
+import com.psddev.cms.tool.SearchResultRenderer;
+import com.psddev.cms.tool.ToolPageContext;
+import com.psddev.dari.db.ObjectType;
+
+/**
+ * Tool search query execution and result rendering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    @Param({ "1000" })
+    public int articleCount;
+
+    @Param({ "10", "50" })
+    public int limit;
+
+    private ObjectType articleType;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkEnvironment.seed(articleCount);
+        articleType = ObjectType.getInstance(BenchmarkArticle.class);
+    }
+
+    private ToolPageContext createPage() {
+        MockHttpServletRequest request = BenchmarkEnvironment.createRequest("/cms/misc/searchResult");
+        MockHttpServletResponse response = BenchmarkEnvironment.createResponse();
+
+        request.addParameter(Search.LIMIT_PARAMETER, String.valueOf(limit));
+
+        return new ToolPageContext(request.getServletContext(), request, response);
+    }
+
+    @Benchmark
+    public List<?> query() {
+        ToolPageContext page = createPage();
+        Search search = new Search(page, articleType.getId());
+
+        return search.toQuery(null).select(0, limit).getItems();
+    }
+
+    @Benchmark
+    public String renderResults() throws IOException {
+        ToolPageContext page = createPage();
+        Search search = new Search(page, articleType.getId());
+        List<?> items = search.toQuery(null).select(0, limit).getItems();
+
+        new SearchResultRenderer(page, search).renderList(items);
+
+        return ((MockHttpServletResponse) page.getResponse()).getContentAsString();
+    }
+}
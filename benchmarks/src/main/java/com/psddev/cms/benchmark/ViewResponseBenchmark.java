@@ -0,0 +1,79 @@
+package com.psddev.cms.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import com.psddev.cms.view.ViewResponse;
+
+/**
+ * Throw-and-catch cost of {@link ViewResponse} from a given call stack
+ * depth, compared with an exception that captures its stack trace and with
+ * the previous {@code fillInStackTrace} override.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ViewResponseBenchmark {
+
+    @Param({ "10", "100" })
+    public int depth;
+
+    private static void throwAt(int depth, RuntimeException error) {
+        if (depth <= 0) {
+            throw error;
+
+        } else {
+            throwAt(depth - 1, error);
+        }
+    }
+
+    private static Object run(int depth, RuntimeException error) {
+        try {
+            throwAt(depth, error);
+            return null;
+
+        } catch (RuntimeException caught) {
+            return caught;
+        }
+    }
+
+    /**
+     * Exception that captures its full stack trace.
+     */
+    @Benchmark
+    public Object stackTrace() {
+        return run(depth, new RuntimeException());
+    }
+
+    /**
+     * Previous {@link ViewResponse} implementation, which overrode
+     * {@code fillInStackTrace}.
+     */
+    @Benchmark
+    public Object overriddenFillInStackTrace() {
+        return run(depth, new OverriddenFillInStackTrace());
+    }
+
+    /**
+     * Current {@link ViewResponse} with the stack trace disabled.
+     */
+    @Benchmark
+    public Object viewResponse() {
+        return run(depth, new ViewResponse());
+    }
+
+    private static class OverriddenFillInStackTrace extends RuntimeException {
+
+        @Override
+        public synchronized Throwable fillInStackTrace() {
+            return this;
+        }
+    }
+}
@@ -14,10 +14,9 @@ import javax.servlet.http.HttpServletResponse;
 
 import com.google.common.primitives.Longs;
 import com.psddev.cms.tool.AuthenticationFilter;
-import com.psddev.cms.tool.CmsTool;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.dari.db.ApplicationFilter;
 import com.psddev.dari.db.Database;
-import com.psddev.dari.db.Query;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.AbstractFilter;
 import com.psddev.dari.util.ObjectUtils;
@@ -45,9 +44,7 @@ public class AbFilter extends AbstractFilter implements AbstractFilter.Auto {
             FilterChain chain)
             throws IOException, ServletException {
 
-        CmsTool cms = Query.from(CmsTool.class).first();
-
-        if (cms == null || !cms.isEnableAbTesting()) {
+        if (!CmsToolSnapshot.get().isEnableAbTesting()) {
             chain.doFilter(request, response);
             return;
         }
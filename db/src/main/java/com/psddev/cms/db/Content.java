@@ -12,17 +12,23 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 import javax.servlet.http.HttpServletRequest;
 
 import com.psddev.cms.tool.AuthenticationFilter;
+import com.psddev.dari.db.AggregateDatabase;
+import com.psddev.dari.db.AtomicOperation;
 import com.psddev.dari.db.Database;
 import com.psddev.dari.db.DistributedLock;
+import com.psddev.dari.db.ForwardingDatabase;
 import com.psddev.dari.db.Modification;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
+import com.psddev.dari.db.SqlDatabase;
 import com.psddev.dari.db.State;
 import com.psddev.dari.db.VisibilityLabel;
 import com.psddev.dari.util.ObjectUtils;
@@ -39,6 +45,7 @@ public abstract class Content extends Record {
     public static final String PUBLISH_USER_FIELD = PREFIX + "publishUser";
     public static final String UPDATE_DATE_FIELD = PREFIX + "updateDate";
     public static final String UPDATE_USER_FIELD = PREFIX  + "updateUser";
+    public static final String REVISION_FIELD = PREFIX + "revision";
 
     public static final String SEARCHABLE_GROUP = PREFIX + "searchable";
 
@@ -116,6 +123,10 @@ public abstract class Content extends Record {
         @InternalName("cms.content.scheduleDate")
         private Date scheduleDate;
 
+        @InternalName(REVISION_FIELD)
+        @ToolUi.Hidden
+        private Long revision;
+
         /**
          * Returns {@code true} if this content is a draft.
          */
@@ -188,6 +199,16 @@ public abstract class Content extends Record {
             this.scheduleDate = scheduleDate;
         }
 
+        /**
+         * Returns the revision that's incremented every time the given
+         * {@code object} is published with differences.
+         *
+         * @return {@code null} if it was never published with differences.
+         */
+        public Long getRevision() {
+            return revision;
+        }
+
         /**
          * Adds the given {@code notification} to be processed on save.
          *
@@ -225,6 +246,10 @@ public abstract class Content extends Record {
     /** Static utility methods. */
     public static final class Static {
 
+        private static final int PUBLISH_DIFFERENCES_MAXIMUM_ATTEMPTS = 5;
+        private static final AtomicLong PUBLISH_CONFLICTS = new AtomicLong();
+        private static final AtomicLong PUBLISH_LOCK_FALLBACKS = new AtomicLong();
+
         private Static() {
         }
 
@@ -335,6 +360,16 @@ public abstract class Content extends Record {
             }
         }
 
+        /**
+         * Publishes the given {@code differences} on top of the latest
+         * version of the given {@code object}.
+         *
+         * <p>The revision of the object is compared and set on save, and if
+         * another publish happened in between, the differences are merged
+         * again with the newer version a few times. A {@link DistributedLock}
+         * is only used after that, or if the database isn't known to support
+         * the conditional writes.</p>
+         */
         public static History publishDifferences(
                 Object object,
                 Map<String, Map<String, Object>> differences,
@@ -342,30 +377,106 @@ public abstract class Content extends Record {
                 ToolUser user) {
 
             State state = State.getInstance(object);
-            UUID id = state.getId();
-            DistributedLock lock = DistributedLock.Static.getInstance(
-                    Database.Static.getDefault(),
-                    Content.class.getName() + "/publish/" + id);
 
-            lock.lock();
+            Supplier<History> lockedPublish = () -> {
+                DistributedLock lock = DistributedLock.Static.getInstance(
+                        Database.Static.getDefault(),
+                        Content.class.getName() + "/publish/" + state.getId());
 
-            try {
-                Object oldObject = Query.fromAll().where("_id = ?", id).noCache().first();
+                lock.lock();
+
+                try {
+                    Long revision = mergeLatest(state, differences);
+
+                    state.put(REVISION_FIELD, revision != null ? revision + 1 : 1L);
+                    return publish(object, site, user);
 
-                if (oldObject != null) {
-                    state.setValues(Draft.mergeDifferences(
-                            state.getDatabase().getEnvironment(),
-                            State.getInstance(oldObject).getSimpleValues(),
-                            differences));
+                } finally {
+                    lock.unlock();
                 }
+            };
+
+            if (!supportsConditionalWrites(state.getDatabase())) {
+                return lockedPublish.get();
+            }
+
+            return publishConditionally(() -> {
+                Long revision = mergeLatest(state, differences);
 
+                state.replaceAtomically(REVISION_FIELD, revision != null ? revision + 1 : 1L);
                 return publish(object, site, user);
 
-            } finally {
-                lock.unlock();
+            }, lockedPublish);
+        }
+
+        // Returns true if the given database, or the database that it writes
+        // to, is known to check the atomic replacements on save.
+        static boolean supportsConditionalWrites(Database database) {
+            while (true) {
+                if (database instanceof ForwardingDatabase) {
+                    database = ((ForwardingDatabase) database).getDelegate();
+
+                } else if (database instanceof AggregateDatabase) {
+                    database = ((AggregateDatabase) database).getDefaultDelegate();
+
+                } else {
+                    return database instanceof SqlDatabase;
+                }
             }
         }
 
+        // Tries the conditional publish a few times, and uses the locked
+        // publish once the attempts run out. Only the replacement conflicts
+        // are retried, and any other error is thrown as is.
+        static <T> T publishConditionally(Supplier<T> conditionalPublish, Supplier<T> lockedPublish) {
+            for (int attempt = 0; attempt < PUBLISH_DIFFERENCES_MAXIMUM_ATTEMPTS; ++ attempt) {
+                try {
+                    return conditionalPublish.get();
+
+                } catch (AtomicOperation.ReplacementException error) {
+                    PUBLISH_CONFLICTS.incrementAndGet();
+                }
+            }
+
+            PUBLISH_LOCK_FALLBACKS.incrementAndGet();
+            return lockedPublish.get();
+        }
+
+        // Merges the differences with the latest version of the object and
+        // returns its revision.
+        private static Long mergeLatest(State state, Map<String, Map<String, Object>> differences) {
+            Object oldObject = Query.fromAll().where("_id = ?", state.getId()).noCache().first();
+
+            if (oldObject == null) {
+                return null;
+            }
+
+            State oldState = State.getInstance(oldObject);
+
+            state.setValues(Draft.mergeDifferences(
+                    state.getDatabase().getEnvironment(),
+                    oldState.getSimpleValues(),
+                    differences));
+
+            return oldState.as(ObjectModification.class).getRevision();
+        }
+
+        /**
+         * Returns the number of times that {@link #publishDifferences} had to
+         * merge again because another publish happened in between.
+         */
+        public static long getPublishConflictCount() {
+            return PUBLISH_CONFLICTS.get();
+        }
+
+        /**
+         * Returns the number of times that {@link #publishDifferences} used
+         * the {@link DistributedLock} instead of the conditional writes.
+         */
+        public static long getPublishLockFallbackCount() {
+            return PUBLISH_LOCK_FALLBACKS.get();
+        }
+
         /**
          * Trashes the given {@code object} so that it's not usable in
          * the given {@code site}.  If the {@link Site} is the {@link com.psddev.cms.db.Site.ObjectModification#owner},
@@ -449,6 +560,25 @@ public abstract class Content extends Record {
             Database database = objectState.getDatabase();
             UUID objectId = objectState.getId();
 
+            // The bulk delete skips Draft#afterDelete, so the draft counts
+            // of the schedules are updated separately.
+            List<UUID> scheduleIds = new ArrayList<>();
+
+            for (Draft draft : Query
+                    .from(Draft.class)
+                    .where("objectId = ?", objectId)
+                    .and("schedule != missing")
+                    .using(database)
+                    .noCache()
+                    .selectAll()) {
+
+                Schedule schedule = draft.getSchedule();
+
+                if (schedule != null) {
+                    scheduleIds.add(schedule.getId());
+                }
+            }
+
             try {
                 database.beginWrites();
                 database.deleteByQuery(Query.from(Draft.class).where("objectId = ?", objectId));
@@ -459,6 +589,8 @@ public abstract class Content extends Record {
             } finally {
                 database.endWrites();
             }
+
+            DraftScheduleTracker.afterDeleteAll(scheduleIds, Schedule::updateDraftCount);
         }
     }
 
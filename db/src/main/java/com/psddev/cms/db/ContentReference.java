@@ -0,0 +1,520 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.DistributedLock;
+import com.psddev.dari.db.Grouping;
+import com.psddev.dari.db.Modification;
+import com.psddev.dari.db.ObjectField;
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.Record;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Task;
+import com.psddev.dari.util.UuidUtils;
+
+/**
+ * Reverse reference index entry that lists all the IDs referenced by a
+ * single object.
+ *
+ * <p>The entries are maintained on save by {@link IndexModification} and
+ * can be backfilled using {@link Rebuild}, so that the number of references
+ * to a page of objects can be found in one query instead of a full-text
+ * {@code * matches} query per object.</p>
+ *
+ * <p>Only the {@linkplain Content.Static#isSearchableType searchable} types
+ * that have reference or rich text fields are indexed, since only those
+ * show up as the references in the tool.</p>
+ */
+public class ContentReference extends Record {
+
+    private static final int BATCH_SIZE = 200;
+    private static final long STATUS_CHECK_INTERVAL = 60000L;
+    private static final long CLAIM_DURATION = 600000L;
+
+    private static final Pattern UUID_PATTERN = Pattern.compile(
+            "[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}",
+            Pattern.CASE_INSENSITIVE);
+
+    private static volatile boolean complete;
+    private static volatile long statusCheckTime;
+
+    @Indexed
+    private UUID sourceId;
+
+    @Indexed
+    private UUID sourceTypeId;
+
+    @Indexed
+    private Set<UUID> targetIds;
+
+    /**
+     * Returns the ID of the object that contains the references.
+     */
+    public UUID getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * Returns the type ID of the object that contains the references.
+     */
+    public UUID getSourceTypeId() {
+        return sourceTypeId;
+    }
+
+    /**
+     * Returns all the IDs referenced by the source object.
+     *
+     * @return Never {@code null}.
+     */
+    public Set<UUID> getTargetIds() {
+        if (targetIds == null) {
+            targetIds = new LinkedHashSet<>();
+        }
+        return targetIds;
+    }
+
+    /**
+     * Returns {@code true} if the index has been backfilled by
+     * {@link Rebuild} and can be used in place of the {@code * matches}
+     * queries.
+     */
+    public static boolean isIndexComplete() {
+        if (complete) {
+            return true;
+        }
+
+        long now = System.currentTimeMillis();
+
+        if (now - statusCheckTime >= STATUS_CHECK_INTERVAL) {
+            statusCheckTime = now;
+
+            if (ObjectType.getInstance(ContentReference.class) != null) {
+                Status status = Query
+                        .from(Status.class)
+                        .where("_id = ?", Status.ID)
+                        .noCache()
+                        .first();
+
+                complete = status != null && status.getCompleteDate() != null;
+            }
+        }
+
+        return complete;
+    }
+
+    /**
+     * Counts the number of objects that reference each of the given
+     * {@code targetIds} in one query.
+     *
+     * @param targetIds If {@code null}, returns an empty map.
+     * @return Never {@code null}. Contains an entry for each of the given
+     *         IDs.
+     */
+    public static Map<UUID, Long> countReferences(Collection<UUID> targetIds) {
+        if (targetIds == null || targetIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, Long> counts = new HashMap<>();
+
+        for (UUID targetId : targetIds) {
+            counts.put(targetId, 0L);
+        }
+
+        for (Grouping<ContentReference> grouping : Query
+                .from(ContentReference.class)
+                .where("targetIds = ?", targetIds)
+                .groupBy("targetIds")) {
+
+            UUID targetId = ObjectUtils.to(UUID.class, grouping.getKeys().get(0));
+
+            if (counts.containsKey(targetId)) {
+                counts.put(targetId, grouping.getCount());
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Finds the IDs of the objects that reference each of the given
+     * {@code targetIds} in one query.
+     *
+     * @param targetIds If {@code null}, returns an empty map.
+     * @param excludedTypes Types of the referencing objects to ignore.
+     * @return Never {@code null}. Contains an entry for each of the given
+     *         IDs.
+     */
+    public static Map<UUID, Set<UUID>> findSourceIds(Collection<UUID> targetIds, Class<?>... excludedTypes) {
+        if (targetIds == null || targetIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, Set<UUID>> sourceIdsByTargetId = new HashMap<>();
+
+        for (UUID targetId : targetIds) {
+            sourceIdsByTargetId.put(targetId, new LinkedHashSet<>());
+        }
+
+        Query<ContentReference> query = Query
+                .from(ContentReference.class)
+                .where("targetIds = ?", targetIds);
+
+        for (Class<?> excludedType : excludedTypes) {
+            ObjectType type = ObjectType.getInstance(excludedType);
+
+            if (type != null) {
+                query.and("sourceTypeId != ?", type.getId());
+            }
+        }
+
+        for (ContentReference entry : query.iterable(BATCH_SIZE)) {
+            for (UUID targetId : entry.getTargetIds()) {
+                Set<UUID> sourceIds = sourceIdsByTargetId.get(targetId);
+
+                if (sourceIds != null) {
+                    sourceIds.add(entry.getSourceId());
+                }
+            }
+        }
+
+        return sourceIdsByTargetId;
+    }
+
+    /**
+     * Finds the IDs of the objects that reference the given
+     * {@code targetId}.
+     *
+     * @param targetId If {@code null}, returns an empty set.
+     * @param excludedTypes Types of the referencing objects to ignore.
+     * @return Never {@code null}.
+     */
+    public static Set<UUID> findSourceIds(UUID targetId, Class<?>... excludedTypes) {
+        if (targetId == null) {
+            return Collections.emptySet();
+        }
+
+        return findSourceIds(Collections.singleton(targetId), excludedTypes).get(targetId);
+    }
+
+    /**
+     * Finds all the IDs that the object with the given {@code simpleValues}
+     * references, the same way that a full-text {@code * matches} query
+     * would match them, excluding the object's own ID.
+     *
+     * @param simpleValues May be {@code null}.
+     * @param sourceId May be {@code null}.
+     * @return Never {@code null}.
+     */
+    static Set<UUID> findTargetIds(Object simpleValues, UUID sourceId) {
+        Set<UUID> targetIds = new LinkedHashSet<>();
+
+        addTargetIds(targetIds, simpleValues);
+        targetIds.remove(sourceId);
+        return targetIds;
+    }
+
+    private static void addTargetIds(Set<UUID> targetIds, Object value) {
+        if (value instanceof Map) {
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                Object key = entry.getKey();
+
+                // The IDs and the types of the embedded objects aren't
+                // references.
+                if (!State.ID_KEY.equals(key) && !State.TYPE_KEY.equals(key)) {
+                    addTargetIds(targetIds, entry.getValue());
+                }
+            }
+
+        } else if (value instanceof Iterable) {
+            for (Object item : (Iterable<?>) value) {
+                addTargetIds(targetIds, item);
+            }
+
+        } else if (value instanceof UUID) {
+            targetIds.add((UUID) value);
+
+        } else if (value instanceof String) {
+            String string = (String) value;
+
+            if (string.length() >= 36) {
+                Matcher matcher = UUID_PATTERN.matcher(string);
+
+                while (matcher.find()) {
+                    targetIds.add(UUID.fromString(matcher.group()));
+                }
+            }
+        }
+    }
+
+    private static UUID createId(UUID sourceId) {
+        return UuidUtils.createVersion3Uuid(ContentReference.class.getName() + "/" + sourceId);
+    }
+
+    // Only the top-level objects outside of the index itself are indexed.
+    private static boolean isIndexed(Object object) {
+        if (object == null
+                || object instanceof ContentReference
+                || object instanceof Status) {
+
+            return false;
+        }
+
+        return isIndexedType(State.getInstance(object).getType());
+    }
+
+    static boolean isIndexedType(ObjectType type) {
+        if (type == null
+                || type.isEmbedded()
+                || !Content.Static.isSearchableType(type)) {
+
+            return false;
+        }
+
+        for (ObjectField field : type.getFields()) {
+            String itemType = field.getInternalItemType();
+
+            if (ObjectField.RECORD_TYPE.equals(itemType)
+                    || ObjectField.ANY_TYPE.equals(itemType)
+                    || field.as(ToolUi.class).isRichText()) {
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static ContentReference createEntry(Object object) {
+        State state = State.getInstance(object);
+        ContentReference entry = new ContentReference();
+
+        entry.getState().setDatabase(state.getDatabase());
+        entry.getState().setId(createId(state.getId()));
+        entry.sourceId = state.getId();
+        entry.sourceTypeId = state.getTypeId();
+        entry.targetIds = findTargetIds(state.getSimpleValues(), state.getId());
+        return entry;
+    }
+
+    /**
+     * Updates the index entries for all objects when they're saved or
+     * deleted.
+     */
+    public static class IndexModification extends Modification<Object> {
+
+        @Override
+        protected void afterSave() {
+            Object object = getOriginalObject();
+
+            if (isIndexed(object)) {
+                createEntry(object).saveUnsafely();
+            }
+        }
+
+        @Override
+        protected void afterDelete() {
+            Object object = getOriginalObject();
+
+            if (isIndexed(object)) {
+                Query.from(ContentReference.class)
+                        .using(getState().getDatabase())
+                        .where("_id = ?", createId(getId()))
+                        .deleteAll();
+            }
+        }
+    }
+
+    /**
+     * Backfills the index entries for all existing objects and marks the
+     * index as complete, unless it's already complete.
+     *
+     * <p>Every server schedules this, so the work is claimed in the
+     * {@link Status} first, and only the server that holds the claim runs
+     * it. The claim is renewed while the task runs, and can be taken over
+     * by another server once it expires.</p>
+     */
+    public static class Rebuild extends Task {
+
+        private final String claimant = UUID.randomUUID().toString();
+
+        public Rebuild() {
+            super("Content References", "Rebuild Index");
+        }
+
+        @Override
+        protected void doTask() {
+            if (ObjectType.getInstance(ContentReference.class) == null
+                    || isIndexComplete()
+                    || !claim()) {
+
+                return;
+            }
+
+            List<ObjectType> types = new ArrayList<>();
+
+            for (ObjectType type : Database.Static.getDefault().getEnvironment().getTypes()) {
+                if (isIndexedType(type)) {
+                    types.add(type);
+                }
+            }
+
+            List<ContentReference> entries = new ArrayList<>();
+
+            if (!types.isEmpty()) {
+                for (Iterator<Object> i = Query
+                        .fromAll()
+                        .where("_type = ?", types)
+                        .noCache()
+                        .resolveToReferenceOnly()
+                        .iterable(BATCH_SIZE)
+                        .iterator(); shouldContinue() && i.hasNext();) {
+
+                    Object item = i.next();
+
+                    if (isIndexed(item)) {
+                        entries.add(createEntry(item));
+
+                        if (entries.size() >= BATCH_SIZE) {
+                            saveBatch(entries);
+
+                            if (!claim()) {
+                                return;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (!shouldContinue()) {
+                return;
+            }
+
+            saveBatch(entries);
+
+            Status status = findStatus();
+
+            status.completeDate = new Date();
+            status.claimedBy = null;
+            status.claimExpireDate = null;
+            status.saveImmediately();
+
+            complete = true;
+        }
+
+        // Claims or renews the claim on the rebuild, and returns false if
+        // another server holds it.
+        private boolean claim() {
+            DistributedLock lock = DistributedLock.Static.getInstance(
+                    Database.Static.getDefault(),
+                    Rebuild.class.getName() + "/claim");
+
+            lock.lock();
+
+            try {
+                Status status = findStatus();
+                Date now = new Date();
+
+                if (status.completeDate != null) {
+                    return false;
+
+                } else if (status.claimedBy != null
+                        && !claimant.equals(status.claimedBy)
+                        && status.claimExpireDate != null
+                        && status.claimExpireDate.after(now)) {
+
+                    return false;
+                }
+
+                status.claimedBy = claimant;
+                status.claimExpireDate = new Date(now.getTime() + CLAIM_DURATION);
+                status.saveImmediately();
+                return true;
+
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private Status findStatus() {
+            Status status = Query
+                    .from(Status.class)
+                    .where("_id = ?", Status.ID)
+                    .master()
+                    .noCache()
+                    .first();
+
+            if (status == null) {
+                status = new Status();
+                status.getState().setId(Status.ID);
+            }
+
+            return status;
+        }
+
+        private void saveBatch(List<ContentReference> entries) {
+            if (entries.isEmpty()) {
+                return;
+            }
+
+            Database database = Database.Static.getDefault();
+
+            database.beginWrites();
+
+            try {
+                for (ContentReference entry : entries) {
+                    entry.saveUnsafely();
+                }
+
+                database.commitWrites();
+
+            } finally {
+                database.endWrites();
+            }
+
+            entries.clear();
+        }
+    }
+
+    /**
+     * Records whether the index has been backfilled.
+     */
+    public static class Status extends Record {
+
+        static final UUID ID = UuidUtils.createVersion3Uuid(Status.class.getName());
+
+        private Date completeDate;
+        private String claimedBy;
+        private Date claimExpireDate;
+
+        public Date getCompleteDate() {
+            return completeDate;
+        }
+
+        /**
+         * Returns the server that's rebuilding the index.
+         */
+        public String getClaimedBy() {
+            return claimedBy;
+        }
+
+        public Date getClaimExpireDate() {
+            return claimExpireDate;
+        }
+    }
+}
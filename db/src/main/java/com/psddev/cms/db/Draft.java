@@ -57,6 +57,8 @@ public class Draft extends Content {
 
     private Map<String, Map<String, Object>> differences;
 
+    private final transient DraftScheduleTracker scheduleTracker = new DraftScheduleTracker();
+
     /**
      * Finds the differences between the given {@code oldValues} and
      * {@code newValues}.
@@ -327,6 +329,7 @@ public class Draft extends Content {
 
     /** Sets the schedule. */
     public void setSchedule(Schedule schedule) {
+        scheduleTracker.beforeChange(getScheduleId());
         this.schedule = schedule;
     }
 
@@ -565,6 +568,36 @@ public class Draft extends Content {
                 getDifferences()));
     }
 
+    private UUID getScheduleId() {
+        Schedule schedule = getSchedule();
+
+        return schedule != null ? schedule.getId() : null;
+    }
+
+    @Override
+    protected void beforeSave() {
+        super.beforeSave();
+
+        scheduleTracker.beforeSave(getState().isNew());
+    }
+
+    @Override
+    protected void afterSave() {
+        super.afterSave();
+
+        scheduleTracker.afterSave(getScheduleId(), Schedule::updateDraftCount);
+    }
+
+    @Override
+    protected void afterDelete() {
+        super.afterDelete();
+
+        scheduleTracker.afterDelete(
+                getScheduleId(),
+                Boolean.TRUE.equals(getState().getExtras().get(Schedule.TRIGGERING_EXTRA)),
+                Schedule::updateDraftCount);
+    }
+
     @Override
     public String getLabel() {
         Object object = recreate();
@@ -0,0 +1,116 @@
+package com.psddev.cms.db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Tracks the schedule that a {@link Draft} was saved in, so that the draft
+ * counts of the schedules are only updated when it actually changes.
+ */
+final class DraftScheduleTracker {
+
+    /**
+     * Updates the draft count of a schedule.
+     */
+    @FunctionalInterface
+    interface Updater {
+
+        /**
+         * @param scheduleId Never {@code null}.
+         * @param delta Change in the number of drafts. Never {@code 0}.
+         */
+        void update(UUID scheduleId, int delta);
+    }
+
+    private boolean changed;
+    private UUID savedScheduleId;
+
+    /**
+     * Called before the schedule changes from the one with the given
+     * {@code currentScheduleId}.
+     */
+    public void beforeChange(UUID currentScheduleId) {
+        if (!changed) {
+            changed = true;
+            savedScheduleId = currentScheduleId;
+        }
+    }
+
+    /**
+     * Called before the draft is saved.
+     *
+     * @param isNew {@code true} if the draft hasn't been saved before.
+     */
+    public void beforeSave(boolean isNew) {
+        if (isNew) {
+            beforeChange(null);
+        }
+    }
+
+    /**
+     * Called after the draft is saved in the schedule with the given
+     * {@code scheduleId}.
+     */
+    public void afterSave(UUID scheduleId, Updater updater) {
+        if (!changed) {
+            return;
+        }
+
+        UUID previousScheduleId = savedScheduleId;
+
+        changed = false;
+        savedScheduleId = null;
+
+        if (!Objects.equals(previousScheduleId, scheduleId)) {
+            if (scheduleId != null) {
+                updater.update(scheduleId, 1);
+            }
+
+            if (previousScheduleId != null) {
+                updater.update(previousScheduleId, -1);
+            }
+        }
+    }
+
+    /**
+     * Called after the draft is deleted while it's in the schedule with the
+     * given {@code scheduleId}.
+     *
+     * @param triggered {@code true} if the draft was deleted because its
+     *        schedule was triggered, which deletes the schedule too.
+     */
+    public void afterDelete(UUID scheduleId, boolean triggered, Updater updater) {
+        UUID deletedScheduleId = changed ? savedScheduleId : scheduleId;
+
+        changed = false;
+        savedScheduleId = null;
+
+        if (!triggered && deletedScheduleId != null) {
+            updater.update(deletedScheduleId, -1);
+        }
+    }
+
+    /**
+     * Called after the drafts are deleted in bulk without their hooks, such
+     * as when an object is purged.
+     *
+     * @param scheduleIds IDs of the schedules that the deleted drafts were
+     *        in, once per draft. May contain {@code null}s for the drafts
+     *        that weren't scheduled.
+     */
+    public static void afterDeleteAll(Iterable<UUID> scheduleIds, Updater updater) {
+        Map<UUID, Integer> counts = new LinkedHashMap<>();
+
+        for (UUID scheduleId : scheduleIds) {
+            if (scheduleId != null) {
+                counts.merge(scheduleId, 1, Integer::sum);
+            }
+        }
+
+        for (Map.Entry<UUID, Integer> entry : counts.entrySet()) {
+            updater.update(entry.getKey(), -entry.getValue());
+        }
+    }
+}
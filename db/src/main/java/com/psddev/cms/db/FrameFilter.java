@@ -2,7 +2,7 @@ package com.psddev.cms.db;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.io.Writer;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -29,23 +29,14 @@ public class FrameFilter extends AbstractFilter {
             throws IOException, ServletException {
 
         if (ObjectUtils.to(boolean.class, request.getParameter("_frame"))) {
-            CapturingResponse capturing = new CapturingResponse(response);
+            FrameWriter frame = new FrameWriter(response);
+            CapturingResponse capturing = new CapturingResponse(response, frame);
 
             try {
                 chain.doFilter(request, capturing);
 
             } finally {
-                @SuppressWarnings("resource")
-                HtmlWriter writer = new HtmlWriter(response.getWriter());
-
-                writer.writeTag("!doctype html");
-                writer.writeStart("html");
-                    writer.writeStart("body");
-                        writer.writeStart("textarea", "id", "frameBody");
-                            writer.writeHtml(capturing.getOutput());
-                        writer.writeEnd();
-                    writer.writeEnd();
-                writer.writeEnd();
+                frame.close();
             }
 
         } else {
@@ -53,16 +44,19 @@ public class FrameFilter extends AbstractFilter {
         }
     }
 
-    private static final class CapturingResponse extends HttpServletResponseWrapper {
+    // Discards the buffered frame output when the page redirects, sends an
+    // error, or resets the response, so that those still work as long as
+    // the frame hasn't started streaming.
+    static final class CapturingResponse extends HttpServletResponseWrapper {
 
-        private final StringWriter output;
+        private final FrameWriter frame;
         private final PrintWriter printWriter;
 
-        public CapturingResponse(HttpServletResponse response) {
+        public CapturingResponse(HttpServletResponse response, FrameWriter frame) {
             super(response);
 
-            this.output = new StringWriter();
-            this.printWriter = new PrintWriter(output);
+            this.frame = frame;
+            this.printWriter = new PrintWriter(frame);
         }
 
         @Override
@@ -75,8 +69,209 @@ public class FrameFilter extends AbstractFilter {
             return printWriter;
         }
 
-        public String getOutput() {
-            return output.toString();
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            frame.cancel();
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public void sendError(int status) throws IOException {
+            frame.cancel();
+            super.sendError(status);
+        }
+
+        @Override
+        public void sendError(int status, String message) throws IOException {
+            frame.cancel();
+            super.sendError(status, message);
+        }
+
+        @Override
+        public void reset() {
+            frame.resetBuffer();
+            super.reset();
+        }
+
+        @Override
+        public void resetBuffer() {
+            frame.resetBuffer();
+            super.resetBuffer();
+        }
+    }
+
+    // Escapes the output into the frame body. The output is kept in memory
+    // until there's more than the buffer size, so that a typical page can
+    // still redirect, send an error, or change the headers at any point.
+    // After that, it's escaped in chunks instead of capturing all of it, and
+    // the real writer is opened on the first chunk so that the content type
+    // and the character encoding set by the page still apply.
+    static final class FrameWriter extends Writer {
+
+        public static final int BUFFER_SIZE = 65536;
+        public static final int CHUNK_SIZE = 8192;
+
+        private final HttpServletResponse response;
+        private final int bufferSize;
+        private StringBuilder buffer = new StringBuilder();
+        private final char[] chunk = new char[CHUNK_SIZE];
+        private int chunkLength;
+        private HtmlWriter writer;
+        private boolean closed;
+
+        public FrameWriter(HttpServletResponse response) {
+            this(response, BUFFER_SIZE);
+        }
+
+        public FrameWriter(HttpServletResponse response, int bufferSize) {
+            this.response = response;
+            this.bufferSize = bufferSize;
+        }
+
+        /**
+         * Returns {@code true} if the output is being written to the
+         * response, which may be committed.
+         */
+        public boolean isStreaming() {
+            return buffer == null;
+        }
+
+        // Stops all output, such as after a redirect.
+        public void cancel() {
+            resetBuffer();
+            closed = true;
+        }
+
+        // Discards the output that hasn't been streamed yet.
+        public void resetBuffer() {
+            if (buffer != null) {
+                buffer.setLength(0);
+            }
+        }
+
+        @Override
+        public void write(char[] buffer, int offset, int length) throws IOException {
+            if (closed) {
+                return;
+
+            } else if (this.buffer != null) {
+                this.buffer.append(buffer, offset, length);
+                streamIfFull();
+                return;
+            }
+
+            while (length > 0) {
+                int copy = Math.min(length, CHUNK_SIZE - chunkLength);
+
+                System.arraycopy(buffer, offset, chunk, chunkLength, copy);
+                chunkLength += copy;
+                offset += copy;
+                length -= copy;
+
+                if (chunkLength == CHUNK_SIZE) {
+                    writeChunk(false);
+                }
+            }
+        }
+
+        @Override
+        public void write(String string, int offset, int length) throws IOException {
+            if (closed) {
+                return;
+
+            } else if (buffer != null) {
+                buffer.append(string, offset, offset + length);
+                streamIfFull();
+                return;
+            }
+
+            writeStreamed(string, offset, length);
+        }
+
+        private void streamIfFull() throws IOException {
+            if (buffer.length() > bufferSize) {
+                String buffered = buffer.toString();
+
+                buffer = null;
+                writeStreamed(buffered, 0, buffered.length());
+                writeChunk(false);
+            }
+        }
+
+        private void writeStreamed(String string, int offset, int length) throws IOException {
+            while (length > 0) {
+                int copy = Math.min(length, CHUNK_SIZE - chunkLength);
+
+                string.getChars(offset, offset + copy, chunk, chunkLength);
+                chunkLength += copy;
+                offset += copy;
+                length -= copy;
+
+                if (chunkLength == CHUNK_SIZE) {
+                    writeChunk(false);
+                }
+            }
+        }
+        // Escapes and writes the buffered characters, except for a trailing
+        // high surrogate, which is kept until its pair arrives.
+        private void writeChunk(boolean last) throws IOException {
+            int length = chunkLength;
+
+            if (!last && length > 0 && Character.isHighSurrogate(chunk[length - 1])) {
+                -- length;
+            }
+
+            HtmlWriter w = open();
+
+            if (length > 0) {
+                w.writeHtml(new String(chunk, 0, length));
+            }
+
+            chunkLength -= length;
+
+            if (chunkLength > 0) {
+                chunk[0] = chunk[length];
+            }
+        }
+
+        private HtmlWriter open() throws IOException {
+            if (writer == null) {
+                writer = new HtmlWriter(response.getWriter());
+
+                writer.writeTag("!doctype html");
+                writer.writeStart("html");
+                    writer.writeStart("body");
+                        writer.writeStart("textarea", "id", "frameBody");
+            }
+
+            return writer;
+        }
+
+        // Kept in memory so that the response isn't committed early.
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            closed = true;
+
+            if (buffer != null) {
+                String buffered = buffer.toString();
+
+                buffer = null;
+                writeStreamed(buffered, 0, buffered.length());
+            }
+
+            writeChunk(true);
+
+                        writer.writeEnd();
+                    writer.writeEnd();
+                writer.writeEnd();
         }
     }
 }
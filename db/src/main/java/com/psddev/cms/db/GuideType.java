@@ -1,6 +1,7 @@
 package com.psddev.cms.db;
 
 import com.psddev.dari.db.CachingDatabase;
+import com.psddev.dari.db.Database;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Record;
@@ -9,8 +10,15 @@ import com.psddev.dari.db.ReferentialText;
 import com.psddev.dari.db.State;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -160,6 +168,18 @@ public class GuideType extends Record {
         generateFieldDescriptionList();
     }
 
+    @Override
+    protected void afterSave() {
+        super.afterSave();
+        GuideTypeRegistry.invalidate();
+    }
+
+    @Override
+    protected void afterDelete() {
+        super.afterDelete();
+        GuideTypeRegistry.invalidate();
+    }
+
     @Record.Embedded
     @Record.LabelFields({ "displayName" })
     public static class GuideField extends Record {
@@ -307,11 +327,11 @@ public class GuideType extends Record {
 
         /**
          * Retrieve the existing GuideType instance for a given {@code objectType}.
-         * If none exists, null is returned
+         * If none exists, null is returned. The instance is shared, so it
+         * shouldn't be modified.
          */
         public static GuideType getGuideType(ObjectType objectType) {
-            return Query.from(GuideType.class)
-                    .where("documentedType = ?", objectType.getId()).first();
+            return GuideTypeRegistry.find(objectType);
         }
 
         /**
@@ -319,12 +339,7 @@ public class GuideType extends Record {
          * doesn't already exist.
          */
         public static GuideType findOrCreateGuide(ObjectField field) {
-            GuideType guide = Query.from(GuideType.class)
-                    .where("documentedType = ?", field.getParentType().getId()).first();
-            if (guide == null) {
-                guide = createGuide(field.getParentType());
-            }
-            return guide;
+            return findOrCreateGuide(field.getParentType());
         }
 
         /**
@@ -332,8 +347,7 @@ public class GuideType extends Record {
          * doesn't already exist.
          */
         public static GuideType findOrCreateGuide(ObjectType documentedType) {
-            GuideType guide = Query.from(GuideType.class)
-                    .where("documentedType = ?", documentedType.getId()).first();
+            GuideType guide = GuideTypeRegistry.find(documentedType);
             if (guide == null) {
                 guide = createGuide(documentedType);
             }
@@ -342,26 +356,87 @@ public class GuideType extends Record {
 
         /**
          * Create a GuideType instance for the given {@code documentedType}. To allow for thread/transaction safety, this
-         * is synchronized first queries to ensure it hasn't already been created.
+         * holds a lock for the type and first queries to ensure it hasn't already been created.
          */
-        public static synchronized GuideType createGuide(
+        public static GuideType createGuide(
                 ObjectType documentedType) {
+            ReentrantLock lock = GuideTypeRegistry.getCreateLock(documentedType.getId());
+            lock.lock();
+            try {
+                GuideType guide = findUncached(documentedType);
+                if (guide == null) {
+                    LOGGER.info("Creating a production guide instance for type: " + documentedType);
+                    guide = new GuideType();
+                    guide.setDocumentedType(documentedType);
+                    guide.saveImmediately();
+                }
+                return guide;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Create GuideType instances for all given {@code documentedTypes} that don't already have one, and save
+         * them together in a single batch.
+         */
+        public static void createGuides(Collection<ObjectType> documentedTypes) {
+            Map<UUID, ObjectType> missingTypes = new HashMap<>();
+            for (ObjectType type : documentedTypes) {
+                if (type != null && GuideTypeRegistry.find(type) == null) {
+                    missingTypes.put(type.getId(), type);
+                }
+            }
+            if (missingTypes.isEmpty()) {
+                return;
+            }
+
+            GuideTypeRegistry.createMissing(missingTypes.keySet(), typeIds -> {
+                Query<GuideType> query = Query.from(GuideType.class)
+                        .where("documentedType = ?", typeIds);
+                query.as(CachingDatabase.QueryOptions.class).setDisabled(true);
+                Set<UUID> existingIds = new HashSet<>();
+                for (GuideType guide : query.selectAll()) {
+                    ObjectType type = guide.getDocumentedType();
+                    if (type != null) {
+                        existingIds.add(type.getId());
+                    }
+                }
+                return existingIds;
+
+            }, typeIds -> {
+                Database database = Database.Static.getDefault();
+                database.beginWrites();
+                try {
+                    for (UUID typeId : typeIds) {
+                        ObjectType type = missingTypes.get(typeId);
+                        LOGGER.info("Creating a production guide instance for type: " + type);
+                        GuideType guide = new GuideType();
+                        guide.setDocumentedType(type);
+                        guide.save();
+                    }
+                    database.commitWrites();
+                } finally {
+                    database.endWrites();
+                }
+            });
+        }
+
+        private static GuideType findUncached(ObjectType documentedType) {
             Query<GuideType> query = Query.from(GuideType.class)
                     .where("documentedType = ?", documentedType.getId());
             query.as(CachingDatabase.QueryOptions.class).setDisabled(true);
-            GuideType guide = query.first();
-            if (guide == null) {
-                LOGGER.info("Creating a production guide instance for type: " + documentedType);
-                guide = new GuideType();
-                guide.setDocumentedType(documentedType);
-                guide.saveImmediately();
-            }
-            return guide;
+            return query.first();
         }
 
         public static void setDescription(ObjectField field,
                 ReferentialText descText) {
-            GuideType guide = Static.findOrCreateGuide(field);
+            GuideType guide = findOrCreateGuide(field);
+            // Modify a fresh copy instead of the shared instance.
+            GuideType fresh = findUncached(guide.getDocumentedType());
+            if (fresh != null) {
+                guide = fresh;
+            }
             guide.setFieldDescription(field.getInternalName(), field.getDisplayName(), descText);
             guide.saveImmediately();
         }
@@ -371,10 +446,11 @@ public class GuideType extends Record {
          * templates
          */
         public static void createDefaultTypeGuides() {
+            Set<ObjectType> documentedTypes = new LinkedHashSet<>();
             List<Template> templates = Query.from(Template.class).selectAll();
             for (Template template : templates) {
                 for (ObjectType t : template.getContentTypes()) {
-                    findOrCreateGuide(t);
+                    documentedTypes.add(t);
                     // Create guides for the types referenced within this type
                     if (t.getFields() != null) {
                         for (ObjectField field : t.getFields()) {
@@ -382,7 +458,7 @@ public class GuideType extends Record {
                             if (types != null) {
                                 for (ObjectType type : types) {
                                     if (type.getFields() != null && !type.getFields().isEmpty()) {
-                                        findOrCreateGuide(type);
+                                        documentedTypes.add(type);
                                     }
                                 }
                             }
@@ -390,6 +466,7 @@ public class GuideType extends Record {
                     }
                 }
             }
+            createGuides(documentedTypes);
         }
     }
 
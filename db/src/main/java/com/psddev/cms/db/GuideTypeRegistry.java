@@ -0,0 +1,126 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Query;
+
+/**
+ * In-memory index of all {@link GuideType}s by their documented type IDs,
+ * which lets the edit form look up the production guide for every field
+ * without querying.
+ *
+ * <p>The index is reloaded in the background whenever a guide is saved or
+ * deleted on this server, so a guide that was just created may not be
+ * found yet, and creating one always checks the database first. The
+ * changes on the other servers are picked up by
+ * {@link SnapshotRegistry}.</p>
+ */
+final class GuideTypeRegistry {
+
+    private static final SnapshotRegistry<Map<UUID, GuideType>> REGISTRY = new SnapshotRegistry<>(
+            GuideType.class,
+            GuideTypeRegistry::load);
+
+    private static final ConcurrentMap<UUID, ReentrantLock> CREATE_LOCKS = new ConcurrentHashMap<>();
+
+    private GuideTypeRegistry() {
+    }
+
+    // Called by GuideType#afterSave and GuideType#afterDelete.
+    static void invalidate() {
+        REGISTRY.invalidate();
+    }
+
+    /**
+     * Returns the guide for the given {@code type}.
+     *
+     * @param type May be {@code null}.
+     * @return May be {@code null}. Shouldn't be modified, since it's shared
+     *         by all callers.
+     */
+    static GuideType find(ObjectType type) {
+        return type != null ? REGISTRY.get().get(type.getId()) : null;
+    }
+
+    /**
+     * Returns the lock that should be held while creating the guide for the
+     * type with the given {@code typeId}.
+     *
+     * @param typeId Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    static ReentrantLock getCreateLock(UUID typeId) {
+        return CREATE_LOCKS.computeIfAbsent(typeId, k -> new ReentrantLock());
+    }
+
+    /**
+     * Creates the guides for the types with the given {@code typeIds} that
+     * don't have one yet, while holding the create locks for all of them,
+     * so that concurrent calls never create the same guide twice.
+     *
+     * @param typeIds Can't be {@code null}.
+     * @param existingFinder Can't be {@code null}. Called with the type IDs
+     *        while holding the locks, and should return the ones that already
+     *        have a guide, without using any cache.
+     * @param creator Can't be {@code null}. Called with the type IDs that
+     *        don't have a guide while holding the locks, unless there aren't
+     *        any.
+     */
+    static void createMissing(
+            Collection<UUID> typeIds,
+            Function<Set<UUID>, Set<UUID>> existingFinder,
+            Consumer<Set<UUID>> creator) {
+
+        // Sorted so that the locks are always acquired in the same order.
+        Set<UUID> missingIds = new TreeSet<>(typeIds);
+        List<ReentrantLock> locks = new ArrayList<>();
+
+        try {
+            for (UUID typeId : missingIds) {
+                ReentrantLock lock = getCreateLock(typeId);
+
+                lock.lock();
+                locks.add(lock);
+            }
+
+            missingIds.removeAll(existingFinder.apply(Collections.unmodifiableSet(missingIds)));
+
+            if (!missingIds.isEmpty()) {
+                creator.accept(Collections.unmodifiableSet(missingIds));
+            }
+
+        } finally {
+            for (ReentrantLock lock : locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static Map<UUID, GuideType> load() {
+        Map<UUID, GuideType> guides = new HashMap<>();
+
+        for (GuideType guide : Query.from(GuideType.class).selectAll()) {
+            ObjectType type = guide.getDocumentedType();
+
+            if (type != null) {
+                guides.putIfAbsent(type.getId(), guide);
+            }
+        }
+
+        return Collections.unmodifiableMap(guides);
+    }
+}
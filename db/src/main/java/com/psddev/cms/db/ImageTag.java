@@ -26,8 +26,7 @@ import com.psddev.dari.util.HtmlWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.psddev.cms.tool.CmsTool;
-import com.psddev.dari.db.Application;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Recordable;
@@ -1068,18 +1067,15 @@ public class ImageTag extends TagSupport implements DynamicAttributes {
 
                         if (hasOverlays) {
                             String overlayHtml = "";
-                            CmsTool cms = Application.Static.getInstance(CmsTool.class);
+                            CmsToolSnapshot cms = CmsToolSnapshot.get();
                             String defaultCss = cms.getDefaultTextOverlayCss();
 
-                            if (!ObjectUtils.isBlank(defaultCss)) {
+                            if (defaultCss != null) {
                                 overlayCss += "#" + id + "{" + defaultCss + "}";
                             }
 
-                            for (CmsTool.CssClassGroup group : cms.getTextCssClassGroups()) {
-                                String groupName = group.getInternalName();
-                                for (CmsTool.CssClass cssClass : group.getCssClasses()) {
-                                    overlayCss += "#" + id + " .cms-" + groupName + "-" + cssClass.getInternalName() + "{" + cssClass.getCss() + "}";
-                                }
+                            for (Map.Entry<String, String> entry : cms.getTextCssClasses().entrySet()) {
+                                overlayCss += "#" + id + " ." + entry.getKey() + "{" + entry.getValue() + "}";
                             }
 
                             for (ImageTextOverlay textOverlay : textOverlays) {
@@ -1,6 +1,11 @@
 package com.psddev.cms.db;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,8 +14,7 @@ import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.MailMessage;
-import com.psddev.dari.util.MailProvider;
-import com.psddev.dari.util.SmsProvider;
+import com.psddev.dari.util.ObjectUtils;
 
 // CHECKSTYLE:OFF
 /**
@@ -43,27 +47,64 @@ public abstract class Notification extends Record {
         return createMessage(object, sender, date, receiver);
     }
 
+    /**
+     * Returns {@code true} if the messages created by this notification
+     * depend on the receiver beyond their locale. If {@code false}, the
+     * messages are only created once per locale and then addressed to
+     * each receiver.
+     */
+    protected boolean isPersonalized() {
+        return true;
+    }
+
+    /**
+     * Renders the messages for all receivers of this notification and
+     * adds them to the {@link NotificationDispatcher} queue. The messages
+     * are sent in the background.
+     */
     public void processNotification(Object object, ToolUser sender, Date date) {
+        boolean personalized = isPersonalized();
+        Map<Locale, MailMessage> emails = new HashMap<>();
+        Map<Locale, String> smses = new HashMap<>();
+        List<NotificationDispatcher.Message> messages = new ArrayList<>();
+
         for (ToolUser receiver : Query.
                 from(ToolUser.class).
                 where("notifications = ?", this).
                 iterable(0)) {
             try {
+                Locale locale = ObjectUtils.firstNonNull(receiver.getLocale(), Locale.getDefault());
+
                 for (NotificationMethod method : receiver.getNotifyVia()) {
                     switch (method) {
                         case EMAIL :
-                            MailMessage email = createEmail(object, sender, date, receiver);
+                            MailMessage email = personalized
+                                    ? createEmail(object, sender, date, receiver)
+                                    : emails.computeIfAbsent(locale, l -> createEmail(object, sender, date, receiver));
 
-                            email.from("support@perfectsensedigital.com");
-                            email.to(receiver.getEmail());
-                            MailProvider.Static.getDefault().send(email);
+                            if (email != null) {
+                                messages.add(new NotificationDispatcher.Message(
+                                        method,
+                                        receiver.getEmail(),
+                                        email.getSubject(),
+                                        email.getBodyPlain(),
+                                        email.getBodyHtml()));
+                            }
                             break;
 
                         case SMS :
-                            SmsProvider.Static.getDefault().send(
-                                    null,
-                                    receiver.getPhoneNumber(),
-                                    createSms(object, sender, date, receiver));
+                            String sms = personalized
+                                    ? createSms(object, sender, date, receiver)
+                                    : smses.computeIfAbsent(locale, l -> createSms(object, sender, date, receiver));
+
+                            if (sms != null) {
+                                messages.add(new NotificationDispatcher.Message(
+                                        method,
+                                        receiver.getPhoneNumber(),
+                                        null,
+                                        sms,
+                                        null));
+                            }
                             break;
 
                         default :
@@ -73,8 +114,10 @@ public abstract class Notification extends Record {
                 }
 
             } catch (RuntimeException error) {
-                LOGGER.warn("Can't send notification!", error);
+                LOGGER.warn("Can't create notification!", error);
             }
         }
+
+        NotificationDispatcher.getDefault().enqueue(messages);
     }
 }
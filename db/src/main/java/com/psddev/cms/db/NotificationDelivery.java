@@ -0,0 +1,147 @@
+package com.psddev.cms.db;
+
+import java.util.Date;
+
+import com.psddev.dari.db.Record;
+
+/**
+ * Outbound notification message waiting in the durable queue to be sent by
+ * {@link NotificationDispatcher}.
+ */
+public class NotificationDelivery extends Record {
+
+    @Indexed
+    @ToolUi.Hidden
+    private Date nextAttemptDate;
+
+    @Indexed
+    @ToolUi.Hidden
+    private boolean failed;
+
+    @ToolUi.Hidden
+    private String claimedBy;
+
+    private NotificationMethod method;
+    private String recipient;
+    private String subject;
+    private String bodyPlain;
+    private String bodyHtml;
+    private int attempts;
+    private String lastError;
+
+    public NotificationDelivery() {
+    }
+
+    public NotificationDelivery(NotificationDispatcher.Message message) {
+        this.method = message.getMethod();
+        this.recipient = message.getRecipient();
+        this.subject = message.getSubject();
+        this.bodyPlain = message.getBodyPlain();
+        this.bodyHtml = message.getBodyHtml();
+        this.nextAttemptDate = new Date();
+    }
+
+    public Date getNextAttemptDate() {
+        return nextAttemptDate;
+    }
+
+    public void setNextAttemptDate(Date nextAttemptDate) {
+        this.nextAttemptDate = nextAttemptDate;
+    }
+
+    /**
+     * Returns {@code true} if this delivery exhausted all its attempts and
+     * won't be retried.
+     */
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
+
+    /**
+     * Returns the name of the dispatcher that claimed this delivery last.
+     * While it's being sent, the {@linkplain #getNextAttemptDate next
+     * attempt date} is the end of the claim, so that the other servers
+     * don't pick it up again unless the claimant goes away.
+     */
+    public String getClaimedBy() {
+        return claimedBy;
+    }
+
+    public void setClaimedBy(String claimedBy) {
+        this.claimedBy = claimedBy;
+    }
+
+    public NotificationMethod getMethod() {
+        return method;
+    }
+
+    public void setMethod(NotificationMethod method) {
+        this.method = method;
+    }
+
+    public String getRecipient() {
+        return recipient;
+    }
+
+    public void setRecipient(String recipient) {
+        this.recipient = recipient;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public void setSubject(String subject) {
+        this.subject = subject;
+    }
+
+    public String getBodyPlain() {
+        return bodyPlain;
+    }
+
+    public void setBodyPlain(String bodyPlain) {
+        this.bodyPlain = bodyPlain;
+    }
+
+    public String getBodyHtml() {
+        return bodyHtml;
+    }
+
+    public void setBodyHtml(String bodyHtml) {
+        this.bodyHtml = bodyHtml;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    /**
+     * Returns the message that should be sent for this delivery.
+     *
+     * @return Never {@code null}.
+     */
+    public NotificationDispatcher.Message toMessage() {
+        return new NotificationDispatcher.Message(getMethod(), getRecipient(), getSubject(), getBodyPlain(), getBodyHtml());
+    }
+
+    @Override
+    public String getLabel() {
+        return getMethod() + " to " + getRecipient();
+    }
+}
@@ -0,0 +1,568 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.DistributedLock;
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.util.Lazy;
+import com.psddev.dari.util.MailMessage;
+import com.psddev.dari.util.MailProvider;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.SmsProvider;
+import com.psddev.dari.util.Task;
+
+/**
+ * Sends notification messages in the background using a durable, retrying
+ * queue of {@link NotificationDelivery} records and a bounded pool of
+ * worker threads.
+ *
+ * <p>Callers should only {@link #enqueue} messages, which is cheap enough
+ * to do on the thread that's saving the content. Each poll groups the
+ * pending messages by {@link NotificationMethod} so that every provider is
+ * resolved once per batch, and splits each group across the workers.</p>
+ *
+ * <p>Every server polls the same queue, so each batch is claimed before
+ * it's sent: the claim moves the next attempt date of the deliveries to
+ * the end of a lease, and is made while holding a {@link DistributedLock}
+ * so that no two servers claim the same delivery. The lease is just long
+ * enough for the workers to send a full batch, so if a server goes away
+ * while sending, its deliveries become due again soon after.</p>
+ */
+public class NotificationDispatcher {
+
+    public static final String POOL_SIZE_SETTING = "cms/notification/poolSize";
+    public static final String MAXIMUM_ATTEMPTS_SETTING = "cms/notification/maximumAttempts";
+    public static final String FROM_SETTING = "cms/notification/from";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final int BATCH_SIZE = 200;
+    private static final long RETRY_DELAY = 60000L;
+    private static final long SEND_DURATION = 2000L;
+    private static final long LEASE_MARGIN = 30000L;
+
+    private static final Lazy<NotificationDispatcher> DEFAULT = new Lazy<NotificationDispatcher>() {
+
+        @Override
+        protected NotificationDispatcher create() {
+            return new NotificationDispatcher(
+                    MailProvider.Static::getDefault,
+                    SmsProvider.Static::getDefault,
+                    Settings.getOrDefault(int.class, POOL_SIZE_SETTING, 4));
+        }
+    };
+
+    private final Supplier<MailProvider> mailProvider;
+    private final Supplier<SmsProvider> smsProvider;
+    private final int poolSize;
+    private final Queue<?> queue;
+    private final String claimant = UUID.randomUUID().toString();
+    private volatile ExecutorService executor;
+    private volatile Task poller;
+
+    /**
+     * Returns the default dispatcher that sends through the default
+     * {@link MailProvider} and {@link SmsProvider}.
+     *
+     * @return Never {@code null}.
+     */
+    public static NotificationDispatcher getDefault() {
+        return DEFAULT.get();
+    }
+
+    /**
+     * Creates an instance that sends through the given providers using
+     * the given number of worker threads.
+     *
+     * @param mailProvider Can't be {@code null}.
+     * @param smsProvider Can't be {@code null}.
+     */
+    public NotificationDispatcher(Supplier<MailProvider> mailProvider, Supplier<SmsProvider> smsProvider, int poolSize) {
+        this(mailProvider, smsProvider, poolSize, new DatabaseQueue());
+    }
+
+    NotificationDispatcher(Supplier<MailProvider> mailProvider, Supplier<SmsProvider> smsProvider, int poolSize, Queue<?> queue) {
+        Preconditions.checkNotNull(mailProvider);
+        Preconditions.checkNotNull(smsProvider);
+        Preconditions.checkNotNull(queue);
+
+        this.mailProvider = mailProvider;
+        this.smsProvider = smsProvider;
+        this.poolSize = Math.max(poolSize, 1);
+        this.queue = queue;
+        this.executor = createExecutor();
+        this.poller = createPoller();
+    }
+
+    private ExecutorService createExecutor() {
+        return Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Notification Worker " + count.incrementAndGet());
+
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private Task createPoller() {
+        return new Task("Notifications", "Notification Dispatcher") {
+
+            @Override
+            protected void doTask() {
+                while (shouldContinue() && poll() >= BATCH_SIZE) {
+                    // Keep draining while there are full batches.
+                }
+            }
+        };
+    }
+
+    /**
+     * Starts polling the queue periodically, and starts the worker threads
+     * again if they were {@linkplain #stop stopped}.
+     */
+    public synchronized void start() {
+        if (executor.isShutdown()) {
+            executor = createExecutor();
+            poller = createPoller();
+        }
+
+        poller.scheduleWithFixedDelay(5.0, 30.0);
+    }
+
+    /**
+     * Stops polling the queue and shuts down the worker threads.
+     */
+    public synchronized void stop() {
+        poller.stop();
+        executor.shutdown();
+    }
+
+    /**
+     * Saves the given {@code messages} to the queue in a single write batch
+     * and wakes up the poller.
+     *
+     * @param messages Can't be {@code null}.
+     */
+    public void enqueue(Collection<Message> messages) {
+        Preconditions.checkNotNull(messages);
+
+        if (messages.isEmpty()) {
+            return;
+        }
+
+        queue.add(messages);
+
+        Task p = poller;
+
+        if (!p.isRunning()) {
+            p.submit();
+        }
+    }
+
+    /**
+     * Claims one batch of pending deliveries from the queue and sends them.
+     *
+     * @return Number of deliveries that were attempted.
+     */
+    public int poll() {
+        return poll(queue);
+    }
+
+    private <E> int poll(Queue<E> queue) {
+        long now = System.currentTimeMillis();
+        List<E> entries = queue.claim(claimant, new Date(now), new Date(now + calculateLeaseDuration(BATCH_SIZE, poolSize)), BATCH_SIZE);
+
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        List<Message> messages = new ArrayList<>();
+        Map<Message, E> entriesByMessage = new IdentityHashMap<>();
+
+        for (E entry : entries) {
+            Message message = queue.getMessage(entry);
+
+            messages.add(message);
+            entriesByMessage.put(message, entry);
+        }
+
+        Map<Message, Exception> failures = send(messages);
+        int maximumAttempts = Settings.getOrDefault(int.class, MAXIMUM_ATTEMPTS_SETTING, 5);
+
+        for (Map.Entry<Message, E> e : entriesByMessage.entrySet()) {
+            E entry = e.getValue();
+            Exception error = failures.get(e.getKey());
+
+            try {
+                if (error == null) {
+                    queue.remove(entry);
+
+                } else {
+                    int attempts = queue.getAttempts(entry) + 1;
+
+                    LOGGER.warn("Can't send notification!", error);
+
+                    if (attempts >= maximumAttempts) {
+                        queue.fail(entry, attempts, error.getMessage());
+
+                    } else {
+                        queue.retry(entry, attempts, error.getMessage(), new Date(System.currentTimeMillis() + RETRY_DELAY * (1L << (attempts - 1))));
+                    }
+                }
+
+            } catch (RuntimeException updateError) {
+                LOGGER.warn("Can't update notification delivery!", updateError);
+            }
+        }
+
+        return entries.size();
+    }
+
+    /**
+     * Returns how long a claim on the given {@code batchSize} number of
+     * deliveries should last when they're split across the given
+     * {@code poolSize} number of workers.
+     */
+    static long calculateLeaseDuration(int batchSize, int poolSize) {
+        return (batchSize + poolSize - 1) / poolSize * SEND_DURATION + LEASE_MARGIN;
+    }
+
+    /**
+     * Finds the due entries using the given {@code dueFinder} and leases
+     * them using the given {@code leaser} while holding the given
+     * {@code lock}, so that no two callers claim the same entry.
+     *
+     * @return Never {@code null}.
+     */
+    static <E> List<E> claim(Lock lock, Supplier<List<E>> dueFinder, Consumer<List<E>> leaser) {
+        lock.lock();
+
+        try {
+            List<E> due = dueFinder.get();
+
+            if (!due.isEmpty()) {
+                leaser.accept(due);
+            }
+
+            return due;
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Sends the given {@code messages} immediately using the worker threads
+     * and waits for them to finish.
+     *
+     * @param messages Can't be {@code null}.
+     * @return Errors keyed by the messages that couldn't be sent. Never
+     *         {@code null}.
+     */
+    public Map<Message, Exception> send(List<Message> messages) {
+        Preconditions.checkNotNull(messages);
+
+        Map<NotificationMethod, List<Message>> messagesByMethod = new EnumMap<>(NotificationMethod.class);
+
+        for (Message message : messages) {
+            messagesByMethod.computeIfAbsent(message.getMethod(), m -> new ArrayList<>()).add(message);
+        }
+
+        Map<Message, Exception> failures = Collections.synchronizedMap(new IdentityHashMap<>());
+        List<Future<?>> futures = new ArrayList<>();
+        ExecutorService executor = this.executor;
+
+        for (Map.Entry<NotificationMethod, List<Message>> entry : messagesByMethod.entrySet()) {
+            NotificationMethod method = entry.getKey();
+            List<Message> group = entry.getValue();
+            Sender sender;
+
+            try {
+                sender = createSender(method);
+
+            } catch (RuntimeException error) {
+                group.forEach(m -> failures.put(m, error));
+                continue;
+            }
+
+            int chunkSize = Math.max(1, (group.size() + poolSize - 1) / poolSize);
+
+            for (List<Message> chunk : Lists.partition(group, chunkSize)) {
+                futures.add(executor.submit(() -> {
+                    for (Message message : chunk) {
+                        try {
+                            sender.send(message);
+
+                        } catch (RuntimeException error) {
+                            failures.put(message, error);
+                        }
+                    }
+                }));
+            }
+        }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                break;
+
+            } catch (ExecutionException error) {
+                LOGGER.warn("Can't send notifications!", error.getCause());
+            }
+        }
+
+        return failures;
+    }
+
+    private Sender createSender(NotificationMethod method) {
+        switch (method) {
+            case EMAIL :
+                MailProvider mail = mailProvider.get();
+                String from = Settings.getOrDefault(String.class, FROM_SETTING, "support@perfectsensedigital.com");
+
+                return message -> {
+                    MailMessage email = new MailMessage()
+                            .from(from)
+                            .to(message.getRecipient())
+                            .subject(message.getSubject())
+                            .bodyPlain(message.getBodyPlain());
+
+                    if (message.getBodyHtml() != null) {
+                        email.bodyHtml(message.getBodyHtml());
+                    }
+
+                    mail.send(email);
+                };
+
+            case SMS :
+                SmsProvider sms = smsProvider.get();
+
+                return message -> sms.send(null, message.getRecipient(), message.getBodyPlain());
+
+            default :
+                throw new UnsupportedOperationException(String.format(
+                        "Unknown notification method! [%s]", method));
+        }
+    }
+
+    /**
+     * Durable storage of the pending deliveries.
+     *
+     * @param <E> Type of the entries in the queue.
+     */
+    interface Queue<E> {
+
+        /**
+         * Adds the given {@code messages} so that they're due immediately.
+         */
+        void add(Collection<Message> messages);
+
+        /**
+         * Claims up to the given {@code limit} of the entries that are due
+         * at the given {@code now} and that haven't failed, by moving
+         * their next attempt date to the given {@code leaseUntil}. An
+         * entry must never be claimed by two callers at the same time.
+         *
+         * @return Never {@code null}.
+         */
+        List<E> claim(String claimant, Date now, Date leaseUntil, int limit);
+
+        Message getMessage(E entry);
+
+        int getAttempts(E entry);
+
+        /**
+         * Removes the given {@code entry} that was sent.
+         */
+        void remove(E entry);
+
+        /**
+         * Releases the claim on the given {@code entry} that couldn't be
+         * sent so that it's due again at the given {@code nextAttemptDate}.
+         */
+        void retry(E entry, int attempts, String error, Date nextAttemptDate);
+
+        /**
+         * Releases the claim on the given {@code entry} that exhausted all
+         * its attempts so that it's never due again.
+         */
+        void fail(E entry, int attempts, String error);
+    }
+
+    private static final class DatabaseQueue implements Queue<NotificationDelivery> {
+
+        @Override
+        public void add(Collection<Message> messages) {
+            Database database = Database.Static.getDefault();
+
+            database.beginWrites();
+
+            try {
+                for (Message message : messages) {
+                    new NotificationDelivery(message).save();
+                }
+
+                database.commitWrites();
+
+            } finally {
+                database.endWrites();
+            }
+        }
+
+        @Override
+        public List<NotificationDelivery> claim(String claimant, Date now, Date leaseUntil, int limit) {
+            if (ObjectType.getInstance(NotificationDelivery.class) == null) {
+                return Collections.emptyList();
+            }
+
+            Database database = Database.Static.getDefault();
+            DistributedLock lock = DistributedLock.Static.getInstance(
+                    database,
+                    NotificationDelivery.class.getName() + "/claim");
+
+            return NotificationDispatcher.claim(
+                    lock,
+                    () -> Query
+                            .from(NotificationDelivery.class)
+                            .where("failed = false and nextAttemptDate <= ?", now)
+                            .sortAscending("nextAttemptDate")
+                            .master()
+                            .noCache()
+                            .select(0, limit)
+                            .getItems(),
+                    deliveries -> {
+                        database.beginWrites();
+
+                        try {
+                            for (NotificationDelivery delivery : deliveries) {
+                                delivery.setClaimedBy(claimant);
+                                delivery.setNextAttemptDate(leaseUntil);
+                                delivery.save();
+                            }
+
+                            database.commitWrites();
+
+                        } finally {
+                            database.endWrites();
+                        }
+                    });
+        }
+
+        @Override
+        public Message getMessage(NotificationDelivery delivery) {
+            return delivery.toMessage();
+        }
+
+        @Override
+        public int getAttempts(NotificationDelivery delivery) {
+            return delivery.getAttempts();
+        }
+
+        @Override
+        public void remove(NotificationDelivery delivery) {
+            delivery.delete();
+        }
+
+        @Override
+        public void retry(NotificationDelivery delivery, int attempts, String error, Date nextAttemptDate) {
+            delivery.setClaimedBy(null);
+            delivery.setAttempts(attempts);
+            delivery.setLastError(error);
+            delivery.setNextAttemptDate(nextAttemptDate);
+            delivery.save();
+        }
+
+        @Override
+        public void fail(NotificationDelivery delivery, int attempts, String error) {
+            delivery.setClaimedBy(null);
+            delivery.setAttempts(attempts);
+            delivery.setLastError(error);
+            delivery.setFailed(true);
+            delivery.save();
+        }
+    }
+
+    @FunctionalInterface
+    private interface Sender {
+
+        void send(Message message);
+    }
+
+    /**
+     * Fully rendered and addressed notification message.
+     */
+    public static final class Message {
+
+        private final NotificationMethod method;
+        private final String recipient;
+        private final String subject;
+        private final String bodyPlain;
+        private final String bodyHtml;
+
+        /**
+         * @param method Can't be {@code null}.
+         * @param recipient Can't be {@code null}.
+         */
+        public Message(NotificationMethod method, String recipient, String subject, String bodyPlain, String bodyHtml) {
+            Preconditions.checkNotNull(method);
+            Preconditions.checkNotNull(recipient);
+
+            this.method = method;
+            this.recipient = recipient;
+            this.subject = subject;
+            this.bodyPlain = bodyPlain;
+            this.bodyHtml = bodyHtml;
+        }
+
+        public NotificationMethod getMethod() {
+            return method;
+        }
+
+        public String getRecipient() {
+            return recipient;
+        }
+
+        public String getSubject() {
+            return subject;
+        }
+
+        public String getBodyPlain() {
+            return bodyPlain;
+        }
+
+        public String getBodyHtml() {
+            return bodyHtml;
+        }
+    }
+}
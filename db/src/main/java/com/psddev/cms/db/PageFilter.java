@@ -31,6 +31,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.psddev.cms.tool.AuthenticationFilter;
 import com.psddev.cms.tool.CmsTool;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.cms.tool.RemoteWidgetFilter;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.cms.view.AbstractViewCreator;
@@ -270,6 +271,11 @@ public class PageFilter extends AbstractFilter {
         poweredBy = Settings.getOrDefault(boolean.class, "brightspot/poweredBy", Boolean.TRUE);
     }
 
+    @Override
+    protected void doDestroy() {
+        ServletViewTemplateLoader.destroyRegistry(getServletContext());
+    }
+
     @Override
     protected void doError(
             HttpServletRequest request,
@@ -559,9 +565,7 @@ public class PageFilter extends AbstractFilter {
                         }
                     }
 
-                    CmsTool cms = Query.from(CmsTool.class).first();
-
-                    if (user == null || (cms != null && cms.isDisableInvisibleContentPreview())) {
+                    if (user == null || CmsToolSnapshot.get().isDisableInvisibleContentPreview()) {
                         if (Settings.isProduction()) {
                             chain.doFilter(request, response);
                             return;
@@ -1543,7 +1547,16 @@ public class PageFilter extends AbstractFilter {
             return viewRequest;
 
         } catch (RuntimeException e) {
-            LOGGER.warn("Failed to create view request of type [" + viewRequestClass + "]. Cause: " + e.getMessage(), e);
+
+            // View responses are control flow signals, so their stack
+            // traces aren't useful.
+            if (ViewResponse.findInExceptionChain(e) != null) {
+                LOGGER.warn("Failed to create view request of type [" + viewRequestClass + "]. Cause: " + e.getMessage());
+
+            } else {
+                LOGGER.warn("Failed to create view request of type [" + viewRequestClass + "]. Cause: " + e.getMessage(), e);
+            }
+
             return null;
         }
     }
@@ -1732,7 +1745,12 @@ public class PageFilter extends AbstractFilter {
         // in production.
         } catch (Throwable ex) {
             if (Settings.isProduction()) {
-                LOGGER.warn(String.format("Can't render [%s]!", script), ex);
+                if (ViewResponse.findInExceptionChain(ex) != null) {
+                    LOGGER.warn(String.format("Can't render [%s]! Cause: %s", script, ex.getMessage()));
+
+                } else {
+                    LOGGER.warn(String.format("Can't render [%s]!", script), ex);
+                }
 
             } else if (ex instanceof IOException) {
                 throw (IOException) ex;
@@ -1954,7 +1972,7 @@ public class PageFilter extends AbstractFilter {
                         if (mainObject != null) {
 
                             // Except when told not to.
-                            if (Query.from(CmsTool.class).first().isRemoveTrailingSlashes()) {
+                            if (CmsToolSnapshot.get().isRemoveTrailingSlashes()) {
                                 if (path.length() > 1 && path.endsWith("/")) {
                                     fixPath(request, servletPath.substring(0, servletPath.length() - 1));
                                 }
@@ -2026,7 +2044,7 @@ public class PageFilter extends AbstractFilter {
                     if (mainObject != null) {
                         final String pathInfo = path.substring(checkPath.length());
 
-                        if (Query.from(CmsTool.class).first().isRemoveTrailingSlashes()) {
+                        if (CmsToolSnapshot.get().isRemoveTrailingSlashes()) {
                             if ("/".equals(pathInfo)) {
                                 fixPath(request, servletPath.substring(0, servletPath.length() - 1));
                             }
@@ -1,10 +1,17 @@
 package com.psddev.cms.db;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.psddev.cms.tool.DashboardWidgetCache;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
 import com.psddev.dari.db.State;
@@ -14,6 +21,8 @@ public class Schedule extends Record {
 
     public static final String FIRST_TRIGGER_EXTRA = "cms.schedule.firstTrigger";
 
+    static final String TRIGGERING_EXTRA = "cms.schedule.triggering";
+
     private static final Logger LOGGER = LoggerFactory.getLogger(Schedule.class);
 
     @Indexed(unique = true)
@@ -30,6 +39,9 @@ public class Schedule extends Record {
     @ToolUi.Hidden
     private ToolUser triggerUser;
 
+    @ToolUi.Hidden
+    private Long draftCount;
+
     public String getName() {
         return name;
     }
@@ -70,10 +82,58 @@ public class Schedule extends Record {
         this.triggerUser = triggerUser;
     }
 
+    /**
+     * Returns the number of drafts in this schedule, which is kept up to
+     * date as the drafts are saved and deleted.
+     */
+    public long getDraftCount() {
+        Long count = draftCount;
+
+        return count != null
+                ? Math.max(count, 0L)
+                : Query.from(Draft.class).where("schedule = ?", this).count();
+    }
+
+    // Called after the drafts are moved into or out of the schedule with
+    // the given ID. Only the count is changed atomically, so that the
+    // concurrent draft saves don't overwrite each other or the rest of the
+    // schedule.
+    static void updateDraftCount(UUID scheduleId, int delta) {
+        Schedule schedule = Query
+                .from(Schedule.class)
+                .where("_id = ?", scheduleId)
+                .noCache()
+                .first();
+
+        // Schedules saved before the count existed keep counting the drafts
+        // in #getDraftCount instead.
+        if (schedule == null || schedule.draftCount == null) {
+            return;
+        }
+
+        State state = schedule.getState();
+
+        if (delta > 0) {
+            state.incrementAtomically("draftCount", delta);
+
+        } else {
+            state.decrementAtomically("draftCount", -delta);
+        }
+
+        state.saveUnsafely();
+
+        // The hooks don't run on the unsafe saves.
+        DashboardWidgetCache.getDefault().invalidate(Schedule.class);
+    }
+
     protected void beforeSave() {
         if (ObjectUtils.isBlank(getName()) && getTriggerDate() == null) {
             throw new IllegalArgumentException("Must provide either the name or the trigger date!");
         }
+
+        if (draftCount == null && getState().isNew()) {
+            draftCount = Query.from(Draft.class).where("schedule = ?", this).noCache().count();
+        }
     }
 
     /**
@@ -133,6 +193,9 @@ public class Schedule extends Record {
                     Content.Static.publish(object, getTriggerSite(), triggerUser);
                 }
 
+                // The schedule is deleted below, so there's no need to update
+                // its draft count.
+                draft.getState().getExtras().put(TRIGGERING_EXTRA, Boolean.TRUE);
                 draft.delete();
             }
 
@@ -161,10 +224,7 @@ public class Schedule extends Record {
             label.append(name);
         }
 
-        long draftCount = Query
-                .from(Draft.class)
-                .where("schedule = ?", this)
-                .count();
+        long draftCount = getDraftCount();
 
         if (draftCount > 1) {
             label.append(" (");
@@ -174,4 +234,38 @@ public class Schedule extends Record {
 
         return label.toString();
     }
+
+    /** Static utility methods. */
+    public static final class Static {
+
+        /**
+         * Finds all drafts in the given {@code schedules} using a single
+         * query and groups them by the schedule IDs.
+         *
+         * @param schedules Can't be {@code null}.
+         * @return Never {@code null}. Schedules without any drafts aren't
+         *         included.
+         */
+        public static Map<UUID, List<Draft>> findDraftsBySchedule(Collection<Schedule> schedules) {
+            Map<UUID, List<Draft>> draftsBySchedule = new HashMap<>();
+
+            if (schedules.isEmpty()) {
+                return draftsBySchedule;
+            }
+
+            for (Draft draft : Query
+                    .from(Draft.class)
+                    .where("schedule = ?", schedules)
+                    .selectAll()) {
+
+                Schedule schedule = draft.getSchedule();
+
+                if (schedule != null) {
+                    draftsBySchedule.computeIfAbsent(schedule.getId(), id -> new ArrayList<>()).add(draft);
+                }
+            }
+
+            return draftsBySchedule;
+        }
+    }
 }
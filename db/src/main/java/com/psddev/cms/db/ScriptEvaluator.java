@@ -0,0 +1,509 @@
+package com.psddev.cms.db;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptEngineManager;
+import javax.script.ScriptException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.psddev.dari.util.Settings;
+
+/**
+ * Evaluates the user-authored scripts, such as the ones in
+ * {@link ScriptRule}s and {@link ScriptOperation}s, without parsing them on
+ * every use.
+ *
+ * <p>Each script is compiled once per engine instance through
+ * {@link Compilable} if the engine supports it, and cached by the engine
+ * name and the hash of the source. There's one engine instance per engine
+ * per thread, or just one for the engines that are thread-safe, and each
+ * engine instance keeps at most {@value #CACHE_SIZE_SETTING} compiled
+ * scripts, which are discarded along with the cached script. The bindings
+ * are reused per thread, but the variables and anything that the script
+ * adds to them are removed after every evaluation.</p>
+ *
+ * <p>If {@value #TIMEOUT_SETTING} is set, the scripts are evaluated on a
+ * separate pool of threads and fail after that many milliseconds. The
+ * timeout only interrupts the script, so one that doesn't stop on an
+ * interrupt keeps its thread until it finishes, and a new thread is used
+ * for the next evaluation instead. The pool is capped at
+ * {@value #MAXIMUM_THREADS_SETTING} threads, and the evaluations fail right
+ * away once that many scripts are running. The engine instance and the
+ * bindings of a timed out script aren't reused.</p>
+ */
+public final class ScriptEvaluator {
+
+    public static final String TIMEOUT_SETTING = "cms/db/scriptTimeout";
+    public static final String CACHE_SIZE_SETTING = "cms/db/scriptCacheSize";
+    public static final String MAXIMUM_THREADS_SETTING = "cms/db/scriptMaximumThreads";
+
+    private static final ScriptEvaluator DEFAULT = new ScriptEvaluator(
+            new ScriptEngineManager().getEngineFactories(),
+            Settings.getOrDefault(long.class, TIMEOUT_SETTING, 0L),
+            Settings.getOrDefault(long.class, CACHE_SIZE_SETTING, 1000L),
+            Settings.getOrDefault(int.class, MAXIMUM_THREADS_SETTING, Runtime.getRuntime().availableProcessors() * 4));
+
+    private final List<ScriptEngineFactory> factories;
+    private final long timeoutMillis;
+    private final long cacheSize;
+    private final Cache<String, Entry> entries;
+    private final ThreadPoolExecutor executor;
+
+    // Engine instances per factory on the current thread.
+    private final ThreadLocal<Map<ScriptEngineFactory, Engine>> engines = ThreadLocal.withInitial(HashMap::new);
+
+    // Thread-safe engine instances shared by all threads.
+    private final Map<ScriptEngineFactory, Engine> sharedEngines = new ConcurrentHashMap<>();
+
+    // Compiled scripts of all engine instances, so that they can be
+    // discarded when the script is evicted from the entries.
+    private final Cache<Cache<String, CompiledScript>, Boolean> allCompiled = CacheBuilder
+            .newBuilder()
+            .weakKeys()
+            .build();
+
+    /**
+     * Returns the instance that uses all available script engines and is
+     * configured using {@value #TIMEOUT_SETTING},
+     * {@value #CACHE_SIZE_SETTING}, and {@value #MAXIMUM_THREADS_SETTING}.
+     *
+     * @return Never {@code null}.
+     */
+    public static ScriptEvaluator getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param factories Can't be {@code null}.
+     * @param timeoutMillis If less than or equal to {@code 0}, the scripts
+     *        are evaluated on the calling thread without a timeout.
+     * @param cacheSize Maximum number of compiled scripts.
+     * @param maximumThreads Maximum number of scripts that can be running
+     *        at the same time when there's a timeout.
+     */
+    ScriptEvaluator(List<ScriptEngineFactory> factories, long timeoutMillis, long cacheSize, int maximumThreads) {
+        Preconditions.checkNotNull(factories);
+
+        this.factories = new ArrayList<>(factories);
+        this.timeoutMillis = timeoutMillis;
+        this.cacheSize = cacheSize;
+        this.entries = CacheBuilder
+                .newBuilder()
+                .maximumSize(cacheSize)
+                .<String, Entry>removalListener(removal -> {
+                    Entry entry = removal.getValue();
+
+                    if (entry != null) {
+                        for (Cache<String, CompiledScript> compiled : allCompiled.asMap().keySet()) {
+                            compiled.invalidate(entry.hash);
+                        }
+                    }
+                })
+                .build();
+
+        if (timeoutMillis > 0L) {
+            AtomicInteger threadCount = new AtomicInteger();
+
+            // Without a queue, so that the evaluations never wait behind the
+            // scripts that are still running after they timed out.
+            this.executor = new ThreadPoolExecutor(
+                    0,
+                    Math.max(maximumThreads, 1),
+                    1L,
+                    TimeUnit.MINUTES,
+                    new SynchronousQueue<>(),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "Script Evaluator " + threadCount.incrementAndGet());
+
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+
+        } else {
+            this.executor = null;
+        }
+    }
+
+    /**
+     * Evaluates the given {@code script} using the engine with the given
+     * {@code engineName}.
+     *
+     * @param engineName Can't be {@code null}.
+     * @param script Can't be {@code null}.
+     * @param variables May be {@code null}.
+     * @return May be {@code null}.
+     * @throws IllegalArgumentException If there isn't an engine with the
+     *         given {@code engineName}.
+     * @throws ScriptException If the script can't be compiled or evaluated,
+     *         or if it times out.
+     */
+    public Object evaluate(String engineName, String script, Map<String, Object> variables) throws ScriptException {
+        Preconditions.checkNotNull(engineName);
+        Preconditions.checkNotNull(script);
+
+        Entry entry = getEntry(engineName, script);
+        long start = System.nanoTime();
+        boolean success = false;
+
+        try {
+            Object result;
+
+            if (executor == null) {
+                result = evaluate(entry, variables, null);
+
+            } else {
+                AtomicBoolean abandoned = new AtomicBoolean();
+                Future<Object> future;
+
+                try {
+                    future = executor.submit(() -> evaluate(entry, variables, abandoned));
+
+                } catch (RejectedExecutionException error) {
+                    throw new ScriptException(String.format(
+                            "Can't evaluate [%s] script because [%s] scripts are already running!",
+                            engineName, executor.getMaximumPoolSize()));
+                }
+
+                try {
+                    result = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+                } catch (TimeoutException error) {
+                    abandoned.set(true);
+                    future.cancel(true);
+                    entry.timeouts.increment();
+                    throw new ScriptException(String.format(
+                            "[%s] script timed out after [%s] milliseconds!",
+                            engineName, timeoutMillis));
+
+                } catch (InterruptedException error) {
+                    abandoned.set(true);
+                    future.cancel(true);
+                    Thread.currentThread().interrupt();
+                    throw new ScriptException(String.format(
+                            "Interrupted while evaluating [%s] script!",
+                            engineName));
+
+                } catch (ExecutionException error) {
+                    Throwable cause = error.getCause();
+
+                    if (cause instanceof ScriptException) {
+                        throw (ScriptException) cause;
+
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+
+                    } else {
+                        throw new IllegalStateException(cause);
+                    }
+                }
+            }
+
+            success = true;
+            return result;
+
+        } finally {
+            entry.record(System.nanoTime() - start, success);
+        }
+    }
+
+    private Entry getEntry(String engineName, String script) throws ScriptException {
+        ScriptEngineFactory factory = null;
+
+        for (ScriptEngineFactory f : factories) {
+            if (f.getNames().contains(engineName)) {
+                factory = f;
+                break;
+            }
+        }
+
+        if (factory == null) {
+            throw new IllegalArgumentException(String.format(
+                    "[%s] is not a valid script engine name!", engineName));
+        }
+
+        ScriptEngineFactory finalFactory = factory;
+        String hash = hash(script);
+
+        try {
+            return entries.get(engineName + "/" + hash, () -> {
+
+                // Compile ahead of time so that the syntax errors aren't
+                // cached.
+                getEngine(finalFactory).compile(hash, script);
+
+                return new Entry(engineName, hash, finalFactory, script);
+            });
+
+        } catch (ExecutionException | UncheckedExecutionException error) {
+            Throwable cause = error.getCause();
+
+            if (cause instanceof ScriptException) {
+                throw (ScriptException) cause;
+
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
+
+    // Returns the engine instance of the given factory for the current
+    // thread.
+    private Engine getEngine(ScriptEngineFactory factory) {
+        Map<ScriptEngineFactory, Engine> threadEngines = engines.get();
+        Engine engine = threadEngines.get(factory);
+
+        if (engine == null) {
+            if (factory.getParameter("THREADING") != null) {
+                Engine shared = sharedEngines.computeIfAbsent(factory, f -> new Engine(f.getScriptEngine(), createCompiled()));
+
+                engine = new Engine(shared.engine, shared.compiled);
+
+            } else {
+                engine = new Engine(factory.getScriptEngine(), createCompiled());
+            }
+
+            threadEngines.put(factory, engine);
+        }
+
+        return engine;
+    }
+
+    private Cache<String, CompiledScript> createCompiled() {
+        Cache<String, CompiledScript> compiled = CacheBuilder
+                .newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+
+        allCompiled.put(compiled, Boolean.TRUE);
+        return compiled;
+    }
+
+    // The engine instance and the bindings of the current thread are thrown
+    // away if the evaluation was abandoned, since the script may have been
+    // interrupted in the middle.
+    private Object evaluate(Entry entry, Map<String, Object> variables, AtomicBoolean abandoned) throws ScriptException {
+        Engine engine = getEngine(entry.factory);
+        CompiledScript compiled = engine.compile(entry.hash, entry.script);
+        Bindings b = engine.bindings;
+        Set<String> baseline = new HashSet<>(b.keySet());
+        Map<String, Object> overwritten = new HashMap<>();
+
+        try {
+            if (variables != null) {
+                for (Map.Entry<String, Object> variable : variables.entrySet()) {
+                    String name = variable.getKey();
+
+                    if (baseline.contains(name)) {
+                        overwritten.put(name, b.get(name));
+                    }
+
+                    b.put(name, variable.getValue());
+                }
+            }
+
+            return compiled != null
+                    ? compiled.eval(b)
+                    : engine.engine.eval(entry.script, b);
+
+        } finally {
+            for (String name : new ArrayList<>(b.keySet())) {
+                if (!baseline.contains(name)) {
+                    b.remove(name);
+                }
+            }
+
+            b.putAll(overwritten);
+
+            if (abandoned != null && abandoned.get()) {
+                engines.get().remove(entry.factory);
+            }
+        }
+    }
+
+    private static String hash(String script) {
+        byte[] digest;
+
+        try {
+            digest = MessageDigest.getInstance("SHA-256").digest(script.getBytes(StandardCharsets.UTF_8));
+
+        } catch (NoSuchAlgorithmException error) {
+            throw new IllegalStateException(error);
+        }
+
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+
+        for (byte b : digest) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+            hex.append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return hex.toString();
+    }
+
+    /**
+     * Returns the latency statistics of all cached scripts, ordered by the
+     * total time spent evaluating them.
+     *
+     * @return Never {@code null}.
+     */
+    public List<Statistics> getStatistics() {
+        List<Statistics> statistics = new ArrayList<>();
+
+        for (Entry entry : entries.asMap().values()) {
+            statistics.add(new Statistics(entry));
+        }
+
+        statistics.sort(Comparator.comparingDouble((Statistics s) -> s.getCount() * s.getAverageMillis()).reversed());
+        return statistics;
+    }
+
+    /**
+     * Latency statistics of a script.
+     */
+    public static final class Statistics {
+
+        private final String engineName;
+        private final String hash;
+        private final long count;
+        private final long errorCount;
+        private final long timeoutCount;
+        private final double averageMillis;
+        private final double maximumMillis;
+
+        private Statistics(Entry entry) {
+            this.engineName = entry.engineName;
+            this.hash = entry.hash;
+            this.count = entry.count.sum();
+            this.errorCount = entry.errors.sum();
+            this.timeoutCount = entry.timeouts.sum();
+            this.averageMillis = count > 0L ? entry.totalNanos.sum() / 1e6 / count : 0.0;
+            this.maximumMillis = entry.maximumNanos.get() / 1e6;
+        }
+
+        public String getEngineName() {
+            return engineName;
+        }
+
+        /**
+         * Returns the SHA-256 hash of the script source.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        /**
+         * Returns the number of evaluations, including the failed ones.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        public long getTimeoutCount() {
+            return timeoutCount;
+        }
+
+        public double getAverageMillis() {
+            return averageMillis;
+        }
+
+        public double getMaximumMillis() {
+            return maximumMillis;
+        }
+    }
+
+    // Engine instance with the bindings of the current thread.
+    private static final class Engine {
+
+        public final ScriptEngine engine;
+        public final Cache<String, CompiledScript> compiled;
+        public final Bindings bindings;
+
+        public Engine(ScriptEngine engine, Cache<String, CompiledScript> compiled) {
+            this.engine = engine;
+            this.compiled = compiled;
+            this.bindings = engine.createBindings();
+        }
+
+        // Returns null if the engine can't compile.
+        public CompiledScript compile(String hash, String script) throws ScriptException {
+            if (!(engine instanceof Compilable)) {
+                return null;
+            }
+
+            CompiledScript c = compiled.getIfPresent(hash);
+
+            if (c == null) {
+                c = ((Compilable) engine).compile(script);
+                compiled.put(hash, c);
+            }
+
+            return c;
+        }
+    }
+
+    private static final class Entry {
+
+        public final String engineName;
+        public final String hash;
+        public final ScriptEngineFactory factory;
+        public final String script;
+        public final LongAdder count = new LongAdder();
+        public final LongAdder errors = new LongAdder();
+        public final LongAdder timeouts = new LongAdder();
+        public final LongAdder totalNanos = new LongAdder();
+        public final AtomicLong maximumNanos = new AtomicLong();
+
+        public Entry(String engineName, String hash, ScriptEngineFactory factory, String script) {
+            this.engineName = engineName;
+            this.hash = hash;
+            this.factory = factory;
+            this.script = script;
+        }
+
+        public void record(long nanos, boolean success) {
+            count.increment();
+            totalNanos.add(nanos);
+            maximumNanos.accumulateAndGet(nanos, Math::max);
+
+            if (!success) {
+                errors.increment();
+            }
+        }
+    }
+}
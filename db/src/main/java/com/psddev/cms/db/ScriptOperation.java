@@ -1,7 +1,8 @@
 package com.psddev.cms.db;
 
-import javax.script.Bindings;
-import javax.script.ScriptEngine;
+import java.util.HashMap;
+import java.util.Map;
+
 import javax.script.ScriptException;
 
 /**
@@ -34,15 +35,14 @@ public class ScriptOperation extends Operation {
     public void evaluate(Variation variation, Profile profile, Object object) {
 
         String engineName = getEngine();
-        ScriptEngine engine = ScriptUtils.getEngine(engineName);
+        Map<String, Object> variables = new HashMap<>();
 
-        Bindings bindings = engine.createBindings();
-        bindings.put("variation", variation);
-        bindings.put("profile", profile);
-        bindings.put("object", object);
+        variables.put("variation", variation);
+        variables.put("profile", profile);
+        variables.put("object", object);
 
         try {
-            engine.eval(getScript(), bindings);
+            ScriptEvaluator.getDefault().evaluate(engineName, getScript(), variables);
         } catch (ScriptException ex) {
             throw new RuntimeException(String.format(
                     "Unable to evaluate [%s] script!", engineName), ex);
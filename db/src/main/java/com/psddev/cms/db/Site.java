@@ -235,6 +235,18 @@ public class Site extends Record {
         }
     }
 
+    @Override
+    protected void afterSave() {
+        super.afterSave();
+        SiteAccess.invalidate();
+    }
+
+    @Override
+    protected void afterDelete() {
+        super.afterDelete();
+        SiteAccess.invalidate();
+    }
+
     /** Static utility methods. */
     public static final class Static {
 
@@ -280,6 +292,12 @@ public class Site extends Record {
             return new ArrayList<Site>(INSTANCES.get().get());
         }
 
+        // Returns the cached list of all sites without copying it, which
+        // lets the callers tell when it's reloaded. Must not be modified.
+        static List<Site> findAllShared() {
+            return INSTANCES.get().get();
+        }
+
         /** Finds a cached site associated with the given {@code url}. */
         public static Map.Entry<String, Site> findByUrl(String url) {
             if (url == null) {
@@ -0,0 +1,145 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Predicate;
+
+import com.google.common.base.Preconditions;
+import com.psddev.cms.tool.SortedIdSet;
+
+/**
+ * Sites that a {@link ToolRole} can access, precomputed from its
+ * permissions so that resolving the current site and listing the other
+ * accessible sites doesn't evaluate the permissions for every site.
+ *
+ * <p>The instances are cached per role and are recomputed when the role's
+ * permissions change, or when the list of all sites is reloaded. Saving or
+ * deleting a role or a site also clears the cache.</p>
+ */
+final class SiteAccess {
+
+    private static final String GLOBAL_PERMISSION_ID = "site/global";
+    private static final UUID NO_ROLE_KEY = new UUID(0L, 0L);
+    private static final ConcurrentMap<UUID, SiteAccess> INSTANCES = new ConcurrentHashMap<>();
+
+    private final List<Site> sites;
+    private final String permissions;
+    private final Predicate<String> hasPermission;
+    private final boolean globalAccessible;
+    private final SortedIdSet siteIds;
+    private final SortedIdSet accessibleSiteIds;
+    private final List<UUID> orderedAccessibleSiteIds;
+
+    /**
+     * Returns the site access for the given {@code role}.
+     *
+     * @param role If {@code null}, returns the access for users without a
+     *        role, which can access all sites.
+     * @return Never {@code null}.
+     */
+    public static SiteAccess getInstance(ToolRole role) {
+        List<Site> sites = Site.Static.findAllShared();
+        UUID key = role != null ? role.getId() : NO_ROLE_KEY;
+        String permissions = role != null ? role.getPermissions() : null;
+        SiteAccess access = INSTANCES.get(key);
+
+        if (access == null
+                || access.sites != sites
+                || !Objects.equals(access.permissions, permissions)) {
+
+            List<UUID> siteIds = new ArrayList<>(sites.size());
+
+            for (Site site : sites) {
+                siteIds.add(site.getId());
+            }
+
+            access = new SiteAccess(
+                    sites,
+                    permissions,
+                    siteIds,
+                    role != null ? role::hasPermission : permissionId -> true);
+
+            INSTANCES.put(key, access);
+        }
+
+        return access;
+    }
+
+    // Called after a role or a site is saved or deleted.
+    static void invalidate() {
+        INSTANCES.clear();
+    }
+
+    /**
+     * Creates an instance by evaluating the given {@code hasPermission} for
+     * the global site and each of the given {@code siteIds}.
+     *
+     * @param siteIds Can't be {@code null}.
+     * @param hasPermission Can't be {@code null}.
+     */
+    SiteAccess(List<UUID> siteIds, Predicate<String> hasPermission) {
+        this(Collections.emptyList(), null, siteIds, hasPermission);
+    }
+
+    private SiteAccess(List<Site> sites, String permissions, List<UUID> siteIds, Predicate<String> hasPermission) {
+        Preconditions.checkNotNull(siteIds);
+        Preconditions.checkNotNull(hasPermission);
+
+        List<UUID> ordered = new ArrayList<>();
+
+        for (UUID siteId : siteIds) {
+            if (hasPermission.test("site/" + siteId)) {
+                ordered.add(siteId);
+            }
+        }
+
+        this.sites = sites;
+        this.permissions = permissions;
+        this.hasPermission = hasPermission;
+        this.globalAccessible = hasPermission.test(GLOBAL_PERMISSION_ID);
+        this.siteIds = SortedIdSet.of(siteIds);
+        this.accessibleSiteIds = SortedIdSet.of(ordered);
+        this.orderedAccessibleSiteIds = Collections.unmodifiableList(ordered);
+    }
+
+    /**
+     * Returns {@code true} if the global site is accessible.
+     */
+    public boolean isGlobalAccessible() {
+        return globalAccessible;
+    }
+
+    /**
+     * Returns {@code true} if the site with the given {@code siteId} is
+     * accessible.
+     *
+     * @param siteId May be {@code null}.
+     */
+    public boolean isAccessible(UUID siteId) {
+        if (siteId == null) {
+            return false;
+
+        // Sites created since the list of all sites was loaded.
+        } else if (!siteIds.contains(siteId)) {
+            return hasPermission.test("site/" + siteId);
+
+        } else {
+            return accessibleSiteIds.contains(siteId);
+        }
+    }
+
+    /**
+     * Returns the IDs of all accessible sites in the same order as the
+     * site IDs that this was created from.
+     *
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public List<UUID> getAccessibleSiteIds() {
+        return orderedAccessibleSiteIds;
+    }
+}
@@ -0,0 +1,295 @@
+package com.psddev.cms.db;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeFieldType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Preconditions;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.UpdateNotifier;
+import com.psddev.dari.util.RepeatingTask;
+
+/**
+ * Holds an immutable snapshot, such as an in-memory index of all instances
+ * of a type, that's read on the request path.
+ *
+ * <p>The snapshot is loaded the first time it's used. After that, the
+ * request threads never query: when the snapshot is created with a type,
+ * the saves and the deletes of its instances on the other servers are
+ * picked up in the background, either through an update notification from
+ * the database, or by {@link Refresher}, which checks the last update date
+ * of the type every 10 seconds in case the database doesn't send the
+ * notifications.</p>
+ *
+ * <p>The reloads are delayed by {@value #RELOAD_DELAY} milliseconds, so
+ * that a burst of notifications only loads the snapshot once, and a change
+ * on this server records the last update date of the type, so that the
+ * next check doesn't load the snapshot again for it.</p>
+ *
+ * <p>Every change to the snapshot on this server increments the
+ * {@linkplain #getGeneration generation}, and a load that started before
+ * then is discarded, since it may be missing the change.</p>
+ *
+ * @param <T> Type of the snapshot.
+ */
+public final class SnapshotRegistry<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotRegistry.class);
+    private static final List<SnapshotRegistry<?>> INSTANCES = new CopyOnWriteArrayList<>();
+    private static final long RELOAD_DELAY = 1000L;
+
+    private static final ScheduledExecutorService RELOADER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Snapshot Registry Reloader");
+
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Class<?> type;
+    private final Supplier<T> loader;
+    private final Supplier<Date> lastUpdateFinder;
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicBoolean reloadQueued = new AtomicBoolean();
+    private volatile T snapshot;
+    private volatile Date lastUpdate;
+    private volatile boolean notifierAdded;
+
+    /**
+     * Creates a registry whose snapshot is reloaded whenever an instance
+     * of the given {@code type} changes on another server.
+     *
+     * @param type If {@code null}, the snapshot is only changed through
+     *        this registry.
+     * @param loader Can't be {@code null}. Called to load the snapshot,
+     *        which must not be {@code null}.
+     */
+    public SnapshotRegistry(Class<?> type, Supplier<T> loader) {
+        this(type, loader, () -> Query.from(type).lastUpdate());
+    }
+
+    // For testing without a database.
+    SnapshotRegistry(Class<?> type, Supplier<T> loader, Supplier<Date> lastUpdateFinder) {
+        Preconditions.checkNotNull(loader);
+        Preconditions.checkNotNull(lastUpdateFinder);
+
+        this.type = type;
+        this.loader = loader;
+        this.lastUpdateFinder = lastUpdateFinder;
+
+        if (type != null) {
+            INSTANCES.add(this);
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading it if there isn't one yet.
+     *
+     * @return Never {@code null}.
+     */
+    public T get() {
+        T s = snapshot;
+
+        if (s == null) {
+            synchronized (this) {
+                s = snapshot;
+
+                if (s == null) {
+                    s = load();
+                }
+            }
+        }
+
+        return s;
+    }
+
+    /**
+     * Returns the current snapshot without loading it.
+     *
+     * @return {@code null} if the snapshot hasn't been loaded yet.
+     */
+    public T getIfPresent() {
+        return snapshot;
+    }
+
+    /**
+     * Returns the current generation, which changes whenever the snapshot
+     * is changed on this server.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * Replaces the current snapshot with the result of the given
+     * {@code function}, which should apply a change that was just saved
+     * on this server.
+     *
+     * @param function Can't be {@code null}. Called with the current
+     *        snapshot, or {@code null} if there isn't one, while holding a
+     *        lock. May return {@code null} to discard the snapshot.
+     */
+    public void update(UnaryOperator<T> function) {
+        Preconditions.checkNotNull(function);
+
+        Date newLastUpdate = type != null ? lastUpdateFinder.get() : null;
+
+        synchronized (this) {
+            generation.incrementAndGet();
+            snapshot = function.apply(snapshot);
+
+            if (newLastUpdate != null) {
+                lastUpdate = newLastUpdate;
+            }
+        }
+    }
+
+    /**
+     * Replaces the current snapshot with the given {@code newSnapshot},
+     * unless it was changed since the given {@code startGeneration}.
+     *
+     * @param newSnapshot Can't be {@code null}.
+     * @param startGeneration Returned by {@link #getGeneration} before
+     *        loading the given {@code newSnapshot}.
+     * @return {@code true} if the snapshot was replaced.
+     */
+    public boolean set(T newSnapshot, long startGeneration) {
+        Preconditions.checkNotNull(newSnapshot);
+
+        synchronized (this) {
+            if (startGeneration == generation.get()) {
+                snapshot = newSnapshot;
+                return true;
+
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Loads the snapshot again in the background right away, and keeps
+     * using the current one until then, so that the request threads never
+     * wait for the load.
+     */
+    public void invalidate() {
+        reload(0L);
+    }
+
+    /**
+     * Loads the snapshot again in the background after a short delay, and
+     * keeps using the current one until then. The calls during the delay
+     * only cause one load.
+     */
+    public void reload() {
+        reload(RELOAD_DELAY);
+    }
+
+    private void reload(long delay) {
+        generation.incrementAndGet();
+
+        if (snapshot != null && reloadQueued.compareAndSet(false, true)) {
+            RELOADER.schedule(() -> {
+                reloadQueued.set(false);
+
+                try {
+                    load();
+
+                } catch (RuntimeException error) {
+                    LOGGER.warn(String.format("Can't reload the snapshot of [%s]!", type), error);
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Checks the last update date of the type and reloads if it changed.
+    void refresh() {
+        if (type == null || snapshot == null) {
+            return;
+        }
+
+        Date newLastUpdate = lastUpdateFinder.get();
+
+        if (newLastUpdate != null && !newLastUpdate.equals(lastUpdate)) {
+            load();
+        }
+    }
+
+    private T load() {
+        if (type != null && !notifierAdded) {
+            synchronized (INSTANCES) {
+                if (!notifierAdded) {
+                    notifierAdded = true;
+                    Database.Static.getDefault().addUpdateNotifier(new Notifier(this));
+                }
+            }
+        }
+
+        long startGeneration = generation.get();
+        Date newLastUpdate = type != null ? lastUpdateFinder.get() : null;
+        T s = loader.get();
+
+        Preconditions.checkNotNull(s);
+
+        synchronized (this) {
+            if (startGeneration == generation.get()) {
+                snapshot = s;
+                lastUpdate = newLastUpdate;
+            }
+        }
+
+        return s;
+    }
+
+    private static final class Notifier implements UpdateNotifier<Object> {
+
+        private final SnapshotRegistry<?> registry;
+
+        public Notifier(SnapshotRegistry<?> registry) {
+            this.registry = registry;
+        }
+
+        @Override
+        public void onUpdate(Object object) {
+            if (registry.type.isInstance(object)) {
+                registry.reload();
+            }
+        }
+    }
+
+    /**
+     * Checks the last update dates of the types of all registries every
+     * 10 seconds, and reloads the snapshots that changed.
+     */
+    public static class Refresher extends RepeatingTask {
+
+        @Override
+        protected DateTime calculateRunTime(DateTime currentTime) {
+            return every(currentTime, DateTimeFieldType.secondOfDay(), 0, 10);
+        }
+
+        @Override
+        protected void doRepeatingTask(DateTime runTime) {
+            for (SnapshotRegistry<?> registry : INSTANCES) {
+                try {
+                    registry.refresh();
+
+                } catch (RuntimeException error) {
+                    LOGGER.warn(String.format("Can't refresh the snapshot of [%s]!", registry.type), error);
+                }
+            }
+        }
+    }
+}
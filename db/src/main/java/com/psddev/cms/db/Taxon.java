@@ -60,6 +60,14 @@ public interface Taxon extends Recordable {
             this.setRoot(this.getOriginalObject().isRoot());
         }
 
+        public void afterSave() {
+            TaxonomyIndex.onSave(this.getOriginalObject());
+        }
+
+        public void afterDelete() {
+            TaxonomyIndex.onDelete(this.getOriginalObject());
+        }
+
     }
 
     /**
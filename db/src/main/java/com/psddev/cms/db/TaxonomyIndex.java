@@ -0,0 +1,574 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Preconditions;
+import com.psddev.dari.db.ObjectField;
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Predicate;
+import com.psddev.dari.db.PredicateParser;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.ObjectUtils;
+
+/**
+ * Materialized tree of all {@link Taxon} instances of a class hierarchy,
+ * which lets the tree views and the "or its descendants" searches find the
+ * ordered children, the subtree sizes, and the descendants without
+ * querying each level.
+ *
+ * <p>The tree is loaded the first time it's used. When a taxon type links
+ * the taxa through exactly one field that references other taxa, either a
+ * parent or a list of children, the tree is built from that field, so that
+ * all taxa are loaded in a single query. Otherwise, {@link Taxon#getChildren()}
+ * is called on each taxon of that type. The field is verified against
+ * {@link Taxon#getChildren()} once per type on every load.</p>
+ *
+ * <p>The tree is kept current by {@link Taxon.Data} whenever a taxon is
+ * saved or deleted. Changes saved on other servers are picked up in the
+ * background by {@link SnapshotRegistry}.</p>
+ */
+public final class TaxonomyIndex {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private static final ConcurrentMap<Class<?>, TaxonomyIndex> INSTANCES = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Class<?>, SnapshotRegistry<TaxonomyTree>> REGISTRIES = new ConcurrentHashMap<>();
+
+    private final Class<? extends Taxon> taxonClass;
+    private final SnapshotRegistry<TaxonomyTree> registry;
+
+    /**
+     * Returns the index for the given {@code taxonClass}.
+     *
+     * <p>All classes in the same hierarchy share the same tree, but the
+     * roots are limited to the instances of the given class.</p>
+     *
+     * @param taxonClass Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static TaxonomyIndex getInstance(Class<? extends Taxon> taxonClass) {
+        Preconditions.checkNotNull(taxonClass);
+
+        return INSTANCES.computeIfAbsent(taxonClass, c -> new TaxonomyIndex(taxonClass));
+    }
+
+    private TaxonomyIndex(Class<? extends Taxon> taxonClass) {
+        Class<?> rootClass = findRootClass(taxonClass);
+
+        this.taxonClass = taxonClass;
+        this.registry = REGISTRIES.computeIfAbsent(rootClass, c -> new SnapshotRegistry<>(c, () -> load(c)));
+    }
+
+    // Topmost class in the hierarchy that's still a taxon.
+    static Class<?> findRootClass(Class<?> taxonClass) {
+        Class<?> rootClass = taxonClass;
+
+        for (Class<?> c = taxonClass.getSuperclass(); c != null && Taxon.class.isAssignableFrom(c); c = c.getSuperclass()) {
+            rootClass = c;
+        }
+
+        return rootClass;
+    }
+
+    // Called by Taxon.Data#afterSave.
+    static void onSave(Taxon taxon) {
+        UUID id = taxon.getState().getId();
+
+        for (Map.Entry<Class<?>, SnapshotRegistry<TaxonomyTree>> entry : REGISTRIES.entrySet()) {
+            SnapshotRegistry<TaxonomyTree> registry = entry.getValue();
+            TaxonomyTree tree = registry.getIfPresent();
+
+            if (tree != null && (entry.getKey().isInstance(taxon) || tree.contains(id))) {
+                registry.update(t -> t != null ? update(t, taxon) : null);
+            }
+        }
+    }
+
+    // Called by Taxon.Data#afterDelete.
+    static void onDelete(Taxon taxon) {
+        UUID id = taxon.getState().getId();
+
+        for (SnapshotRegistry<TaxonomyTree> registry : REGISTRIES.values()) {
+            TaxonomyTree tree = registry.getIfPresent();
+
+            if (tree != null && tree.contains(id)) {
+                registry.update(t -> t != null ? t.without(id) : null);
+            }
+        }
+    }
+
+    private TaxonomyTree getTree() {
+        return registry.get();
+    }
+
+    // Loads all taxa in the hierarchy in one query, and any taxa of the
+    // other classes that they link to in as few queries as possible.
+    private static TaxonomyTree load(Class<?> rootClass) {
+        Map<UUID, Taxon> taxa = new LinkedHashMap<>();
+
+        for (Object item : Query.from(rootClass).resolveToReferenceOnly().iterable(LOAD_BATCH_SIZE)) {
+            if (item instanceof Taxon) {
+                taxa.put(((Taxon) item).getState().getId(), (Taxon) item);
+            }
+        }
+
+        Map<ObjectType, ObjectField> linkFields = new HashMap<>();
+        Map<UUID, Set<UUID>> childIds = new HashMap<>();
+        Collection<Taxon> unlinked = new ArrayList<>(taxa.values());
+
+        while (!unlinked.isEmpty()) {
+            for (Taxon taxon : unlinked) {
+                State state = taxon.getState();
+                ObjectField linkField = linkFields.computeIfAbsent(state.getType(), type -> findLinkField(type, taxon));
+
+                if (linkField == null) {
+                    Set<UUID> ids = childIds.computeIfAbsent(state.getId(), k -> new LinkedHashSet<>());
+
+                    for (Taxon child : getChildren(taxon)) {
+                        ids.add(child.getState().getId());
+                    }
+
+                } else {
+                    List<UUID> linkedIds = findReferenceIds(state, linkField);
+
+                    if (linkField.isInternalCollectionType()) {
+                        childIds.computeIfAbsent(state.getId(), k -> new LinkedHashSet<>()).addAll(linkedIds);
+
+                    } else if (!linkedIds.isEmpty()) {
+                        childIds.computeIfAbsent(linkedIds.get(0), k -> new LinkedHashSet<>()).add(state.getId());
+                    }
+                }
+            }
+
+            // Children of the other classes.
+            Set<UUID> missingIds = new LinkedHashSet<>();
+
+            for (Set<UUID> ids : childIds.values()) {
+                for (UUID id : ids) {
+                    if (!taxa.containsKey(id)) {
+                        missingIds.add(id);
+                    }
+                }
+            }
+
+            unlinked = new ArrayList<>();
+
+            if (!missingIds.isEmpty()) {
+                for (Object item : Query
+                        .fromAll()
+                        .where("_id = ?", missingIds)
+                        .resolveToReferenceOnly()
+                        .iterable(LOAD_BATCH_SIZE)) {
+
+                    if (item instanceof Taxon) {
+                        Taxon taxon = (Taxon) item;
+
+                        taxa.put(taxon.getState().getId(), taxon);
+                        unlinked.add(taxon);
+                    }
+                }
+
+                // Not taxa, or no longer exist.
+                for (UUID id : missingIds) {
+                    if (!taxa.containsKey(id)) {
+                        for (Set<UUID> ids : childIds.values()) {
+                            ids.remove(id);
+                        }
+                    }
+                }
+            }
+        }
+
+        List<TaxonomyTree.Node> nodes = new ArrayList<>();
+
+        for (Taxon taxon : taxa.values()) {
+            UUID id = taxon.getState().getId();
+            Set<UUID> ids = childIds.get(id);
+
+            nodes.add(createNode(taxon, ids != null ? new ArrayList<>(ids) : Collections.emptyList()));
+        }
+
+        return new TaxonomyTree(nodes);
+    }
+
+    // Finds the only field in the given type that references other taxa,
+    // and makes sure that it agrees with Taxon#getChildren on the given
+    // taxon, which is the first one of the type that's loaded.
+    private static ObjectField findLinkField(ObjectType type, Taxon taxon) {
+        if (type == null) {
+            return null;
+        }
+
+        ObjectField linkField = null;
+
+        for (ObjectField field : type.getFields()) {
+            if (field.isEmbedded() || !ObjectField.RECORD_TYPE.equals(field.getInternalItemType())) {
+                continue;
+            }
+
+            for (ObjectType fieldType : field.getTypes()) {
+                if (fieldType.getGroups().contains(Taxon.class.getName())) {
+                    if (linkField != null) {
+                        return null;
+                    }
+
+                    linkField = field;
+                    break;
+                }
+            }
+        }
+
+        if (linkField == null) {
+            return null;
+        }
+
+        Collection<? extends Taxon> children = getChildren(taxon);
+
+        if (linkField.isInternalCollectionType()) {
+            Set<UUID> childIds = new HashSet<>();
+
+            for (Taxon child : children) {
+                childIds.add(child.getState().getId());
+            }
+
+            return childIds.equals(new HashSet<>(findReferenceIds(taxon.getState(), linkField))) ? linkField : null;
+
+        } else {
+            UUID id = taxon.getState().getId();
+
+            for (Taxon child : children) {
+                List<UUID> parentIds = findReferenceIds(child.getState(), linkField);
+
+                if (parentIds.isEmpty() || !id.equals(parentIds.get(0))) {
+                    return null;
+                }
+            }
+
+            return linkField;
+        }
+    }
+
+    // Reads the IDs of the references in the given field without resolving
+    // them.
+    private static List<UUID> findReferenceIds(State state, ObjectField field) {
+        List<UUID> ids = new ArrayList<>();
+
+        collectReferenceIds(state.getSimpleValues().get(field.getInternalName()), ids);
+        return ids;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectReferenceIds(Object value, List<UUID> ids) {
+        if (value instanceof Map) {
+            UUID id = ObjectUtils.to(UUID.class, ((Map<String, Object>) value).get(State.REFERENCE_KEY));
+
+            if (id != null) {
+                ids.add(id);
+            }
+
+        } else if (value instanceof Iterable) {
+            for (Object item : (Iterable<Object>) value) {
+                collectReferenceIds(item, ids);
+            }
+        }
+    }
+
+    private static Collection<? extends Taxon> getChildren(Taxon taxon) {
+        Collection<? extends Taxon> children = taxon.getChildren();
+
+        return children != null ? children : Collections.<Taxon>emptyList();
+    }
+
+    private static TaxonomyTree.Node createNode(Taxon taxon, List<UUID> childIds) {
+        return new TaxonomyTree.Node(taxon.getState().getId(), taxon.getClass(), taxon.isRoot(), getSortValue(taxon), childIds);
+    }
+
+    private static TaxonomyTree.Node createNode(Taxon taxon) {
+        List<UUID> childIds = new ArrayList<>();
+
+        for (Taxon child : getChildren(taxon)) {
+            childIds.add(child.getState().getId());
+        }
+
+        return createNode(taxon, childIds);
+    }
+
+    private static Object getSortValue(Taxon taxon) {
+        State state = taxon.getState();
+        ObjectType type = state.getType();
+        String sortField = type != null ? type.as(ToolUi.class).getDefaultSortField() : null;
+
+        return ObjectUtils.isBlank(sortField) ? null : state.getByPath(sortField);
+    }
+
+    // Recomputes the nodes that may have changed because of the given
+    // taxon: itself, its previous parents, and any other taxa that it
+    // references, which covers both the parent-to-child and the
+    // child-to-parent relationships.
+    private static TaxonomyTree update(TaxonomyTree t, Taxon taxon) {
+        UUID id = taxon.getState().getId();
+        Set<UUID> candidateIds = new LinkedHashSet<>();
+        candidateIds.addAll(t.getParentIds(id));
+        collectReferences(taxon.getState().getSimpleValues(), t, candidateIds);
+
+        candidateIds.remove(id);
+
+        List<TaxonomyTree.Node> changedNodes = new ArrayList<>();
+
+        changedNodes.add(createNode(taxon));
+
+        if (!candidateIds.isEmpty()) {
+            for (Object candidate : Query
+                    .fromAll()
+                    .where("_id = ?", candidateIds)
+                    .noCache()
+                    .selectAll()) {
+
+                if (candidate instanceof Taxon) {
+                    changedNodes.add(createNode((Taxon) candidate));
+                }
+            }
+        }
+
+        // Children that aren't in the tree yet.
+        for (Taxon child : getChildren(taxon)) {
+            if (!t.contains(child.getState().getId())) {
+                changedNodes.add(createNode(child));
+            }
+        }
+
+        return t.with(changedNodes);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectReferences(Object value, TaxonomyTree t, Set<UUID> ids) {
+        if (value instanceof Map) {
+            Map<String, Object> map = (Map<String, Object>) value;
+            UUID ref = ObjectUtils.to(UUID.class, map.get(State.REFERENCE_KEY));
+
+            if (ref != null && t.contains(ref)) {
+                ids.add(ref);
+            }
+
+            for (Object item : map.values()) {
+                collectReferences(item, t, ids);
+            }
+
+        } else if (value instanceof Iterable) {
+            for (Object item : (Iterable<Object>) value) {
+                collectReferences(item, t, ids);
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the tree in the background, and keeps using the current one
+     * until then.
+     */
+    public void invalidate() {
+        registry.invalidate();
+    }
+
+    /**
+     * Returns the IDs of all roots in their display order.
+     *
+     * @return Never {@code null}.
+     */
+    public List<UUID> getRootIds() {
+        return getTree().getRootIds(taxonClass);
+    }
+
+    /**
+     * Returns the IDs of the children of the taxon with the given {@code id}
+     * in their display order.
+     *
+     * @param id May be {@code null}.
+     * @return Never {@code null}. Immutable.
+     */
+    public List<UUID> getChildIds(UUID id) {
+        return id != null ? getTree().getChildIds(id) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of taxa in the subtree under the taxon with the
+     * given {@code id}, including itself.
+     *
+     * @param id May be {@code null}.
+     * @return {@code 0} if the taxon isn't in the tree.
+     */
+    public int getSubtreeSize(UUID id) {
+        return id != null ? getTree().getSubtreeSize(id) : 0;
+    }
+
+    /**
+     * Returns the IDs of all descendants of the taxon with the given
+     * {@code id}, not including itself.
+     *
+     * @param id May be {@code null}.
+     * @return Never {@code null}.
+     */
+    public Set<UUID> getDescendantIds(UUID id) {
+        Set<UUID> descendantIds = new LinkedHashSet<>();
+
+        if (id != null) {
+            getTree().collectDescendantIds(id, descendantIds);
+        }
+
+        return descendantIds;
+    }
+
+    /**
+     * Returns the IDs of the path from a root to the taxon with the given
+     * {@code id}, following the first parent at each level.
+     *
+     * @param id May be {@code null}.
+     * @return Never {@code null}.
+     */
+    public List<UUID> getPath(UUID id) {
+        return getTree().getPath(id);
+    }
+
+    /**
+     * Finds the taxa that should be displayed under the taxon with the given
+     * {@code parentId}, using a single query to evaluate the given
+     * {@code predicate} against the whole subtree and another to load the
+     * taxa.
+     *
+     * <p>As in {@link Taxon.Static#getRoots(Class, Site, Predicate)}, taxa
+     * that don't match the predicate are only included if any of their
+     * descendants match, and are marked as not selectable.</p>
+     *
+     * @param parentId If {@code null}, finds the roots.
+     * @param site May be {@code null}.
+     * @param predicate May be {@code null}.
+     * @return Never {@code null}.
+     */
+    public Level findLevel(UUID parentId, Site site, Predicate predicate) {
+        TaxonomyTree t = getTree();
+        List<UUID> levelIds = parentId != null ? t.getChildIds(parentId) : t.getRootIds(taxonClass);
+
+        if (levelIds.isEmpty()) {
+            return new Level(Collections.emptyList(), Collections.emptyMap());
+        }
+
+        Set<UUID> matchingIds = null;
+
+        if (predicate != null) {
+            Set<UUID> subtreeIds = new LinkedHashSet<>(levelIds);
+
+            for (UUID id : levelIds) {
+                t.collectDescendantIds(id, subtreeIds);
+            }
+
+            Query<Object> matchQuery = Query.fromAll().where(predicate);
+
+            // Restricting a very large subtree by ID costs more than
+            // matching the whole class.
+            if (subtreeIds.size() <= 1000) {
+                matchQuery.and("_id = ?", subtreeIds);
+            }
+
+            matchingIds = new HashSet<>();
+
+            // Only the IDs are needed, so the matches aren't resolved.
+            for (Object item : matchQuery.resolveToReferenceOnly().selectAll()) {
+                matchingIds.add(State.getInstance(item).getId());
+            }
+
+            matchingIds.retainAll(subtreeIds);
+        }
+
+        Map<UUID, Boolean> visible = new HashMap<>();
+        List<UUID> visibleIds = new ArrayList<>();
+
+        for (UUID id : levelIds) {
+            if (t.isVisible(id, matchingIds, visible, new HashSet<>())) {
+                visibleIds.add(id);
+            }
+        }
+
+        if (visibleIds.isEmpty()) {
+            return new Level(Collections.emptyList(), Collections.emptyMap());
+        }
+
+        Map<UUID, Taxon> loaded = new HashMap<>();
+
+        for (Object item : Query.fromAll().where("_id = ?", visibleIds).selectAll()) {
+            if (item instanceof Taxon) {
+                loaded.put(((Taxon) item).getState().getId(), (Taxon) item);
+            }
+        }
+
+        Predicate sitePredicate = site != null ? site.itemsPredicate() : null;
+        List<Taxon> items = new ArrayList<>();
+        Map<UUID, Boolean> expandable = new HashMap<>();
+
+        for (UUID id : visibleIds) {
+            Taxon item = loaded.get(id);
+
+            if (item == null || (sitePredicate != null && !PredicateParser.Static.evaluate(item, sitePredicate))) {
+                continue;
+            }
+
+            if (matchingIds != null) {
+                item.as(Taxon.Data.class).setSelectable(matchingIds.contains(id));
+            }
+
+            boolean hasChildren = false;
+
+            for (UUID childId : t.getChildIds(id)) {
+                if (t.isVisible(childId, matchingIds, visible, new HashSet<>())) {
+                    hasChildren = true;
+                    break;
+                }
+            }
+
+            items.add(item);
+            expandable.put(id, hasChildren);
+        }
+
+        return new Level(items, expandable);
+    }
+
+    /**
+     * Taxa to display at one level of a tree view.
+     */
+    public static final class Level {
+
+        private final List<Taxon> items;
+        private final Map<UUID, Boolean> expandable;
+
+        private Level(List<Taxon> items, Map<UUID, Boolean> expandable) {
+            this.items = Collections.unmodifiableList(items);
+            this.expandable = expandable;
+        }
+
+        /**
+         * @return Never {@code null}. Immutable.
+         */
+        public List<Taxon> getItems() {
+            return items;
+        }
+
+        /**
+         * Returns {@code true} if the given {@code item} has children that
+         * should be displayed.
+         */
+        public boolean hasChildren(Taxon item) {
+            return Boolean.TRUE.equals(expandable.get(item.getState().getId()));
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.psddev.dari.util.ObjectUtils;
+
+/**
+ * Immutable tree of taxa used by {@link TaxonomyIndex}, which is replaced as
+ * a whole on every change.
+ */
+final class TaxonomyTree {
+
+    private final Map<UUID, Node> nodes;
+    private final List<Node> roots;
+    private final Map<UUID, List<UUID>> childIds = new HashMap<>();
+    private final Map<UUID, List<UUID>> parentIds = new HashMap<>();
+    private final Map<UUID, Integer> subtreeSizes = new ConcurrentHashMap<>();
+
+    /**
+     * @param nodes Can't be {@code null}.
+     */
+    public TaxonomyTree(Collection<Node> nodes) {
+        Map<UUID, Node> nodesById = new HashMap<>();
+
+        for (Node node : nodes) {
+            nodesById.put(node.id, node);
+        }
+
+        List<Node> roots = new ArrayList<>();
+
+        for (Node node : nodesById.values()) {
+            if (node.root) {
+                roots.add(node);
+            }
+
+            // Children in the display order without the duplicates.
+            List<Node> children = new ArrayList<>();
+            Set<UUID> seen = new HashSet<>();
+
+            for (UUID childId : node.childIds) {
+                if (seen.add(childId)) {
+                    Node child = nodesById.get(childId);
+
+                    children.add(child != null ? child : new Node(childId, null, false, null, Collections.emptyList()));
+                }
+            }
+
+            children.sort(Node::compareTo);
+
+            List<UUID> ids = new ArrayList<>();
+
+            for (Node child : children) {
+                ids.add(child.id);
+                parentIds.computeIfAbsent(child.id, k -> new ArrayList<>()).add(node.id);
+            }
+
+            childIds.put(node.id, Collections.unmodifiableList(ids));
+        }
+
+        // Stable order for the roots that sort the same.
+        roots.sort(Comparator.<Node>naturalOrder().thenComparing(n -> n.id));
+
+        this.nodes = nodesById;
+        this.roots = roots;
+    }
+
+    /**
+     * Returns {@code true} if the taxon with the given {@code id} is in
+     * this tree.
+     */
+    public boolean contains(UUID id) {
+        return nodes.containsKey(id);
+    }
+
+    /**
+     * Returns the IDs of the roots that are instances of the given
+     * {@code taxonClass} in their display order.
+     *
+     * @param taxonClass If {@code null}, returns all roots.
+     * @return Never {@code null}.
+     */
+    public List<UUID> getRootIds(Class<?> taxonClass) {
+        List<UUID> ids = new ArrayList<>();
+
+        for (Node root : roots) {
+            if (taxonClass == null || (root.objectClass != null && taxonClass.isAssignableFrom(root.objectClass))) {
+                ids.add(root.id);
+            }
+        }
+
+        return ids;
+    }
+
+    /**
+     * @return Never {@code null}. Immutable.
+     */
+    public List<UUID> getChildIds(UUID id) {
+        List<UUID> ids = childIds.get(id);
+
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    /**
+     * @return Never {@code null}.
+     */
+    public List<UUID> getParentIds(UUID id) {
+        List<UUID> ids = parentIds.get(id);
+
+        return ids != null ? ids : Collections.emptyList();
+    }
+
+    /**
+     * Adds the IDs of all descendants of the taxon with the given
+     * {@code id} to the given {@code ids}, stopping at the cycles.
+     */
+    public void collectDescendantIds(UUID id, Set<UUID> ids) {
+        for (UUID childId : getChildIds(id)) {
+            if (ids.add(childId)) {
+                collectDescendantIds(childId, ids);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of taxa in the subtree under the taxon with the
+     * given {@code id}, including itself.
+     */
+    public int getSubtreeSize(UUID id) {
+        Integer size = subtreeSizes.get(id);
+
+        if (size == null) {
+            Set<UUID> ids = new HashSet<>();
+
+            if (nodes.containsKey(id)) {
+                ids.add(id);
+                collectDescendantIds(id, ids);
+            }
+
+            size = ids.size();
+            subtreeSizes.put(id, size);
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the IDs of the path from a root to the taxon with the given
+     * {@code id}, following the first parent at each level.
+     */
+    public List<UUID> getPath(UUID id) {
+        List<UUID> path = new ArrayList<>();
+        Set<UUID> visited = new HashSet<>();
+
+        for (UUID current = id; current != null && nodes.containsKey(current) && visited.add(current);) {
+            path.add(0, current);
+
+            List<UUID> ids = getParentIds(current);
+
+            current = ids.isEmpty() ? null : ids.get(0);
+        }
+
+        return path;
+    }
+
+    /**
+     * Returns {@code true} if the taxon with the given {@code id} or any of
+     * its descendants is in the given {@code matchingIds}.
+     *
+     * @param matchingIds If {@code null}, everything is visible.
+     * @param visible Results that are shared across the calls.
+     * @param visiting Taxa that are being checked, to stop at the cycles.
+     */
+    public boolean isVisible(UUID id, Set<UUID> matchingIds, Map<UUID, Boolean> visible, Set<UUID> visiting) {
+        if (matchingIds == null) {
+            return true;
+        }
+
+        Boolean cached = visible.get(id);
+
+        if (cached != null) {
+            return cached;
+
+        } else if (!visiting.add(id)) {
+            return false;
+        }
+
+        boolean result = matchingIds.contains(id);
+
+        if (!result) {
+            for (UUID childId : getChildIds(id)) {
+                if (isVisible(childId, matchingIds, visible, visiting)) {
+                    result = true;
+                    break;
+                }
+            }
+        }
+
+        visible.put(id, result);
+        return result;
+    }
+
+    /**
+     * Returns a new tree with the given {@code changedNodes} added or
+     * replaced.
+     */
+    public TaxonomyTree with(Collection<Node> changedNodes) {
+        Map<UUID, Node> newNodes = new HashMap<>(nodes);
+
+        for (Node node : changedNodes) {
+            newNodes.put(node.id, node);
+        }
+
+        return new TaxonomyTree(newNodes.values());
+    }
+
+    /**
+     * Returns a new tree without the taxon with the given {@code id}.
+     */
+    public TaxonomyTree without(UUID id) {
+        Map<UUID, Node> newNodes = new HashMap<>(nodes);
+
+        newNodes.remove(id);
+
+        for (UUID parentId : getParentIds(id)) {
+            Node parent = newNodes.get(parentId);
+
+            if (parent != null) {
+                List<UUID> ids = new ArrayList<>(parent.childIds);
+
+                ids.removeIf(id::equals);
+                newNodes.put(parentId, new Node(parent.id, parent.objectClass, parent.root, parent.sortValue, ids));
+            }
+        }
+
+        return new TaxonomyTree(newNodes.values());
+    }
+
+    /**
+     * Single taxon in the tree.
+     */
+    public static final class Node implements Comparable<Node> {
+
+        public final UUID id;
+        public final Class<?> objectClass;
+        public final boolean root;
+        public final Object sortValue;
+        public final List<UUID> childIds;
+
+        /**
+         * @param id Can't be {@code null}.
+         * @param objectClass May be {@code null}.
+         * @param root {@code true} if the taxon is a root.
+         * @param sortValue Value that the taxon is displayed in order of
+         *        among its siblings. May be {@code null}.
+         * @param childIds IDs of the children in any order. Can't be
+         *        {@code null}.
+         */
+        public Node(UUID id, Class<?> objectClass, boolean root, Object sortValue, List<UUID> childIds) {
+            this.id = id;
+            this.objectClass = objectClass;
+            this.root = root;
+            this.sortValue = sortValue;
+            this.childIds = Collections.unmodifiableList(new ArrayList<>(childIds));
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return ObjectUtils.compare(sortValue, other.sortValue, true);
+        }
+    }
+}
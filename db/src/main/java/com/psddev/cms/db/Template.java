@@ -3,12 +3,12 @@ package com.psddev.cms.db;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
-import javax.script.ScriptEngine;
-import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import com.psddev.dari.db.Database;
@@ -157,21 +157,15 @@ public class Template extends Page {
                 }
 
             } else {
-                ScriptEngineManager manager = new ScriptEngineManager();
-                ScriptEngine engineObj = manager.getEngineByName(engine);
-                if (engineObj != null) {
-                    engineObj.put("object", object);
-                    engineObj.put("objectName", objectName);
-                    try {
-                        addPath(paths, site, engineObj.eval(script), null);
-                    } catch (ScriptException ex) {
-                        throw new RuntimeException(String.format(
-                                "Unable to evaluate [%s] script!", engine),
-                                ex);
-                    }
-                } else {
-                    throw new IllegalArgumentException(String.format(
-                            "[%s] is not a valid script engine!", engine));
+                Map<String, Object> variables = new HashMap<String, Object>();
+                variables.put("object", object);
+                variables.put("objectName", objectName);
+                try {
+                    addPath(paths, site, ScriptEvaluator.getDefault().evaluate(engine, script, variables), null);
+                } catch (ScriptException ex) {
+                    throw new RuntimeException(String.format(
+                            "Unable to evaluate [%s] script!", engine),
+                            ex);
                 }
             }
         }
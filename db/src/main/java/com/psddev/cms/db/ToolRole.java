@@ -82,6 +82,18 @@ public class ToolRole extends Record implements ToolEntity {
         this.roleCommonContentSettings = roleCommonContentSettings;
     }
 
+    @Override
+    protected void afterSave() {
+        super.afterSave();
+        SiteAccess.invalidate();
+    }
+
+    @Override
+    protected void afterDelete() {
+        super.afterDelete();
+        SiteAccess.invalidate();
+    }
+
     @Override
     public Iterable<? extends ToolUser> getUsers() {
         return Query.from(ToolUser.class).where("role = ?", this).iterable(0);
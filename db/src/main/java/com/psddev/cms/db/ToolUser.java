@@ -24,6 +24,7 @@ import javax.servlet.http.HttpServletRequest;
 
 import com.google.common.io.BaseEncoding;
 import com.psddev.cms.tool.CmsTool;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.cms.tool.Dashboard;
 import com.psddev.cms.tool.SearchResultSelection;
 import com.psddev.cms.tool.ToolEntityTfaRequired;
@@ -429,20 +430,28 @@ public class ToolUser extends Record implements ToolEntity {
      * @return the ToolUser's current Site or null if the ToolUser is using the Global Site.
      */
     public Site getCurrentSite() {
+        SiteAccess access = SiteAccess.getInstance(getRole());
+
         if ((currentSite == null
-                && hasPermission("site/global"))
+                && access.isGlobalAccessible())
                 || (currentSite != null
-                && hasPermission(currentSite.getPermissionId()))) {
+                && access.isAccessible(currentSite.getId()))) {
             return currentSite;
 
         } else {
-            for (Site s : Site.Static.findAll()) {
-                if (hasPermission(s.getPermissionId())) {
-                    return s;
+            List<UUID> accessibleSiteIds = access.getAccessibleSiteIds();
+
+            if (!accessibleSiteIds.isEmpty()) {
+                UUID firstId = accessibleSiteIds.get(0);
+
+                for (Site s : Site.Static.findAll()) {
+                    if (firstId.equals(s.getId())) {
+                        return s;
+                    }
                 }
             }
 
-            if (hasPermission("site/global")) {
+            if (access.isGlobalAccessible()) {
                 return null;
             }
 
@@ -459,10 +468,11 @@ public class ToolUser extends Record implements ToolEntity {
     public List<Site> findOtherAccessibleSites() {
 
         Site currentSite = getCurrentSite();
+        SiteAccess access = SiteAccess.getInstance(getRole());
 
         return Site.Static.findAll()
             .stream()
-            .filter((Site site) -> hasPermission(site.getPermissionId()) && !ObjectUtils.equals(currentSite, site))
+            .filter((Site site) -> access.isAccessible(site.getId()) && !ObjectUtils.equals(currentSite, site))
             .collect(Collectors.toList());
     }
 
@@ -580,7 +590,7 @@ public class ToolUser extends Record implements ToolEntity {
      * @return The tool user that holds the lock. Never {@code null}.
      */
     public ToolUser lockContent(UUID id) {
-        if (Query.from(CmsTool.class).first().isDisableContentLocking()) {
+        if (CmsToolSnapshot.get().isDisableContentLocking()) {
             return this;
         }
 
@@ -1,7 +1,6 @@
 package com.psddev.cms.db;
 
 import java.util.Date;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
@@ -13,7 +12,6 @@ import com.psddev.dari.db.Modification;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectIndex;
 import com.psddev.dari.db.ObjectType;
-import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
 import com.psddev.dari.db.Recordable;
 import com.psddev.dari.db.State;
@@ -43,6 +41,8 @@ public class Workflow extends Record {
     @ToolUi.FieldDisplayType("workflowActions")
     private Map<String, Object> actions;
 
+    private transient volatile WorkflowStateMachine stateMachine;
+
     /** Returns the name. */
     public String getName() {
         return name;
@@ -86,180 +86,59 @@ public class Workflow extends Record {
         this.actions = actions;
     }
 
+    /**
+     * Returns the states and transitions compiled from the
+     * {@linkplain #getActions() actions}.
+     *
+     * @return Never {@code null}.
+     */
+    public WorkflowStateMachine getStateMachine() {
+        WorkflowStateMachine machine = stateMachine;
+
+        if (machine == null || !machine.isCompiledFrom(actions)) {
+            machine = WorkflowStateMachine.compile(actions);
+            stateMachine = machine;
+        }
+
+        return machine;
+    }
+
     /**
      * Returns a set of all states in this workflow.
      *
      * @return Never {@code null}. Modifiable.
      */
     public Set<WorkflowState> getStates() {
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        Map<String, List<Map<String, Object>>> actions = (Map) getActions();
-        List<Map<String, Object>> rawStates = actions.get("states");
-        Set<WorkflowState> states = new HashSet<WorkflowState>();
-
-        if (rawStates != null) {
-            for (Map<String, Object> s : rawStates) {
-                WorkflowState state = new WorkflowState();
-
-                state.setName((String) s.get("name"));
-                state.setDisplayName((String) s.get("displayName"));
-                states.add(state);
-            }
-        }
-
-        return states;
+        return new HashSet<>(getStateMachine().getStates());
     }
 
+    /**
+     * @return Never {@code null}. Unmodifiable.
+     */
     public Map<String, WorkflowTransition> getTransitions() {
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        Map<String, List<Map<String, Object>>> actions = (Map) getActions();
-        List<Map<String, Object>> rawStates = actions.get("states");
-        List<Map<String, Object>> rawTransitions = actions.get("transitions");
-        Map<String, WorkflowTransition> transitions = new HashMap<String, WorkflowTransition>();
-
-        if (rawStates != null && rawTransitions != null) {
-            Map<String, WorkflowState> states = new HashMap<String, WorkflowState>();
-            WorkflowState state;
-
-            for (Map<String, Object> s : rawStates) {
-                state = new WorkflowState();
-                state.setName((String) s.get("name"));
-                state.setDisplayName((String) s.get("displayName"));
-                states.put((String) s.get("id"), state);
-            }
-
-            state = new WorkflowState();
-            state.setName("New");
-            states.put("initial", state);
-
-            state = new WorkflowState();
-            state.setName("Published");
-            states.put("final", state);
-
-            for (Map<String, Object> t : rawTransitions) {
-                WorkflowTransition transition = new WorkflowTransition();
-                String name = (String) t.get("name");
-
-                transition.setName(name);
-                transition.setDisplayName((String) t.get("displayName"));
-                transition.setSource(states.get(t.get("source")));
-                transition.setTarget(states.get(t.get("target")));
-                transitions.put(name, transition);
-            }
-        }
-
-        return transitions;
+        return getStateMachine().getTransitions();
     }
 
+    /**
+     * @param from If {@code null}, uses the initial state.
+     * @return Never {@code null}. Unmodifiable.
+     */
     public Map<String, WorkflowTransition> getTransitionsFrom(String from) {
-        if (from == null) {
-            from = "New";
-        }
-
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        Map<String, List<Map<String, Object>>> actions = (Map) getActions();
-        List<Map<String, Object>> rawStates = actions.get("states");
-        List<Map<String, Object>> rawTransitions = actions.get("transitions");
-        Map<String, WorkflowTransition> transitions = new HashMap<String, WorkflowTransition>();
-
-        if (rawStates != null && rawTransitions != null) {
-            Map<String, WorkflowState> states = new HashMap<String, WorkflowState>();
-            WorkflowState state;
-
-            for (Map<String, Object> s : rawStates) {
-                state = new WorkflowState();
-                state.setName((String) s.get("name"));
-                state.setDisplayName((String) s.get("displayName"));
-                states.put((String) s.get("id"), state);
-            }
-
-            state = new WorkflowState();
-            state.setName("New");
-            states.put("initial", state);
-
-            state = new WorkflowState();
-            state.setName("Published");
-            states.put("final", state);
-
-            for (Map<String, Object> t : rawTransitions) {
-                WorkflowTransition transition = new WorkflowTransition();
-                String name = (String) t.get("name");
-                WorkflowState source = states.get(t.get("source"));
-
-                transition.setName(name);
-                transition.setDisplayName((String) t.get("displayName"));
-                transition.setSource(source);
-                transition.setTarget(states.get(t.get("target")));
-
-                if (!(source == null
-                        || !from.equals(source.getName())
-                        || "Published".equals(transition.getTarget().getName()))) {
-                    transitions.put(name, transition);
-                }
-            }
-        }
-
-        return transitions;
+        return getStateMachine().getTransitionsFrom(from);
     }
 
+    /**
+     * @param to If {@code null}, uses the final state.
+     * @return Never {@code null}. Unmodifiable.
+     */
     public Map<String, WorkflowTransition> getTransitionsTo(String to) {
-        if (to == null) {
-            to = "Published";
-        }
-
-        @SuppressWarnings({ "rawtypes", "unchecked" })
-        Map<String, List<Map<String, Object>>> actions = (Map) getActions();
-        List<Map<String, Object>> rawStates = actions.get("states");
-        List<Map<String, Object>> rawTransitions = actions.get("transitions");
-        Map<String, WorkflowTransition> transitions = new HashMap<>();
-
-        if (rawStates != null && rawTransitions != null) {
-            Map<String, WorkflowState> states = new HashMap<>();
-            WorkflowState state;
-
-            for (Map<String, Object> s : rawStates) {
-                state = new WorkflowState();
-                state.setName((String) s.get("name"));
-                state.setDisplayName((String) s.get("displayName"));
-                states.put((String) s.get("id"), state);
-            }
-
-            state = new WorkflowState();
-            state.setName("New");
-            states.put("initial", state);
-
-            state = new WorkflowState();
-            state.setName("Published");
-            states.put("final", state);
-
-            for (Map<String, Object> t : rawTransitions) {
-                WorkflowTransition transition = new WorkflowTransition();
-                String name = (String) t.get("name");
-                WorkflowState target = states.get(t.get("target"));
-
-                transition.setName(name);
-                transition.setDisplayName((String) t.get("displayName"));
-                transition.setSource(states.get(t.get("source")));
-                transition.setTarget(target);
-
-                if (!(target == null
-                        || !to.equals(target.getName())
-                        || "New".equals(transition.getSource().getName()))) {
-                    transitions.put(name, transition);
-                }
-            }
-        }
-
-        return transitions;
+        return getStateMachine().getTransitionsTo(to);
     }
 
     public String getStateDisplayName(String workflowState) {
-        return getStates()
-                .stream()
-                .filter(st -> st != null && workflowState.equals(st.getName()))
-                .map(WorkflowState::getDisplayName)
-                .findFirst()
-                .orElse(workflowState);
+        WorkflowState state = getStateMachine().getState(workflowState);
+
+        return state != null ? state.getDisplayName() : workflowState;
     }
 
     @Override
@@ -273,6 +152,30 @@ public class Workflow extends Record {
                 siteContentTypeIds.add(site.getId() + ":" + contentType.getId());
             }
         }
+
+        stateMachine = WorkflowStateMachine.compile(actions);
+    }
+
+    @Override
+    protected void afterSave() {
+        super.afterSave();
+        WorkflowRegistry.invalidate();
+    }
+
+    @Override
+    protected void afterDelete() {
+        super.afterDelete();
+        WorkflowRegistry.invalidate();
+    }
+
+    /**
+     * Returns all workflows that apply to the given {@code type}.
+     *
+     * @param type If {@code null}, returns all workflows.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public static List<Workflow> findWorkflows(ObjectType type) {
+        return WorkflowRegistry.findAll(type);
     }
 
     public static Workflow findWorkflow(Site site, State state) {
@@ -285,29 +188,17 @@ public class Workflow extends Record {
         ObjectType type = state.getType();
 
         if (site != null) {
-            workflow = Query
-                    .from(Workflow.class)
-                    .and("sites = ?", site)
-                    .and("contentTypes = ?", type)
-                    .first();
+            workflow = WorkflowRegistry.find(site, type);
         }
 
         if (workflow == null) {
-            workflow = Query
-                    .from(Workflow.class)
-                    .and("sites = missing")
-                    .and("contentTypes = ?", type)
-                    .first();
+            workflow = WorkflowRegistry.find(null, type);
         }
 
         if (workflow == null) {
             Site owner = state.as(Site.ObjectModification.class).getOwner();
             if (owner != null) {
-                workflow = Query
-                        .from(Workflow.class)
-                        .and("sites = ?", owner)
-                        .and("contentTypes = ?", type)
-                        .first();
+                workflow = WorkflowRegistry.find(owner, type);
             }
         }
 
@@ -409,10 +300,10 @@ public class Workflow extends Record {
                 Workflow workflow = findWorkflow(as(Site.ObjectModification.class).getOwner(), getState());
 
                 if (workflow != null) {
-                    for (WorkflowState s : workflow.getStates()) {
-                        if (currentState.equals(s.getName())) {
-                            return s.getDisplayName();
-                        }
+                    WorkflowState s = workflow.getStateMachine().getState(currentState);
+
+                    if (s != null) {
+                        return s.getDisplayName();
                     }
                 }
             }
@@ -422,12 +313,7 @@ public class Workflow extends Record {
 
         @Override
         public Iterable<?> findVisibilityValues(ObjectIndex index) {
-            Set<Object> visibilityValues = new HashSet<Object>();
-
-            for (Workflow workflow : Query.from(Workflow.class).where("contentTypes = ?", State.getInstance(getOriginalObject()).getType()).selectAll()) {
-                visibilityValues.add(workflow.getStates());
-            }
-            return visibilityValues;
+            return WorkflowRegistry.findVisibilityValues(State.getInstance(getOriginalObject()).getType());
         }
     }
 }
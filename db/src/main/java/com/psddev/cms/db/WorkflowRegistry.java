@@ -0,0 +1,137 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Query;
+
+/**
+ * In-memory index of all {@link Workflow}s by site and content type, which
+ * lets {@link Workflow#findWorkflow(Site, com.psddev.dari.db.State)} and the
+ * workflow visibility lookups avoid querying on every call.
+ *
+ * <p>The index is reloaded in the background whenever a workflow is saved
+ * or deleted on this server. The changes on the other servers are picked
+ * up by {@link SnapshotRegistry}.</p>
+ */
+final class WorkflowRegistry {
+
+    private static final SnapshotRegistry<Snapshot> REGISTRY = new SnapshotRegistry<>(
+            Workflow.class,
+            () -> new Snapshot(Query.from(Workflow.class).selectAll()));
+
+    private WorkflowRegistry() {
+    }
+
+    // Called by Workflow#afterSave and Workflow#afterDelete.
+    static void invalidate() {
+        REGISTRY.invalidate();
+    }
+
+    /**
+     * Returns the workflow for the given {@code site} and {@code type}.
+     *
+     * @param site If {@code null}, returns the workflow that applies to all
+     *        sites.
+     * @param type May be {@code null}.
+     * @return May be {@code null}.
+     */
+    static Workflow find(Site site, ObjectType type) {
+        if (type == null) {
+            return null;
+        }
+
+        Snapshot s = getSnapshot();
+
+        return site != null
+                ? s.bySiteAndType.get(site.getId() + ":" + type.getId())
+                : s.globalByType.get(type.getId());
+    }
+
+    /**
+     * Returns all workflows that apply to the given {@code type}.
+     *
+     * @param type If {@code null}, returns all workflows.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    static List<Workflow> findAll(ObjectType type) {
+        Snapshot s = getSnapshot();
+
+        if (type == null) {
+            return s.all;
+        }
+
+        List<Workflow> workflows = s.byType.get(type.getId());
+
+        return workflows != null ? workflows : Collections.emptyList();
+    }
+
+    /**
+     * Returns the visibility values of all workflows that apply to the given
+     * {@code type}.
+     *
+     * @param type May be {@code null}.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    static Set<Object> findVisibilityValues(ObjectType type) {
+        Set<Object> values = type != null ? getSnapshot().visibilityValuesByType.get(type.getId()) : null;
+
+        return values != null ? values : Collections.emptySet();
+    }
+
+    private static Snapshot getSnapshot() {
+        return REGISTRY.get();
+    }
+
+    private static final class Snapshot {
+
+        public final List<Workflow> all;
+        public final Map<UUID, List<Workflow>> byType = new HashMap<>();
+        public final Map<String, Workflow> bySiteAndType = new HashMap<>();
+        public final Map<UUID, Workflow> globalByType = new HashMap<>();
+        public final Map<UUID, Set<Object>> visibilityValuesByType = new HashMap<>();
+
+        public Snapshot(List<Workflow> workflows) {
+            this.all = Collections.unmodifiableList(new ArrayList<>(workflows));
+
+            for (Workflow workflow : all) {
+
+                // Compile ahead of time so that the callers don't have to.
+                Set<WorkflowState> states = Collections.unmodifiableSet(new HashSet<>(workflow.getStateMachine().getStates()));
+                Set<Site> sites = workflow.getSites();
+
+                for (ObjectType type : workflow.getContentTypes()) {
+                    if (type == null) {
+                        continue;
+                    }
+
+                    UUID typeId = type.getId();
+
+                    byType.computeIfAbsent(typeId, k -> new ArrayList<>()).add(workflow);
+                    visibilityValuesByType.computeIfAbsent(typeId, k -> new HashSet<>()).add(states);
+
+                    if (sites.isEmpty()) {
+                        globalByType.putIfAbsent(typeId, workflow);
+
+                    } else {
+                        for (Site site : sites) {
+                            if (site != null) {
+                                bySiteAndType.putIfAbsent(site.getId() + ":" + typeId, workflow);
+                            }
+                        }
+                    }
+                }
+            }
+
+            byType.replaceAll((k, v) -> Collections.unmodifiableList(v));
+            visibilityValuesByType.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable states and transitions of a {@link Workflow}, compiled from its
+ * raw {@link Workflow#getActions() actions} along with the lookup tables
+ * for the transitions from and to each state.
+ *
+ * <p>The compiled states and transitions are shared by every caller, so
+ * they shouldn't be modified.</p>
+ */
+public final class WorkflowStateMachine {
+
+    public static final String INITIAL_STATE_NAME = "New";
+    public static final String FINAL_STATE_NAME = "Published";
+
+    private static final WorkflowStateMachine EMPTY = new WorkflowStateMachine(null);
+
+    private final Map<String, Object> actions;
+    private final List<WorkflowState> states;
+    private final Map<String, WorkflowState> statesByName;
+    private final Map<String, WorkflowTransition> transitions;
+    private final Map<String, Map<String, WorkflowTransition>> transitionsFrom;
+    private final Map<String, Map<String, WorkflowTransition>> transitionsTo;
+
+    /**
+     * Compiles the given raw workflow {@code actions}.
+     *
+     * @param actions May be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static WorkflowStateMachine compile(Map<String, Object> actions) {
+        return actions != null ? new WorkflowStateMachine(actions) : EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private WorkflowStateMachine(Map<String, Object> actions) {
+        this.actions = actions;
+
+        List<Map<String, Object>> rawStates = actions != null ? (List<Map<String, Object>>) actions.get("states") : null;
+        List<Map<String, Object>> rawTransitions = actions != null ? (List<Map<String, Object>>) actions.get("transitions") : null;
+        List<WorkflowState> states = new ArrayList<>();
+        Map<String, WorkflowState> statesByName = new HashMap<>();
+        Map<String, WorkflowTransition> transitions = new LinkedHashMap<>();
+        Map<String, Map<String, WorkflowTransition>> transitionsFrom = new HashMap<>();
+        Map<String, Map<String, WorkflowTransition>> transitionsTo = new HashMap<>();
+
+        if (rawStates != null) {
+            Map<String, WorkflowState> statesById = new HashMap<>();
+
+            for (Map<String, Object> s : rawStates) {
+                WorkflowState state = new WorkflowState();
+
+                state.setName((String) s.get("name"));
+                state.setDisplayName((String) s.get("displayName"));
+                states.add(state);
+                statesByName.putIfAbsent(state.getName(), state);
+                statesById.put((String) s.get("id"), state);
+            }
+
+            if (rawTransitions != null) {
+                WorkflowState initial = new WorkflowState();
+                WorkflowState published = new WorkflowState();
+
+                initial.setName(INITIAL_STATE_NAME);
+                published.setName(FINAL_STATE_NAME);
+                statesById.put("initial", initial);
+                statesById.put("final", published);
+
+                for (Map<String, Object> t : rawTransitions) {
+                    WorkflowTransition transition = new WorkflowTransition();
+                    String name = (String) t.get("name");
+                    WorkflowState source = statesById.get(t.get("source"));
+                    WorkflowState target = statesById.get(t.get("target"));
+
+                    transition.setName(name);
+                    transition.setDisplayName((String) t.get("displayName"));
+                    transition.setSource(source);
+                    transition.setTarget(target);
+                    transitions.put(name, transition);
+                }
+
+                // Transitions that publish aren't offered from a state,
+                // and the ones that start the workflow aren't offered to
+                // a state.
+                for (WorkflowTransition transition : transitions.values()) {
+                    WorkflowState source = transition.getSource();
+                    WorkflowState target = transition.getTarget();
+
+                    if (source == null || target == null) {
+                        continue;
+                    }
+
+                    if (!FINAL_STATE_NAME.equals(target.getName())) {
+                        transitionsFrom.computeIfAbsent(source.getName(), k -> new LinkedHashMap<>()).put(transition.getName(), transition);
+                    }
+
+                    if (!INITIAL_STATE_NAME.equals(source.getName())) {
+                        transitionsTo.computeIfAbsent(target.getName(), k -> new LinkedHashMap<>()).put(transition.getName(), transition);
+                    }
+                }
+            }
+        }
+
+        this.states = Collections.unmodifiableList(states);
+        this.statesByName = statesByName;
+        this.transitions = Collections.unmodifiableMap(transitions);
+        this.transitionsFrom = unmodifiableValues(transitionsFrom);
+        this.transitionsTo = unmodifiableValues(transitionsTo);
+    }
+
+    private static Map<String, Map<String, WorkflowTransition>> unmodifiableValues(Map<String, Map<String, WorkflowTransition>> map) {
+        map.replaceAll((k, v) -> Collections.unmodifiableMap(v));
+        return map;
+    }
+
+    // Whether this was compiled from the given actions.
+    boolean isCompiledFrom(Map<String, Object> actions) {
+        return this.actions == actions;
+    }
+
+    /**
+     * Returns all states in the order that they were defined, excluding the
+     * implicit initial and final states.
+     *
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public List<WorkflowState> getStates() {
+        return states;
+    }
+
+    /**
+     * Returns the state with the given {@code name}.
+     *
+     * @param name May be {@code null}.
+     * @return May be {@code null}.
+     */
+    public WorkflowState getState(String name) {
+        return statesByName.get(name);
+    }
+
+    /**
+     * Returns all transitions keyed by their names.
+     *
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public Map<String, WorkflowTransition> getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Returns the transitions from the state with the given {@code name},
+     * excluding the ones that publish.
+     *
+     * @param name If {@code null}, uses the initial state.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public Map<String, WorkflowTransition> getTransitionsFrom(String name) {
+        Map<String, WorkflowTransition> from = transitionsFrom.get(name != null ? name : INITIAL_STATE_NAME);
+
+        return from != null ? from : Collections.emptyMap();
+    }
+
+    /**
+     * Returns the transitions to the state with the given {@code name},
+     * excluding the ones from the initial state.
+     *
+     * @param name If {@code null}, uses the final state.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public Map<String, WorkflowTransition> getTransitionsTo(String name) {
+        Map<String, WorkflowTransition> to = transitionsTo.get(name != null ? name : FINAL_STATE_NAME);
+
+        return to != null ? to : Collections.emptyMap();
+    }
+}
@@ -24,6 +24,11 @@ public class WorkflowTransitionNotification extends Notification {
         this.transition = transition;
     }
 
+    @Override
+    protected boolean isPersonalized() {
+        return false;
+    }
+
     @Override
     protected String createMessage(Object object, ToolUser sender, Date date, ToolUser receiver) {
         State state = State.getInstance(object);
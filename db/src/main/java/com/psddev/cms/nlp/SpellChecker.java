@@ -5,9 +5,12 @@ import com.psddev.dari.util.ClassFinder;
 import com.psddev.dari.util.Lazy;
 import com.psddev.dari.util.TypeDefinition;
 
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.ResourceBundle;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -108,6 +111,39 @@ public interface SpellChecker {
      * @return {@code null} if the given {@code word} is spelled correctly.
      */
     List<String> suggest(Locale locale, String word);
+
+    /**
+     * Checks all given {@code words} in the given {@code locale} at once.
+     *
+     * <p>Duplicate words are only checked once. The default implementation
+     * simply calls {@link #suggest(Locale, String)} for each unique word,
+     * and implementations are encouraged to override it with something
+     * more efficient.</p>
+     *
+     * @param locale
+     *        Can't be {@code null}.
+     *
+     * @param words
+     *        Can't be {@code null}.
+     *
+     * @return Never {@code null}. The keys are the unique words in the
+     *         iteration order of the given {@code words}, and the values
+     *         are the results of {@link #suggest(Locale, String)}.
+     */
+    default Map<String, List<String>> check(Locale locale, Collection<String> words) {
+        Preconditions.checkNotNull(locale);
+        Preconditions.checkNotNull(words);
+
+        Map<String, List<String>> results = new LinkedHashMap<>();
+
+        for (String word : words) {
+            if (word != null && !results.containsKey(word)) {
+                results.put(word, suggest(locale, word));
+            }
+        }
+
+        return results;
+    }
 }
 
 class SpellCheckerPrivate {
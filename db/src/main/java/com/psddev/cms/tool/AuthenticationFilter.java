@@ -251,6 +251,21 @@ public class AuthenticationFilter extends AbstractFilter {
             request.setAttribute(USER_CHECKED_ATTRIBUTE, Boolean.TRUE);
         }
 
+        /**
+         * Authenticates the given tool {@code user} for the given
+         * {@code request} only, without setting the cookies or generating a
+         * login token.
+         *
+         * @param request Can't be {@code null}.
+         * @param user Can't be {@code null}.
+         */
+        public static void logInForRequest(HttpServletRequest request, ToolUser user) {
+            request.setAttribute(USER_ATTRIBUTE, user);
+            request.setAttribute(USER_CHECKED_ATTRIBUTE, Boolean.TRUE);
+            request.setAttribute(TOOL_USER_ATTRIBUTE, user);
+            request.setAttribute(TOOL_USER_CHECKED_ATTRIBUTE, Boolean.TRUE);
+        }
+
         /**
          * Logs out the current tool user.
          *
@@ -0,0 +1,177 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import javax.servlet.ServletRequest;
+
+import com.google.common.base.Preconditions;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.ObjectUtils;
+
+/**
+ * Request-scoped resolver that collects the IDs that a form or a search
+ * panel needs and loads them in bulk, including the invisible objects.
+ *
+ * <p>IDs registered via {@link #prefetch} are loaded together in a single
+ * query the first time that any object is requested. Objects that are
+ * requested without being prefetched first are loaded along with anything
+ * else still pending. Each ID is only ever queried once per request, and
+ * missing objects are remembered as such.</p>
+ *
+ * <p>Instances aren't thread-safe.</p>
+ */
+public class BulkObjectResolver {
+
+    private static final String ATTRIBUTE = BulkObjectResolver.class.getName();
+
+    private final Function<Collection<UUID>, Map<UUID, Object>> loader;
+    private final Set<UUID> pending = new LinkedHashSet<>();
+    private final Map<UUID, Object> resolved = new HashMap<>();
+
+    /**
+     * Returns the resolver associated with the given {@code request},
+     * creating one if necessary.
+     *
+     * @param request Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static BulkObjectResolver getInstance(ServletRequest request) {
+        Preconditions.checkNotNull(request);
+
+        BulkObjectResolver resolver = (BulkObjectResolver) request.getAttribute(ATTRIBUTE);
+
+        if (resolver == null) {
+            resolver = new BulkObjectResolver();
+            request.setAttribute(ATTRIBUTE, resolver);
+        }
+
+        return resolver;
+    }
+
+    /**
+     * Creates an instance that queries the default database.
+     */
+    public BulkObjectResolver() {
+        this(BulkObjectResolver::load);
+    }
+
+    // For tests.
+    BulkObjectResolver(Function<Collection<UUID>, Map<UUID, Object>> loader) {
+        this.loader = loader;
+    }
+
+    private static Map<UUID, Object> load(Collection<UUID> ids) {
+        Map<UUID, Object> objects = new HashMap<>();
+
+        for (Object object : Query
+                .fromAll()
+                .where("_id = ?", ids)
+                .resolveInvisible()
+                .selectAll()) {
+
+            objects.put(State.getInstance(object).getId(), object);
+        }
+
+        return objects;
+    }
+
+    private static UUID toId(Object id) {
+        return id instanceof UUID ? (UUID) id : ObjectUtils.to(UUID.class, id);
+    }
+
+    /**
+     * Registers the given {@code ids} so that they're loaded along with the
+     * next batch. Values that can't be converted to IDs are ignored.
+     *
+     * @param ids May be {@code null}.
+     * @return Itself.
+     */
+    public BulkObjectResolver prefetch(Iterable<?> ids) {
+        if (ids != null) {
+            for (Object id : ids) {
+                UUID uuid = toId(id);
+
+                if (uuid != null && !resolved.containsKey(uuid)) {
+                    pending.add(uuid);
+                }
+            }
+        }
+
+        return this;
+    }
+
+    private void loadPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<UUID> ids = new ArrayList<>(pending);
+        Map<UUID, Object> objects = loader.apply(Collections.unmodifiableList(ids));
+
+        pending.clear();
+
+        for (UUID id : ids) {
+            resolved.put(id, objects.get(id));
+        }
+    }
+
+    /**
+     * Finds the object with the given {@code id}, loading it along with all
+     * the pending IDs if necessary.
+     *
+     * @param id May be {@code null}.
+     * @return {@code null} if the ID is invalid or the object doesn't exist.
+     */
+    public Object find(Object id) {
+        UUID uuid = toId(id);
+
+        if (uuid == null) {
+            return null;
+        }
+
+        if (!resolved.containsKey(uuid)) {
+            pending.add(uuid);
+            loadPending();
+        }
+
+        return resolved.get(uuid);
+    }
+
+    /**
+     * Finds all objects with the given {@code ids} in a single batch.
+     *
+     * @param ids May be {@code null}.
+     * @return Objects in the same order as the given IDs, without the
+     *         invalid or missing ones. Never {@code null}.
+     */
+    public List<Object> findAll(Iterable<?> ids) {
+        List<Object> objects = new ArrayList<>();
+
+        if (ids == null) {
+            return objects;
+        }
+
+        prefetch(ids);
+        loadPending();
+
+        for (Object id : ids) {
+            Object object = find(id);
+
+            if (object != null) {
+                objects.add(object);
+            }
+        }
+
+        return objects;
+    }
+}
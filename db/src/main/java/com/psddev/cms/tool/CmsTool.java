@@ -864,6 +864,11 @@ public class CmsTool extends Tool {
         writer.end();
     }
 
+    @Override
+    protected void afterSave() {
+        CmsToolSnapshot.update(this);
+    }
+
     // --- Tool support ---
 
     @Override
@@ -1052,8 +1057,14 @@ public class CmsTool extends Tool {
                     || !newLastUpdate.equals(oldLastUpdate))) {
                 oldLastUpdate = newLastUpdate;
                 Map<String, Object> settings = new CompactMap<String, Object>();
+                long snapshotGeneration = CmsToolSnapshot.getGeneration();
+                CmsTool cms = Query.from(CmsTool.class).first();
+
+                // Discarded if CmsTool was saved on this server while
+                // loading.
+                CmsToolSnapshot.update(cms, snapshotGeneration);
 
-                for (DariSetting s : Query.from(CmsTool.class).first().getDariSettings()) {
+                for (DariSetting s : cms.getDariSettings()) {
                     CollectionUtils.putByPath(settings, s.getKey(), s.getValue());
                 }
 
@@ -0,0 +1,222 @@
+package com.psddev.cms.tool;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.psddev.cms.db.SnapshotRegistry;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.util.ObjectUtils;
+
+/**
+ * Immutable, versioned snapshot of the {@link CmsTool} settings that are
+ * read on the request path.
+ *
+ * <p>The current snapshot is read through a single volatile access, and is
+ * replaced atomically whenever {@link CmsTool} is saved. The changes saved
+ * by other servers are picked up by {@link CmsTool.DariSettingsUpdater},
+ * so the request threads only ever load the very first snapshot.</p>
+ *
+ * <p>Callers that need multiple settings should call {@link #get} once and
+ * read everything from the same instance so that they see a consistent
+ * version.</p>
+ */
+public final class CmsToolSnapshot {
+
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    // Changes saved by other servers are picked up by the settings updater
+    // instead of the registry.
+    private static final SnapshotRegistry<CmsToolSnapshot> REGISTRY = new SnapshotRegistry<>(
+            null,
+            () -> new CmsToolSnapshot(Query.from(CmsTool.class).first()));
+
+    private final long version;
+    private final boolean present;
+    private final boolean disableInvisibleContentPreview;
+    private final boolean removeTrailingSlashes;
+    private final boolean enableAbTesting;
+    private final boolean displaySiteInSearchResult;
+    private final boolean disableContentLocking;
+    private final String defaultTextOverlayCss;
+    private final Map<String, String> textCssClasses;
+
+    /**
+     * Returns the current snapshot.
+     *
+     * @return Never {@code null}.
+     */
+    public static CmsToolSnapshot get() {
+        return REGISTRY.get();
+    }
+
+    /**
+     * Returns the current generation, which changes whenever the snapshot
+     * is replaced using {@link #update(CmsTool)}.
+     */
+    public static long getGeneration() {
+        return REGISTRY.getGeneration();
+    }
+
+    /**
+     * Replaces the current snapshot with one created from the given
+     * {@code cms}, which should be the instance that was just saved.
+     *
+     * @param cms May be {@code null}.
+     */
+    public static void update(CmsTool cms) {
+        swap(new CmsToolSnapshot(cms));
+    }
+
+    /**
+     * Replaces the current snapshot with one created from the given
+     * {@code cms}, unless it was already replaced using
+     * {@link #update(CmsTool)} since the given {@code startGeneration}, in
+     * which case the given {@code cms}, which was loaded before then, may
+     * be older.
+     *
+     * @param cms May be {@code null}.
+     * @param startGeneration Returned by {@link #getGeneration} before
+     *        loading the given {@code cms}.
+     * @return {@code true} if the snapshot was replaced.
+     */
+    public static boolean update(CmsTool cms, long startGeneration) {
+        return swap(new CmsToolSnapshot(cms), startGeneration);
+    }
+
+    // Never replaces a snapshot with an older one.
+    static void swap(CmsToolSnapshot snapshot) {
+        REGISTRY.update(old -> old == null || old.version < snapshot.version ? snapshot : old);
+    }
+
+    static boolean swap(CmsToolSnapshot snapshot, long startGeneration) {
+        return REGISTRY.set(snapshot, startGeneration);
+    }
+
+    private CmsToolSnapshot(CmsTool cms) {
+        this.version = VERSION.incrementAndGet();
+
+        if (cms == null) {
+            this.present = false;
+            this.disableInvisibleContentPreview = false;
+            this.removeTrailingSlashes = false;
+            this.enableAbTesting = false;
+            this.displaySiteInSearchResult = false;
+            this.disableContentLocking = false;
+            this.defaultTextOverlayCss = null;
+            this.textCssClasses = Collections.emptyMap();
+
+        } else {
+            Map<String, String> textCssClasses = new LinkedHashMap<>();
+            List<CmsTool.CssClassGroup> groups = cms.getTextCssClassGroups();
+
+            for (CmsTool.CssClassGroup group : groups) {
+                for (CmsTool.CssClass cssClass : group.getCssClasses()) {
+                    textCssClasses.put("cms-" + group.getInternalName() + "-" + cssClass.getInternalName(), cssClass.getCss());
+                }
+            }
+
+            this.present = true;
+            this.disableInvisibleContentPreview = cms.isDisableInvisibleContentPreview();
+            this.removeTrailingSlashes = cms.isRemoveTrailingSlashes();
+            this.enableAbTesting = cms.isEnableAbTesting();
+            this.displaySiteInSearchResult = cms.isDisplaySiteInSearchResult();
+            this.disableContentLocking = cms.isDisableContentLocking();
+            this.defaultTextOverlayCss = ObjectUtils.isBlank(cms.getDefaultTextOverlayCss()) ? null : cms.getDefaultTextOverlayCss();
+            this.textCssClasses = Collections.unmodifiableMap(textCssClasses);
+        }
+    }
+
+    // For tests.
+    CmsToolSnapshot(
+            boolean disableInvisibleContentPreview,
+            boolean removeTrailingSlashes,
+            boolean enableAbTesting,
+            boolean displaySiteInSearchResult,
+            boolean disableContentLocking,
+            String defaultTextOverlayCss,
+            Map<String, String> textCssClasses) {
+
+        this.version = VERSION.incrementAndGet();
+        this.present = true;
+        this.disableInvisibleContentPreview = disableInvisibleContentPreview;
+        this.removeTrailingSlashes = removeTrailingSlashes;
+        this.enableAbTesting = enableAbTesting;
+        this.displaySiteInSearchResult = displaySiteInSearchResult;
+        this.disableContentLocking = disableContentLocking;
+        this.defaultTextOverlayCss = defaultTextOverlayCss;
+        this.textCssClasses = Collections.unmodifiableMap(new LinkedHashMap<>(textCssClasses));
+    }
+
+    /**
+     * Returns the version of this snapshot. Newer snapshots always have
+     * higher versions.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Returns {@code true} if this snapshot was created from a saved
+     * {@link CmsTool} instance.
+     */
+    public boolean isPresent() {
+        return present;
+    }
+
+    /**
+     * @see CmsTool#isDisableInvisibleContentPreview()
+     */
+    public boolean isDisableInvisibleContentPreview() {
+        return disableInvisibleContentPreview;
+    }
+
+    /**
+     * @see CmsTool#isRemoveTrailingSlashes()
+     */
+    public boolean isRemoveTrailingSlashes() {
+        return removeTrailingSlashes;
+    }
+
+    /**
+     * @see CmsTool#isEnableAbTesting()
+     */
+    public boolean isEnableAbTesting() {
+        return enableAbTesting;
+    }
+
+    /**
+     * @see CmsTool#isDisplaySiteInSearchResult()
+     */
+    public boolean isDisplaySiteInSearchResult() {
+        return displaySiteInSearchResult;
+    }
+
+    /**
+     * @see CmsTool#isDisableContentLocking()
+     */
+    public boolean isDisableContentLocking() {
+        return disableContentLocking;
+    }
+
+    /**
+     * @return {@code null} if blank.
+     * @see CmsTool#getDefaultTextOverlayCss()
+     */
+    public String getDefaultTextOverlayCss() {
+        return defaultTextOverlayCss;
+    }
+
+    /**
+     * Returns the CSS for all text overlay classes, keyed by their class
+     * names (e.g. {@code cms-group-class}).
+     *
+     * @return Never {@code null}. Immutable.
+     * @see CmsTool#getTextCssClassGroups()
+     */
+    public Map<String, String> getTextCssClasses() {
+        return textCssClasses;
+    }
+}
@@ -11,6 +11,17 @@ public abstract class DashboardWidget extends Record {
 
     public abstract void writeHtml(ToolPageContext page, Dashboard dashboard) throws IOException, ServletException;
 
+    /**
+     * Returns how the output of this widget can be cached by
+     * {@link DashboardWidgetCache}.
+     *
+     * @return If {@code null}, the output isn't cached, and the widget is
+     *         always rendered in its own request.
+     */
+    public DashboardWidgetCachePolicy getCachePolicy() {
+        return null;
+    }
+
     @Override
     public String getLabel() {
         return StringUtils.toLabel(getClass().getSimpleName());
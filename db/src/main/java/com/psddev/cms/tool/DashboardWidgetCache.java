@@ -0,0 +1,442 @@
+package com.psddev.cms.tool;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Enumeration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.psddev.cms.db.Site;
+import com.psddev.cms.db.ToolRole;
+import com.psddev.cms.db.ToolUser;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Modification;
+import com.psddev.dari.db.UpdateNotifier;
+import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StringUtils;
+
+/**
+ * Cache of the {@link DashboardWidget} output, for the widgets that
+ * describe how they can be cached through
+ * {@link DashboardWidget#getCachePolicy}.
+ *
+ * <p>The output is keyed by the widget, the user, the role, or the site
+ * depending on the {@linkplain DashboardWidgetCachePolicy#getScope scope}.
+ * It's discarded after the duration in the policy,
+ * or as soon as an instance of one of the invalidating types is saved or
+ * deleted, either on this server or, if the database sends the update
+ * notifications, on any other. The output that's cached per user is also
+ * discarded when that user is saved, without affecting the other users.
+ * Only the {@code GET} requests without any
+ * parameters, such as the initial load of the dashboard, are cached, since
+ * the widgets may save the parameters as the user settings.</p>
+ *
+ * <p>The widgets that list the results of a query, such as the recent
+ * activity, only describe a policy through {@link #createResultPolicy}
+ * when {@value #RESULT_DURATION_SETTING} is set.</p>
+ *
+ * <p>Caching can be turned off by setting {@value #DISABLED_SETTING}.</p>
+ */
+public final class DashboardWidgetCache {
+
+    public static final String DISABLED_SETTING = "cms/tool/disableDashboardWidgetCache";
+    public static final String SIZE_SETTING = "cms/tool/dashboardWidgetCacheSize";
+    public static final String RESULT_DURATION_SETTING = "cms/tool/dashboardResultCacheDuration";
+
+    private static final DashboardWidgetCache DEFAULT = new DashboardWidgetCache(
+            !Settings.getOrDefault(boolean.class, DISABLED_SETTING, false),
+            Settings.getOrDefault(long.class, SIZE_SETTING, 1000L),
+            Ticker.systemTicker());
+
+    private final Ticker ticker;
+    private final Cache<String, Entry> entries;
+    private final Cache<UUID, Long> userGenerations;
+    private final Set<Class<?>> invalidatingTypes = new CopyOnWriteArraySet<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong typeGeneration = new AtomicLong();
+    private volatile boolean notifierAdded;
+
+    /**
+     * Returns the instance that's configured using {@value #DISABLED_SETTING}
+     * and {@value #SIZE_SETTING}.
+     *
+     * @return Never {@code null}.
+     */
+    public static DashboardWidgetCache getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Creates the policy for a widget that lists the results of a query.
+     * The output is cached separately for each user, since the results
+     * depend on the user's permissions and query restrictions, for the
+     * number of seconds in {@value #RESULT_DURATION_SETTING}.
+     *
+     * @return {@code null} if {@value #RESULT_DURATION_SETTING} isn't set,
+     *         so that the results are always current by default.
+     */
+    public static DashboardWidgetCachePolicy createResultPolicy() {
+        long duration = Settings.getOrDefault(long.class, RESULT_DURATION_SETTING, 0L);
+
+        return duration > 0L
+                ? new DashboardWidgetCachePolicy(DashboardWidgetCachePolicy.Scope.USER, duration, TimeUnit.SECONDS)
+                : null;
+    }
+
+    /**
+     * @param enabled If {@code false}, the output isn't cached.
+     * @param maximumSize Maximum number of outputs across all widgets.
+     * @param ticker Can't be {@code null}.
+     */
+    DashboardWidgetCache(boolean enabled, long maximumSize, Ticker ticker) {
+        Preconditions.checkNotNull(ticker);
+
+        this.ticker = ticker;
+        this.entries = enabled
+                ? CacheBuilder
+                        .newBuilder()
+                        .maximumSize(maximumSize)
+                        .ticker(ticker)
+                        .build()
+                : null;
+        this.userGenerations = enabled
+                ? CacheBuilder
+                        .newBuilder()
+                        .maximumSize(maximumSize)
+                        .build()
+                : null;
+    }
+
+    /**
+     * Creates the cache key for the output of the given {@code widget}.
+     * The widget is identified by its class and its values rather than its
+     * ID, since the widgets in the default dashboards are recreated on
+     * every request.
+     *
+     * @param widget Can't be {@code null}.
+     * @param policy Can't be {@code null}.
+     * @param user May be {@code null}.
+     * @param site May be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static String createKey(DashboardWidget widget, DashboardWidgetCachePolicy policy, ToolUser user, Site site) {
+        Preconditions.checkNotNull(widget);
+        Preconditions.checkNotNull(policy);
+
+        Object scopeId;
+
+        switch (policy.getScope()) {
+            case USER :
+                scopeId = user != null ? user.getId() : null;
+                break;
+
+            case ROLE :
+                ToolRole role = user != null ? user.getRole() : null;
+                scopeId = role != null ? role.getId() : null;
+                break;
+
+            default :
+                scopeId = null;
+                break;
+        }
+
+        return widget.getClass().getName()
+                + "/" + StringUtils.hex(StringUtils.md5(ObjectUtils.toJson(widget.getState().getSimpleValues())))
+                + "/" + policy.getScope()
+                + "/" + scopeId
+                + "/" + (site != null ? site.getId() : null);
+    }
+
+    // ID of the user whose output it is, so that it can be discarded when
+    // the user is saved.
+    private static UUID getUserId(DashboardWidgetCachePolicy policy, ToolUser user) {
+        return policy.getScope() == DashboardWidgetCachePolicy.Scope.USER && user != null
+                ? user.getId()
+                : null;
+    }
+
+    /**
+     * Returns the cached output of the given {@code widget} for the given
+     * {@code page}, without rendering it.
+     *
+     * @param page Can't be {@code null}.
+     * @param widget Can't be {@code null}.
+     * @return {@code null} if the output isn't cached.
+     */
+    public String getHtmlIfPresent(ToolPageContext page, DashboardWidget widget) {
+        Preconditions.checkNotNull(page);
+        Preconditions.checkNotNull(widget);
+
+        DashboardWidgetCachePolicy policy = widget.getCachePolicy();
+
+        return entries != null && policy != null
+                ? getIfPresent(createKey(widget, policy, page.getUser(), page.getSite()))
+                : null;
+    }
+
+    /**
+     * Writes the output of the given {@code widget} to the given
+     * {@code page}, from the cache if possible.
+     *
+     * @param page Can't be {@code null}.
+     * @param dashboard May be {@code null}.
+     * @param widget Can't be {@code null}.
+     */
+    public void writeHtml(ToolPageContext page, Dashboard dashboard, DashboardWidget widget) throws IOException, ServletException {
+        Preconditions.checkNotNull(page);
+        Preconditions.checkNotNull(widget);
+
+        DashboardWidgetCachePolicy policy = widget.getCachePolicy();
+        HttpServletRequest request = page.getRequest();
+
+        if (entries == null
+                || policy == null
+                || !"GET".equals(request.getMethod())
+                || hasParameters(request)) {
+
+            widget.writeHtml(page, dashboard);
+            return;
+        }
+
+        ToolUser user = page.getUser();
+        String key = createKey(widget, policy, user, page.getSite());
+        String html = getIfPresent(key);
+
+        if (html == null) {
+            long startGeneration = register(policy);
+            Writer oldDelegate = page.getDelegate();
+            StringWriter newDelegate = new StringWriter();
+
+            try {
+                page.setDelegate(newDelegate);
+                widget.writeHtml(page, dashboard);
+
+            } finally {
+                page.setDelegate(oldDelegate);
+            }
+
+            html = newDelegate.toString();
+
+            if (page.getResponse().getStatus() == HttpServletResponse.SC_OK
+                    && page.getErrors().isEmpty()) {
+                put(key, policy, getUserId(policy, user), html, startGeneration);
+            }
+        }
+
+        page.writeRaw(html);
+    }
+
+    // Ignores the cache busting parameter added by the frame requests.
+    private static boolean hasParameters(HttpServletRequest request) {
+        for (Enumeration<String> i = request.getParameterNames(); i.hasMoreElements();) {
+            if (!"_".equals(i.nextElement())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the cached output associated with the given {@code key}.
+     *
+     * @param key Can't be {@code null}.
+     * @return May be {@code null}.
+     */
+    String getIfPresent(String key) {
+        Preconditions.checkNotNull(key);
+
+        if (entries == null) {
+            return null;
+        }
+
+        Entry entry = entries.getIfPresent(key);
+
+        if (entry == null) {
+            return null;
+
+        } else if (ticker.read() - entry.expireNanos >= 0L) {
+            entries.invalidate(key);
+            return null;
+
+        } else {
+            return entry.html;
+        }
+    }
+
+    /**
+     * Starts tracking the invalidating types in the given {@code policy},
+     * and returns the current generation, which changes whenever the cached
+     * output is invalidated. Must be called before rendering the output that
+     * will be passed to {@link #put}.
+     *
+     * @param policy Can't be {@code null}.
+     */
+    long register(DashboardWidgetCachePolicy policy) {
+        if (!notifierAdded) {
+            synchronized (this) {
+                if (!notifierAdded) {
+                    notifierAdded = true;
+
+                    if (this == DEFAULT) {
+                        Database.Static.getDefault().addUpdateNotifier(new Notifier());
+                    }
+                }
+            }
+        }
+
+        invalidatingTypes.addAll(policy.getInvalidatingTypes());
+        return generation.get();
+    }
+
+    /**
+     * Caches the given {@code html} unless the cached output was invalidated
+     * since the given {@code startGeneration}.
+     *
+     * @param key Can't be {@code null}.
+     * @param policy Can't be {@code null}.
+     * @param userId ID of the user whose output it is. May be {@code null}.
+     * @param html Can't be {@code null}.
+     * @param startGeneration Returned by {@link #register}.
+     */
+    void put(String key, DashboardWidgetCachePolicy policy, UUID userId, String html, long startGeneration) {
+        if (entries == null
+                || policy.getDurationMillis() <= 0L
+                || typeGeneration.get() > startGeneration) {
+
+            return;
+        }
+
+        if (userId != null) {
+            Long userGeneration = userGenerations.getIfPresent(userId);
+
+            if (userGeneration != null && userGeneration > startGeneration) {
+                return;
+            }
+        }
+
+        entries.put(key, new Entry(
+                policy,
+                userId,
+                html,
+                ticker.read() + TimeUnit.MILLISECONDS.toNanos(policy.getDurationMillis())));
+    }
+
+    /**
+     * Discards the cached output of all widgets whose policies are
+     * invalidated by the given {@code objectClass}.
+     *
+     * @param objectClass If {@code null}, does nothing.
+     */
+    public void invalidate(Class<?> objectClass) {
+        if (entries == null || objectClass == null) {
+            return;
+        }
+
+        boolean invalidating = false;
+
+        for (Class<?> type : invalidatingTypes) {
+            if (type.isAssignableFrom(objectClass)) {
+                invalidating = true;
+                break;
+            }
+        }
+
+        if (invalidating) {
+            typeGeneration.accumulateAndGet(generation.incrementAndGet(), Math::max);
+            entries.asMap().values().removeIf(e -> e.policy.isInvalidatedBy(objectClass));
+        }
+    }
+
+    /**
+     * Discards the output that's cached per user for the user with the
+     * given {@code userId}.
+     *
+     * @param userId If {@code null}, does nothing.
+     */
+    public void invalidateUser(UUID userId) {
+        if (entries == null || userId == null) {
+            return;
+        }
+
+        userGenerations.put(userId, generation.incrementAndGet());
+        entries.asMap().values().removeIf(e -> userId.equals(e.userId));
+    }
+
+    /**
+     * Discards all cached output.
+     */
+    public void invalidateAll() {
+        if (entries != null) {
+            typeGeneration.accumulateAndGet(generation.incrementAndGet(), Math::max);
+            entries.invalidateAll();
+        }
+    }
+
+    // Called for every object that's saved or deleted.
+    private void invalidateObject(Object object) {
+        if (object != null) {
+            invalidate(object.getClass());
+
+            if (object instanceof ToolUser) {
+                invalidateUser(((ToolUser) object).getId());
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        public final DashboardWidgetCachePolicy policy;
+        public final UUID userId;
+        public final String html;
+        public final long expireNanos;
+
+        public Entry(DashboardWidgetCachePolicy policy, UUID userId, String html, long expireNanos) {
+            this.policy = policy;
+            this.userId = userId;
+            this.html = html;
+            this.expireNanos = expireNanos;
+        }
+    }
+
+    private static final class Notifier implements UpdateNotifier<Object> {
+
+        @Override
+        public void onUpdate(Object object) {
+            DEFAULT.invalidateObject(object);
+        }
+    }
+
+    /**
+     * Invalidates the cached output whenever an object is saved or deleted
+     * on this server.
+     */
+    public static final class Invalidator extends Modification<Object> {
+
+        private Invalidator() {
+        }
+
+        @Override
+        protected void afterSave() {
+            DEFAULT.invalidateObject(getState().getOriginalObjectOrNull());
+        }
+
+        @Override
+        protected void afterDelete() {
+            DEFAULT.invalidateObject(getState().getOriginalObjectOrNull());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.psddev.cms.tool;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Describes how the output of a {@link DashboardWidget} can be cached by
+ * {@link DashboardWidgetCache}.
+ *
+ * @see DashboardWidget#getCachePolicy
+ */
+public final class DashboardWidgetCachePolicy {
+
+    /**
+     * Who the cached output is shared with. The output is never shared
+     * across the sites.
+     */
+    public enum Scope {
+
+        /**
+         * Cached separately for each user.
+         */
+        USER,
+
+        /**
+         * Shared by all users with the same role.
+         */
+        ROLE,
+
+        /**
+         * Shared by all users.
+         */
+        SITE
+    }
+
+    private final Scope scope;
+    private final long durationMillis;
+    private final Set<Class<?>> invalidatingTypes;
+
+    /**
+     * @param scope Can't be {@code null}.
+     * @param duration Maximum amount of time that the output is kept.
+     * @param unit Can't be {@code null}.
+     * @param invalidatingTypes Saving or deleting an instance of any of
+     *        these types discards all cached output of the widget.
+     */
+    public DashboardWidgetCachePolicy(Scope scope, long duration, TimeUnit unit, Class<?>... invalidatingTypes) {
+        Preconditions.checkNotNull(scope);
+        Preconditions.checkNotNull(unit);
+
+        this.scope = scope;
+        this.durationMillis = unit.toMillis(duration);
+        this.invalidatingTypes = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(invalidatingTypes)));
+    }
+
+    /**
+     * @return Never {@code null}.
+     */
+    public Scope getScope() {
+        return scope;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return Never {@code null}. Immutable.
+     */
+    public Set<Class<?>> getInvalidatingTypes() {
+        return invalidatingTypes;
+    }
+
+    /**
+     * Returns {@code true} if saving or deleting an instance of the given
+     * {@code objectClass} should discard the cached output.
+     *
+     * @param objectClass Can't be {@code null}.
+     */
+    public boolean isInvalidatedBy(Class<?> objectClass) {
+        for (Class<?> type : invalidatingTypes) {
+            if (type.isAssignableFrom(objectClass)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
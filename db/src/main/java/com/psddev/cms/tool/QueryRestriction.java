@@ -2,14 +2,25 @@ package com.psddev.cms.tool;
 
 import com.psddev.dari.db.Query;
 import com.psddev.dari.util.ClassFinder;
+import com.psddev.dari.util.CodeUtils;
+import com.psddev.dari.util.Lazy;
 import com.psddev.dari.util.TypeDefinition;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public interface QueryRestriction {
 
+    /**
+     * Returns all query restriction classes, which are found once and
+     * cached until any of them are redefined.
+     *
+     * @return Never {@code null}. Immutable.
+     */
     public static Iterable<Class<? extends QueryRestriction>> classIterable() {
-        return ClassFinder.Static.findClasses(QueryRestriction.class);
+        return QueryRestrictionPrivate.CLASSES.get();
     }
 
     public static void updateQueryUsingAll(Query<?> query, ToolPageContext page) {
@@ -22,3 +33,25 @@ public interface QueryRestriction {
 
     public void updateQuery(Query<?> query, ToolPageContext page);
 }
+
+class QueryRestrictionPrivate {
+
+    public static final Lazy<List<Class<? extends QueryRestriction>>> CLASSES = new Lazy<List<Class<? extends QueryRestriction>>>() {
+
+        {
+            CodeUtils.addRedefineClassesListener(classes -> {
+                for (Class<?> c : classes) {
+                    if (QueryRestriction.class.isAssignableFrom(c)) {
+                        reset();
+                        break;
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected List<Class<? extends QueryRestriction>> create() {
+            return Collections.unmodifiableList(new ArrayList<>(ClassFinder.Static.findClasses(QueryRestriction.class)));
+        }
+    };
+}
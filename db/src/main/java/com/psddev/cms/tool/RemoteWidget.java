@@ -1,30 +1,71 @@
 package com.psddev.cms.tool;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.psddev.cms.db.ToolUser;
 
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StringUtils;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
+import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
+import org.apache.http.client.HttpResponseException;
 import org.apache.http.client.entity.UrlEncodedFormEntity;
 import org.apache.http.client.methods.HttpPost;
-import org.apache.http.impl.client.BasicResponseHandler;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
 
 /** Widget at a remote location that is accessible through web APIs. */
 public class RemoteWidget extends Widget {
 
     public static final String OBJECT_PARAMETER = "_object";
+    /**
+     * @deprecated Use {@link #USER_TOKEN_PARAMETER} instead.
+     */
+    @Deprecated
     public static final String USER_ID_PARAMETER = "_userId";
+
     public static final String WIDGET_PARAMETER = "_widget";
 
+    /**
+     * Parameter that contains the signed ID of the tool user that's making
+     * the call.
+     *
+     * @see #createUserToken
+     */
+    public static final String USER_TOKEN_PARAMETER = "_userToken";
+
+    /**
+     * Number of milliseconds that the signed user IDs are valid for.
+     */
+    public static final long USER_TOKEN_DURATION = 300000L;
+
+    // Responses that can be revalidated with their ETags, by the API and the
+    // cache key.
+    private static final Cache<String, CachedResponse> RESPONSES = CacheBuilder
+            .newBuilder()
+            .expireAfterWrite(10, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
     private String displayApi;
     private String updateApi;
 
@@ -37,6 +78,115 @@ public class RemoteWidget extends Widget {
         return ObjectUtils.toJson(values);
     }
 
+    /**
+     * Creates the cache key for the call that renders the widget with the
+     * given {@code widgetId} for the object with the given {@code objectId}.
+     *
+     * <p>The revision part of the key is the hash of all the given
+     * {@code parameters}, which include the current state of the widget and
+     * the object, and the given {@code userId}, since the result may depend
+     * on the user's permissions. The user ID parameters are ignored.</p>
+     *
+     * @param widgetId May be {@code null}.
+     * @param objectId May be {@code null}.
+     * @param userId May be {@code null}.
+     * @param parameters Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static String createCacheKey(UUID widgetId, UUID objectId, UUID userId, Map<String, List<String>> parameters) {
+        StringBuilder revision = new StringBuilder();
+
+        revision.append(userId);
+
+        for (Map.Entry<String, List<String>> entry : new TreeMap<>(parameters).entrySet()) {
+            String name = entry.getKey();
+
+            if (USER_ID_PARAMETER.equals(name) || USER_TOKEN_PARAMETER.equals(name)) {
+                continue;
+            }
+
+            revision.append('\0');
+            revision.append(name);
+
+            for (String value : entry.getValue()) {
+                revision.append('\0');
+                revision.append(value);
+            }
+        }
+
+        return widgetId + "/" + objectId + "/" + StringUtils.hex(StringUtils.md5(revision.toString()));
+    }
+
+    /**
+     * Creates the ETag for the response with the given {@code output}.
+     *
+     * @param output Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static String createEtag(String output) {
+        return "\"" + StringUtils.hex(StringUtils.md5(output)) + "\"";
+    }
+
+    /**
+     * Creates the signed token that identifies the user with the given
+     * {@code userId} for {@value #USER_TOKEN_DURATION} milliseconds.
+     *
+     * @param userId Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static String createUserToken(UUID userId) {
+        String payload = userId + "." + (System.currentTimeMillis() + USER_TOKEN_DURATION);
+
+        return payload + "." + StringUtils.hex(StringUtils.hmacSha1(Settings.getSecret(), payload));
+    }
+
+    /**
+     * Returns the ID of the user identified by the given {@code token}.
+     *
+     * @param token May be {@code null}.
+     * @return {@code null} if the token is invalid or expired.
+     */
+    public static UUID verifyUserToken(String token) {
+        if (token == null) {
+            return null;
+        }
+
+        int signatureAt = token.lastIndexOf('.');
+
+        if (signatureAt < 0) {
+            return null;
+        }
+
+        String payload = token.substring(0, signatureAt);
+        String signature = StringUtils.hex(StringUtils.hmacSha1(Settings.getSecret(), payload));
+
+        if (!MessageDigest.isEqual(
+                signature.getBytes(StandardCharsets.UTF_8),
+                token.substring(signatureAt + 1).getBytes(StandardCharsets.UTF_8))) {
+            return null;
+        }
+
+        int expiresAt = payload.indexOf('.');
+
+        if (expiresAt < 0
+                || ObjectUtils.to(long.class, payload.substring(expiresAt + 1)) < System.currentTimeMillis()) {
+            return null;
+        }
+
+        return ObjectUtils.to(UUID.class, payload.substring(0, expiresAt));
+    }
+
+    // Returns the time in milliseconds that the given token expires at
+    // without verifying it, or 0 if it's malformed.
+    static long getUserTokenExpiration(String token) {
+        int expiresAt = token.indexOf('.');
+        int signatureAt = token.lastIndexOf('.');
+
+        return expiresAt >= 0 && signatureAt > expiresAt
+                ? ObjectUtils.to(long.class, token.substring(expiresAt + 1, signatureAt))
+                : 0L;
+    }
+
     /** Displays the given {@code widget}. */
     public static String displayWidget(Widget widget, String api, ToolPageContext page, Object object) throws Exception {
 
@@ -45,21 +195,77 @@ public class RemoteWidget extends Widget {
 
             HttpPost post = new HttpPost(widget.getTool().getUrl() + api);
             List<NameValuePair> pairs = new ArrayList<NameValuePair>();
+            Map<String, List<String>> parameters = new TreeMap<>();
+
             for (String name : page.paramNames()) {
+                if (USER_ID_PARAMETER.equals(name) || USER_TOKEN_PARAMETER.equals(name)) {
+                    continue;
+                }
+
+                List<String> values = new ArrayList<>();
+
                 for (String value : page.params(name)) {
                     pairs.add(new BasicNameValuePair(name, value));
+                    values.add(value);
                 }
+
+                parameters.put(name, values);
             }
 
+            String objectJson = getJson(object);
+            String widgetJson = getJson(widget);
+
+            pairs.add(new BasicNameValuePair(OBJECT_PARAMETER, objectJson));
+            pairs.add(new BasicNameValuePair(WIDGET_PARAMETER, widgetJson));
+            parameters.put(OBJECT_PARAMETER, Collections.singletonList(objectJson));
+            parameters.put(WIDGET_PARAMETER, Collections.singletonList(widgetJson));
+
             ToolUser user = page.getUser();
+            UUID userId = null;
+
             if (user != null) {
-                pairs.add(new BasicNameValuePair(USER_ID_PARAMETER, user.getId().toString()));
+                userId = user.getId();
+                pairs.add(new BasicNameValuePair(USER_TOKEN_PARAMETER, createUserToken(userId)));
+            }
+
+            String responseKey = api + "/" + createCacheKey(
+                    State.getInstance(widget).getId(),
+                    State.getInstance(object).getId(),
+                    userId,
+                    parameters);
+
+            CachedResponse cached = RESPONSES.getIfPresent(responseKey);
+
+            if (cached != null) {
+                post.setHeader("If-None-Match", cached.etag);
             }
 
-            pairs.add(new BasicNameValuePair(OBJECT_PARAMETER, getJson(object)));
-            pairs.add(new BasicNameValuePair(WIDGET_PARAMETER, getJson(widget)));
             post.setEntity(new UrlEncodedFormEntity(pairs, HTTP.UTF_8));
-            return client.execute(post, new BasicResponseHandler());
+
+            return client.execute(post, response -> {
+                StatusLine status = response.getStatusLine();
+                HttpEntity entity = response.getEntity();
+
+                if (status.getStatusCode() == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                    return cached.body;
+
+                } else if (status.getStatusCode() >= 300) {
+                    EntityUtils.consume(entity);
+                    throw new HttpResponseException(status.getStatusCode(), status.getReasonPhrase());
+                }
+
+                String body = entity != null ? EntityUtils.toString(entity) : null;
+                Header etag = response.getFirstHeader("ETag");
+
+                if (etag != null && body != null) {
+                    RESPONSES.put(responseKey, new CachedResponse(etag.getValue(), body));
+
+                } else {
+                    RESPONSES.invalidate(responseKey);
+                }
+
+                return body;
+            });
 
         } finally {
             client.getConnectionManager().shutdown();
@@ -104,4 +310,15 @@ public class RemoteWidget extends Widget {
     public void update(ToolPageContext page, Object object) throws Exception {
         updateWithWidget(this, getUpdateApi(), page, object);
     }
+
+    private static final class CachedResponse {
+
+        public final String etag;
+        public final String body;
+
+        public CachedResponse(String etag, String body) {
+            this.etag = etag;
+            this.body = body;
+        }
+    }
 }
@@ -0,0 +1,157 @@
+package com.psddev.cms.tool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Results of the remote widget calls by their cache keys, which also makes
+ * sure that only one of the identical calls is rendered at a time. The other
+ * callers wait for and share its result. The cached results are kept along
+ * with the ETags of their output, so that a result that's rendered again
+ * with a different output gets a different ETag.
+ *
+ * @see RemoteWidget#createCacheKey
+ */
+final class RemoteWidgetCache {
+
+    private final Cache<String, Result> results;
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param durationMillis If less than or equal to {@code 0}, the results
+     *        are only shared by the calls that are in flight at the same
+     *        time.
+     * @param maximumSize Maximum number of results.
+     * @param ticker Can't be {@code null}.
+     */
+    RemoteWidgetCache(long durationMillis, long maximumSize, Ticker ticker) {
+        Preconditions.checkNotNull(ticker);
+
+        this.results = durationMillis > 0L
+                ? CacheBuilder
+                        .newBuilder()
+                        .expireAfterWrite(durationMillis, TimeUnit.MILLISECONDS)
+                        .maximumSize(maximumSize)
+                        .ticker(ticker)
+                        .build()
+                : null;
+    }
+
+    /**
+     * Returns {@code true} if the results are kept after the calls finish.
+     */
+    public boolean isEnabled() {
+        return results != null;
+    }
+
+    /**
+     * Returns the cached result associated with the given {@code key}.
+     *
+     * @param key Can't be {@code null}.
+     * @return May be {@code null}.
+     */
+    public String getIfPresent(String key) {
+        Result result = getResultIfPresent(key);
+
+        return result != null ? result.output : null;
+    }
+
+    /**
+     * Returns the ETag of the cached result associated with the given
+     * {@code key}.
+     *
+     * @param key Can't be {@code null}.
+     * @return May be {@code null}.
+     * @see RemoteWidget#createEtag
+     */
+    public String getEtagIfPresent(String key) {
+        Result result = getResultIfPresent(key);
+
+        return result != null ? result.etag : null;
+    }
+
+    private Result getResultIfPresent(String key) {
+        Preconditions.checkNotNull(key);
+
+        return results != null ? results.getIfPresent(key) : null;
+    }
+
+    /**
+     * Returns the result associated with the given {@code key}, waiting for
+     * the identical call in flight or rendering it using the given
+     * {@code renderer}.
+     *
+     * @param key Can't be {@code null}.
+     * @param renderer Can't be {@code null}.
+     * @return May be {@code null}.
+     */
+    public String get(String key, Callable<String> renderer) throws Exception {
+        Preconditions.checkNotNull(renderer);
+
+        String result = getIfPresent(key);
+
+        if (result != null) {
+            return result;
+        }
+
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, future);
+
+        if (existing != null) {
+            try {
+                return existing.get();
+
+            } catch (ExecutionException error) {
+                Throwable cause = error.getCause();
+
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+
+                } else if (cause instanceof Error) {
+                    throw (Error) cause;
+
+                } else {
+                    throw new IllegalStateException(cause);
+                }
+            }
+        }
+
+        try {
+            result = renderer.call();
+
+            if (results != null && result != null) {
+                results.put(key, new Result(result, RemoteWidget.createEtag(result)));
+            }
+
+            future.complete(result);
+            return result;
+
+        } catch (Throwable error) {
+            future.completeExceptionally(error);
+            throw error;
+
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static final class Result {
+
+        public final String output;
+        public final String etag;
+
+        public Result(String output, String etag) {
+            this.output = output;
+            this.etag = etag;
+        }
+    }
+}
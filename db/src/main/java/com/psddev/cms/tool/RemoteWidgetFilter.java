@@ -1,5 +1,8 @@
 package com.psddev.cms.tool;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.psddev.cms.db.ToolUser;
 
 import com.psddev.dari.db.Database;
@@ -9,19 +12,74 @@ import com.psddev.dari.db.State;
 import com.psddev.dari.util.AbstractFilter;
 import com.psddev.dari.util.JspUtils;
 import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Settings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+/**
+ * Handles the calls from {@link RemoteWidget#displayWidget} and
+ * {@link RemoteWidget#updateWithWidget}.
+ *
+ * <p>The user is identified by the signed token in
+ * {@value RemoteWidget#USER_TOKEN_PARAMETER}, whose verified ID is cached
+ * for a minute, and is loaded on every call so that the changes to it, such
+ * as a new role, apply right away. The plain
+ * {@value RemoteWidget#USER_ID_PARAMETER} from the older callers is only
+ * accepted if there's no token and {@value #LEGACY_USER_ID_SETTING} is set,
+ * since anyone can send it. The identical display calls
+ * that are in flight at the same time are only rendered once. If
+ * {@value #CACHE_DURATION_SETTING} is set to a number of seconds, the
+ * results are also cached by {@link RemoteWidget#createCacheKey} for that
+ * long, and can be revalidated using their ETags.</p>
+ */
 public class RemoteWidgetFilter extends AbstractFilter {
 
+    public static final String CACHE_DURATION_SETTING = "cms/tool/remoteWidgetCacheDuration";
+    public static final String CACHE_SIZE_SETTING = "cms/tool/remoteWidgetCacheSize";
+    public static final String LEGACY_USER_ID_SETTING = "cms/tool/remoteWidgetLegacyUserId";
+
+    private final RemoteWidgetCache cache = new RemoteWidgetCache(
+            TimeUnit.SECONDS.toMillis(Settings.getOrDefault(long.class, CACHE_DURATION_SETTING, 0L)),
+            Settings.getOrDefault(long.class, CACHE_SIZE_SETTING, 1000L),
+            Ticker.systemTicker());
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(RemoteWidgetFilter.class);
+
+    private final Cache<String, UUID> verifiedUserIds = CacheBuilder
+            .newBuilder()
+            .expireAfterWrite(1, TimeUnit.MINUTES)
+            .maximumSize(1000)
+            .build();
+
+    private final boolean legacyUserIdAllowed;
+
+    public RemoteWidgetFilter() {
+        this(Settings.getOrDefault(boolean.class, LEGACY_USER_ID_SETTING, false));
+    }
+
+    /**
+     * @param legacyUserIdAllowed If {@code true}, the calls without a token
+     *        can identify the user using the plain
+     *        {@value RemoteWidget#USER_ID_PARAMETER}.
+     */
+    RemoteWidgetFilter(boolean legacyUserIdAllowed) {
+        this.legacyUserIdAllowed = legacyUserIdAllowed;
+    }
+
     // --- AbstractFilter support ---
 
     // Creates an object that originates from the given {@code database}
@@ -48,6 +106,58 @@ public class RemoteWidgetFilter extends AbstractFilter {
         }
     }
 
+    // Finds the user identified by the signed token in the request.
+    @SuppressWarnings("deprecation")
+    private ToolUser findUser(ToolPageContext page) {
+        UUID userId = findUserId(
+                page.param(String.class, RemoteWidget.USER_TOKEN_PARAMETER),
+                page.param(String.class, RemoteWidget.USER_ID_PARAMETER));
+
+        return userId != null ? Query.findById(ToolUser.class, userId) : null;
+    }
+
+    /**
+     * Returns the ID of the user identified by the given signed
+     * {@code token}, or by the given {@code legacyUserId} if there's no
+     * token and it's allowed.
+     *
+     * @param token May be {@code null}.
+     * @param legacyUserId May be {@code null}.
+     * @return May be {@code null}.
+     */
+    UUID findUserId(String token, String legacyUserId) {
+        if (token == null) {
+            UUID userId = ObjectUtils.to(UUID.class, legacyUserId);
+
+            if (userId == null) {
+                return null;
+
+            } else if (!legacyUserIdAllowed) {
+                LOGGER.warn("Ignoring the deprecated [{}] parameter in the remote widget call! Set [{}] to accept it.", RemoteWidget.USER_ID_PARAMETER, LEGACY_USER_ID_SETTING);
+                return null;
+            }
+
+            LOGGER.warn("Remote widget call identified the user using the deprecated [{}] parameter!", RemoteWidget.USER_ID_PARAMETER);
+            return userId;
+        }
+
+        UUID userId = verifiedUserIds.getIfPresent(token);
+
+        if (userId == null) {
+            userId = RemoteWidget.verifyUserToken(token);
+
+            if (userId != null) {
+                verifiedUserIds.put(token, userId);
+            }
+
+        } else if (RemoteWidget.getUserTokenExpiration(token) < System.currentTimeMillis()) {
+            verifiedUserIds.invalidate(token);
+            userId = null;
+        }
+
+        return userId;
+    }
+
     @Override
     protected void doRequest(
             HttpServletRequest request,
@@ -74,10 +184,10 @@ public class RemoteWidgetFilter extends AbstractFilter {
             Database database = page.getTool().getState().getDatabase();
 
             try {
-                ToolUser user = Query.findById(ToolUser.class, page.param(UUID.class, RemoteWidget.USER_ID_PARAMETER));
+                ToolUser user = findUser(page);
 
                 if (user != null) {
-                    AuthenticationFilter.Static.logIn(request, response, user);
+                    AuthenticationFilter.Static.logInForRequest(request, user);
                 }
 
                 JspWidget widget = (JspWidget) createObject(database, page.param(String.class, RemoteWidget.WIDGET_PARAMETER));
@@ -92,7 +202,40 @@ public class RemoteWidgetFilter extends AbstractFilter {
                     writer.write(ObjectUtils.toJson(State.getInstance(object).getSimpleValues()));
 
                 } else {
-                    writer.write(widget.display(page, object));
+                    Map<String, List<String>> parameters = new LinkedHashMap<>();
+
+                    for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+                        parameters.put(entry.getKey(), Arrays.asList(entry.getValue()));
+                    }
+
+                    String key = RemoteWidget.createCacheKey(
+                            State.getInstance(widget).getId(),
+                            State.getInstance(object).getId(),
+                            user != null ? user.getId() : null,
+                            parameters);
+
+                    if (cache.isEnabled()) {
+                        String etag = cache.getEtagIfPresent(key);
+
+                        if (etag != null && etag.equals(request.getHeader("If-None-Match"))) {
+                            response.setHeader("ETag", etag);
+                            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                            return;
+                        }
+                    }
+
+                    String output = cache.get(key, () -> widget.display(page, object));
+
+                    if (output != null) {
+
+                        // From the output so that the clients revalidate
+                        // once it changes.
+                        if (cache.isEnabled()) {
+                            response.setHeader("ETag", RemoteWidget.createEtag(output));
+                        }
+
+                        writer.write(output);
+                    }
                 }
 
             } catch (IOException error) {
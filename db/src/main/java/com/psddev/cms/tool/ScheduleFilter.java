@@ -1,5 +1,7 @@
 package com.psddev.cms.tool;
 
+import com.psddev.cms.db.ContentReference;
+import com.psddev.cms.db.NotificationDispatcher;
 import com.psddev.cms.db.Schedule;
 
 import com.psddev.dari.db.ObjectType;
@@ -10,7 +12,11 @@ import com.psddev.dari.util.Task;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 
-/** Triggers scheduled events for publishing. */
+/**
+ * Triggers scheduled events for publishing, starts the
+ * {@link NotificationDispatcher}, and backfills the {@link ContentReference}
+ * index if necessary.
+ */
 public class ScheduleFilter extends AbstractFilter {
 
     public static final String SCHEDULE_THREAD_NAME = "ScheduleFilter";
@@ -51,15 +57,21 @@ public class ScheduleFilter extends AbstractFilter {
         }
     };
 
+    private final Task contentReferenceRebuild = new ContentReference.Rebuild();
+
     // --- AbstractFilter support ---
 
     @Override
     protected void doInit() {
         scheduler.scheduleWithFixedDelay(60.0, 60.0);
+        NotificationDispatcher.getDefault().start();
+        contentReferenceRebuild.schedule(60.0);
     }
 
     @Override
     protected void doDestroy() {
         scheduler.stop();
+        contentReferenceRebuild.stop();
+        NotificationDispatcher.getDefault().stop();
     }
 }
@@ -80,6 +80,7 @@ public class Search extends Record {
     public static final String PARENT_TYPE_PARAMETER = "py";
     public static final String QUERY_STRING_PARAMETER = "q";
     public static final String SELECTED_TYPE_PARAMETER = "st";
+    public static final String SELECTION_PARAMETER = "sl";
     public static final String SESSION_ID_PARAMETER = "si";
     public static final String SHOW_DRAFTS_PARAMETER = "d";
     public static final String VISIBILITIES_PARAMETER = "v";
@@ -103,6 +104,7 @@ public class Search extends Record {
     private String color;
     private boolean onlyPathed;
     private String additionalPredicate;
+    private UUID selectionId;
     private String advancedQuery;
     private UUID parentId;
     private UUID parentTypeId;
@@ -188,6 +190,7 @@ public class Search extends Record {
         setColor(page.param(String.class, COLOR_PARAMETER));
         setOnlyPathed(page.param(boolean.class, IS_ONLY_PATHED));
         setAdditionalPredicate(page.param(String.class, ADDITIONAL_QUERY_PARAMETER));
+        setSelectionId(page.param(UUID.class, SELECTION_PARAMETER));
         setAdvancedQuery(page.param(String.class, ADVANCED_QUERY_PARAMETER));
         setParentId(page.param(UUID.class, PARENT_PARAMETER));
         setParentTypeId(page.param(UUID.class, PARENT_TYPE_PARAMETER));
@@ -287,6 +290,27 @@ public class Search extends Record {
         this.additionalPredicate = additionalPredicate;
     }
 
+    /**
+     * Returns the ID of the {@link SearchResultSelection} that the results
+     * are limited to.
+     *
+     * @return May be {@code null}.
+     */
+    public UUID getSelectionId() {
+        return selectionId;
+    }
+
+    /**
+     * Limits the results to the items in the {@link SearchResultSelection}
+     * with the given {@code selectionId}, which are read when the query is
+     * created so that the IDs don't need to be passed around.
+     *
+     * @param selectionId May be {@code null}.
+     */
+    public void setSelectionId(UUID selectionId) {
+        this.selectionId = selectionId;
+    }
+
     public String getAdvancedQuery() {
         return advancedQuery;
     }
@@ -506,9 +530,7 @@ public class Search extends Record {
             } else if ("w".equals(visibility)) {
                 Set<String> ss = new HashSet<String>();
 
-                for (Workflow w : (selectedType == null
-                        ? Query.from(Workflow.class)
-                        : Query.from(Workflow.class).where("contentTypes = ?", selectedType)).selectAll()) {
+                for (Workflow w : Workflow.findWorkflows(selectedType)) {
                     for (WorkflowState s : w.getStates()) {
                         String value = s.getName();
 
@@ -565,6 +587,58 @@ public class Search extends Record {
 
     }
 
+    /**
+     * Returns the predicate that matches the same objects as
+     * {@link com.psddev.dari.db.State#isVisible()} using the visibility
+     * indexes, so that the invisible objects can be excluded in the query
+     * instead of after loading them.
+     *
+     * @param selectedType If {@code null}, uses the visibility fields of all
+     *        types.
+     * @return {@code null} if there aren't any visibility fields.
+     */
+    public static Predicate getVisiblePredicate(ObjectType selectedType) {
+        DatabaseEnvironment environment = Database.Static.getDefault().getEnvironment();
+        List<ObjectStruct> structs = new ArrayList<>();
+
+        structs.add(environment);
+
+        if (selectedType != null) {
+            structs.add(selectedType);
+
+        } else {
+            structs.addAll(environment.getTypes());
+        }
+
+        return getVisiblePredicate(structs);
+    }
+
+    /**
+     * Returns the predicate that matches the objects that are visible
+     * according to the visibility indexes in the given {@code structs}.
+     *
+     * @param structs Can't be {@code null}.
+     * @return {@code null} if there aren't any visibility fields.
+     */
+    public static Predicate getVisiblePredicate(Collection<? extends ObjectStruct> structs) {
+        Set<String> comparisonKeys = new LinkedHashSet<>();
+
+        for (ObjectStruct struct : structs) {
+            addVisibilityFields(comparisonKeys, struct);
+        }
+
+        Predicate visiblePredicate = null;
+
+        for (String key : comparisonKeys) {
+            visiblePredicate = CompoundPredicate.combine(
+                    PredicateParser.AND_OPERATOR,
+                    visiblePredicate,
+                    PredicateParser.Static.parse(key + " = missing"));
+        }
+
+        return visiblePredicate;
+    }
+
     public Query<?> toQuery(Site site) {
         Query<?> query = null;
         Set<ObjectType> types = getTypes();
@@ -820,6 +894,19 @@ public class Search extends Record {
             query.and(additionalPredicate, parent);
         }
 
+        UUID selectionId = getSelectionId();
+
+        if (selectionId != null) {
+            SearchResultSelection selection = Query
+                    .from(SearchResultSelection.class)
+                    .where("_id = ?", selectionId)
+                    .first();
+
+            // Sorted, paginated results can't be read in chunks, but the
+            // IDs are bounded by SearchResultSelection#MAXIMUM_SIZE.
+            query.and("_id = ?", selection != null ? selection.getItemIds() : Collections.emptySet());
+        }
+
         String advancedQuery = getAdvancedQuery();
 
         if (!ObjectUtils.isBlank(advancedQuery)) {
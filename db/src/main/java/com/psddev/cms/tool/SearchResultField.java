@@ -1,11 +1,27 @@
 package com.psddev.cms.tool;
 
 import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.util.ClassFinder;
+import com.psddev.dari.util.CodeUtils;
+import com.psddev.dari.util.Lazy;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public interface SearchResultField {
 
+    /**
+     * Returns all concrete implementation classes. They're only found once
+     * and found again when any of them are redefined.
+     *
+     * @return Never {@code null}. Immutable.
+     */
+    static List<Class<? extends SearchResultField>> findClasses() {
+        return SearchResultFieldPrivate.CLASSES.get();
+    }
+
     /**
      * @return Never {@code null}.
      */
@@ -39,11 +55,40 @@ public interface SearchResultField {
         page.writeEnd();
     }
 
+    /**
+     * Called once with all the items on a page before any of their data
+     * cells are written, so that the data for them can be loaded in bulk.
+     *
+     * @param page Can't be {@code null}.
+     * @param items Can't be {@code null}.
+     */
+    public default void prefetchData(ToolPageContext page, List<?> items) {
+    }
+
     /**
      * @param item Can't be {@code null}.
      */
     public String createDataCellText(Object item);
 
+    /**
+     * Creates the data cell texts for all the given {@code items} at once,
+     * so that the data for them can be loaded in bulk when there's no page,
+     * such as when exporting.
+     *
+     * @param items Can't be {@code null}.
+     * @return Never {@code null}. Contains the text for each of the given
+     *         items in the same order.
+     */
+    public default List<String> createDataCellTexts(List<?> items) {
+        List<String> texts = new ArrayList<>();
+
+        for (Object item : items) {
+            texts.add(createDataCellText(item));
+        }
+
+        return texts;
+    }
+
     /**
      * @param page Can't be {@code null}.
      * @param item Can't be {@code null}.
@@ -55,3 +100,25 @@ public interface SearchResultField {
         page.writeEnd();
     }
 }
+
+class SearchResultFieldPrivate {
+
+    public static final Lazy<List<Class<? extends SearchResultField>>> CLASSES = new Lazy<List<Class<? extends SearchResultField>>>() {
+
+        {
+            CodeUtils.addRedefineClassesListener(classes -> {
+                for (Class<?> c : classes) {
+                    if (SearchResultField.class.isAssignableFrom(c)) {
+                        reset();
+                        break;
+                    }
+                }
+            });
+        }
+
+        @Override
+        protected List<Class<? extends SearchResultField>> create() {
+            return Collections.unmodifiableList(new ArrayList<>(ClassFinder.findConcreteClasses(SearchResultField.class)));
+        }
+    };
+}
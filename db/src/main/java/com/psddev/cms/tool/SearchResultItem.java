@@ -3,7 +3,6 @@ package com.psddev.cms.tool;
 import java.io.IOException;
 
 import com.psddev.cms.tool.page.SearchResultActions;
-import com.psddev.dari.db.Query;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.StringUtils;
@@ -20,7 +19,7 @@ public class SearchResultItem {
 
         boolean selected = currentSelection != null
                 && item != null
-                && Query.from(SearchResultSelectionItem.class).where("selectionId = ?", currentSelection).and("itemId = ?", item).first() != null;
+                && currentSelection.containsItem(State.getInstance(item).getId());
 
         page.writeElement("input",
                 "type", "checkbox",
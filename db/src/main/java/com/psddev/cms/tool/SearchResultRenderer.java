@@ -19,14 +19,13 @@ import com.psddev.cms.db.Directory;
 import com.psddev.cms.db.Renderer;
 import com.psddev.cms.db.Site;
 import com.psddev.cms.db.Taxon;
+import com.psddev.cms.db.TaxonomyIndex;
 import com.psddev.cms.db.ToolUi;
 import com.psddev.dari.db.Database;
 import com.psddev.dari.db.Metric;
-import com.psddev.dari.db.MetricInterval;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Predicate;
-import com.psddev.dari.db.PredicateParser;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Recordable;
 import com.psddev.dari.db.State;
@@ -41,7 +40,6 @@ public class SearchResultRenderer {
 
     private static final String ATTRIBUTE_PREFIX = SearchResultRenderer.class.getName() + ".";
     private static final String PREVIOUS_DATE_ATTRIBUTE = ATTRIBUTE_PREFIX + "previousDate";
-    private static final String MAX_SUM_ATTRIBUTE = ATTRIBUTE_PREFIX + ".maximumSum";
     private static final String TAXON_PARENT_ID_PARAMETER = "taxonParentId";
     private static final String SORT_SETTING_PREFIX = "sort/";
 
@@ -57,6 +55,9 @@ public class SearchResultRenderer {
     protected final PaginatedResult<?> result;
     protected final Exception queryError;
 
+    private TaxonomyIndex.Level taxonLevel;
+    private SearchResultSparklines sparklines;
+
     @SuppressWarnings("deprecation")
     public SearchResultRenderer(ToolPageContext page, Search search) throws IOException {
         this.page = page;
@@ -88,7 +89,7 @@ public class SearchResultRenderer {
             }
         }
 
-        showSiteLabel = Query.from(CmsTool.class).first().isDisplaySiteInSearchResult()
+        showSiteLabel = CmsToolSnapshot.get().isDisplaySiteInSearchResult()
                 && page.getSite() == null
                 && Query.from(Site.class).hasMoreThan(0);
 
@@ -187,26 +188,13 @@ public class SearchResultRenderer {
             Site site = page.getSite();
             Predicate predicate = search.toQuery(page.getSite()).getPredicate();
 
-            if (!ObjectUtils.isBlank(taxonParentUuid)) {
-
-                Taxon parent = Query.findById(Taxon.class, taxonParentUuid);
-                taxonResults = (Collection<Taxon>) Taxon.Static.getChildren(parent, predicate);
-
-                if (site != null && !ObjectUtils.isBlank(taxonResults)) {
-
-                    Collection<Taxon> siteTaxons = new ArrayList<Taxon>();
-
-                    for (Taxon taxon : taxonResults) {
-                        if (PredicateParser.Static.evaluate(taxon, site.itemsPredicate())) {
-                            siteTaxons.add(taxon);
-                        }
-                    }
-                    taxonResults = siteTaxons;
-                }
+            // The tree structure comes from the index so that the levels
+            // don't need to be queried one at a time.
+            taxonLevel = TaxonomyIndex
+                    .getInstance((Class<Taxon>) taxonType.getObjectClass())
+                    .findLevel(taxonParentUuid, site, predicate);
 
-            } else {
-                taxonResults = Taxon.Static.getRoots((Class<Taxon>) taxonType.getObjectClass(), site, predicate);
-            }
+            taxonResults = taxonLevel.getItems();
 
             if (!ObjectUtils.isBlank(taxonResults)) {
                 resultsDisplayed = true;
@@ -215,7 +203,12 @@ public class SearchResultRenderer {
                     page.writeStart("div", "class", "searchResultTaxonomy");
                 }
 
-                renderTaxonList(taxonResults, nextLevel);
+                try {
+                    renderTaxonList(taxonResults, nextLevel);
+
+                } finally {
+                    taxonLevel = null;
+                }
 
                 if (level == 1) {
                     page.writeEnd();
@@ -277,10 +270,19 @@ public class SearchResultRenderer {
                 writeTaxonLabel(taxon);
             }
 
-            Predicate predicate = search.toQuery(page.getSite()).getPredicate();
-            Collection<? extends Taxon> children = Taxon.Static.getChildren(taxon, predicate);
+            boolean hasChildren;
+
+            if (taxonLevel != null) {
+                hasChildren = taxonLevel.hasChildren(taxon);
+
+            } else {
+                Predicate predicate = search.toQuery(page.getSite()).getPredicate();
+                Collection<? extends Taxon> children = Taxon.Static.getChildren(taxon, predicate);
 
-            if (children != null && !children.isEmpty()) {
+                hasChildren = children != null && !children.isEmpty();
+            }
+
+            if (hasChildren) {
                 page.writeStart("a",
                         "href", page.url("", TAXON_PARENT_ID_PARAMETER, taxon.as(Taxon.Data.class).getId(), TAXON_LEVEL_PARAMETER, nextLevel),
                         "class", "searchResultTaxonomyExpand",
@@ -546,82 +548,7 @@ public class SearchResultRenderer {
 
                 page.writeStart("td");
                     if (value instanceof Metric) {
-                        page.writeStart("span", "style", page.cssString("white-space", "nowrap"));
-                            Double maxSum = (Double) request.getAttribute(MAX_SUM_ATTRIBUTE);
-
-                            if (maxSum == null) {
-                                Object maxObject = search.toQuery(page.getSite()).sortDescending(sortFieldName).first();
-                                maxSum = maxObject != null
-                                        ? ((Metric) State.getInstance(maxObject).get(sortFieldName)).getSum()
-                                        : 1.0;
-
-                                request.setAttribute(MAX_SUM_ATTRIBUTE, maxSum);
-                            }
-
-                            Metric valueMetric = (Metric) value;
-                            Map<DateTime, Double> sumEntries = valueMetric.groupSumByDate(
-                                    new MetricInterval.Daily(),
-                                    new DateTime().dayOfMonth().roundFloorCopy().minusDays(7),
-                                    null);
-
-                            double sum = valueMetric.getSum();
-                            long sumLong = (long) sum;
-
-                            if (sumLong == sum) {
-                                page.writeHtml(String.format("%,2d ", sumLong));
-
-                            } else {
-                                page.writeHtml(String.format("%,2.2f ", sum));
-                            }
-
-                            if (!sumEntries.isEmpty()) {
-                                long minMillis = Long.MAX_VALUE;
-                                long maxMillis = Long.MIN_VALUE;
-
-                                for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
-                                    long sumMillis = sumEntry.getKey().getMillis();
-
-                                    if (sumMillis < minMillis) {
-                                        minMillis = sumMillis;
-                                    }
-
-                                    if (sumMillis > maxMillis) {
-                                        maxMillis = sumMillis;
-                                    }
-                                }
-
-                                double cumulativeSum = 0.0;
-                                StringBuilder path = new StringBuilder();
-                                double xRange = maxMillis - minMillis;
-                                int width = 35;
-                                int height = 18;
-
-                                for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
-                                    cumulativeSum += sumEntry.getValue();
-
-                                    path.append('L');
-                                    path.append((sumEntry.getKey().getMillis() - minMillis) / xRange * width);
-                                    path.append(',');
-                                    path.append(height - cumulativeSum / maxSum * height);
-                                }
-
-                                path.setCharAt(0, 'M');
-
-                                page.writeStart("svg",
-                                        "xmlns", "http://www.w3.org/2000/svg",
-                                        "width", width,
-                                        "height", height,
-                                        "style", page.cssString(
-                                                "display", "inline-block",
-                                                "vertical-align", "middle"));
-                                    page.writeStart("path",
-                                            "fill", "none",
-                                            "stroke", "#444444",
-                                            "d", path.toString());
-                                    page.writeEnd();
-                                page.writeEnd();
-                            }
-                        page.writeEnd();
+                        getSparklines().writeHtml(page, item);
 
                     } else if (value instanceof Recordable) {
                         page.writeHtml(((Recordable) value).getState().getLabel());
@@ -635,6 +562,15 @@ public class SearchResultRenderer {
         page.writeEnd();
     }
 
+    // Loads the sums for all items on the page at once.
+    private SearchResultSparklines getSparklines() {
+        if (sparklines == null) {
+            sparklines = new SearchResultSparklines(page, search, result, sortField.getInternalName());
+        }
+
+        return sparklines;
+    }
+
     public void renderBeforeItem(Object item) throws IOException {
         page.writeStart("a",
                 "href", page.toolUrl(CmsTool.class, "/content/edit.jsp",
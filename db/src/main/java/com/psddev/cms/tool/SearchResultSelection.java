@@ -1,25 +1,62 @@
 package com.psddev.cms.tool;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.function.UnaryOperator;
 
+import com.google.common.base.Preconditions;
 import com.psddev.cms.db.ToolEntity;
 import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.db.ToolUser;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.DistributedLock;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
-
+import com.psddev.dari.db.State;
+
+/**
+ * Items selected in the search results.
+ *
+ * <p>The IDs of the selected items are stored on the selection itself as a
+ * {@link SortedIdSet}, along with their count, so that checking whether an
+ * item is selected or how many are selected doesn't require a query.
+ * Selections that were saved with a separate {@link SearchResultSelectionItem}
+ * per item are converted the first time that they're changed.</p>
+ *
+ * <p>A selection holds at most {@value #MAXIMUM_SIZE} items, which bounds
+ * the size of the encoded IDs that are rewritten on every change, and of
+ * the queries that are limited to a selection, such as a search or a work
+ * stream.</p>
+ */
 public class SearchResultSelection extends Record {
 
+    public static final int DEFAULT_ITEMS_CHUNK_SIZE = 500;
+    public static final int MAXIMUM_SIZE = 10000;
+
     private String name;
 
     @Indexed
     @ToolUi.Hidden
     private Set<ToolEntity> entities;
 
+    @ToolUi.Hidden
+    private String itemIds;
+
+    @ToolUi.Hidden
+    private Integer itemIdsSize;
+
+    private transient SortedIdSet itemIdSet;
+    private transient String itemIdSetSource;
+
     public String getName() {
         return name;
     }
@@ -40,32 +77,150 @@ public class SearchResultSelection extends Record {
     }
 
     /**
-     * Generates a {@link Query} for the items contained within this {@link SearchResultSelection}.  The returned
-     * Query is {@code .fromAll()} and includes visibility-restricted items.
-     * @return a {@link Query} for the items contained within this {@link SearchResultSelection}.
+     * Returns the IDs of all items in this selection.
+     *
+     * @return Never {@code null}.
      */
-    public Query<Object> createItemsQuery() {
+    public SortedIdSet getItemIds() {
+        SortedIdSet ids = itemIdSet;
+
+        // Decode again if the encoded IDs were replaced, such as by a reload.
+        if (ids == null || itemIdSetSource != itemIds) {
+            if (itemIds == null && itemIdsSize == null && !getState().isNew()) {
+                ids = findLegacyItemIds();
+
+            } else {
+                ids = SortedIdSet.decode(itemIds);
+            }
+
+            itemIdSet = ids;
+            itemIdSetSource = itemIds;
+        }
 
-        Set<UUID> itemIds = new HashSet<>();
+        return ids;
+    }
+
+    private void setItemIds(SortedIdSet ids) {
+        itemIds = ids.isEmpty() ? null : ids.encode();
+        itemIdsSize = ids.size();
+        itemIdSet = ids;
+        itemIdSetSource = itemIds;
+    }
+
+    // Reads the items saved before the IDs were stored on the selection.
+    private SortedIdSet findLegacyItemIds() {
+        List<UUID> ids = new ArrayList<>();
 
         for (SearchResultSelectionItem item : Query
                 .from(SearchResultSelectionItem.class)
                 .where("selectionId = ?", getId())
-                .selectAll()) {
+                .iterable(DEFAULT_ITEMS_CHUNK_SIZE)) {
 
-            itemIds.add(item.getItemId());
+            ids.add(item.getItemId());
         }
 
-        return Query.fromAll().where("_id = ?", itemIds);
+        return SortedIdSet.of(ids);
     }
 
     /**
-     * Clear the SearchResultSelection by deleting all of the SearchResultSelectionItem that point to it.
+     * Returns {@code true} if the item with the given {@code itemId} is in
+     * this selection.
+     *
+     * @param itemId May be {@code null}.
+     */
+    public boolean containsItem(UUID itemId) {
+        return getItemIds().contains(itemId);
+    }
+
+    /**
+     * Generates a {@link Query} for the items contained within this {@link SearchResultSelection}.  The returned
+     * Query is {@code .fromAll()} and includes visibility-restricted items.
+     * @return a {@link Query} for the items contained within this {@link SearchResultSelection}.
+     * @deprecated Use {@link #iterateItems()} instead, since the query
+     *             contains the IDs of all the items.
+     */
+    @Deprecated
+    public Query<Object> createItemsQuery() {
+        return Query.fromAll().where("_id = ?", getItemIds());
+    }
+
+    /**
+     * Returns all items in this selection, loading {@link #DEFAULT_ITEMS_CHUNK_SIZE}
+     * of them at a time.
+     *
+     * @return Never {@code null}.
+     * @see #iterateItems(int)
+     */
+    public Iterable<Object> iterateItems() {
+        return iterateItems(DEFAULT_ITEMS_CHUNK_SIZE);
+    }
+
+    /**
+     * Returns all items in this selection, loading the given {@code chunkSize}
+     * number of them at a time in the order of their IDs. Items that were
+     * deleted after they were selected are skipped.
+     *
+     * @param chunkSize Must be greater than {@code 0}.
+     * @return Never {@code null}.
+     */
+    public Iterable<Object> iterateItems(int chunkSize) {
+        return iterateItems(getItemIds(), chunkSize);
+    }
+
+    /**
+     * Returns all items with the given {@code itemIds}, such as a copy of
+     * the IDs in a selection, loading the given {@code chunkSize} number of
+     * them at a time in the order of their IDs. Items that were deleted are
+     * skipped.
+     *
+     * @param itemIds Can't be {@code null}.
+     * @param chunkSize Must be greater than {@code 0}.
+     * @return Never {@code null}.
+     */
+    public static Iterable<Object> iterateItems(Collection<UUID> itemIds, int chunkSize) {
+        Preconditions.checkNotNull(itemIds);
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be greater than 0!");
+
+        Iterable<List<UUID>> chunks = SortedIdSet.of(itemIds).chunks(chunkSize);
+
+        return () -> new Iterator<Object>() {
+
+            private final Iterator<List<UUID>> chunkIds = chunks.iterator();
+            private Iterator<Object> chunk;
+
+            @Override
+            public boolean hasNext() {
+                while (chunk == null || !chunk.hasNext()) {
+                    if (!chunkIds.hasNext()) {
+                        return false;
+                    }
+
+                    chunk = Query
+                            .fromAll()
+                            .where("_id = ?", chunkIds.next())
+                            .selectAll()
+                            .iterator();
+                }
+
+                return true;
+            }
+
+            @Override
+            public Object next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return chunk.next();
+            }
+        };
+    }
+
+    /**
+     * Clear the SearchResultSelection by removing all of its items.
      */
     public void clear() {
-        Query.from(SearchResultSelectionItem.class)
-                .where("selectionId = ?", getId())
-                .deleteAll();
+        updateItemIds(ids -> SortedIdSet.empty());
     }
 
     /**
@@ -78,23 +233,59 @@ public class SearchResultSelection extends Record {
             throw new IllegalArgumentException("itemId cannot be null!");
         }
 
-        SearchResultSelectionItem item = Query
-                .from(SearchResultSelectionItem.class)
-                .where("selectionId = ?", getId())
-                .and("itemId = ?", itemId)
-                .first();
+        return addItems(Collections.singleton(itemId)) > 0;
+    }
+
+    /**
+     * Adds the Objects with the given {@code itemIds} to this SearchResultSelection,
+     * up to {@link #MAXIMUM_SIZE} items in total.
+     * @param itemIds the ids of the Objects to be added.  Cannot be {@code null}.
+     * @return the number of items that were added.
+     */
+    public int addItems(Collection<UUID> itemIds) {
+        Preconditions.checkNotNull(itemIds);
+
+        return updateItemIds(ids -> union(ids, itemIds, MAXIMUM_SIZE));
+    }
+
+    /**
+     * Adds the Objects matching the given {@code query} to this SearchResultSelection,
+     * in the order of the query and up to {@link #MAXIMUM_SIZE} items in total.
+     * @param query the query for the Objects to be added.  Cannot be {@code null}.
+     * @return the number of items that were added.
+     */
+    public int addItems(Query<?> query) {
+        return addItems(findIds(query, MAXIMUM_SIZE));
+    }
+
+    /**
+     * Returns {@code true} if no more items can be added to this selection.
+     */
+    public boolean isFull() {
+        return size() >= MAXIMUM_SIZE;
+    }
+
+    // Adds the given itemIds in order until the set has maximumSize IDs.
+    static SortedIdSet union(SortedIdSet ids, Collection<UUID> itemIds, int maximumSize) {
+        SortedIdSet union = ids.union(itemIds);
+
+        if (union.size() <= maximumSize) {
+            return union;
+        }
 
-        if (item == null) {
+        Set<UUID> added = new HashSet<>();
 
-            item = new SearchResultSelectionItem();
+        for (UUID itemId : itemIds) {
+            if (ids.size() + added.size() >= maximumSize) {
+                break;
+            }
 
-            item.setSelectionId(getId());
-            item.setItemId(itemId);
-            item.save();
-            return true;
+            if (itemId != null && !ids.contains(itemId)) {
+                added.add(itemId);
+            }
         }
 
-        return false;
+        return ids.union(added);
     }
 
     /**
@@ -107,25 +298,171 @@ public class SearchResultSelection extends Record {
             throw new IllegalArgumentException("itemId cannot be null!");
         }
 
-        SearchResultSelectionItem item = Query
-                .from(SearchResultSelectionItem.class)
-                .where("selectionId = ?", getId())
-                .and("itemId = ?", itemId).first();
+        return removeItems(Collections.singleton(itemId)) > 0;
+    }
+
+    /**
+     * Removes the Objects with the given {@code itemIds} from this SearchResultSelection.
+     * @param itemIds the ids of the Objects to be removed.  Cannot be {@code null}.
+     * @return the number of items that were removed.
+     */
+    public int removeItems(Collection<UUID> itemIds) {
+        Preconditions.checkNotNull(itemIds);
+
+        return -updateItemIds(ids -> ids.difference(itemIds));
+    }
+
+    /**
+     * Removes all Objects matching the given {@code query} from this SearchResultSelection.
+     * @param query the query for the Objects to be removed.  Cannot be {@code null}.
+     * @return the number of items that were removed.
+     */
+    public int removeItems(Query<?> query) {
+        return removeItems(findIds(query, Integer.MAX_VALUE));
+    }
+
+    private static List<UUID> findIds(Query<?> query, int limit) {
+        Preconditions.checkNotNull(query);
+
+        List<UUID> ids = new ArrayList<>();
+
+        for (Object item : query.clone().resolveToReferenceOnly().iterable(DEFAULT_ITEMS_CHUNK_SIZE)) {
+            if (ids.size() >= limit) {
+                break;
+            }
 
-        if (item == null) {
-            return false;
+            ids.add(State.getInstance(item).getId());
         }
 
-        item.delete();
-        return true;
+        return ids;
+    }
+
+    // Applies the given update to the latest saved IDs while holding a lock
+    // so that the concurrent changes, such as from multiple checkboxes,
+    // aren't lost, and returns the change in size.
+    private int updateItemIds(UnaryOperator<SortedIdSet> update) {
+        if (getState().isNew()) {
+            SortedIdSet oldIds = getItemIds();
+            SortedIdSet newIds = update.apply(oldIds);
+
+            setItemIds(newIds);
+            return newIds.size() - oldIds.size();
+        }
+
+        DistributedLock lock = DistributedLock.Static.getInstance(
+                Database.Static.getDefault(),
+                SearchResultSelection.class.getName() + "/items/" + getId());
+
+        SavedItemIds store = new SavedItemIds();
+        int change = updateItemIds(lock, store, update);
+        SearchResultSelection current = store.current;
+
+        if (current != null && current != this) {
+            itemIds = current.itemIds;
+            itemIdsSize = current.itemIdsSize;
+            itemIdSet = current.itemIdSet;
+            itemIdSetSource = current.itemIdSetSource;
+        }
+
+        return change;
+    }
+
+    // Reads and writes the latest saved copy of this selection.
+    private class SavedItemIds implements ItemIdStore {
+
+        private SearchResultSelection current;
+
+        @Override
+        public SortedIdSet load() {
+            current = Query
+                    .from(SearchResultSelection.class)
+                    .where("_id = ?", getId())
+                    .noCache()
+                    .first();
+
+            if (current == null) {
+                current = SearchResultSelection.this;
+            }
+
+            return current.getItemIds();
+        }
+
+        @Override
+        public boolean isLegacy() {
+            return current.itemIdsSize == null;
+        }
+
+        @Override
+        public void save(SortedIdSet ids) {
+            current.setItemIds(ids);
+            current.save();
+        }
+
+        @Override
+        public void deleteLegacyItems() {
+            Query.from(SearchResultSelectionItem.class).where("selectionId = ?", getId()).deleteAll();
+        }
+    }
+
+    /**
+     * Applies the given {@code update} to the IDs in the given
+     * {@code store} while holding the given {@code lock}, and converts the
+     * selections in the legacy format.
+     *
+     * @return The change in size.
+     */
+    static int updateItemIds(Lock lock, ItemIdStore store, UnaryOperator<SortedIdSet> update) {
+        lock.lock();
+
+        try {
+            SortedIdSet oldIds = store.load();
+            boolean legacy = store.isLegacy();
+            SortedIdSet newIds = update.apply(oldIds);
+
+            if (newIds != oldIds || legacy) {
+                store.save(newIds);
+
+                if (legacy) {
+                    store.deleteLegacyItems();
+                }
+            }
+
+            return newIds.size() - oldIds.size();
+
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Saved IDs of the items in a selection.
+     */
+    interface ItemIdStore {
+
+        /**
+         * Returns the latest saved IDs, reading the legacy items if the
+         * selection is in the legacy format.
+         */
+        SortedIdSet load();
+
+        /**
+         * Returns {@code true} if the selection that was loaded is in the
+         * legacy format.
+         */
+        boolean isLegacy();
+
+        void save(SortedIdSet ids);
+
+        void deleteLegacyItems();
     }
 
     /**
-     * Calculates the size of the SearchResultSelection by counting its items {@link Query}.
+     * Returns the number of items in the SearchResultSelection, which is kept
+     * as the items are added and removed.
      * @return the size of the SearchResultSelection.
      */
     public int size() {
-        return Long.valueOf(createItemsQuery().count()).intValue();
+        return itemIdsSize != null ? itemIdsSize : getItemIds().size();
     }
 
     /**
@@ -173,7 +510,7 @@ public class SearchResultSelection extends Record {
     }
 
     /**
-     * Delete all {@link SearchResultSelectionItem}s linking to this {@link SearchResultSelection}.
+     * Delete all legacy {@link SearchResultSelectionItem}s linking to this {@link SearchResultSelection}.
      */
     @Override
     protected void afterDelete() {
@@ -0,0 +1,282 @@
+package com.psddev.cms.tool;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+import com.psddev.dari.db.Metric;
+import com.psddev.dari.db.MetricInterval;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.PaginatedResult;
+
+/**
+ * Sparklines for a {@link Metric} field that's shown as a column in the
+ * search results.
+ *
+ * <p>The sums for a whole page of items are loaded with one {@link Loader}
+ * call, and when the page is the first one, the maximum sum used to scale
+ * the sparklines is derived from them instead of being queried separately,
+ * since the search results are always sorted in descending order by the
+ * metric field. Otherwise, the maximum sum is queried once, as it was
+ * before.</p>
+ *
+ * <p>The {@link #DEFAULT_LOADER} still reads two values per item, so with
+ * it, the only query that's saved is the maximum sum on the first page.
+ * A loader that can read the sums of multiple items at once saves the
+ * rest.</p>
+ */
+public class SearchResultSparklines {
+
+    public static final int WIDTH = 35;
+    public static final int HEIGHT = 18;
+
+    /**
+     * Default loader that reads the total and the daily sums from each
+     * {@link Metric} value, which is two queries per item, since the metric
+     * storage doesn't support reading the values for multiple objects in
+     * one query.
+     */
+    public static final Loader DEFAULT_LOADER = (items, fieldName, start) -> {
+        Map<Object, Sums> sumsByItem = new HashMap<>();
+
+        for (Object item : items) {
+            Object value = State.getInstance(item).getByPath(fieldName);
+
+            if (value instanceof Metric) {
+                Metric metric = (Metric) value;
+
+                sumsByItem.put(item, new Sums(
+                        metric.getSum(),
+                        metric.groupSumByDate(new MetricInterval.Daily(), start, null)));
+            }
+        }
+
+        return sumsByItem;
+    };
+
+    private final String fieldName;
+    private final DateTime start;
+    private final Loader loader;
+    private final Map<Object, Sums> sumsByItem;
+    private final double maxSum;
+
+    /**
+     * Creates an instance that loads the sums for all items in the given
+     * {@code result} using the {@link #DEFAULT_LOADER}.
+     *
+     * @param page Can't be {@code null}.
+     * @param search Can't be {@code null}.
+     * @param result Can't be {@code null}.
+     * @param fieldName Can't be {@code null}.
+     */
+    public SearchResultSparklines(ToolPageContext page, Search search, PaginatedResult<?> result, String fieldName) {
+        this(result, fieldName, DEFAULT_LOADER, () -> {
+            Object maxObject = search.toQuery(page.getSite()).sortDescending(fieldName).first();
+
+            return maxObject != null
+                    ? ((Metric) State.getInstance(maxObject).get(fieldName)).getSum()
+                    : 1.0;
+        });
+    }
+
+    /**
+     * Creates an instance that loads the sums for all items in the given
+     * {@code result} using the given {@code loader}.
+     *
+     * @param result Can't be {@code null}.
+     * @param fieldName Can't be {@code null}.
+     * @param loader Can't be {@code null}.
+     * @param maxSumQuery Queries the maximum sum across all pages, and is
+     *        only used when the given {@code result} isn't the first page.
+     *        Can't be {@code null}.
+     */
+    public SearchResultSparklines(PaginatedResult<?> result, String fieldName, Loader loader, DoubleSupplier maxSumQuery) {
+        Preconditions.checkNotNull(result);
+        Preconditions.checkNotNull(fieldName);
+        Preconditions.checkNotNull(loader);
+        Preconditions.checkNotNull(maxSumQuery);
+
+        this.fieldName = fieldName;
+        this.start = new DateTime().dayOfMonth().roundFloorCopy().minusDays(7);
+        this.loader = loader;
+        this.sumsByItem = new HashMap<>(loader.load(result.getItems(), fieldName, start));
+
+        if (result.getOffset() == 0) {
+            this.maxSum = sumsByItem.isEmpty()
+                    ? 1.0
+                    : sumsByItem.values().stream().mapToDouble(Sums::getTotal).max().getAsDouble();
+
+        } else {
+            this.maxSum = maxSumQuery.getAsDouble();
+        }
+    }
+
+    /**
+     * Returns the maximum sum used to scale the sparklines.
+     */
+    public double getMaxSum() {
+        return maxSum;
+    }
+
+    /**
+     * Returns the sums for the given {@code item}, loading them if the item
+     * wasn't in the result.
+     *
+     * @param item Can't be {@code null}.
+     * @return May be {@code null} if the item doesn't have a metric value.
+     */
+    public Sums getSums(Object item) {
+        return sumsByItem.computeIfAbsent(item, i -> loader.load(Collections.singletonList(i), fieldName, start).get(i));
+    }
+
+    /**
+     * Creates the SVG path for the sparkline of the given {@code item}.
+     *
+     * @param item Can't be {@code null}.
+     * @return {@code null} if there aren't any sums to draw.
+     */
+    public String createPath(Object item) {
+        Sums sums = getSums(item);
+
+        return sums != null ? createPath(sums.getSumsByDate(), maxSum) : null;
+    }
+
+    /**
+     * Creates the SVG path for the sparkline of the given {@code sumEntries}
+     * scaled to the given {@code maxSum}.
+     *
+     * @param sumEntries Can't be {@code null}.
+     * @return {@code null} if the given {@code sumEntries} is empty.
+     */
+    public static String createPath(Map<DateTime, Double> sumEntries, double maxSum) {
+        if (sumEntries.isEmpty()) {
+            return null;
+        }
+
+        long minMillis = Long.MAX_VALUE;
+        long maxMillis = Long.MIN_VALUE;
+
+        for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
+            long sumMillis = sumEntry.getKey().getMillis();
+
+            if (sumMillis < minMillis) {
+                minMillis = sumMillis;
+            }
+
+            if (sumMillis > maxMillis) {
+                maxMillis = sumMillis;
+            }
+        }
+
+        double cumulativeSum = 0.0;
+        StringBuilder path = new StringBuilder();
+        double xRange = maxMillis - minMillis;
+
+        for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
+            cumulativeSum += sumEntry.getValue();
+
+            path.append('L');
+            path.append((sumEntry.getKey().getMillis() - minMillis) / xRange * WIDTH);
+            path.append(',');
+            path.append(HEIGHT - cumulativeSum / maxSum * HEIGHT);
+        }
+
+        path.setCharAt(0, 'M');
+        return path.toString();
+    }
+
+    /**
+     * Writes the total sum and the sparkline for the given {@code item}.
+     *
+     * @param page Can't be {@code null}.
+     * @param item Can't be {@code null}.
+     */
+    public void writeHtml(ToolPageContext page, Object item) throws IOException {
+        Sums sums = getSums(item);
+
+        if (sums == null) {
+            return;
+        }
+
+        page.writeStart("span", "style", page.cssString("white-space", "nowrap"));
+            double sum = sums.getTotal();
+            long sumLong = (long) sum;
+
+            if (sumLong == sum) {
+                page.writeHtml(String.format("%,2d ", sumLong));
+
+            } else {
+                page.writeHtml(String.format("%,2.2f ", sum));
+            }
+
+            String path = createPath(sums.getSumsByDate(), maxSum);
+
+            if (path != null) {
+                page.writeStart("svg",
+                        "xmlns", "http://www.w3.org/2000/svg",
+                        "width", WIDTH,
+                        "height", HEIGHT,
+                        "style", page.cssString(
+                                "display", "inline-block",
+                                "vertical-align", "middle"));
+                    page.writeStart("path",
+                            "fill", "none",
+                            "stroke", "#444444",
+                            "d", path);
+                    page.writeEnd();
+                page.writeEnd();
+            }
+        page.writeEnd();
+    }
+
+    /**
+     * Loads the sums for multiple items at once.
+     */
+    @FunctionalInterface
+    public interface Loader {
+
+        /**
+         * @param items Can't be {@code null}.
+         * @param fieldName Can't be {@code null}.
+         * @param start Start of the daily sums. Can't be {@code null}.
+         * @return Never {@code null}. Keyed by the items. Items without a
+         *         metric value may be omitted.
+         */
+        Map<Object, Sums> load(List<?> items, String fieldName, DateTime start);
+    }
+
+    /**
+     * Total sum and daily sums of a single metric value.
+     */
+    public static final class Sums {
+
+        private final double total;
+        private final Map<DateTime, Double> sumsByDate;
+
+        /**
+         * @param sumsByDate Can't be {@code null}.
+         */
+        public Sums(double total, Map<DateTime, Double> sumsByDate) {
+            this.total = total;
+            this.sumsByDate = Collections.unmodifiableMap(new LinkedHashMap<>(sumsByDate));
+        }
+
+        public double getTotal() {
+            return total;
+        }
+
+        /**
+         * @return Never {@code null}.
+         */
+        public Map<DateTime, Double> getSumsByDate() {
+            return sumsByDate;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.psddev.cms.tool;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable set of IDs that's stored compactly as a sorted array of longs,
+ * which makes the membership checks a binary search and the unions and the
+ * differences a single merge.
+ *
+ * <p>The IDs are ordered by {@link UUID#compareTo(UUID)} so that they can be
+ * paginated by the last ID seen using {@link #after(UUID, int)}.</p>
+ */
+public final class SortedIdSet extends AbstractSet<UUID> {
+
+    private static final SortedIdSet EMPTY = new SortedIdSet(new long[0]);
+
+    // Most significant bits followed by the least significant bits of each
+    // ID.
+    private final long[] bits;
+
+    private SortedIdSet(long[] bits) {
+        this.bits = bits;
+    }
+
+    /**
+     * Returns an empty set.
+     *
+     * @return Never {@code null}.
+     */
+    public static SortedIdSet empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Returns a set containing the given {@code ids}.
+     *
+     * @param ids May be {@code null}. {@code null} items are ignored.
+     * @return Never {@code null}.
+     */
+    public static SortedIdSet of(Collection<UUID> ids) {
+        if (ids instanceof SortedIdSet) {
+            return (SortedIdSet) ids;
+
+        } else if (ids == null || ids.isEmpty()) {
+            return EMPTY;
+        }
+
+        List<UUID> sorted = new ArrayList<>(ids.size());
+
+        for (UUID id : ids) {
+            if (id != null) {
+                sorted.add(id);
+            }
+        }
+
+        Collections.sort(sorted);
+
+        long[] bits = new long[sorted.size() * 2];
+        int size = 0;
+        UUID previous = null;
+
+        for (UUID id : sorted) {
+            if (!id.equals(previous)) {
+                bits[size * 2] = id.getMostSignificantBits();
+                bits[size * 2 + 1] = id.getLeastSignificantBits();
+                ++ size;
+                previous = id;
+            }
+        }
+
+        return size > 0 ? new SortedIdSet(Arrays.copyOf(bits, size * 2)) : EMPTY;
+    }
+
+    /**
+     * Decodes the given {@code string} that was created by {@link #encode()}.
+     *
+     * @param string May be {@code null}.
+     * @return Never {@code null}.
+     * @throws IllegalArgumentException If the given {@code string} isn't
+     *         valid.
+     */
+    public static SortedIdSet decode(String string) {
+        if (string == null || string.isEmpty()) {
+            return EMPTY;
+        }
+
+        byte[] bytes = Base64.getDecoder().decode(string);
+
+        Preconditions.checkArgument(bytes.length % 16 == 0, "Invalid length! [%s]", bytes.length);
+
+        long[] bits = new long[bytes.length / 8];
+
+        ByteBuffer.wrap(bytes).asLongBuffer().get(bits);
+
+        for (int i = 1, size = bits.length / 2; i < size; ++ i) {
+            Preconditions.checkArgument(compare(bits, i - 1, bits[i * 2], bits[i * 2 + 1]) < 0, "Not sorted!");
+        }
+
+        return new SortedIdSet(bits);
+    }
+
+    /**
+     * Encodes this set into a compact string that can be decoded by
+     * {@link #decode(String)}.
+     *
+     * @return Never {@code null}.
+     */
+    public String encode() {
+        ByteBuffer buffer = ByteBuffer.allocate(bits.length * 8);
+
+        buffer.asLongBuffer().put(bits);
+        return Base64.getEncoder().encodeToString(buffer.array());
+    }
+
+    // Compares the ID at the given index to the given bits in the same order
+    // as UUID#compareTo.
+    private static int compare(long[] bits, int index, long most, long least) {
+        int c = Long.compare(bits[index * 2], most);
+
+        return c != 0 ? c : Long.compare(bits[index * 2 + 1], least);
+    }
+
+    // Returns the index of the given ID, or (-(insertion point) - 1).
+    private int indexOf(long most, long least) {
+        int low = 0;
+        int high = size() - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int c = compare(bits, middle, most, least);
+
+            if (c < 0) {
+                low = middle + 1;
+
+            } else if (c > 0) {
+                high = middle - 1;
+
+            } else {
+                return middle;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    private UUID get(int index) {
+        return new UUID(bits[index * 2], bits[index * 2 + 1]);
+    }
+
+    @Override
+    public int size() {
+        return bits.length / 2;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        if (!(object instanceof UUID)) {
+            return false;
+        }
+
+        UUID id = (UUID) object;
+
+        return indexOf(id.getMostSignificantBits(), id.getLeastSignificantBits()) >= 0;
+    }
+
+    @Override
+    public Iterator<UUID> iterator() {
+        return new Iterator<UUID>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public UUID next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return get(index ++);
+            }
+        };
+    }
+
+    /**
+     * Returns up to the given {@code limit} number of IDs that come after the
+     * given {@code id}.
+     *
+     * @param id If {@code null}, returns the IDs from the beginning.
+     * @param limit Must be greater than {@code 0}.
+     * @return Never {@code null}. Unmodifiable.
+     */
+    public List<UUID> after(UUID id, int limit) {
+        Preconditions.checkArgument(limit > 0, "Limit must be greater than 0!");
+
+        int start;
+
+        if (id == null) {
+            start = 0;
+
+        } else {
+            start = indexOf(id.getMostSignificantBits(), id.getLeastSignificantBits());
+            start = start >= 0 ? start + 1 : -(start + 1);
+        }
+
+        int end = (int) Math.min((long) start + limit, size());
+        List<UUID> ids = new ArrayList<>(Math.max(end - start, 0));
+
+        for (int i = start; i < end; ++ i) {
+            ids.add(get(i));
+        }
+
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * Returns the IDs in this set in order, in chunks of up to the given
+     * {@code chunkSize}, such as for querying a few of them at a time.
+     *
+     * @param chunkSize Must be greater than {@code 0}.
+     * @return Never {@code null}.
+     */
+    public Iterable<List<UUID>> chunks(int chunkSize) {
+        Preconditions.checkArgument(chunkSize > 0, "Chunk size must be greater than 0!");
+
+        return () -> new Iterator<List<UUID>>() {
+
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public List<UUID> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                int end = (int) Math.min((long) index + chunkSize, size());
+                List<UUID> ids = new ArrayList<>(end - index);
+
+                for (; index < end; ++ index) {
+                    ids.add(get(index));
+                }
+
+                return Collections.unmodifiableList(ids);
+            }
+        };
+    }
+
+    /**
+     * Returns a set containing the IDs in this set and the given {@code ids}.
+     *
+     * @param ids May be {@code null}.
+     * @return Never {@code null}. This set if nothing was added.
+     */
+    public SortedIdSet union(Collection<UUID> ids) {
+        SortedIdSet other = of(ids);
+
+        if (other.isEmpty()) {
+            return this;
+
+        } else if (isEmpty()) {
+            return other;
+        }
+
+        long[] merged = new long[bits.length + other.bits.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        int thisSize = size();
+        int otherSize = other.size();
+
+        while (i < thisSize || j < otherSize) {
+            int c = i >= thisSize ? 1
+                    : j >= otherSize ? -1
+                    : compare(bits, i, other.bits[j * 2], other.bits[j * 2 + 1]);
+
+            long[] source = c <= 0 ? bits : other.bits;
+            int index = c <= 0 ? i : j;
+
+            merged[size * 2] = source[index * 2];
+            merged[size * 2 + 1] = source[index * 2 + 1];
+            ++ size;
+
+            if (c <= 0) {
+                ++ i;
+            }
+
+            if (c >= 0) {
+                ++ j;
+            }
+        }
+
+        return size == thisSize ? this : new SortedIdSet(Arrays.copyOf(merged, size * 2));
+    }
+
+    /**
+     * Returns a set containing the IDs in this set that aren't in the given
+     * {@code ids}.
+     *
+     * @param ids May be {@code null}.
+     * @return Never {@code null}. This set if nothing was removed.
+     */
+    public SortedIdSet difference(Collection<UUID> ids) {
+        SortedIdSet other = of(ids);
+
+        if (other.isEmpty() || isEmpty()) {
+            return this;
+        }
+
+        long[] remaining = new long[bits.length];
+        int size = 0;
+
+        for (int i = 0, thisSize = size(); i < thisSize; ++ i) {
+            if (other.indexOf(bits[i * 2], bits[i * 2 + 1]) < 0) {
+                remaining[size * 2] = bits[i * 2];
+                remaining[size * 2 + 1] = bits[i * 2 + 1];
+                ++ size;
+            }
+        }
+
+        return size == size() ? this
+                : size == 0 ? EMPTY
+                : new SortedIdSet(Arrays.copyOf(remaining, size * 2));
+    }
+}
@@ -665,7 +665,11 @@ public class ToolPageContext extends WebPageContext {
     }
 
     /**
-     * Returns the CMS tool.
+     * Returns the CMS tool, which is looked up once per request.
+     *
+     * <p>The settings that are read on the hot paths should be read from
+     * {@link CmsToolSnapshot#get} instead, since the instance returned here
+     * is mutable.</p>
      *
      * @see #getToolByClass
      */
@@ -2659,9 +2663,7 @@ public class ToolPageContext extends WebPageContext {
 
         boolean hasWorkflow = false;
 
-        for (Workflow w : (type == null
-                ? Query.from(Workflow.class)
-                : Query.from(Workflow.class).where("contentTypes = ?", type)).selectAll()) {
+        for (Workflow w : Workflow.findWorkflows(type)) {
 
             for (WorkflowState s : w.getStates()) {
                 hasWorkflow = true;
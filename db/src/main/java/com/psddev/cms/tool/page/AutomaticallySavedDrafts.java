@@ -0,0 +1,85 @@
+package com.psddev.cms.tool.page;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import javax.servlet.ServletException;
+
+import com.psddev.cms.db.Content;
+import com.psddev.cms.db.ToolUser;
+import com.psddev.cms.tool.PageServlet;
+import com.psddev.cms.tool.ToolPageContext;
+import com.psddev.cms.tool.widget.CreateNewWidget;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.RoutingFilter;
+
+/**
+ * Lists the drafts that were saved automatically for the current user.
+ * Loaded in a frame within {@link CreateNewWidget}, since it changes much
+ * more often than the rest of the widget, whose output is cached.
+ */
+@RoutingFilter.Path(application = "cms", value = "/automaticallySavedDrafts")
+public class AutomaticallySavedDrafts extends PageServlet {
+
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    protected String getPermissionId() {
+        return null;
+    }
+
+    @Override
+    protected void doService(ToolPageContext page) throws IOException, ServletException {
+        ToolUser user = page.getUser();
+        Set<UUID> automaticallySavedDraftIds = user.getAutomaticallySavedDraftIds();
+        List<Object> automaticallySavedDrafts = Query
+                .from(Object.class)
+                .where("_id = ?", automaticallySavedDraftIds)
+                .selectAll();
+
+        if (automaticallySavedDrafts.isEmpty()) {
+            return;
+        }
+
+        boolean removed = false;
+
+        for (Iterator<Object> i = automaticallySavedDrafts.iterator(); i.hasNext();) {
+            State draft = State.getInstance(i.next());
+
+            if (!draft.as(Content.ObjectModification.class).isDraft()) {
+                removed = true;
+
+                automaticallySavedDraftIds.remove(draft.getId());
+                i.remove();
+            }
+        }
+
+        if (removed) {
+            user.save();
+        }
+
+        if (automaticallySavedDrafts.isEmpty()) {
+            return;
+        }
+
+        page.writeStart("h2");
+            page.writeHtml(page.localize(CreateNewWidget.class, "subtitle.savedDrafts"));
+        page.writeEnd();
+
+        page.writeStart("ul", "class", "links");
+            for (Object draft : automaticallySavedDrafts) {
+                page.writeStart("li");
+                    page.writeStart("a",
+                            "target", "_top",
+                            "href", page.objectUrl("/content/edit.jsp", draft));
+                        page.writeTypeObjectLabel(draft);
+                    page.writeEnd();
+                page.writeEnd();
+            }
+        page.writeEnd();
+    }
+}
@@ -10,7 +10,6 @@ import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.ObjectUtils;
-import com.psddev.dari.util.PaginatedResult;
 import com.psddev.dari.util.RoutingFilter;
 import com.psddev.dari.util.StringUtils;
 import com.psddev.dari.util.TypeReference;
@@ -113,7 +112,7 @@ public class BulkArchive extends PageServlet {
 
                 if (page.isFormPost()) {
 
-                    Iterator queryIterator = page.itemsQuery().noCache().iterable(0).iterator();
+                    Iterator queryIterator = page.iterateItems().iterator();
 
                     Map<String, Integer> messageMap = new LinkedHashMap<>();
 
@@ -234,8 +233,6 @@ public class BulkArchive extends PageServlet {
         public static final String SELECTION_ID_PARAMETER = "selectionId";
         public static final String SEARCH_PARAMETER = "search";
 
-        private static final Integer READ_PAGE_SIZE = 20;
-
         private Search search;
         private SearchResultSelection selection;
         private WidgetState widgetState;
@@ -356,7 +353,14 @@ public class BulkArchive extends PageServlet {
             return search;
         }
 
-        // Produces a Query for objects to be bulk workflow transitioned.
+        /**
+         * Produces a Query for objects to be bulk workflow transitioned.
+         *
+         * @deprecated Use {@link #iterateItems()} instead, since the query
+         *             for a selection contains the IDs of all the items.
+         */
+        @Deprecated
+        @SuppressWarnings("deprecation")
         public Query itemsQuery() {
 
             if (getSearch() != null) {
@@ -369,28 +373,40 @@ public class BulkArchive extends PageServlet {
             throw new IllegalStateException("No Search or SearchResultsSelection populated.  Cannot create items Query.");
         }
 
+        /**
+         * Returns the objects to be bulk archived or restored, reading the
+         * selected ones in chunks.
+         */
+        public Iterable<?> iterateItems() {
+
+            if (getSearch() != null) {
+
+                return getSearch().toQuery(getSite()).noCache().iterable(0);
+            } else if (getSelection() != null) {
+                return getSelection().iterateItems();
+            }
+
+            throw new IllegalStateException("No Search or SearchResultsSelection populated.  Cannot iterate items.");
+        }
+
         private long getAvailableActionCount(boolean archive) {
 
             if (getSelection() != null) {
 
-                PaginatedResult result = itemsQuery().noCache().select(0, READ_PAGE_SIZE);
-
                 int count = 0;
 
-                do {
-                    for (Object item : result.getItems()) {
+                for (Object item : getSelection().iterateItems()) {
 
-                        State itemState = State.getInstance(item);
-                        String typePermissionId = "type/" + itemState.getTypeId();
+                    State itemState = State.getInstance(item);
+                    String typePermissionId = "type/" + itemState.getTypeId();
 
-                        if (archive ^ itemState.as(Content.ObjectModification.class).isTrash()
-                                && hasPermission(typePermissionId + "/write")
-                                && hasPermission(typePermissionId + "/bulkArchive")) {
+                    if (archive ^ itemState.as(Content.ObjectModification.class).isTrash()
+                            && hasPermission(typePermissionId + "/write")
+                            && hasPermission(typePermissionId + "/bulkArchive")) {
 
-                            count ++;
-                        }
+                        count ++;
                     }
-                } while (result.hasNext() && (result = itemsQuery().noCache().select(result.getNextOffset(), READ_PAGE_SIZE)) != null);
+                }
 
                 return count;
             } else if (getSearch() != null && (archive ^ getSearch().getVisibilities().contains("b.cms.content.trashed"))) {
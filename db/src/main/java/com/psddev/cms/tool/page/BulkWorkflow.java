@@ -136,7 +136,7 @@ public class BulkWorkflow extends PageServlet {
 
                 int successCount = 0;
 
-                for (Object item : page.itemsQuery().selectAll()) {
+                for (Object item : page.iterateItems()) {
 
                     State itemState = State.getInstance(item);
 
@@ -629,7 +629,14 @@ public class BulkWorkflow extends PageServlet {
             return hasAnyTransitions;
         }
 
-        // Produces a Query for objects to be bulk workflow transitioned.
+        /**
+         * Produces a Query for objects to be bulk workflow transitioned.
+         *
+         * @deprecated Use {@link #iterateItems()} instead, since the query
+         *             for a selection contains the IDs of all the items.
+         */
+        @Deprecated
+        @SuppressWarnings("deprecation")
         public Query itemsQuery() {
 
             if (getSearch() != null) {
@@ -642,6 +649,22 @@ public class BulkWorkflow extends PageServlet {
             throw new IllegalStateException("No Search or SearchResultsSelection populated.  Cannot create items Query.");
         }
 
+        /**
+         * Returns the objects to be bulk workflow transitioned, reading the selected ones in
+         * chunks.
+         */
+        public Iterable<?> iterateItems() {
+
+            if (getSearch() != null) {
+
+                return getSearch().toQuery(getSite()).selectAll();
+            } else if (getSelection() != null) {
+                return getSelection().iterateItems();
+            }
+
+            throw new IllegalStateException("No Search or SearchResultsSelection populated.  Cannot iterate items.");
+        }
+
         /**
          * Clears and sets the internal workflowStateCounts, availableTransitionsMap, and hasAnyTransitions state variables using the
          * SearchResultSelection provided.
@@ -660,7 +683,7 @@ public class BulkWorkflow extends PageServlet {
 
             Set<ObjectType> itemTypes = new HashSet<>();
 
-            for (Object item : selection.createItemsQuery().selectAll()) {
+            for (Object item : selection.iterateItems()) {
 
                 State itemState = State.getInstance(item);
 
@@ -777,7 +800,7 @@ public class BulkWorkflow extends PageServlet {
                 return;
             }
 
-            for (Workflow workflow : Query.from(Workflow.class).where("contentTypes = ?", selectedType).selectAll()) {
+            for (Workflow workflow : Workflow.findWorkflows(selectedType)) {
 
                 Map<ObjectType, Map<WorkflowState, Map<String, WorkflowTransition>>> stateTransitionsByType = availableTransitionsMap.get(workflow);
                 if (stateTransitionsByType == null) {
@@ -2,7 +2,6 @@ package com.psddev.cms.tool.page;
 
 import java.io.IOException;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -13,7 +12,8 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
 import com.google.common.collect.ImmutableMap;
-import com.psddev.cms.tool.SearchResultSelectionItem;
+import com.psddev.cms.tool.SearchResultSelection;
+import com.psddev.cms.tool.SortedIdSet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -52,20 +52,17 @@ public class ContentEditBulk extends PageServlet {
     protected void doService(ToolPageContext page) throws IOException, ServletException {
         List<UUID> ids = page.params(UUID.class, ContentSearchAdvanced.ITEMS_PARAMETER);
         UUID selectionId = page.param(UUID.class, "selectionId");
-        Query<?> query;
+        Query<?> query = null;
+        SortedIdSet itemIds = null;
 
+        // Copies the IDs in the selection so that the items can be read in
+        // chunks later, even if the selection changes in the meantime.
         if (selectionId != null) {
-            Set<UUID> itemIds = new HashSet<>();
+            SearchResultSelection selection = Query.from(SearchResultSelection.class).where("_id = ?", selectionId).first();
 
-            for (SearchResultSelectionItem item : Query
-                    .from(SearchResultSelectionItem.class)
-                    .where("selectionId = ?", selectionId)
-                    .selectAll()) {
-
-                itemIds.add(item.getItemId());
-            }
-
-            query = Query.fromAll().where("_id = ?", itemIds);
+            itemIds = selection != null
+                    ? selection.getItemIds()
+                    : SortedIdSet.empty();
 
         } else if (ids.isEmpty()) {
             String searchString = page.param(String.class, "search");
@@ -86,7 +83,7 @@ public class ContentEditBulk extends PageServlet {
             query = Query.fromAll().where("_id = ?", ids);
         }
 
-        long count = query.count();
+        long count = itemIds != null ? itemIds.size() : query.count();
         ObjectType type = ObjectType.getInstance(page.param(UUID.class, "typeId"));
         State state = State.getInstance(type.createObject(page.param(UUID.class, "id")));
 
@@ -138,6 +135,7 @@ public class ContentEditBulk extends PageServlet {
                 status.setSubmitUser(page.getUser());
                 status.setSubmitDate(new Date());
                 status.setQuery(query);
+                status.setItemIds(itemIds);
                 status.setCount(count);
                 status.setReplaces(replaces);
                 status.setAdds(adds);
@@ -2,7 +2,10 @@ package com.psddev.cms.tool.page;
 
 import com.psddev.cms.db.Content;
 import com.psddev.cms.db.Site;
+import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.db.ToolUser;
+import com.psddev.cms.tool.SearchResultSelection;
+import com.psddev.cms.tool.SortedIdSet;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Record;
 import com.psddev.dari.db.State;
@@ -10,6 +13,7 @@ import com.psddev.dari.util.CompactMap;
 import com.psddev.dari.util.Task;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
@@ -28,6 +32,10 @@ public class ContentEditBulkSubmission extends Record {
     private Date submitDate = new Date();
 
     private Query<?> query;
+
+    @ToolUi.Hidden
+    private String itemIds;
+
     private long count;
     private Map<String, Object> replaces;
     private Map<String, Object> adds;
@@ -71,6 +79,23 @@ public class ContentEditBulkSubmission extends Record {
         this.query = query;
     }
 
+    /**
+     * Returns the IDs of the items to be edited, if they were given instead
+     * of a query, such as from a selection.
+     *
+     * @return May be {@code null}.
+     */
+    public SortedIdSet getItemIds() {
+        return itemIds != null ? SortedIdSet.decode(itemIds) : null;
+    }
+
+    /**
+     * @param itemIds If {@code null}, edits the items matching the query.
+     */
+    public void setItemIds(SortedIdSet itemIds) {
+        this.itemIds = itemIds != null ? itemIds.encode() : null;
+    }
+
     public long getCount() {
         return count;
     }
@@ -169,7 +194,13 @@ public class ContentEditBulkSubmission extends Record {
                 Map<String, Object> removes = getRemoves();
                 Set<String> clears = getClears();
 
-                for (Iterator<?> i = getQuery().iterable(0).iterator(); shouldContinue() && i.hasNext();) {
+                SortedIdSet itemIds = getItemIds();
+                Query<?> query = getQuery();
+                Iterable<?> items = itemIds != null
+                        ? SearchResultSelection.iterateItems(itemIds, SearchResultSelection.DEFAULT_ITEMS_CHUNK_SIZE)
+                        : query != null ? query.iterable(0) : Collections.emptyList();
+
+                for (Iterator<?> i = items.iterator(); shouldContinue() && i.hasNext();) {
                     Object item = i.next();
                     State itemState = State.getInstance(item);
 
@@ -1,12 +1,14 @@
 package com.psddev.cms.tool.page;
 
 import java.io.IOException;
+import java.util.Set;
 import java.util.UUID;
 
 import javax.servlet.ServletException;
 
 import com.google.common.collect.ImmutableMap;
 import com.psddev.cms.db.Content;
+import com.psddev.cms.db.ContentReference;
 import com.psddev.cms.db.Directory;
 import com.psddev.cms.db.Draft;
 import com.psddev.cms.tool.PageServlet;
@@ -35,7 +37,28 @@ public class ContentReferences extends PageServlet {
                 .and("_type != ?", Draft.class)
                 .and("_id != ?", id)
                 .sortDescending("cms.content.updateDate");
-        PaginatedResult<Object> result = query.select(0L, 10);
+        PaginatedResult<Object> result;
+
+        // Look up the referencing objects in the reverse reference index
+        // instead of running the full-text query, which is still used for
+        // the view all link.
+        if (ContentReference.isIndexComplete()) {
+            Set<UUID> sourceIds = ContentReference.findSourceIds(id, Draft.class);
+
+            if (sourceIds.isEmpty()) {
+                return;
+            }
+
+            result = Query
+                    .fromGroup(Content.SEARCHABLE_GROUP)
+                    .where("_id = ?", sourceIds)
+                    .and("_type != ?", Draft.class)
+                    .sortDescending("cms.content.updateDate")
+                    .select(0L, 10);
+
+        } else {
+            result = query.select(0L, 10);
+        }
 
         if (result.getItems().isEmpty()) {
             return;
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +29,8 @@ import com.psddev.cms.db.WorkflowLog;
 import com.psddev.cms.tool.AuthenticationFilter;
 import com.psddev.cms.tool.PageServlet;
 import com.psddev.cms.tool.ToolPageContext;
+import com.psddev.cms.tool.page.content.EditSession;
+import com.psddev.cms.tool.page.content.ValueExpressionCache;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.PredicateParser;
@@ -40,6 +43,7 @@ import com.psddev.dari.util.ObjectToIterable;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.RoutingFilter;
 import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +61,37 @@ public class ContentState extends PageServlet {
 
     @Override
     protected void doService(ToolPageContext page) throws IOException, ServletException {
+        String sessionId = page.param(String.class, EditSession.ID_PARAMETER);
+        ToolUser sessionUser = page.getUser();
+
+        // Merge the changed inputs into the rest from the previous request.
+        if (!ObjectUtils.isBlank(sessionId) && sessionUser != null) {
+            String sessionKey = EditSession.createKey(sessionUser.getId(), page.param(String.class, "id"), sessionId);
+            boolean delta = page.param(boolean.class, EditSession.DELTA_PARAMETER);
+            EditSession session = delta ? EditSession.find(sessionKey) : EditSession.findOrCreate(sessionKey);
+
+            if (session == null) {
+                page.getResponse().setContentType("application/json");
+                page.write(ObjectUtils.toJson(Collections.singletonMap("_resync", true)));
+                return;
+            }
+
+            Map<String, String[]> parameters = session.update(
+                    page.getRequest().getParameterMap(),
+                    delta,
+                    page.params(String.class, EditSession.REMOVED_PARAMETER));
+
+            updateState(new ToolPageContext(
+                    getServletContext(),
+                    EditSession.wrapRequest(page.getRequest(), parameters),
+                    page.getResponse()), session);
+
+        } else {
+            updateState(page, null);
+        }
+    }
+
+    private void updateState(ToolPageContext page, EditSession session) throws IOException, ServletException {
         Object object = page.findOrReserve();
 
         if (object == null) {
@@ -148,14 +183,22 @@ public class ContentState extends PageServlet {
             }
 
             Map<String, Object> values = state.getSimpleValues();
+            Site site = page.getSite();
 
             preview.getState().setId(currentPreviewId);
             preview.setCreateDate(new Date());
             preview.setObjectType(state.getType());
             preview.setObjectId(state.getId());
             preview.setObjectValues(values);
-            preview.setSite(page.getSite());
-            preview.save();
+            preview.setSite(site);
+
+            // Only save the preview when the values actually changed.
+            if (saveUser
+                    || session == null
+                    || session.updatePreviewHash(StringUtils.hex(StringUtils.md5(currentPreviewId + "/" + (site != null ? site.getId() : "") + "/" + ObjectUtils.toJson(values))))) {
+                preview.save();
+            }
+
             AuthenticationFilter.Static.setCurrentPreview(page.getRequest(), page.getResponse(), preview);
             user.saveAction(page.getRequest(), object);
 
@@ -257,7 +300,7 @@ public class ContentState extends PageServlet {
                         }
                         pageContext.setAttribute("field", field);
 
-                        dynamicText = ((String) expressionFactory.createValueExpression(elContext, templates.get(i), String.class).getValue(elContext));
+                        dynamicText = ((String) ValueExpressionCache.get(expressionFactory, elContext, templates.get(i), String.class).getValue(elContext));
 
                     } catch (RuntimeException error) {
                         if (Settings.isProduction()) {
@@ -1,6 +1,7 @@
 package com.psddev.cms.tool.page;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 
@@ -48,9 +49,11 @@ public class CreateDraft extends PageServlet {
 
         if (field != null) {
 
-            List<Object> items = selection.createItemsQuery()
-                    .referenceOnly()
-                    .selectAll();
+            List<Object> items = new ArrayList<>();
+
+            for (List<UUID> ids : selection.getItemIds().chunks(SearchResultSelection.DEFAULT_ITEMS_CHUNK_SIZE)) {
+                items.addAll(Query.fromAll().where("_id = ?", ids).referenceOnly().selectAll());
+            }
 
             state.put(field.getInternalName(), items.size() == 1 ? items.get(0) : items);
 
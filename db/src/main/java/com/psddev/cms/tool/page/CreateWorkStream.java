@@ -83,14 +83,30 @@ public class CreateWorkStream extends PageServlet {
 
             } else {
                 String queryString = page.param(String.class, "query");
-                query = Query.fromAll();
-                query.getState().setValues((Map<String, Object>) ObjectUtils.fromJson(queryString));
-
                 UUID selectionId = page.param(UUID.class, "selectionId");
+                SearchResultSelection selection = selectionId != null
+                        ? Query.from(SearchResultSelection.class).where("_id = ?", selectionId).first()
+                        : null;
+
+                if (!ObjectUtils.isBlank(queryString)) {
+                    query = Query.fromAll();
+                    query.getState().setValues((Map<String, Object>) ObjectUtils.fromJson(queryString));
+
+                } else if (selection != null) {
+
+                    // Work streams are defined by a query, so the IDs are
+                    // copied from the selection on the server instead of
+                    // being sent back and forth in the URL. They're bounded
+                    // by SearchResultSelection#MAXIMUM_SIZE.
+                    query = Query.fromAll().where("_id = ?", selection.getItemIds());
+
+                } else {
+                    throw new IllegalArgumentException("Work stream requires a search, a query, or a selection!");
+                }
 
-                if (selectionId != null) {
+                if (selection != null) {
 
-                    page.getUser().deactivateSelection(Query.from(SearchResultSelection.class).where("_id = ?", selectionId).first());
+                    page.getUser().deactivateSelection(selection);
                 }
             }
 
@@ -13,6 +13,7 @@ import com.psddev.cms.tool.CmsTool;
 import com.psddev.cms.tool.Dashboard;
 import com.psddev.cms.tool.DashboardColumn;
 import com.psddev.cms.tool.DashboardWidget;
+import com.psddev.cms.tool.DashboardWidgetCache;
 import com.psddev.cms.tool.PageServlet;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.Query;
@@ -53,9 +54,13 @@ public class DashboardPage extends PageServlet {
             dashboardId = "default";
         }
 
+        List<DashboardColumn> columns = dashboard.getColumns();
+        CmsTool cms = Query.from(CmsTool.class).first();
+        Set<String> disabled = cms != null ? cms.getDisabledPlugins() : Collections.emptySet();
+        DashboardWidgetCache cache = DashboardWidgetCache.getDefault();
+
         page.writeHeader();
             page.writeStart("div", "class", "dashboard-columns");
-                List<DashboardColumn> columns = dashboard.getColumns();
                 double totalWidth = 0;
 
                 for (DashboardColumn column : columns) {
@@ -63,9 +68,6 @@ public class DashboardPage extends PageServlet {
                     totalWidth += width > 0 ? width : 1;
                 }
 
-                CmsTool cms = Query.from(CmsTool.class).first();
-                Set<String> disabled = cms != null ? cms.getDisabledPlugins() : Collections.emptySet();
-
                 for (int c = 0, cSize = columns.size(); c < cSize; ++ c) {
                     DashboardColumn column = columns.get(c);
                     double width = column.getWidth();
@@ -83,20 +85,30 @@ public class DashboardPage extends PageServlet {
                                 continue;
                             }
 
-                            String widgetUrl = page.toolUrl(CmsTool.class,
-                                    "/dashboardWidget/"
-                                            + dashboardId + "/"
-                                            + widget.getClass().getName() + "/"
-                                            + widget.getId());
+                            String widgetUrl = page.toolUrl(CmsTool.class, "/dashboardWidget" + getWidgetPathInfo(dashboardId, widget));
+                            // Only the output that's already cached is
+                            // included, and the rest is loaded in the frames.
+                            String html = cache.getHtmlIfPresent(page, widget);
+
+                            if (html != null) {
+                                page.writeStart("div", "class", "frame dashboard-widget loaded", "data-dashboard-widget-url", widgetUrl);
+                                    page.writeRaw(html);
+                                page.writeEnd();
 
-                            page.writeStart("div", "class", "frame dashboard-widget", "data-dashboard-widget-url", widgetUrl);
-                                page.writeStart("a", "href", widgetUrl);
+                            } else {
+                                page.writeStart("div", "class", "frame dashboard-widget", "data-dashboard-widget-url", widgetUrl);
+                                    page.writeStart("a", "href", widgetUrl);
+                                    page.writeEnd();
                                 page.writeEnd();
-                            page.writeEnd();
+                            }
                         }
                     page.writeEnd();
                 }
             page.writeEnd();
         page.writeFooter();
     }
+
+    private static String getWidgetPathInfo(String dashboardId, DashboardWidget widget) {
+        return "/" + dashboardId + "/" + widget.getClass().getName() + "/" + widget.getId();
+    }
 }
@@ -8,6 +8,7 @@ import javax.servlet.ServletException;
 import com.psddev.cms.tool.Dashboard;
 import com.psddev.cms.tool.DashboardColumn;
 import com.psddev.cms.tool.DashboardWidget;
+import com.psddev.cms.tool.DashboardWidgetCache;
 import com.psddev.cms.tool.PageServlet;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.Query;
@@ -82,6 +83,6 @@ public class DashboardWidgetPage extends PageServlet {
             widget = (DashboardWidget) TypeDefinition.getInstance(ObjectUtils.getClassByName(widgetClassName)).newInstance();
         }
 
-        widget.writeHtml(page, dashboard);
+        DashboardWidgetCache.getDefault().writeHtml(page, dashboard, widget);
     }
 }
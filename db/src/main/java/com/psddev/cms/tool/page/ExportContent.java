@@ -1,26 +1,14 @@
 package com.psddev.cms.tool.page;
 
 import com.google.common.collect.ImmutableMap;
-import com.psddev.cms.db.Directory;
 import com.psddev.cms.tool.PageServlet;
-import com.psddev.cms.tool.SearchResultField;
 import com.psddev.cms.tool.SearchResultSelection;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.cms.tool.Search;
-import com.psddev.dari.db.Database;
-import com.psddev.dari.db.Metric;
-import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Query;
-import com.psddev.dari.db.Recordable;
-import com.psddev.dari.db.State;
-import com.psddev.dari.util.ClassFinder;
-import com.psddev.dari.util.CollectionUtils;
-import com.psddev.dari.util.HtmlWriter;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.RoutingFilter;
-import com.psddev.dari.util.StorageItem;
-import com.psddev.dari.util.TypeDefinition;
 import com.psddev.dari.util.TypeReference;
 import com.psddev.dari.util.UrlBuilder;
 import org.joda.time.DateTime;
@@ -33,10 +21,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.jsp.PageContext;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.lang.reflect.Modifier;
-import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 
 @RoutingFilter.Path(application = "cms", value = ExportContent.PATH)
@@ -66,22 +50,34 @@ public class ExportContent extends PageServlet {
 
         if (page.param(boolean.class, Context.ACTION_PARAMETER)) {
 
-            HttpServletResponse response = page.getResponse();
+            Search search = page.getSearch();
+            ObjectType selectedType = search != null ? search.getSelectedType() : null;
 
-            response.setContentType("text/csv");
-            response.setHeader("Content-Disposition", "attachment; filename=search-result-" + new DateTime(null, page.getUserDateTimeZone()).toString("yyyy-MM-dd-hh-mm-ss") + ".csv");
+            if (selectedType == null || !page.hasPermission("type/" + selectedType.getId() + "/read")) {
 
-            page.writeHeaderRow();
+                page.getResponse().sendError(HttpServletResponse.SC_FORBIDDEN);
+                return;
+            }
+
+            Query<?> searchQuery = search.toQuery(page.getSite());
+
+            // Export in the background so that large exports don't hold the
+            // request until they're finished.
+            ExportContentJob job = new ExportContentJob();
 
-            Query searchQuery = page.getSearch().toQuery(page.getSite());
+            job.setSubmitUser(page.getUser());
+            job.setQuery(searchQuery);
 
             if (page.getSelection() != null) {
-                searchQuery.where(page.getSelection().createItemsQuery().getPredicate());
+                job.setItemIds(page.getSelection().getItemIds());
             }
 
-            for (Object item : searchQuery.iterable(0)) {
-                page.writeDataRow(item);
-            }
+            job.setSelectedType(selectedType);
+            job.setFieldNames(page.getUser().getSearchResultFieldsByTypeId().get(selectedType.getId().toString()));
+            job.setFileName("search-result-" + new DateTime(null, page.getUserDateTimeZone()).toString("yyyy-MM-dd-hh-mm-ss") + ".csv.gz");
+            job.submitTask();
+
+            page.getResponse().sendRedirect(page.cmsUrl(ExportContentJobStatus.PATH, "id", job.getId()));
 
         } else {
 
@@ -92,6 +88,7 @@ public class ExportContent extends PageServlet {
                     page.writeStart("a",
                             "class", "button",
                             "target", "_top",
+                            "title", page.getSelection() != null ? page.localize(ExportContent.class, "message.selectionOrder") : null,
                             "href", getActionUrl(page, null, Context.ACTION_PARAMETER, true));
                         page.writeHtml(page.localize(
                                 ExportContent.class,
@@ -143,12 +140,6 @@ public class ExportContent extends PageServlet {
         public static final String SEARCH_PARAMETER = "search";
         public static final String ACTION_PARAMETER = "action-download";
 
-        private static final String CSV_LINE_TERMINATOR = "\r\n";
-        private static final Character CSV_BOUNDARY = '\"';
-        private static final Character CSV_DELIMITER = ',';
-
-        private static final String VALUE_DELIMITER = ", ";
-
         private Search search;
         private SearchResultSelection selection;
 
@@ -248,193 +239,6 @@ public class ExportContent extends PageServlet {
 
             return search;
         }
-
-        public void writeHeaderRow() throws IOException {
-
-            if (getSearch() == null || getSearch().getSelectedType() == null || !hasPermission("type/" + search.getSelectedType().getId() + "/read")) {
-
-                return;
-            }
-
-            ObjectType selectedType = getSearch().getSelectedType();
-
-            if (selectedType == null) {
-
-                return;
-            }
-
-            writeRaw('\ufeff');
-            writeRaw(CSV_BOUNDARY);
-
-            writeCsvItem("Type");
-
-            writeRaw(CSV_BOUNDARY).writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-
-            writeCsvItem("Label");
-
-            writeRaw(CSV_BOUNDARY);
-
-            List<String> fieldNames = getUser().getSearchResultFieldsByTypeId().get(selectedType.getId().toString());
-
-            if (fieldNames == null) {
-                for (Class<? extends SearchResultField> c : ClassFinder.Static.findClasses(SearchResultField.class)) {
-                    if (!c.isInterface() && !Modifier.isAbstract(c.getModifiers())) {
-                        SearchResultField field = TypeDefinition.getInstance(c).newInstance();
-
-                        if (field.isDefault(selectedType)) {
-                            writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-                            writeRaw(field.createHeaderCellText());
-                            writeRaw(CSV_BOUNDARY);
-                        }
-                    }
-                }
-
-            } else {
-                for (String fieldName : fieldNames) {
-                    Class<?> fieldNameClass = ObjectUtils.getClassByName(fieldName);
-
-                    if (fieldNameClass != null && SearchResultField.class.isAssignableFrom(fieldNameClass)) {
-                        @SuppressWarnings("unchecked")
-                        SearchResultField field = TypeDefinition.getInstance((Class<? extends SearchResultField>) fieldNameClass).newInstance();
-
-                        if (field.isSupported(selectedType)) {
-                            writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-                            writeRaw(field.createHeaderCellText());
-                            writeRaw(CSV_BOUNDARY);
-                        }
-
-                    } else {
-                        ObjectField field = selectedType.getField(fieldName);
-
-                        if (field == null) {
-                            field = Database.Static.getDefault().getEnvironment().getField(fieldName);
-                        }
-
-                        if (field != null) {
-                            writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-                            writeCsvItem(field.getDisplayName());
-                            writeRaw(CSV_BOUNDARY);
-                        }
-                    }
-                }
-            }
-            writeRaw(CSV_LINE_TERMINATOR);
-        }
-
-        public void writeDataRow(Object item) throws IOException {
-
-            if (getSearch() == null || getSearch().getSelectedType() == null || !hasPermission("type/" + search.getSelectedType().getId() + "/read")) {
-
-                return;
-            }
-
-            ObjectType selectedType = getSearch().getSelectedType();
-
-            if (selectedType == null) {
-
-                return;
-            }
-
-            State itemState = State.getInstance(item);
-            ObjectType itemType = itemState.getType();
-
-            writeRaw(CSV_BOUNDARY);
-            writeCsvItem(itemType != null ? itemType.getLabel() : null);
-            writeRaw(CSV_BOUNDARY).writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-            writeCsvItem(itemState.getLabel());
-            writeRaw(CSV_BOUNDARY);
-
-            List<String> fieldNames = getUser().getSearchResultFieldsByTypeId().get(selectedType.getId().toString());
-
-            if (fieldNames == null) {
-                for (Class<? extends SearchResultField> c : ClassFinder.Static.findClasses(SearchResultField.class)) {
-                    if (!c.isInterface() && !Modifier.isAbstract(c.getModifiers())) {
-                        SearchResultField field = TypeDefinition.getInstance(c).newInstance();
-
-                        if (field.isDefault(selectedType)) {
-                            writeRaw(field.createDataCellText(item));
-                        }
-                    }
-                }
-
-            } else {
-                for (String fieldName : fieldNames) {
-                    Class<?> fieldNameClass = ObjectUtils.getClassByName(fieldName);
-
-                    if (fieldNameClass != null && SearchResultField.class.isAssignableFrom(fieldNameClass)) {
-                        @SuppressWarnings("unchecked")
-                        SearchResultField field = TypeDefinition.getInstance((Class<? extends SearchResultField>) fieldNameClass).newInstance();
-
-                        if (field.isSupported(selectedType)) {
-                            writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-                            writeRaw(field.createDataCellText(item));
-                            writeRaw(CSV_BOUNDARY);
-                        }
-
-                    } else {
-                        ObjectField field = selectedType.getField(fieldName);
-
-                        if (field == null) {
-                            field = Database.Static.getDefault().getEnvironment().getField(fieldName);
-                        }
-
-                        if (field != null) {
-                            writeRaw(CSV_DELIMITER).writeRaw(CSV_BOUNDARY);
-                            if ("cms.directory.paths".equals(field.getInternalName())) {
-                                for (Iterator<Directory.Path> i = itemState.as(Directory.ObjectModification.class).getPaths().iterator(); i.hasNext();) {
-                                    Directory.Path p = i.next();
-                                    String path = p.getPath();
-
-                                    writeCsvItem(path);
-                                    writeHtml(" (");
-                                    writeCsvItem(p.getType());
-                                    writeHtml(")");
-
-                                    if (i.hasNext()) {
-                                        writeRaw(VALUE_DELIMITER);
-                                    }
-                                }
-
-                            } else {
-                                for (Iterator<Object> i = CollectionUtils.recursiveIterable(itemState.getByPath(field.getInternalName())).iterator(); i.hasNext();) {
-                                    Object value = i.next();
-                                    writeCsvItem(value);
-                                    if (i.hasNext()) {
-                                        writeRaw(VALUE_DELIMITER);
-                                    }
-                                }
-                            }
-                            writeRaw(CSV_BOUNDARY);
-                        }
-                    }
-                }
-            }
-
-            writeRaw(CSV_LINE_TERMINATOR);
-        }
-
-        private void writeCsvItem(Object item) throws IOException {
-
-            StringWriter stringWriter = new StringWriter();
-            HtmlWriter htmlWriter = new HtmlWriter(stringWriter);
-
-            htmlWriter.putOverride(Recordable.class, (HtmlWriter writer, Recordable object) ->
-                            writer.writeHtml(object.getState().getLabel())
-            );
-
-            // Override Metric fields to output the total sum
-            htmlWriter.putOverride(Metric.class, (HtmlWriter writer, Metric object) ->
-                            writer.write(Double.toString(object.getSum()))
-            );
-
-            htmlWriter.putOverride(StorageItem.class, (HtmlWriter writer, StorageItem storageItem) ->
-                            writer.write(storageItem.getPublicUrl())
-            );
-
-            htmlWriter.writeObject(item);
-
-            write(stringWriter.toString().replaceAll(CSV_BOUNDARY.toString(), CSV_BOUNDARY.toString() + CSV_BOUNDARY));
-        }
     }
 }
 
@@ -0,0 +1,906 @@
+package com.psddev.cms.tool.page;
+
+import com.psddev.cms.db.Directory;
+import com.psddev.cms.db.ToolUi;
+import com.psddev.cms.db.ToolUser;
+import com.psddev.cms.tool.SearchResultField;
+import com.psddev.cms.tool.SortedIdSet;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Metric;
+import com.psddev.dari.db.ObjectField;
+import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.db.Record;
+import com.psddev.dari.db.Recordable;
+import com.psddev.dari.db.Sorter;
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.CollectionUtils;
+import com.psddev.dari.util.HtmlWriter;
+import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StorageItem;
+import com.psddev.dari.util.Task;
+import com.psddev.dari.util.TypeDefinition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports the results of a search to a compressed CSV file in the
+ * background.
+ *
+ * <p>The IDs of the results are read in partitions of
+ * {@value #PARTITION_SIZE} items. If the search is sorted, the results are
+ * exported in the same order. Otherwise, they're exported in the order of
+ * their IDs, and each partition starts after the last ID of the previous
+ * one, so that reading a partition doesn't get slower as the export
+ * progresses. If the item IDs are given, such as from a selection, the
+ * results are always exported in the order of their IDs.</p>
+ *
+ * <p>The items in the partitions and the labels of the objects that they
+ * reference are read and written by up to {@value #THREADS_SETTING}
+ * threads.</p>
+ *
+ * <p>The job holds a lease that's renewed as it progresses, so that it can
+ * be marked as failed if the server running it goes away.</p>
+ *
+ * <p>The file is saved to the storage named by {@value #STORAGE_SETTING},
+ * or the default storage if it's not set, so that it can be downloaded
+ * from any server. The export fails if neither is set.</p>
+ */
+public class ExportContentJob extends Record {
+
+    public static final String STORAGE_SETTING = "cms/tool/exportContentStorage";
+    public static final String THREADS_SETTING = "cms/tool/exportContentThreads";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ExportContentJob.class);
+
+    private static final int PARTITION_SIZE = 500;
+    private static final int DEFAULT_THREADS = 4;
+    private static final long LEASE_DURATION = 5L * 60L * 1000L;
+
+    private static final String CSV_LINE_TERMINATOR = "\r\n";
+    private static final Character CSV_BOUNDARY = '\"';
+    private static final Character CSV_DELIMITER = ',';
+
+    private static final String VALUE_DELIMITER = ", ";
+
+    @Indexed
+    private ToolUser submitUser;
+
+    @Indexed
+    private Date submitDate = new Date();
+
+    private Query<?> query;
+
+    @ToolUi.Hidden
+    private String itemIds;
+
+    private ObjectType selectedType;
+    private List<String> fieldNames;
+    private String fileName;
+    private long count;
+    private long progress;
+    private StorageItem file;
+    private long fileSize;
+    private String error;
+
+    @Indexed
+    private Date finishDate;
+
+    @ToolUi.Hidden
+    private Date leaseExpireDate;
+
+    public ToolUser getSubmitUser() {
+        return submitUser;
+    }
+
+    public void setSubmitUser(ToolUser submitUser) {
+        this.submitUser = submitUser;
+    }
+
+    public Date getSubmitDate() {
+        return submitDate;
+    }
+
+    public void setSubmitDate(Date submitDate) {
+        this.submitDate = submitDate;
+    }
+
+    public Query<?> getQuery() {
+        return query;
+    }
+
+    public void setQuery(Query<?> query) {
+        this.query = query;
+    }
+
+    /**
+     * Returns the IDs of the items to export among the query results, such
+     * as from a selection.
+     *
+     * @return May be {@code null} to export all the query results.
+     */
+    public SortedIdSet getItemIds() {
+        return itemIds != null ? SortedIdSet.decode(itemIds) : null;
+    }
+
+    public void setItemIds(SortedIdSet itemIds) {
+        this.itemIds = itemIds != null ? itemIds.encode() : null;
+    }
+
+    public ObjectType getSelectedType() {
+        return selectedType;
+    }
+
+    public void setSelectedType(ObjectType selectedType) {
+        this.selectedType = selectedType;
+    }
+
+    /**
+     * Returns the names of the fields to export, or {@code null} to export
+     * the default fields.
+     */
+    public List<String> getFieldNames() {
+        return fieldNames;
+    }
+
+    public void setFieldNames(List<String> fieldNames) {
+        this.fieldNames = fieldNames;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    public long getProgress() {
+        return progress;
+    }
+
+    public void setProgress(long progress) {
+        this.progress = progress;
+    }
+
+    /**
+     * Returns the exported file once it's finished.
+     */
+    public StorageItem getFile() {
+        return file;
+    }
+
+    public void setFile(StorageItem file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the size of the exported file in bytes.
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Date getFinishDate() {
+        return finishDate;
+    }
+
+    public void setFinishDate(Date finishDate) {
+        this.finishDate = finishDate;
+    }
+
+    /**
+     * Returns the date when the lease on this job expires, after which it's
+     * considered orphaned unless it's finished.
+     */
+    public Date getLeaseExpireDate() {
+        return leaseExpireDate;
+    }
+
+    public void setLeaseExpireDate(Date leaseExpireDate) {
+        this.leaseExpireDate = leaseExpireDate;
+    }
+
+    public void submitTask() {
+        renewLease();
+        save();
+        new ExportContentTask().submit();
+    }
+
+    /**
+     * Marks this job as failed if it's orphaned, such as when the server
+     * that was running it was shut down.
+     *
+     * @return {@code true} if it was orphaned.
+     */
+    public boolean failIfOrphaned() {
+        if (!isOrphaned(getFinishDate(), getLeaseExpireDate(), System.currentTimeMillis())) {
+            return false;
+        }
+
+        setError("Stopped unexpectedly!");
+        setFinishDate(new Date());
+        save();
+        return true;
+    }
+
+    static boolean isOrphaned(Date finishDate, Date leaseExpireDate, long now) {
+        return finishDate == null
+                && leaseExpireDate != null
+                && leaseExpireDate.getTime() < now;
+    }
+
+    private void renewLease() {
+        setLeaseExpireDate(new Date(System.currentTimeMillis() + LEASE_DURATION));
+    }
+
+    // Finds the columns to export once, in the same order as the search
+    // result table.
+    private List<Column> createColumns() {
+        List<Column> columns = new ArrayList<>();
+
+        columns.add(new Column() {
+
+            @Override
+            public void writeHeader(CsvWriter writer) throws IOException {
+                writer.writeCsvItem("Type");
+            }
+
+            @Override
+            public void writeValue(CsvWriter writer, Object item) throws IOException {
+                ObjectType itemType = State.getInstance(item).getType();
+
+                writer.writeCsvItem(itemType != null ? itemType.getLabel() : null);
+            }
+        });
+
+        columns.add(new Column() {
+
+            @Override
+            public void writeHeader(CsvWriter writer) throws IOException {
+                writer.writeCsvItem("Label");
+            }
+
+            @Override
+            public void writeValue(CsvWriter writer, Object item) throws IOException {
+                writer.writeCsvItem(State.getInstance(item).getLabel());
+            }
+        });
+
+        if (fieldNames == null) {
+            for (Class<? extends SearchResultField> c : SearchResultField.findClasses()) {
+                SearchResultField field = TypeDefinition.getInstance(c).newInstance();
+
+                if (field.isDefault(selectedType)) {
+                    columns.add(new SearchResultFieldColumn(field));
+                }
+            }
+
+        } else {
+            for (String fieldName : fieldNames) {
+                Class<?> fieldNameClass = ObjectUtils.getClassByName(fieldName);
+
+                if (fieldNameClass != null && SearchResultField.class.isAssignableFrom(fieldNameClass)) {
+                    @SuppressWarnings("unchecked")
+                    SearchResultField field = TypeDefinition.getInstance((Class<? extends SearchResultField>) fieldNameClass).newInstance();
+
+                    if (field.isSupported(selectedType)) {
+                        columns.add(new SearchResultFieldColumn(field));
+                    }
+
+                } else {
+                    ObjectField field = selectedType.getField(fieldName);
+
+                    if (field == null) {
+                        field = Database.Static.getDefault().getEnvironment().getField(fieldName);
+                    }
+
+                    if (field != null) {
+                        columns.add(new ObjectFieldColumn(field));
+                    }
+                }
+            }
+        }
+
+        return columns;
+    }
+
+    private static void writeHeaderRow(CsvWriter writer, List<Column> columns) throws IOException {
+        writer.writeRaw('\ufeff');
+
+        for (int i = 0, size = columns.size(); i < size; ++ i) {
+            if (i > 0) {
+                writer.writeRaw(CSV_DELIMITER);
+            }
+
+            writer.writeRaw(CSV_BOUNDARY);
+            columns.get(i).writeHeader(writer);
+            writer.writeRaw(CSV_BOUNDARY);
+        }
+
+        writer.writeRaw(CSV_LINE_TERMINATOR);
+    }
+
+    private static void writeDataRow(CsvWriter writer, List<Column> columns, Object item) throws IOException {
+        for (int i = 0, size = columns.size(); i < size; ++ i) {
+            if (i > 0) {
+                writer.writeRaw(CSV_DELIMITER);
+            }
+
+            writer.writeRaw(CSV_BOUNDARY);
+            columns.get(i).writeValue(writer, item);
+            writer.writeRaw(CSV_BOUNDARY);
+        }
+
+        writer.writeRaw(CSV_LINE_TERMINATOR);
+    }
+
+    // Writes one partition of the results, loading the data of the columns
+    // and resolving the labels of all the referenced objects at once.
+    private static String exportPartition(List<Column> allColumns, List<?> items) throws IOException {
+        List<Column> columns = new ArrayList<>();
+
+        for (Column column : allColumns) {
+            columns.add(column.prepare(items));
+        }
+
+        Set<UUID> referenceIds = new HashSet<>();
+
+        for (Object item : items) {
+            for (Column column : columns) {
+                column.collectReferenceIds(item, referenceIds);
+            }
+        }
+
+        Map<UUID, String> labels = new HashMap<>();
+
+        if (!referenceIds.isEmpty()) {
+            for (Object reference : Query
+                    .fromAll()
+                    .where("_id = ?", referenceIds)
+                    .resolveToReferenceOnly()
+                    .selectAll()) {
+
+                State referenceState = State.getInstance(reference);
+
+                labels.put(referenceState.getId(), referenceState.getLabel());
+            }
+        }
+
+        CsvWriter writer = new CsvWriter(labels);
+
+        for (Object item : items) {
+            writeDataRow(writer, columns, item);
+        }
+
+        return writer.toString();
+    }
+
+    /**
+     * Writes the given {@code partitions} to the given {@code output} in
+     * order, while up to twice the number of the given {@code executor}
+     * threads are exported ahead in parallel.
+     *
+     * @return Number of the items that were written.
+     */
+    static long writePartitions(
+            Iterator<? extends List<?>> partitions,
+            PartitionExporter exporter,
+            ExecutorService executor,
+            int threads,
+            Writer output,
+            LongConsumer progress,
+            BooleanSupplier shouldContinue)
+            throws IOException, InterruptedException, ExecutionException {
+
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        Deque<Integer> counts = new ArrayDeque<>();
+        long written = 0L;
+
+        while (shouldContinue.getAsBoolean() && (partitions.hasNext() || !pending.isEmpty())) {
+            while (pending.size() < threads * 2 && partitions.hasNext()) {
+                List<?> items = partitions.next();
+
+                pending.add(executor.submit(() -> exporter.export(items)));
+                counts.add(items.size());
+            }
+
+            output.write(pending.removeFirst().get());
+
+            written += counts.removeFirst();
+            progress.accept(written);
+        }
+
+        return written;
+    }
+
+    /**
+     * Exports one partition of the items to CSV.
+     */
+    @FunctionalInterface
+    interface PartitionExporter {
+
+        String export(List<?> items) throws IOException;
+    }
+
+    /**
+     * Returns the given {@code items} in the order of the given {@code ids},
+     * skipping the IDs that aren't among them.
+     */
+    static <T> List<T> sortByIds(Collection<T> items, List<?> ids, Function<T, UUID> idFunction) {
+        Map<UUID, T> itemsById = new HashMap<>();
+
+        for (T item : items) {
+            itemsById.put(idFunction.apply(item), item);
+        }
+
+        List<T> sorted = new ArrayList<>();
+
+        for (Object id : ids) {
+            T item = itemsById.get(id);
+
+            if (item != null) {
+                sorted.add(item);
+            }
+        }
+
+        return sorted;
+    }
+
+    // Reads the IDs of the results in partitions. If the item IDs are given,
+    // they're used as is, since the results among them are filtered when the
+    // items are read.
+    private Iterator<List<UUID>> readPartitions() {
+        SortedIdSet itemIds = getItemIds();
+
+        if (itemIds != null) {
+            return itemIds.chunks(PARTITION_SIZE).iterator();
+        }
+
+        Query<?> base = getQuery().clone().resolveToReferenceOnly();
+        List<Sorter> sorters = base.getSorters();
+
+        if (sorters.isEmpty() || (sorters.size() == 1 && isIdSorter(sorters.get(0)))) {
+            sorters.clear();
+            base.sortAscending("_id");
+            return readPartitionsById(base);
+
+        } else {
+            return readPartitionsInOrder(base);
+        }
+    }
+
+    private static boolean isIdSorter(Sorter sorter) {
+        List<Object> options = sorter.getOptions();
+
+        return Sorter.ASCENDING_OPERATOR.equals(sorter.getOperator())
+                && options != null
+                && !options.isEmpty()
+                && "_id".equals(options.get(0));
+    }
+
+    // Starts each partition after the last ID of the previous one.
+    private static Iterator<List<UUID>> readPartitionsById(Query<?> base) {
+        return new Iterator<List<UUID>>() {
+
+            private List<UUID> next;
+            private UUID lastId;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null && !done) {
+                    Query<?> query = base.clone();
+
+                    if (lastId != null) {
+                        query.and("_id > ?", lastId);
+                    }
+
+                    List<UUID> ids = new ArrayList<>();
+
+                    for (Object item : query.select(0, PARTITION_SIZE).getItems()) {
+                        ids.add(State.getInstance(item).getId());
+                    }
+
+                    done = ids.size() < PARTITION_SIZE;
+
+                    if (!ids.isEmpty()) {
+                        lastId = ids.get(ids.size() - 1);
+                        next = ids;
+                    }
+                }
+
+                return next != null;
+            }
+
+            @Override
+            public List<UUID> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                List<UUID> ids = next;
+
+                next = null;
+                return ids;
+            }
+        };
+    }
+
+    // Keeps the sort of the search, so the partitions are read from a single
+    // iterable.
+    private static Iterator<List<UUID>> readPartitionsInOrder(Query<?> base) {
+        Iterator<?> items = base.iterable(PARTITION_SIZE).iterator();
+
+        return new Iterator<List<UUID>>() {
+
+            @Override
+            public boolean hasNext() {
+                return items.hasNext();
+            }
+
+            @Override
+            public List<UUID> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                List<UUID> ids = new ArrayList<>();
+
+                while (ids.size() < PARTITION_SIZE && items.hasNext()) {
+                    ids.add(State.getInstance(items.next()).getId());
+                }
+
+                return ids;
+            }
+        };
+    }
+
+    // Reads the items in a partition in the order of its IDs.
+    private List<?> readItems(List<?> ids) {
+        Query<?> query = getQuery().clone();
+
+        query.getSorters().clear();
+
+        return sortByIds(
+                query.and("_id = ?", ids).selectAll(),
+                ids,
+                item -> State.getInstance(item).getId());
+    }
+
+    // Counts the item IDs if they're given, so that the count matches the
+    // progress, which is based on the partitions.
+    private long countItems() {
+        SortedIdSet itemIds = getItemIds();
+
+        return itemIds != null ? itemIds.size() : getQuery().count();
+    }
+
+    // Finds the storage for the exported file, so that it can be
+    // downloaded from any server.
+    private static String findStorage() {
+        String storage = Settings.getOrDefault(String.class, STORAGE_SETTING, Settings.get(String.class, StorageItem.DEFAULT_STORAGE_SETTING));
+
+        if (ObjectUtils.isBlank(storage)) {
+            throw new IllegalStateException(String.format(
+                    "Exporting requires a storage! Set [%s] or [%s].",
+                    STORAGE_SETTING,
+                    StorageItem.DEFAULT_STORAGE_SETTING));
+        }
+
+        return storage;
+    }
+
+    // Saves the exported file to the storage.
+    private void storeFile(String storage, Path tempFile) throws IOException {
+        StorageItem item = StorageItem.Static.createIn(storage);
+
+        item.setPath("exports/" + getId() + "/" + getFileName());
+        item.setContentType("application/gzip");
+
+        try (InputStream input = Files.newInputStream(tempFile)) {
+            item.setData(input);
+            item.save();
+        }
+
+        setFileSize(Files.size(tempFile));
+        Files.deleteIfExists(tempFile);
+        setFile(item);
+    }
+
+    private class ExportContentTask extends Task {
+
+        public ExportContentTask() {
+            super("Export Content", "");
+        }
+
+        @Override
+        protected void doTask() {
+            int threads = Math.max(Settings.getOrDefault(int.class, THREADS_SETTING, DEFAULT_THREADS), 1);
+            AtomicInteger threadCount = new AtomicInteger();
+            ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "Export Content Worker " + threadCount.incrementAndGet());
+
+                thread.setDaemon(true);
+                return thread;
+            });
+
+            Path tempFile = null;
+
+            try {
+                String storage = findStorage();
+                List<Column> columns = createColumns();
+                long total = countItems();
+
+                setCount(total);
+                renewLease();
+                save();
+
+                tempFile = Files.createTempFile("cms-export-", ".csv.gz");
+
+                try (Writer output = new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(tempFile)), StandardCharsets.UTF_8)) {
+                    CsvWriter header = new CsvWriter(new HashMap<>());
+
+                    writeHeaderRow(header, columns);
+                    output.write(header.toString());
+
+                    writePartitions(
+                            readPartitions(),
+                            ids -> exportPartition(columns, readItems(ids)),
+                            executor,
+                            threads,
+                            output,
+                            written -> {
+                                setProgress(written);
+                                renewLease();
+                                save();
+                            },
+                            this::shouldContinue);
+                }
+
+                if (shouldContinue()) {
+                    storeFile(storage, tempFile);
+                    tempFile = null;
+                }
+
+            } catch (ExecutionException error) {
+                Throwable cause = error.getCause();
+
+                LOGGER.warn("Can't export content!", cause);
+                setError(cause.getMessage());
+
+            } catch (IOException | RuntimeException error) {
+                LOGGER.warn("Can't export content!", error);
+                setError(error.getMessage());
+
+            } catch (InterruptedException error) {
+                Thread.currentThread().interrupt();
+                setError(error.getMessage());
+
+            } finally {
+                executor.shutdownNow();
+
+                if (tempFile != null) {
+                    try {
+                        Files.deleteIfExists(tempFile);
+
+                    } catch (IOException error) {
+                        LOGGER.debug("Can't delete [{}]!", tempFile);
+                    }
+                }
+
+                setFinishDate(new Date());
+                save();
+            }
+        }
+    }
+
+    private interface Column {
+
+        void writeHeader(CsvWriter writer) throws IOException;
+
+        void writeValue(CsvWriter writer, Object item) throws IOException;
+
+        // Returns the column to use for the given partition of the items,
+        // which isn't shared with the other threads.
+        default Column prepare(List<?> items) {
+            return this;
+        }
+
+        default void collectReferenceIds(Object item, Set<UUID> referenceIds) {
+        }
+    }
+
+    private static class SearchResultFieldColumn implements Column {
+
+        private final SearchResultField field;
+        private final Map<Object, String> texts;
+
+        public SearchResultFieldColumn(SearchResultField field) {
+            this(field, null);
+        }
+
+        private SearchResultFieldColumn(SearchResultField field, Map<Object, String> texts) {
+            this.field = field;
+            this.texts = texts;
+        }
+
+        @Override
+        public void writeHeader(CsvWriter writer) throws IOException {
+            writer.writeRaw(field.createHeaderCellText());
+        }
+
+        @Override
+        public void writeValue(CsvWriter writer, Object item) throws IOException {
+            String text = texts != null ? texts.get(item) : null;
+
+            writer.writeRaw(text != null ? text : field.createDataCellText(item));
+        }
+
+        @Override
+        public Column prepare(List<?> items) {
+            Map<Object, String> texts = new IdentityHashMap<>();
+            List<String> itemTexts = field.createDataCellTexts(items);
+
+            for (int i = 0, size = items.size(); i < size; ++ i) {
+                texts.put(items.get(i), itemTexts.get(i));
+            }
+
+            return new SearchResultFieldColumn(field, texts);
+        }
+    }
+
+    private static class ObjectFieldColumn implements Column {
+
+        private final ObjectField field;
+        private final String fieldName;
+
+        public ObjectFieldColumn(ObjectField field) {
+            this.field = field;
+            this.fieldName = field.getInternalName();
+        }
+
+        @Override
+        public void writeHeader(CsvWriter writer) throws IOException {
+            writer.writeCsvItem(field.getDisplayName());
+        }
+
+        @Override
+        public void writeValue(CsvWriter writer, Object item) throws IOException {
+            State itemState = State.getInstance(item);
+
+            if ("cms.directory.paths".equals(fieldName)) {
+                for (Iterator<Directory.Path> i = itemState.as(Directory.ObjectModification.class).getPaths().iterator(); i.hasNext();) {
+                    Directory.Path p = i.next();
+                    String path = p.getPath();
+
+                    writer.writeCsvItem(path);
+                    writer.writeHtml(" (");
+                    writer.writeCsvItem(p.getType());
+                    writer.writeHtml(")");
+
+                    if (i.hasNext()) {
+                        writer.writeRaw(VALUE_DELIMITER);
+                    }
+                }
+
+            } else {
+                for (Iterator<Object> i = CollectionUtils.recursiveIterable(itemState.getByPath(fieldName)).iterator(); i.hasNext();) {
+                    Object value = i.next();
+                    writer.writeCsvItem(value);
+                    if (i.hasNext()) {
+                        writer.writeRaw(VALUE_DELIMITER);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void collectReferenceIds(Object item, Set<UUID> referenceIds) {
+            for (Object value : CollectionUtils.recursiveIterable(State.getInstance(item).getByPath(fieldName))) {
+                if (value instanceof Recordable) {
+                    referenceIds.add(((Recordable) value).getState().getId());
+                }
+            }
+        }
+    }
+
+    private static class CsvWriter extends HtmlWriter {
+
+        private final StringWriter output;
+        private final StringWriter itemString = new StringWriter();
+        private final HtmlWriter itemWriter = new HtmlWriter(itemString);
+
+        public CsvWriter(Map<UUID, String> labels) {
+            this(new StringWriter(), labels);
+        }
+
+        private CsvWriter(StringWriter output, Map<UUID, String> labels) {
+            super(output);
+
+            this.output = output;
+
+            itemWriter.putOverride(Recordable.class, (HtmlWriter writer, Recordable object) -> {
+                State state = object.getState();
+                String label = labels.get(state.getId());
+
+                writer.writeHtml(label != null ? label : state.getLabel());
+            });
+
+            // Override Metric fields to output the total sum
+            itemWriter.putOverride(Metric.class, (HtmlWriter writer, Metric object) ->
+                            writer.write(Double.toString(object.getSum()))
+            );
+
+            itemWriter.putOverride(StorageItem.class, (HtmlWriter writer, StorageItem storageItem) ->
+                            writer.write(storageItem.getPublicUrl())
+            );
+        }
+
+        public void writeCsvItem(Object item) throws IOException {
+            itemString.getBuffer().setLength(0);
+            itemWriter.writeObject(item);
+            itemWriter.flush();
+
+            write(itemString.toString().replaceAll(CSV_BOUNDARY.toString(), CSV_BOUNDARY.toString() + CSV_BOUNDARY));
+        }
+
+        @Override
+        public String toString() {
+            return output.toString();
+        }
+    }
+}
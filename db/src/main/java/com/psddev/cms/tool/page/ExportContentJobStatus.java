@@ -0,0 +1,231 @@
+package com.psddev.cms.tool.page;
+
+import com.google.common.collect.ImmutableMap;
+import com.psddev.cms.tool.PageServlet;
+import com.psddev.cms.tool.ToolPageContext;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.RoutingFilter;
+import com.psddev.dari.util.StorageItem;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Date;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shows the progress of an {@link ExportContentJob} and downloads the
+ * exported file once it's finished.
+ *
+ * <p>The file is streamed from its storage through this page, so that
+ * only the user that submitted the job can download it, and supports
+ * single byte range requests, so that interrupted downloads can be
+ * resumed.</p>
+ */
+@RoutingFilter.Path(application = "cms", value = ExportContentJobStatus.PATH)
+public class ExportContentJobStatus extends PageServlet {
+
+    public static final String PATH = "/exportContentJobStatus";
+
+    private static final long serialVersionUID = 1L;
+    private static final Pattern RANGE_PATTERN = Pattern.compile("^bytes=(\\d*)-(\\d*)$");
+
+    @Override
+    protected String getPermissionId() {
+        return null;
+    }
+
+    @Override
+    protected void doService(ToolPageContext page) throws IOException, ServletException {
+        ExportContentJob job = Query
+                .from(ExportContentJob.class)
+                .where("_id = ?", page.param(UUID.class, "id"))
+                .first();
+
+        if (job == null
+                || page.getUser() == null
+                || !page.getUser().equals(job.getSubmitUser())) {
+
+            page.getResponse().sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        job.failIfOrphaned();
+
+        if (page.param(boolean.class, "download") && job.getFinishDate() != null && job.getError() == null) {
+            download(page, job);
+            return;
+        }
+
+        page.writeHeader();
+        {
+            page.writeStart("div", "class", "widget");
+            {
+                page.writeStart("h1");
+                    page.writeHtml(page.localize(ExportContentJobStatus.class, "title"));
+                page.writeEnd();
+
+                Date finishDate = job.getFinishDate();
+
+                if (finishDate == null) {
+                    page.writeStart("div", "class", "message message-warning");
+                    page.writeHtml(page.localize(ExportContentJobStatus.class, "message.running"));
+                    page.writeHtml(' ');
+                    writeProgress(page, job);
+                    page.writeEnd();
+
+                    page.writeStart("script", "type", "text/javascript");
+                    {
+                        page.writeRaw("setTimeout(function() {");
+                        page.writeRaw("window.location.reload();");
+                        page.writeRaw("}, 5000);");
+                    }
+                    page.writeEnd();
+
+                } else if (job.getError() != null) {
+                    page.writeStart("div", "class", "message message-error");
+                    page.writeHtml(page.localize(ExportContentJobStatus.class, "message.error"));
+                    page.writeHtml(' ');
+                    page.writeHtml(job.getError());
+                    page.writeEnd();
+
+                } else {
+                    page.writeStart("div", "class", "message message-success");
+                    page.writeHtml(page.localize(ExportContentJobStatus.class, "message.finished"));
+                    page.writeHtml(' ');
+                    writeProgress(page, job);
+                    page.writeEnd();
+
+                    page.writeStart("p");
+                        page.writeStart("a",
+                                "class", "button icon icon-action-download",
+                                "href", page.url("", "download", true));
+                            page.writeHtml(page.localize(ExportContentJobStatus.class, "action.download"));
+                        page.writeEnd();
+                    page.writeEnd();
+                }
+            }
+            page.writeEnd();
+        }
+        page.writeFooter();
+    }
+
+    private void writeProgress(ToolPageContext page, ExportContentJob job) throws IOException {
+        page.writeHtml(
+                page.localize(
+                        ExportContentJobStatus.class,
+                        ImmutableMap.of(
+                                "progressCount", job.getProgress(),
+                                "totalCount", job.getCount()),
+                        "message.progress"));
+    }
+
+    private void download(ToolPageContext page, ExportContentJob job) throws IOException {
+        HttpServletResponse response = page.getResponse();
+        StorageItem file = job.getFile();
+
+        if (file == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = job.getFileSize();
+        long[] range = parseRange(page.getRequest().getHeader("Range"), length);
+
+        if (range != null && range.length == 0) {
+            response.setHeader("Content-Range", "bytes */" + length);
+            response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        long start = range != null ? range[0] : 0L;
+        long end = range != null ? range[1] : length - 1;
+        long remaining = end - start + 1;
+
+        response.setHeader("Accept-Ranges", "bytes");
+        response.setContentType("application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=" + job.getFileName());
+
+        if (range != null) {
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        }
+
+        response.setHeader("Content-Length", String.valueOf(remaining));
+
+        try (InputStream input = file.getData()) {
+            for (long skipped = 0L; skipped < start;) {
+                long skip = input.skip(start - skipped);
+
+                if (skip <= 0) {
+                    break;
+                }
+
+                skipped += skip;
+            }
+
+            OutputStream output = response.getOutputStream();
+            byte[] buffer = new byte[8192];
+
+            while (remaining > 0) {
+                int read = input.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+
+                if (read < 0) {
+                    break;
+                }
+
+                output.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    /**
+     * Parses the given single byte {@code range} header against a file of
+     * the given {@code length}.
+     *
+     * @param range May be {@code null}.
+     * @return {@code null} if the whole file should be sent, an empty array
+     *         if the range can't be satisfied, or the first and the last
+     *         byte positions, inclusive.
+     */
+    static long[] parseRange(String range, long length) {
+        if (ObjectUtils.isBlank(range)) {
+            return null;
+        }
+
+        Matcher rangeMatcher = RANGE_PATTERN.matcher(range.trim());
+
+        if (!rangeMatcher.matches() || (rangeMatcher.group(1).isEmpty() && rangeMatcher.group(2).isEmpty())) {
+            return null;
+        }
+
+        String first = rangeMatcher.group(1);
+        String last = rangeMatcher.group(2);
+        long start;
+        long end = length - 1;
+
+        try {
+            if (first.isEmpty()) {
+                start = Math.max(length - Long.parseLong(last), 0L);
+
+            } else {
+                start = Long.parseLong(first);
+
+                if (!last.isEmpty()) {
+                    end = Math.min(Long.parseLong(last), length - 1);
+                }
+            }
+
+        } catch (NumberFormatException error) {
+            return null;
+        }
+
+        return start > end ? new long[0] : new long[] { start, end };
+    }
+}
@@ -1,16 +1,20 @@
 package com.psddev.cms.tool.page;
 
-import java.awt.Color;
-import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.Hashtable;
+import java.util.concurrent.ExecutionException;
 
 import javax.imageio.ImageIO;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.zxing.BarcodeFormat;
 import com.google.zxing.EncodeHintType;
 import com.google.zxing.WriterException;
@@ -19,12 +23,26 @@ import com.google.zxing.qrcode.QRCodeWriter;
 import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
 import com.psddev.cms.tool.PageServlet;
 import com.psddev.cms.tool.ToolPageContext;
+import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.RoutingFilter;
+import com.psddev.dari.util.Settings;
+import com.psddev.dari.util.StringUtils;
 
 @RoutingFilter.Path(application = "cms", value = "qrCode")
 @SuppressWarnings("serial")
 public class QrCode extends PageServlet {
 
+    public static final String CACHE_SIZE_SETTING = "cms/tool/qrCodeCacheSize";
+
+    private static final int MAXIMUM_SIZE = 2000;
+    private static final long MAX_AGE = 86400L;
+
+    private static final Cache<String, Output> OUTPUTS = CacheBuilder
+            .newBuilder()
+            .maximumWeight(Settings.getOrDefault(long.class, CACHE_SIZE_SETTING, 4L * 1024L * 1024L))
+            .<String, Output>weigher((key, output) -> key.length() * 2 + output.bytes.length)
+            .build();
+
     @Override
     protected String getPermissionId() {
         return null;
@@ -32,42 +50,139 @@ public class QrCode extends PageServlet {
 
     @Override
     protected void doService(ToolPageContext page) throws IOException, ServletException {
+        String data = page.param(String.class, "data");
+
+        if (ObjectUtils.isBlank(data)) {
+            page.getResponse().sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+
+        int size = Math.max(1, Math.min(MAXIMUM_SIZE, page.paramOrDefault(int.class, "size", 200)));
+        ErrorCorrectionLevel level;
+
+        try {
+            level = ErrorCorrectionLevel.valueOf(page.paramOrDefault(String.class, "errorCorrection", "L"));
+
+        } catch (IllegalArgumentException error) {
+            level = ErrorCorrectionLevel.L;
+        }
+
+        boolean svg = "svg".equals(page.param(String.class, "format"));
+        String key = (svg ? "svg" : "png") + "/" + size + "/" + level + "/" + data;
+        ErrorCorrectionLevel finalLevel = level;
+        Output output;
+
+        try {
+            output = OUTPUTS.get(key, () -> svg ? createSvg(data, size, finalLevel) : createPng(data, size, finalLevel));
+
+        } catch (ExecutionException error) {
+            Throwable cause = error.getCause();
+
+            throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+        }
+
+        HttpServletResponse response = page.getResponse();
+
+        // Private since the data may be sensitive (e.g. TFA secret keys).
+        response.setHeader("Cache-Control", "private, max-age=" + MAX_AGE);
+        response.setHeader("ETag", output.etag);
+
+        if (output.etag.equals(page.getRequest().getHeader("If-None-Match"))) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        ServletOutputStream stream = response.getOutputStream();
+
+        response.setContentType(output.contentType);
+        response.setContentLength(output.bytes.length);
+        stream.write(output.bytes);
+        stream.flush();
+    }
+
+    static BitMatrix encode(String data, int size, ErrorCorrectionLevel level) throws IOException {
+        Hashtable<EncodeHintType, ErrorCorrectionLevel> hintMap = new Hashtable<EncodeHintType, ErrorCorrectionLevel>();
+
+        hintMap.put(EncodeHintType.ERROR_CORRECTION, level);
+
         try {
-            String data = page.param(String.class, "data");
-            int size = page.paramOrDefault(int.class, "size", 200);
-            Hashtable<EncodeHintType, ErrorCorrectionLevel> hintMap = new Hashtable<EncodeHintType, ErrorCorrectionLevel>();
+            return new QRCodeWriter().encode(data, BarcodeFormat.QR_CODE, size, size, hintMap);
+
+        } catch (WriterException error) {
+            throw new IOException(error);
+        }
+    }
 
-            hintMap.put(EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.L);
+    // Writes the matrix straight into a packed 1-bit raster where 0 is black
+    // and 1 is white, instead of painting each module through Graphics2D.
+    static Output createPng(String data, int size, ErrorCorrectionLevel level) throws IOException {
+        BitMatrix matrix = encode(data, size, level);
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_BINARY);
+        byte[] pixels = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int stride = (width + 7) / 8;
 
-            QRCodeWriter writer = new QRCodeWriter();
-            BitMatrix matrix = writer.encode(data, BarcodeFormat.QR_CODE, size, size, hintMap);
-            BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; ++ y) {
+            int offset = y * stride;
 
-            image.createGraphics();
+            for (int x = 0; x < width; ++ x) {
+                if (!matrix.get(x, y)) {
+                    pixels[offset + (x >> 3)] |= 0x80 >> (x & 7);
+                }
+            }
+        }
 
-            Graphics2D graphics = (Graphics2D) image.getGraphics();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
 
-            graphics.setColor(Color.WHITE);
-            graphics.fillRect(0, 0, size, size);
-            graphics.setColor(Color.BLACK);
+        ImageIO.write(image, "png", bytes);
 
-            for (int i = 0; i < size; ++ i) {
-                for (int j = 0; j < size; ++ j) {
-                    if (matrix.get(i, j)) {
-                        graphics.fillRect(i, j, 1, 1);
+        return new Output("image/png", bytes.toByteArray());
+    }
+
+    // Encodes at module resolution and lets the browser scale it.
+    static Output createSvg(String data, int size, ErrorCorrectionLevel level) throws IOException {
+        BitMatrix matrix = encode(data, 0, level);
+        int width = matrix.getWidth();
+        int height = matrix.getHeight();
+        StringBuilder svg = new StringBuilder();
+
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" shape-rendering=\"crispEdges\"");
+        svg.append(" width=\"").append(size).append("\" height=\"").append(size).append('"');
+        svg.append(" viewBox=\"0 0 ").append(width).append(' ').append(height).append("\">");
+        svg.append("<rect width=\"100%\" height=\"100%\" fill=\"#fff\"/>");
+        svg.append("<path fill=\"#000\" d=\"");
+
+        for (int y = 0; y < height; ++ y) {
+            for (int x = 0; x < width; ++ x) {
+                if (matrix.get(x, y)) {
+                    int start = x;
+
+                    while (x + 1 < width && matrix.get(x + 1, y)) {
+                        ++ x;
                     }
+
+                    svg.append('M').append(start).append(' ').append(y);
+                    svg.append('h').append(x - start + 1).append("v1h-").append(x - start + 1).append('z');
                 }
             }
+        }
 
-            HttpServletResponse response = page.getResponse();
-            ServletOutputStream output = response.getOutputStream();
+        svg.append("\"/></svg>");
 
-            response.setContentType("image/png");
-            ImageIO.write(image, "png", output);
-            output.flush();
+        return new Output("image/svg+xml", svg.toString().getBytes(StandardCharsets.UTF_8));
+    }
 
-        } catch (WriterException error) {
-            throw new IOException(error);
+    static final class Output {
+
+        public final String contentType;
+        public final byte[] bytes;
+        public final String etag;
+
+        public Output(String contentType, byte[] bytes) {
+            this.contentType = contentType;
+            this.bytes = bytes;
+            this.etag = "\"" + StringUtils.hex(StringUtils.md5(contentType + new String(bytes, StandardCharsets.ISO_8859_1))) + "\"";
         }
     }
 }
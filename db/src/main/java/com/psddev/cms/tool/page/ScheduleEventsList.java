@@ -1,5 +1,6 @@
 package com.psddev.cms.tool.page;
 
+import com.psddev.cms.db.Draft;
 import com.psddev.cms.db.Schedule;
 import com.psddev.cms.db.Site;
 import com.psddev.cms.tool.PageServlet;
@@ -12,6 +13,8 @@ import javax.servlet.ServletException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 @RoutingFilter.Path(application = "cms", value = "/scheduleEventsList")
 public class ScheduleEventsList extends PageServlet {
@@ -53,14 +56,16 @@ public class ScheduleEventsList extends PageServlet {
             page.writeEnd();
 
             page.writeStart("ul");
+                Map<UUID, List<Draft>> draftsBySchedule = Schedule.Static.findDraftsBySchedule(schedules);
+
                 for (Schedule schedule : schedules) {
-                    List<Object> drafts = Query.fromAll().where("com.psddev.cms.db.Draft/schedule = ?", schedule).selectAll();
+                    List<Draft> drafts = draftsBySchedule.get(schedule.getId());
 
-                    if (drafts.isEmpty()) {
+                    if (drafts == null) {
                         continue;
                     }
 
-                    for (Object draft : drafts) {
+                    for (Draft draft : drafts) {
                         page.writeStart("li");
                             page.writeStart("a",
                                     "href", page.objectUrl("/content/edit.jsp", draft),
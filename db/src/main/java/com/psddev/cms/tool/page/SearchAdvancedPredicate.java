@@ -13,6 +13,7 @@ import java.util.TreeSet;
 import java.util.UUID;
 
 import com.psddev.cms.db.Taxon;
+import com.psddev.cms.db.TaxonomyIndex;
 import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.tool.Search;
 import com.psddev.cms.tool.ToolPageContext;
@@ -644,15 +645,16 @@ public abstract class SearchAdvancedPredicate extends Record implements Singleto
                         Set<UUID> values = new HashSet<UUID>();
 
                         if (top != null) {
-                            values.add(top.getState().getId());
+                            UUID topId = top.getState().getId();
+                            TaxonomyIndex index = TaxonomyIndex.getInstance(top.getClass());
+
+                            values.add(topId);
 
                             if (taxonOption.equals(TaxonOption.D)) {
-                                addChildren(values, top);
+                                values.addAll(index.getDescendantIds(topId));
 
                             } else {
-                                for (Taxon c : top.getChildren()) {
-                                    values.add(c.getState().getId());
-                                }
+                                values.addAll(index.getChildIds(topId));
                             }
                         }
 
@@ -668,13 +670,6 @@ public abstract class SearchAdvancedPredicate extends Record implements Singleto
                                 page.params(String.class, valueParam));
                     }
                 }
-
-                private void addChildren(Set<UUID> values, Taxon parent) {
-                    for (Taxon c : parent.getChildren()) {
-                        values.add(c.getState().getId());
-                        addChildren(values, c);
-                    }
-                }
             },
 
             N("Is Not") {
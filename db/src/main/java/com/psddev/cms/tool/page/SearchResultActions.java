@@ -2,12 +2,10 @@ package com.psddev.cms.tool.page;
 
 import java.io.IOException;
 import java.lang.reflect.Modifier;
-import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -44,6 +42,7 @@ public class SearchResultActions extends PageServlet {
 
     public static final String ACTION_ADD = "item-add";
     public static final String ACTION_REMOVE = "item-remove";
+    public static final String ACTION_ADD_ALL = "all-add";
     public static final String ACTION_CLEAR = "clear";
     public static final String ACTION_ACTIVATE = "activate";
 
@@ -74,15 +73,32 @@ public class SearchResultActions extends PageServlet {
         UUID selectionId = page.param(UUID.class, SELECTION_ID_PARAMETER);
 
         if (ACTION_ADD.equals(action)) {
-            for (UUID item : page.params(UUID.class, ITEM_ID_PARAMETER)) {
-                currentSelection.addItem(item);
-            }
+            currentSelection.addItems(page.params(UUID.class, ITEM_ID_PARAMETER));
 
         } else if (ACTION_REMOVE.equals(action)) {
-            for (UUID item : page.params(UUID.class, ITEM_ID_PARAMETER)) {
-                currentSelection.removeItem(item);
+            currentSelection.removeItems(page.params(UUID.class, ITEM_ID_PARAMETER));
+
+        } else if (ACTION_ADD_ALL.equals(action)) {
+
+            // add all search results, not just the ones on the current page
+            currentSelection.addItems(search.toQuery(page.getSite()));
+
+            page.writeStart("div", "id", page.createId());
+            page.writeEnd();
+
+            if (currentSelection.isFull()) {
+                page.writeStart("div", "class", "message message-warning");
+                    page.writeHtml(page.localize(
+                            SearchResultActions.class,
+                            ImmutableMap.of("size", SearchResultSelection.MAXIMUM_SIZE),
+                            "message.full"));
+                page.writeEnd();
             }
 
+            page.writeStart("script", "type", "text/javascript");
+                page.writeRaw("$('#" + page.getId() + "').closest('.searchResult').find('.searchResult-list :checkbox').prop('checked', true);");
+            page.writeEnd();
+
         } else if (ACTION_CLEAR.equals(action) && user.isSavedSearchResultSelection(currentSelection)) {
 
             // delete the saved selection
@@ -172,6 +188,14 @@ public class SearchResultActions extends PageServlet {
             writeSelectionPreview(page, currentSelection);
         }
 
+        page.writeStart("div", "class", "searchResult-action-simple");
+            page.writeStart("a",
+                    "class", "button",
+                    "href", page.url("", ACTION_PARAMETER, ACTION_ADD_ALL, SELECTION_ID_PARAMETER, null));
+                page.writeHtml(page.localize(SearchResultActions.class, "action.selectAll"));
+            page.writeEnd();
+        page.writeEnd();
+
         page.writeStart("a",
                 "class", "reload",
                 "href", new UrlBuilder(page.getRequest())
@@ -224,12 +248,10 @@ public class SearchResultActions extends PageServlet {
 
         Map<Object, StorageItem> previews = new LinkedHashMap<>();
 
-        List<Object> items = new ArrayList<>(selection.createItemsQuery().selectAll());
-
         int count = 0;
 
         // store up to the first 100 previewable States with state.getPreview() != null
-        for (ListIterator<Object> i = items.listIterator(); i.hasNext() && count < 100;) {
+        for (Iterator<Object> i = selection.iterateItems().iterator(); i.hasNext() && count < 100;) {
 
             Object item = i.next();
 
@@ -240,13 +262,15 @@ public class SearchResultActions extends PageServlet {
                 String contentType = preview.getContentType();
 
                 if (contentType != null && contentType.startsWith("image/")) {
-                    i.remove();
                     previews.put(item, preview);
                     count ++;
                 }
             }
         }
 
+        // the number of items not shown in the preview thumbnails.
+        int remaining = Math.max(selection.size() - count, 0);
+
         // render the preview thumbnails, max height 30, dynamic resize
         for (Map.Entry<Object, StorageItem> entry : previews.entrySet()) {
 
@@ -268,19 +292,19 @@ public class SearchResultActions extends PageServlet {
         page.writeEnd(); // end .searchResult-selectionPreview
 
         // write out the number of items not shown in the preview thumbnails.
-        if (items.size() > 0) {
+        if (remaining > 0) {
             page.writeStart("p");
 
             if (count > 0) {
                 page.writeHtml(page.localize(
                         SearchResultActions.class,
-                        ImmutableMap.of("size", items.size()),
+                        ImmutableMap.of("size", remaining),
                         "message.moreItemsSelected"));
 
             } else {
                 page.writeHtml(page.localize(
                         SearchResultActions.class,
-                        ImmutableMap.of("size", items.size()),
+                        ImmutableMap.of("size", remaining),
                         "message.itemsSelected"));
             }
 
@@ -17,7 +17,6 @@ import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.Database;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
-import com.psddev.dari.util.ClassFinder;
 import com.psddev.dari.util.CompactMap;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.RoutingFilter;
@@ -169,7 +168,7 @@ public class SearchResultFields extends PageServlet {
             }
         }
 
-        for (Class<? extends SearchResultField> f : ClassFinder.findConcreteClasses(SearchResultField.class)) {
+        for (Class<? extends SearchResultField> f : SearchResultField.findClasses()) {
             SearchResultField field = TypeDefinition.getInstance(f).newInstance();
 
             if (field.isSupported(type)) {
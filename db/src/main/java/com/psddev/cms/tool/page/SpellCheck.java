@@ -39,9 +39,11 @@ public class SpellCheck extends PageServlet {
                 List<String> words = page.params(String.class, "word");
 
                 if (!ObjectUtils.isBlank(words)) {
+                    Map<String, List<String>> results = spellChecker.check(locale, words);
+
                     response.put("results", words
                             .stream()
-                            .map(word -> spellChecker.suggest(locale, word))
+                            .map(results::get)
                             .collect(Collectors.toList()));
                 }
             }
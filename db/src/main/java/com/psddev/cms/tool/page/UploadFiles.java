@@ -284,11 +284,11 @@ public class UploadFiles extends PageServlet {
                     } else {
 
                         SearchResultSelection selection = page.getUser().resetCurrentSelection();
-                        newObjectIds.forEach(selection::addItem);
+                        selection.addItems(newObjectIds);
                         database.commitWrites();
 
                         Search search = new Search();
-                        search.setAdditionalPredicate(selection.createItemsQuery().getPredicate().toString());
+                        search.setSelectionId(selection.getId());
                         search.setLimit(10);
 
                         page.writeStart("script", "type", "text/javascript");
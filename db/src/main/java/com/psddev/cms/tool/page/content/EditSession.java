@@ -0,0 +1,240 @@
+package com.psddev.cms.tool.page.content;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.psddev.dari.util.ObjectUtils;
+import com.psddev.dari.util.Settings;
+
+/**
+ * Server-side state of a content edit form that lets the
+ * {@code contentState} requests only submit the inputs that changed since
+ * the previous request.
+ *
+ * <p>The first request from a form (identified by {@link #ID_PARAMETER})
+ * submits all inputs. Subsequent requests set {@link #DELTA_PARAMETER} and
+ * only submit the changed inputs, along with the names of the removed ones
+ * in {@link #REMOVED_PARAMETER}. If the session expired or was created on
+ * another server, the client must resubmit all inputs.</p>
+ *
+ * <p>This only reduces the size of the requests. The server still merges
+ * the changed inputs with the rest and processes the whole form on every
+ * request.</p>
+ *
+ * <p>The sessions are bounded by the total size of their inputs, in
+ * characters, using {@value #CACHE_SIZE_SETTING}.</p>
+ */
+public final class EditSession {
+
+    public static final String ID_PARAMETER = "_sid";
+    public static final String DELTA_PARAMETER = "_delta";
+    public static final String REMOVED_PARAMETER = "_dr";
+    public static final String CACHE_SIZE_SETTING = "cms/tool/editSessionCacheSize";
+
+    private static final Cache<String, EditSession> SESSIONS = CacheBuilder
+            .newBuilder()
+            .maximumWeight(Settings.getOrDefault(long.class, CACHE_SIZE_SETTING, 16L * 1024L * 1024L))
+            .<String, EditSession>weigher((key, session) -> key.length() + session.weight)
+            .expireAfterAccess(30, TimeUnit.MINUTES)
+            .build();
+
+    private final String key;
+    private Map<String, String[]> parameters = Collections.emptyMap();
+    private volatile int weight;
+    private String previewHash;
+
+    private EditSession(String key) {
+        this.key = key;
+    }
+
+    /**
+     * Creates the key for the session that belongs to the given
+     * {@code userId}, {@code objectId}, and {@code formId}.
+     *
+     * @param userId Can't be {@code null}.
+     * @param objectId May be {@code null} for new objects.
+     * @param formId Can't be blank.
+     * @return Never {@code null}.
+     */
+    public static String createKey(UUID userId, String objectId, String formId) {
+        Preconditions.checkNotNull(userId);
+        Preconditions.checkArgument(!ObjectUtils.isBlank(formId));
+
+        return userId + "/" + ObjectUtils.firstNonNull(objectId, "") + "/" + formId;
+    }
+
+    /**
+     * Finds the session associated with the given {@code key}.
+     *
+     * @param key Can't be {@code null}.
+     * @return {@code null} if not found.
+     */
+    public static EditSession find(String key) {
+        Preconditions.checkNotNull(key);
+
+        return SESSIONS.getIfPresent(key);
+    }
+
+    /**
+     * Finds or creates the session associated with the given {@code key}.
+     *
+     * @param key Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static EditSession findOrCreate(String key) {
+        Preconditions.checkNotNull(key);
+
+        try {
+            return SESSIONS.get(key, () -> new EditSession(key));
+
+        } catch (ExecutionException error) {
+            throw new IllegalStateException(error.getCause());
+        }
+    }
+
+    /**
+     * Returns {@code true} if the parameter with the given {@code name}
+     * only applies to a single request and shouldn't be kept in the
+     * session.
+     */
+    public static boolean isTransientParameter(String name) {
+        return name.startsWith("_dt")
+                || name.equals(ID_PARAMETER)
+                || name.equals(DELTA_PARAMETER)
+                || name.equals(REMOVED_PARAMETER)
+                || name.equals("idle");
+    }
+
+    /**
+     * Merges the given {@code submitted} parameters into this session.
+     *
+     * @param submitted Can't be {@code null}.
+     * @param delta If {@code false}, the submitted parameters replace all
+     *        the previous ones.
+     * @param removed Names of the parameters to remove. May be {@code null}.
+     * @return All parameters for the current request, including the
+     *         transient ones. Never {@code null}.
+     */
+    public synchronized Map<String, String[]> update(Map<String, String[]> submitted, boolean delta, Collection<String> removed) {
+        Preconditions.checkNotNull(submitted);
+
+        Map<String, String[]> kept = delta ? new LinkedHashMap<>(parameters) : new LinkedHashMap<>();
+
+        for (Map.Entry<String, String[]> entry : submitted.entrySet()) {
+            String name = entry.getKey();
+
+            if (!isTransientParameter(name)) {
+                kept.put(name, entry.getValue());
+            }
+        }
+
+        if (removed != null) {
+            kept.keySet().removeAll(removed);
+        }
+
+        parameters = Collections.unmodifiableMap(kept);
+
+        // The cache only weighs the sessions when they're put.
+        int newWeight = weigh(kept);
+
+        if (newWeight != weight) {
+            weight = newWeight;
+            SESSIONS.asMap().replace(key, this, this);
+        }
+
+        Map<String, String[]> all = new LinkedHashMap<>(kept);
+
+        for (Map.Entry<String, String[]> entry : submitted.entrySet()) {
+            if (isTransientParameter(entry.getKey())) {
+                all.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return Collections.unmodifiableMap(all);
+    }
+
+    private static int weigh(Map<String, String[]> parameters) {
+        long weight = 0L;
+
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            weight += entry.getKey().length();
+
+            String[] values = entry.getValue();
+
+            if (values != null) {
+                for (String value : values) {
+                    if (value != null) {
+                        weight += value.length();
+                    }
+                }
+            }
+        }
+
+        return (int) Math.min(weight, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Records the given preview values {@code hash}.
+     *
+     * @return {@code true} if it's different from the previous one.
+     */
+    public synchronized boolean updatePreviewHash(String hash) {
+        if (hash.equals(previewHash)) {
+            return false;
+
+        } else {
+            previewHash = hash;
+            return true;
+        }
+    }
+
+    /**
+     * Wraps the given {@code request} so that it returns the given
+     * {@code parameters} instead of its own.
+     *
+     * @param request Can't be {@code null}.
+     * @param parameters Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static HttpServletRequest wrapRequest(HttpServletRequest request, Map<String, String[]> parameters) {
+        Preconditions.checkNotNull(request);
+        Preconditions.checkNotNull(parameters);
+
+        return new HttpServletRequestWrapper(request) {
+
+            @Override
+            public String getParameter(String name) {
+                String[] values = parameters.get(name);
+
+                return values != null && values.length > 0 ? values[0] : null;
+            }
+
+            @Override
+            public Map<String, String[]> getParameterMap() {
+                return parameters;
+            }
+
+            @Override
+            public Enumeration<String> getParameterNames() {
+                return Collections.enumeration(parameters.keySet());
+            }
+
+            @Override
+            public String[] getParameterValues(String name) {
+                return parameters.get(name);
+            }
+        };
+    }
+}
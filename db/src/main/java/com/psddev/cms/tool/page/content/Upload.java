@@ -158,11 +158,11 @@ public class Upload extends PageServlet {
                     } else {
 
                         SearchResultSelection selection = page.getUser().resetCurrentSelection();
-                        newObjectIds.forEach(selection::addItem);
+                        selection.addItems(newObjectIds);
                         database.commitWrites();
 
                         Search search = new Search();
-                        search.setAdditionalPredicate(selection.createItemsQuery().getPredicate().toString());
+                        search.setSelectionId(selection.getId());
                         search.setLimit(10);
 
                         page.writeStart("script", "type", "text/javascript");
@@ -0,0 +1,59 @@
+package com.psddev.cms.tool.page.content;
+
+import java.util.concurrent.ExecutionException;
+
+import javax.el.ELContext;
+import javax.el.ExpressionFactory;
+import javax.el.ValueExpression;
+
+import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * Compiled EL value expressions, cached by their source so that the dynamic
+ * texts and placeholders on the content edit form aren't parsed on every
+ * {@code contentState} request.
+ *
+ * <p>The expressions are parsed using the first {@link ExpressionFactory}
+ * and {@link ELContext} that requests them, so they shouldn't rely on
+ * functions or variables mapped at parse time.</p>
+ */
+public final class ValueExpressionCache {
+
+    private static final Cache<String, ValueExpression> EXPRESSIONS = CacheBuilder
+            .newBuilder()
+            .maximumSize(1000)
+            .build();
+
+    private ValueExpressionCache() {
+    }
+
+    /**
+     * Returns the compiled form of the given {@code expression}.
+     *
+     * @param factory Can't be {@code null}.
+     * @param context Can't be {@code null}.
+     * @param expression Can't be {@code null}.
+     * @param expectedType Can't be {@code null}.
+     * @return Never {@code null}.
+     */
+    public static ValueExpression get(ExpressionFactory factory, ELContext context, String expression, Class<?> expectedType) {
+        Preconditions.checkNotNull(factory);
+        Preconditions.checkNotNull(context);
+        Preconditions.checkNotNull(expression);
+        Preconditions.checkNotNull(expectedType);
+
+        try {
+            return EXPRESSIONS.get(
+                    expectedType.getName() + "/" + expression,
+                    () -> factory.createValueExpression(context, expression, expectedType));
+
+        } catch (ExecutionException | UncheckedExecutionException error) {
+            Throwable cause = error.getCause();
+
+            throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+        }
+    }
+}
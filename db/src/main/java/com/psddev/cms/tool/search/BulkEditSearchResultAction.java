@@ -9,10 +9,8 @@ import com.psddev.cms.tool.CmsTool;
 import com.psddev.cms.tool.Search;
 import com.psddev.cms.tool.SearchResultAction;
 import com.psddev.cms.tool.SearchResultSelection;
-import com.psddev.cms.tool.SearchResultSelectionItem;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.ObjectType;
-import com.psddev.dari.db.Query;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.UrlBuilder;
 
@@ -29,24 +27,14 @@ public class BulkEditSearchResultAction implements SearchResultAction {
         UUID selectionId = null;
 
         if (selection != null) {
-            Set<UUID> itemIds = new HashSet<>();
-
-            for (SearchResultSelectionItem item : Query
-                    .from(SearchResultSelectionItem.class)
-                    .where("selectionId = ?", selection.getId())
-                    .selectAll()) {
-
-                itemIds.add(item.getItemId());
-            }
-
             Set<UUID> itemTypeIds = new HashSet<>();
 
-            for (Object item : Query
-                    .fromAll()
-                    .where("_id = ?", itemIds)
-                    .selectAll()) {
-
+            for (Object item : selection.iterateItems()) {
                 itemTypeIds.add(State.getInstance(item).getTypeId());
+
+                if (itemTypeIds.size() > 1) {
+                    break;
+                }
             }
 
             if (itemTypeIds.size() != 1) {
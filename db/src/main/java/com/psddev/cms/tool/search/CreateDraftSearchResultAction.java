@@ -12,7 +12,6 @@ import com.psddev.cms.tool.CmsTool;
 import com.psddev.cms.tool.Search;
 import com.psddev.cms.tool.SearchResultAction;
 import com.psddev.cms.tool.SearchResultSelection;
-import com.psddev.cms.tool.SearchResultSelectionItem;
 import com.psddev.cms.tool.SearchResultSelectionGeneratable;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.cms.tool.page.CreateDraft;
@@ -41,16 +40,11 @@ public class CreateDraftSearchResultAction implements SearchResultAction {
             return;
         }
 
-        Query<SearchResultSelectionItem> itemsQuery = Query
-                .from(SearchResultSelectionItem.class)
-                .where("selectionId = ?", selection.getId());
-
-        if (!itemsQuery.hasMoreThan(100)) {
+        if (selection.size() <= 100) {
 
             Set<ObjectType> itemTypes = new HashSet<>();
 
-            for (Object item : selection.createItemsQuery()
-                    .selectAll()) {
+            for (Object item : selection.iterateItems()) {
 
                 itemTypes.add(State.getInstance(item).getType());
             }
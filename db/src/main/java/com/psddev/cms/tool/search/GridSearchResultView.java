@@ -7,7 +7,7 @@ import java.util.List;
 
 import com.psddev.cms.db.Site;
 import com.psddev.cms.db.ToolUi;
-import com.psddev.cms.tool.CmsTool;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.cms.tool.Search;
 import com.psddev.dari.db.Database;
 import com.psddev.dari.db.ObjectType;
@@ -39,7 +39,7 @@ public class GridSearchResultView extends ListSearchResultView {
         ObjectType selectedType = search.getSelectedType();
 
         sortField = updateSort();
-        showSiteLabel = Query.from(CmsTool.class).first().isDisplaySiteInSearchResult()
+        showSiteLabel = CmsToolSnapshot.get().isDisplaySiteInSearchResult()
                 && Query.from(Site.class).hasMoreThan(0);
 
         if (selectedType != null) {
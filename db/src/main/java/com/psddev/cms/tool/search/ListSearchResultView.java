@@ -1,9 +1,9 @@
 package com.psddev.cms.tool.search;
 
 import java.io.IOException;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -27,18 +27,17 @@ import com.psddev.cms.db.Renderer;
 import com.psddev.cms.db.Site;
 import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.db.ToolUser;
-import com.psddev.cms.tool.CmsTool;
+import com.psddev.cms.tool.CmsToolSnapshot;
 import com.psddev.cms.tool.SearchResultField;
+import com.psddev.cms.tool.SearchResultSparklines;
 import com.psddev.dari.db.Database;
 import com.psddev.dari.db.Metric;
-import com.psddev.dari.db.MetricInterval;
 import com.psddev.dari.db.ObjectField;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Predicate;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.db.Recordable;
 import com.psddev.dari.db.State;
-import com.psddev.dari.util.ClassFinder;
 import com.psddev.dari.util.ObjectUtils;
 import com.psddev.dari.util.PaginatedResult;
 import com.psddev.dari.util.TypeDefinition;
@@ -47,13 +46,15 @@ public class ListSearchResultView extends AbstractSearchResultView {
 
     private static final String ATTRIBUTE_PREFIX = ListSearchResultView.class.getName() + ".";
     private static final String PREVIOUS_DATE_ATTRIBUTE = ATTRIBUTE_PREFIX + "previousDate";
-    private static final String MAX_SUM_ATTRIBUTE = ATTRIBUTE_PREFIX + ".maximumSum";
 
     protected ObjectField sortField;
     protected boolean showSiteLabel;
     protected boolean showTypeLabel;
     protected PaginatedResult<?> result;
 
+    private final Map<Class<?>, SearchResultField> searchResultFields = new HashMap<>();
+    private SearchResultSparklines sparklines;
+
     @Override
     public String getIconName() {
         return "list-ul";
@@ -69,7 +70,7 @@ public class ListSearchResultView extends AbstractSearchResultView {
         ObjectType selectedType = search.getSelectedType();
 
         sortField = updateSort();
-        showSiteLabel = Query.from(CmsTool.class).first().isDisplaySiteInSearchResult()
+        showSiteLabel = CmsToolSnapshot.get().isDisplaySiteInSearchResult()
                 && Query.from(Site.class).hasMoreThan(0);
 
         if (selectedType != null) {
@@ -183,6 +184,7 @@ public class ListSearchResultView extends AbstractSearchResultView {
 
         String selectAllUrl = page.cmsUrl("/searchResultActions",
                 "search", ObjectUtils.toJson(search.getState().getSimpleValues()));
+        List<SearchResultField> prefetchFields = new ArrayList<>();
 
         page.writeStart("table", "class", "searchResultTable links table-striped pageThumbnails");
             page.writeStart("thead");
@@ -236,13 +238,12 @@ public class ListSearchResultView extends AbstractSearchResultView {
                         List<String> fieldNames = user.getSearchResultFieldsByTypeId().get(selectedType != null ? selectedType.getId().toString() : "");
 
                         if (fieldNames == null) {
-                            for (Class<? extends SearchResultField> c : ClassFinder.Static.findClasses(SearchResultField.class)) {
-                                if (!c.isInterface() && !Modifier.isAbstract(c.getModifiers())) {
-                                    SearchResultField field = TypeDefinition.getInstance(c).newInstance();
+                            for (Class<? extends SearchResultField> c : SearchResultField.findClasses()) {
+                                SearchResultField field = getSearchResultField(c);
 
-                                    if (field.isDefault(selectedType) && !ObjectUtils.equals(sortField, field)) {
-                                        field.writeTableHeaderCellHtml(page);
-                                    }
+                                if (field.isDefault(selectedType) && !ObjectUtils.equals(sortField, field)) {
+                                    field.writeTableHeaderCellHtml(page);
+                                    prefetchFields.add(field);
                                 }
                             }
 
@@ -259,11 +260,11 @@ public class ListSearchResultView extends AbstractSearchResultView {
                                 Class<?> fieldNameClass = ObjectUtils.getClassByName(fieldName);
 
                                 if (fieldNameClass != null && SearchResultField.class.isAssignableFrom(fieldNameClass)) {
-                                    @SuppressWarnings("unchecked")
-                                    SearchResultField field = TypeDefinition.getInstance((Class<? extends SearchResultField>) fieldNameClass).newInstance();
+                                    SearchResultField field = getSearchResultField(fieldNameClass);
 
                                     if (field.isSupported(selectedType) && !ObjectUtils.equals(sortField, field)) {
                                         field.writeTableHeaderCellHtml(page);
+                                        prefetchFields.add(field);
                                     }
 
                                 } else {
@@ -286,8 +287,16 @@ public class ListSearchResultView extends AbstractSearchResultView {
                 page.writeEnd();
             page.writeEnd();
 
+            List<Object> rows = new ArrayList<>();
+
+            items.forEach(rows::add);
+
+            for (SearchResultField field : prefetchFields) {
+                field.prefetchData(page, rows);
+            }
+
             page.writeStart("tbody");
-                for (Object item : items) {
+                for (Object item : rows) {
                     State itemState = State.getInstance(item);
                     String permalink = itemState.as(Directory.ObjectModification.class).getPermalink();
                     Integer embedWidth = null;
@@ -369,83 +378,7 @@ public class ListSearchResultView extends AbstractSearchResultView {
 
                             page.writeStart("td");
                                 if (value instanceof Metric) {
-                                    page.writeStart("span", "style", page.cssString("white-space", "nowrap"));
-                                        Double maxSum = (Double) request.getAttribute(MAX_SUM_ATTRIBUTE);
-
-                                        if (maxSum == null) {
-                                            Object maxObject = search.toQuery(page.getSite()).sortDescending(sortFieldName).first();
-                                            maxSum = maxObject != null
-                                                    ? ((Metric) State.getInstance(maxObject).get(sortFieldName)).getSum()
-                                                    : 1.0;
-
-                                            request.setAttribute(MAX_SUM_ATTRIBUTE, maxSum);
-                                        }
-
-                                        Metric valueMetric = (Metric) value;
-                                        Map<DateTime, Double> sumEntries = valueMetric.groupSumByDate(
-                                                new MetricInterval.Daily(),
-                                                new DateTime().dayOfMonth().roundFloorCopy().minusDays(7),
-                                                null);
-
-                                        double sum = valueMetric.getSum();
-                                        long sumLong = (long) sum;
-
-                                        if (sumLong == sum) {
-                                            page.writeHtml(String.format("%,2d ", sumLong));
-
-                                        } else {
-                                            page.writeHtml(String.format("%,2.2f ", sum));
-                                        }
-
-                                        if (!sumEntries.isEmpty()) {
-                                            long minMillis = Long.MAX_VALUE;
-                                            long maxMillis = Long.MIN_VALUE;
-
-                                            for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
-                                                long sumMillis = sumEntry.getKey().getMillis();
-
-                                                if (sumMillis < minMillis) {
-                                                    minMillis = sumMillis;
-                                                }
-
-                                                if (sumMillis > maxMillis) {
-                                                    maxMillis = sumMillis;
-                                                }
-                                            }
-
-                                            double cumulativeSum = 0.0;
-                                            StringBuilder path = new StringBuilder();
-                                            double xRange = maxMillis - minMillis;
-                                            int width = 35;
-                                            int height = 18;
-
-                                            for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
-                                                cumulativeSum += sumEntry.getValue();
-
-                                                path.append('L');
-                                                path.append((sumEntry.getKey().getMillis() - minMillis) / xRange * width);
-                                                path.append(',');
-                                                path.append(height - cumulativeSum / maxSum * height);
-                                            }
-
-                                            path.setCharAt(0, 'M');
-
-                                            page.writeStart("svg",
-                                                    "xmlns", "http://www.w3.org/2000/svg",
-                                                    "width", width,
-                                                    "height", height,
-                                                    "style", page.cssString(
-                                                            "display", "inline-block",
-                                                            "vertical-align", "middle"));
-
-                                                page.writeStart("path",
-                                                        "fill", "none",
-                                                        "stroke", "#444444",
-                                                        "d", path.toString());
-                                                page.writeEnd();
-                                            page.writeEnd();
-                                        }
-                                    page.writeEnd();
+                                    getSparklines().writeHtml(page, item);
 
                                 } else if (value instanceof Recordable) {
                                     page.writeHtml(((Recordable) value).getState().getLabel());
@@ -470,13 +403,11 @@ public class ListSearchResultView extends AbstractSearchResultView {
                             ObjectType itemType = itemState.getType();
 
                             if (fieldNames == null) {
-                                for (Class<? extends SearchResultField> c : ClassFinder.Static.findClasses(SearchResultField.class)) {
-                                    if (!c.isInterface() && !Modifier.isAbstract(c.getModifiers())) {
-                                        SearchResultField field = TypeDefinition.getInstance(c).newInstance();
+                                for (Class<? extends SearchResultField> c : SearchResultField.findClasses()) {
+                                    SearchResultField field = getSearchResultField(c);
 
-                                        if (field.isDefault(itemType) && !ObjectUtils.equals(sortField, field)) {
-                                            field.writeTableDataCellHtml(page, item);
-                                        }
+                                    if (field.isDefault(itemType) && !ObjectUtils.equals(sortField, field)) {
+                                        field.writeTableDataCellHtml(page, item);
                                     }
                                 }
 
@@ -493,8 +424,7 @@ public class ListSearchResultView extends AbstractSearchResultView {
                                     Class<?> fieldNameClass = ObjectUtils.getClassByName(fieldName);
 
                                     if (fieldNameClass != null && SearchResultField.class.isAssignableFrom(fieldNameClass)) {
-                                        @SuppressWarnings("unchecked")
-                                        SearchResultField field = TypeDefinition.getInstance((Class<? extends SearchResultField>) fieldNameClass).newInstance();
+                                        SearchResultField field = getSearchResultField(fieldNameClass);
 
                                         if (field.isSupported(itemState.getType()) && !ObjectUtils.equals(sortField, field)) {
                                             field.writeTableDataCellHtml(page, item);
@@ -532,6 +462,21 @@ public class ListSearchResultView extends AbstractSearchResultView {
         page.writeEnd();
     }
 
+    // Creates each search result field only once per table.
+    @SuppressWarnings("unchecked")
+    private SearchResultField getSearchResultField(Class<?> fieldClass) {
+        return searchResultFields.computeIfAbsent(fieldClass, c -> TypeDefinition.getInstance((Class<? extends SearchResultField>) c).newInstance());
+    }
+
+    // Loads the sums for all items on the page at once.
+    private SearchResultSparklines getSparklines() {
+        if (sparklines == null) {
+            sparklines = new SearchResultSparklines(page, search, result, sortField.getInternalName());
+        }
+
+        return sparklines;
+    }
+
     private void writeHeaderCell(ObjectField field) throws IOException {
         page.writeStart("th");
             page.writeHtml(field.getDisplayName());
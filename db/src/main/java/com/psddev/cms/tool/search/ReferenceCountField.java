@@ -1,6 +1,7 @@
 package com.psddev.cms.tool.search;
 
 import com.psddev.cms.db.Content;
+import com.psddev.cms.db.ContentReference;
 import com.psddev.cms.tool.SearchResultField;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.ObjectType;
@@ -8,12 +9,31 @@ import com.psddev.dari.db.Query;
 import com.psddev.dari.db.State;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
+/**
+ * Shows the number of objects that reference each item.
+ *
+ * <p>Once {@link ContentReference} has been backfilled, only the references
+ * from the {@linkplain Content.Static#isSearchableType searchable} types
+ * with reference or rich text fields are counted, which is what the label
+ * says. Until then, every object that mentions the item's ID is counted
+ * using a full-text query.</p>
+ */
 public class ReferenceCountField implements SearchResultField {
 
+    private static final String COUNTS_ATTRIBUTE = ReferenceCountField.class.getName() + ".counts";
+
     @Override
     public String getDisplayName() {
-        return "# Of References";
+        return ContentReference.isIndexComplete()
+                ? "# Of References From Content"
+                : "# Of References";
     }
 
     @Override
@@ -21,23 +41,68 @@ public class ReferenceCountField implements SearchResultField {
         return Content.Static.isSearchableType(type);
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void prefetchData(ToolPageContext page, List<?> items) {
+        if (items.isEmpty() || !ContentReference.isIndexComplete()) {
+            return;
+        }
+
+        Map<UUID, Long> counts = (Map<UUID, Long>) page.getRequest().getAttribute(COUNTS_ATTRIBUTE);
+
+        if (counts == null) {
+            counts = new HashMap<>();
+            page.getRequest().setAttribute(COUNTS_ATTRIBUTE, counts);
+        }
+
+        counts.putAll(ContentReference.countReferences(items.stream()
+                .map(item -> State.getInstance(item).getId())
+                .collect(Collectors.toSet())));
+    }
+
     @Override
     public String createDataCellText(Object item) {
         return String.valueOf(getReferencesCount(item));
     }
 
     @Override
+    public List<String> createDataCellTexts(List<?> items) {
+        if (!ContentReference.isIndexComplete()) {
+            return SearchResultField.super.createDataCellTexts(items);
+        }
+
+        List<UUID> ids = items.stream()
+                .map(item -> State.getInstance(item).getId())
+                .collect(Collectors.toList());
+
+        Map<UUID, Long> counts = ContentReference.countReferences(ids);
+
+        return ids.stream()
+                .map(id -> String.valueOf(counts.get(id)))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
     public void writeTableDataCellHtml(ToolPageContext page, Object item) throws IOException {
+        Map<UUID, Long> counts = (Map<UUID, Long>) page.getRequest().getAttribute(COUNTS_ATTRIBUTE);
+        Long count = counts != null ? counts.get(State.getInstance(item).getId()) : null;
+
         page.writeStart("td");
-        page.writeHtml(String.format("%,d", getReferencesCount(item)));
+        page.writeHtml(String.format("%,d", count != null ? count : getReferencesCount(item)));
         page.writeEnd();
     }
 
     private long getReferencesCount(Object item) {
+        UUID id = State.getInstance(item).getId();
+
+        if (ContentReference.isIndexComplete()) {
+            return ContentReference.countReferences(Collections.singleton(id)).get(id);
+        }
 
         return Query
                 .fromAll()
-                .where("* matches ?", State.getInstance(item).getId())
+                .where("* matches ?", id)
                 .count();
     }
 }
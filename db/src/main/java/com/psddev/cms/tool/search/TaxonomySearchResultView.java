@@ -1,18 +1,17 @@
 package com.psddev.cms.tool.search;
 
 import java.io.IOException;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.List;
 import java.util.UUID;
 
 import com.psddev.cms.db.Site;
 import com.psddev.cms.db.Taxon;
+import com.psddev.cms.db.TaxonomyIndex;
 import com.psddev.cms.tool.Search;
 import com.psddev.cms.tool.SearchResultItem;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Predicate;
-import com.psddev.dari.db.PredicateParser;
 import com.psddev.dari.db.Query;
 import com.psddev.dari.util.ObjectUtils;
 
@@ -42,7 +41,7 @@ public class TaxonomySearchResultView extends AbstractSearchResultView {
             @SuppressWarnings("unchecked")
             Class<? extends Taxon> taxonClass = (Class<? extends Taxon>) search.getSelectedType().getObjectClass();
 
-            if (!Taxon.Static.getRoots(taxonClass).isEmpty()) {
+            if (!TaxonomyIndex.getInstance(taxonClass).getRootIds().isEmpty()) {
                 return true;
             }
         }
@@ -75,29 +74,17 @@ public class TaxonomySearchResultView extends AbstractSearchResultView {
     protected void doWriteHtml() throws IOException {
         search.setSuggestions(false);
 
-        Collection<? extends Taxon> items;
         Site site = page.getSite();
         Predicate predicate = search.toQuery(site).getPredicate();
         Taxon parent = findParent(page);
 
-        if (parent == null) {
-            @SuppressWarnings("unchecked")
-            Class<? extends Taxon> taxonClass = (Class<? extends Taxon>) search.getSelectedType().getObjectClass();
-            items = Taxon.Static.getRoots(taxonClass, site, predicate);
+        @SuppressWarnings("unchecked")
+        Class<? extends Taxon> taxonClass = (Class<? extends Taxon>) search.getSelectedType().getObjectClass();
+        TaxonomyIndex.Level level = TaxonomyIndex
+                .getInstance(taxonClass)
+                .findLevel(parent != null ? parent.getState().getId() : null, site, predicate);
 
-        } else {
-            items = Taxon.Static.getChildren(parent, predicate);
-
-            if (site != null && !items.isEmpty()) {
-                for (Iterator<? extends Taxon> i = items.iterator(); i.hasNext();) {
-                    Taxon taxon = i.next();
-
-                    if (!PredicateParser.Static.evaluate(taxon, site.itemsPredicate())) {
-                        i.remove();
-                    }
-                }
-            }
-        }
+        List<Taxon> items = level.getItems();
 
         if (!items.isEmpty()) {
             String target = page.createId();
@@ -136,9 +123,7 @@ public class TaxonomySearchResultView extends AbstractSearchResultView {
                                         itemWriter.writeAfterHtml(page, search, item);
                                     }
 
-                                    Collection<? extends Taxon> children = Taxon.Static.getChildren(item, predicate);
-
-                                    if (children != null && !children.isEmpty()) {
+                                    if (level.hasChildren(item)) {
                                         page.writeStart("a",
                                                 "class", "searchResultTaxonomyExpand",
                                                 "target", target,
@@ -20,13 +20,12 @@ public class WorkStreamSearchResultAction implements SearchResultAction {
             SearchResultSelection selection)
             throws IOException {
 
-        if (selection != null && selection.createItemsQuery().hasMoreThan(0)) {
+        if (selection != null && selection.size() > 0) {
 
                 page.writeStart("div", "class", "searchResult-action-simple");
                     page.writeStart("a",
                             "class", "button",
                             "href", page.cmsUrl(CreateWorkStream.PATH,
-                                    "query", ObjectUtils.toJson(selection.createItemsQuery().getState().getSimpleValues()),
                                     "selectionId", selection.getId()),
                             "target", "newWorkStream");
                         page.writeHtml(page.localize(WorkStream.class, "action.newType"));
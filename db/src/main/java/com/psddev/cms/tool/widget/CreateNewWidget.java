@@ -11,7 +11,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 
@@ -23,6 +23,7 @@ import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.db.ToolUser;
 import com.psddev.cms.tool.CmsTool;
 import com.psddev.cms.tool.Dashboard;
+import com.psddev.cms.tool.DashboardWidgetCachePolicy;
 import com.psddev.cms.tool.DefaultDashboardWidget;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.Database;
@@ -46,6 +47,18 @@ public class CreateNewWidget extends DefaultDashboardWidget {
         return 0;
     }
 
+    @Override
+    public DashboardWidgetCachePolicy getCachePolicy() {
+        return new DashboardWidgetCachePolicy(
+                DashboardWidgetCachePolicy.Scope.USER,
+                5,
+                TimeUnit.MINUTES,
+                CmsTool.class,
+                com.psddev.cms.db.Template.class,
+                Site.class,
+                ToolRole.class);
+    }
+
     @Override
     public void writeHtml(ToolPageContext page, Dashboard dashboard) throws IOException, ServletException {
         String redirect = page.param(String.class, "redirect");
@@ -255,48 +268,11 @@ public class CreateNewWidget extends DefaultDashboardWidget {
                     page.writeEnd();
                 page.writeEnd();
 
-                Set<UUID> automaticallySavedDraftIds = user.getAutomaticallySavedDraftIds();
-                List<Object> automaticallySavedDrafts = Query
-                        .from(Object.class)
-                        .where("_id = ?", automaticallySavedDraftIds)
-                        .selectAll();
-
-                if (!automaticallySavedDrafts.isEmpty()) {
-                    boolean removed = false;
-
-                    for (Iterator<Object> i = automaticallySavedDrafts.iterator(); i.hasNext();) {
-                        State draft = State.getInstance(i.next());
-
-                        if (!draft.as(Content.ObjectModification.class).isDraft()) {
-                            removed = true;
-
-                            automaticallySavedDraftIds.remove(draft.getId());
-                            i.remove();
-                        }
-                    }
-
-                    if (removed) {
-                        user.save();
-                    }
-
-                    if (!automaticallySavedDrafts.isEmpty()) {
-                        page.writeStart("h2");
-                            page.writeHtml(page.localize(CreateNewWidget.class, "subtitle.savedDrafts"));
-                        page.writeEnd();
-
-                        page.writeStart("ul", "class", "links");
-                            for (Object draft : automaticallySavedDrafts) {
-                                page.writeStart("li");
-                                    page.writeStart("a",
-                                            "target", "_top",
-                                            "href", page.objectUrl("/content/edit.jsp", draft));
-                                        page.writeTypeObjectLabel(draft);
-                                    page.writeEnd();
-                                page.writeEnd();
-                            }
-                        page.writeEnd();
-                    }
-                }
+                // Changes too often to be part of the cached output.
+                page.writeStart("div", "class", "frame");
+                    page.writeStart("a", "href", page.cmsUrl("/automaticallySavedDrafts"));
+                    page.writeEnd();
+                page.writeEnd();
 
                 page.writeStart("div", "class", "p-commonContent-new", "style", page.cssString(
                         "-moz-box-sizing", "border-box",
@@ -17,6 +17,8 @@ import com.psddev.cms.db.ToolRole;
 import com.psddev.cms.db.ToolUi;
 import com.psddev.cms.db.ToolUser;
 import com.psddev.cms.tool.Dashboard;
+import com.psddev.cms.tool.DashboardWidgetCache;
+import com.psddev.cms.tool.DashboardWidgetCachePolicy;
 import com.psddev.cms.tool.DefaultDashboardWidget;
 import com.psddev.cms.tool.QueryRestriction;
 import com.psddev.cms.tool.Search;
@@ -24,7 +26,6 @@ import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.ObjectType;
 import com.psddev.dari.db.Predicate;
 import com.psddev.dari.db.Query;
-import com.psddev.dari.db.QueryFilter;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.PaginatedResult;
 
@@ -32,6 +33,11 @@ public class RecentActivityWidget extends DefaultDashboardWidget {
 
     private static final int[] LIMITS = { 10, 20, 50 };
 
+    @Override
+    public DashboardWidgetCachePolicy getCachePolicy() {
+        return DashboardWidgetCache.createResultPolicy();
+    }
+
     @Override
     public int getColumnIndex() {
         return 0;
@@ -64,40 +70,24 @@ public class RecentActivityWidget extends DefaultDashboardWidget {
             result = null;
 
         } else {
-            Query<?> contentQuery = (itemType != null ? Query.fromType(itemType) : Query.fromGroup(Content.SEARCHABLE_GROUP))
-                    .where(page.siteItemsSearchPredicate())
-                    .and(Content.UPDATE_DATE_FIELD + " != missing")
-                    .sortDescending(Content.UPDATE_DATE_FIELD);
-
-            switch (type) {
-                case ROLE :
-                    contentQuery.and(Content.UPDATE_USER_FIELD + " = ?", Query.from(ToolUser.class).where("role = ?", valueObject));
-                    break;
-
-                case USER :
-                    contentQuery.and(Content.UPDATE_USER_FIELD + " = ?", valueObject);
-                    break;
-
-                case ME :
-                    contentQuery.and(Content.UPDATE_USER_FIELD + " = ?", page.getUser());
-                    break;
-
-                default :
-                    break;
-            }
-
             Predicate visibilitiesPredicate = Search.getVisibilitiesPredicate(itemType, visibilities, null, false);
-            QueryFilter<Object> visibilitiesFilter = null;
 
-            if (visibilitiesPredicate != null) {
-                contentQuery.and(visibilitiesPredicate);
-            } else {
-                visibilitiesFilter = item -> State.getInstance(item).isVisible();
+            // Only the visible items when no visibilities are selected.
+            if (visibilitiesPredicate == null) {
+                visibilitiesPredicate = Search.getVisiblePredicate(itemType);
             }
 
+            Query<?> contentQuery = createQuery(
+                    itemType,
+                    type,
+                    valueObject,
+                    page.getUser(),
+                    page.siteItemsSearchPredicate(),
+                    visibilitiesPredicate);
+
             QueryRestriction.updateQueryUsingAll(contentQuery, page);
 
-            result = contentQuery.and("_any matches *").selectFiltered(offset, limit, visibilitiesFilter);
+            result = contentQuery.select(offset, limit);
         }
 
         page.writeStart("div", "class", "widget");
@@ -316,7 +306,55 @@ public class RecentActivityWidget extends DefaultDashboardWidget {
         page.writeEnd();
     }
 
-    private enum Type {
+    /**
+     * Creates the query for the recently updated items, with all the
+     * filters in the query itself so that only one page is ever read.
+     *
+     * @param itemType If {@code null}, all searchable types.
+     * @param type Can't be {@code null}.
+     * @param value Role or user to filter by, depending on the {@code type}.
+     * @param user Current user.
+     * @param siteItemsPredicate May be {@code null}.
+     * @param visibilityPredicate May be {@code null}.
+     * @return Never {@code null}.
+     */
+    static Query<?> createQuery(
+            ObjectType itemType,
+            Type type,
+            Object value,
+            Object user,
+            Predicate siteItemsPredicate,
+            Predicate visibilityPredicate) {
+
+        Query<?> query = (itemType != null ? Query.fromType(itemType) : Query.fromGroup(Content.SEARCHABLE_GROUP))
+                .where(siteItemsPredicate)
+                .and(Content.UPDATE_DATE_FIELD + " != missing")
+                .sortDescending(Content.UPDATE_DATE_FIELD);
+
+        switch (type) {
+            case ROLE :
+                query.and(Content.UPDATE_USER_FIELD + " = ?", Query.from(ToolUser.class).where("role = ?", value));
+                break;
+
+            case USER :
+                query.and(Content.UPDATE_USER_FIELD + " = ?", value);
+                break;
+
+            case ME :
+                query.and(Content.UPDATE_USER_FIELD + " = ?", user);
+                break;
+
+            default :
+                break;
+        }
+
+        query.and(visibilityPredicate);
+        query.and("_any matches *");
+
+        return query;
+    }
+
+    enum Type {
 
         ANYONE("label.anyone"),
         ME("label.me"),
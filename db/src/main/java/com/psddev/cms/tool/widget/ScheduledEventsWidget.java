@@ -6,6 +6,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import javax.servlet.ServletException;
 
@@ -15,6 +17,7 @@ import com.psddev.cms.db.Draft;
 import com.psddev.cms.db.Schedule;
 import com.psddev.cms.db.Site;
 import com.psddev.cms.tool.Dashboard;
+import com.psddev.cms.tool.DashboardWidgetCachePolicy;
 import com.psddev.cms.tool.DefaultDashboardWidget;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.Query;
@@ -32,6 +35,16 @@ public class ScheduledEventsWidget extends DefaultDashboardWidget {
         return 2;
     }
 
+    // Per user because of the time zone and the saved mode.
+    @Override
+    public DashboardWidgetCachePolicy getCachePolicy() {
+        return new DashboardWidgetCachePolicy(
+                DashboardWidgetCachePolicy.Scope.USER,
+                5,
+                TimeUnit.MINUTES,
+                Schedule.class);
+    }
+
     @Override
     public void writeHtml(ToolPageContext page, Dashboard dashboard) throws IOException, ServletException {
         Mode mode = page.pageParam(Mode.class, "mode", Mode.WEEK);
@@ -300,14 +313,12 @@ public class ScheduledEventsWidget extends DefaultDashboardWidget {
                     if (!ObjectUtils.isBlank(schedules)) {
 
                         for (Schedule schedule : schedules) {
-                            List<Object> drafts = Query.fromAll().where("com.psddev.cms.db.Draft/schedule = ?", schedule).selectAll();
+                            long draftCount = schedule.getDraftCount();
 
-                            if (drafts.isEmpty()) {
+                            if (draftCount == 0) {
                                 continue;
                             }
 
-                            int draftCount = drafts.size();
-
                             page.writeStart("div", "class", "calendarEventsContainer");
                                 page.writeStart("a",
                                         "href", page.cmsUrl("/scheduleEventsList", "date", date.toDate().getTime()),
@@ -351,6 +362,14 @@ public class ScheduledEventsWidget extends DefaultDashboardWidget {
         }
 
         public static void displayAgendaView(ToolPageContext page, Map<DateTime, List<Schedule>> schedulesByDate) throws IOException {
+            List<Schedule> allSchedules = new ArrayList<>();
+
+            for (List<Schedule> schedules : schedulesByDate.values()) {
+                allSchedules.addAll(schedules);
+            }
+
+            Map<UUID, List<Draft>> draftsBySchedule = Schedule.Static.findDraftsBySchedule(allSchedules);
+
             page.writeStart("div", "class", "calendar calendar-week");
             for (Map.Entry<DateTime, List<Schedule>> entry : schedulesByDate.entrySet()) {
                 DateTime date = entry.getKey();
@@ -365,20 +384,15 @@ public class ScheduledEventsWidget extends DefaultDashboardWidget {
                 page.writeStart("div", "class", "calendarCell").writeStart("table", "class", "links table-striped pageThumbnails").writeStart("tbody");
                 for (Schedule schedule : schedules) {
                     DateTime triggerDate = page.toUserDateTime(schedule.getTriggerDate());
-                    List<Object> drafts = Query.fromAll().where("com.psddev.cms.db.Draft/schedule = ?", schedule).selectAll();
+                    List<Draft> drafts = draftsBySchedule.get(schedule.getId());
 
-                    if (drafts.isEmpty()) {
+                    if (drafts == null) {
                         continue;
                     }
 
                     boolean first = true;
 
-                    for (Object d : drafts) {
-                        if (!(d instanceof Draft)) {
-                            continue;
-                        }
-
-                        Draft draft = (Draft) d;
+                    for (Draft draft : drafts) {
                         Object draftObject = draft.recreate();
 
                         page.writeStart("tr", "data-preview-url", "/_preview?_cms.db.previewId=" + draft.getId());
@@ -122,7 +122,7 @@ public class SelectionsWidget extends AbstractPaginatedResultWidget<SearchResult
     public void writeResultsItemHtml(ToolPageContext page, SearchResultSelection selection) throws IOException {
 
         Search search = new Search();
-        search.setAdditionalPredicate(selection.createItemsQuery().getPredicate().toString());
+        search.setSelectionId(selection.getId());
         search.setLimit(10);
 
         page.writeStart("tr");
@@ -3,6 +3,7 @@ package com.psddev.cms.tool.widget;
 import java.io.IOException;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import java.util.UUID;
 import java.util.stream.Collectors;
@@ -19,12 +20,14 @@ import com.psddev.cms.db.ToolUser;
 import com.psddev.cms.db.Workflow;
 import com.psddev.cms.db.WorkflowState;
 import com.psddev.cms.tool.Dashboard;
+import com.psddev.cms.tool.DashboardWidgetCache;
+import com.psddev.cms.tool.DashboardWidgetCachePolicy;
 import com.psddev.cms.tool.DefaultDashboardWidget;
 import com.psddev.cms.tool.QueryRestriction;
 import com.psddev.cms.tool.ToolPageContext;
 import com.psddev.dari.db.ObjectType;
+import com.psddev.dari.db.Predicate;
 import com.psddev.dari.db.Query;
-import com.psddev.dari.db.QueryFilter;
 import com.psddev.dari.db.State;
 import com.psddev.dari.util.PaginatedResult;
 
@@ -32,6 +35,11 @@ public class UnpublishedDraftsWidget extends DefaultDashboardWidget {
 
     private static final int[] LIMITS = { 10, 20, 50 };
 
+    @Override
+    public DashboardWidgetCachePolicy getCachePolicy() {
+        return DashboardWidgetCache.createResultPolicy();
+    }
+
     @Override
     public int getColumnIndex() {
         return 1;
@@ -44,12 +52,11 @@ public class UnpublishedDraftsWidget extends DefaultDashboardWidget {
 
     @Override
     public void writeHtml(ToolPageContext page, Dashboard dashboard) throws IOException, ServletException {
-        Query<Workflow> workflowQuery = Query.from(Workflow.class);
         Map<String, String> workflowStateLabels = new TreeMap<>();
 
         workflowStateLabels.put("draft", "Initial Draft");
 
-        for (Workflow w : workflowQuery.iterable(0)) {
+        for (Workflow w : Workflow.findWorkflows(null)) {
             for (WorkflowState s : w.getStates()) {
                 workflowStateLabels.put("ws." + s.getName(), s.getDisplayName());
             }
@@ -57,67 +64,22 @@ public class UnpublishedDraftsWidget extends DefaultDashboardWidget {
 
         String state = page.pageParam(String.class, "state", null);
         final ObjectType type = ObjectType.getInstance(page.pageParam(UUID.class, "typeId", null));
-        Query<?> draftsQuery;
-
-        if ("draft".equals(state)) {
-            draftsQuery = Query
-                    .from(Object.class)
-                    .where("_type = ? or cms.content.draft = true", Draft.class);
-
-        } else if (state != null && state.startsWith("ws.")) {
-            draftsQuery = Query
-                    .from(Object.class)
-                    .where("cms.workflow.currentState = ?", state.substring(3));
-
-        } else {
-            draftsQuery = Query
-                    .from(Object.class)
-                    .where("_type = ? or cms.content.draft = true or cms.workflow.currentState != missing", Draft.class);
-        }
-
         final UserType userType = page.pageParam(UserType.class, "userType", UserType.ANYONE);
         String userParameter = userType + ".value";
         final Object user = Query.from(Object.class).where("_id = ?", page.pageParam(UUID.class, userParameter, null)).first();
-        QueryFilter<Object> queryFilter = null;
-
-        if (type != null || userType != UserType.ANYONE) {
-            queryFilter = item -> {
-                State itemState = State.getInstance(item);
-                boolean typeOk = true;
-                boolean userOk = true;
-
-                if (type != null) {
-                    ObjectType itemType = item instanceof Draft ? ((Draft) item).getObjectType() : itemState.getType();
-                    typeOk = itemType != null && itemType.getGroups().contains(type.getInternalName());
-                }
-
-                if (userType != UserType.ANYONE) {
-                    ToolUser updateUser = itemState.as(Content.ObjectModification.class).getUpdateUser();
-
-                    if (userType == UserType.ME) {
-                        userOk = page.getUser().equals(updateUser);
-
-                    } else if (user instanceof ToolUser) {
-                        userOk = user.equals(updateUser);
-
-                    } else if (user instanceof ToolRole && updateUser != null) {
-                        userOk = user.equals(updateUser.getRole());
-                    }
-                }
-
-                return typeOk && userOk;
-            };
-        }
+        Query<?> draftsQuery = createQuery(
+                state,
+                type != null ? type.findConcreteTypes() : null,
+                userType,
+                user,
+                page.getUser(),
+                page.siteItemsPredicate());
 
         QueryRestriction.updateQueryUsingAll(draftsQuery, page);
 
+        long offset = page.param(long.class, "offset");
         int limit = page.pageParam(int.class, "limit", 20);
-        PaginatedResult<?> drafts = draftsQuery
-                .and("* matches *")
-                .and(Content.UPDATE_DATE_FIELD + " != missing")
-                .and(page.siteItemsPredicate())
-                .sortDescending(Content.UPDATE_DATE_FIELD)
-                .selectFiltered(page.param(long.class, "offset"), limit, queryFilter);
+        PaginatedResult<?> drafts = draftsQuery.select(offset, limit);
 
         page.writeStart("div", "class", "widget widget-unpublishedDrafts");
             page.writeStart("h1", "class", "icon icon-object-draft");
@@ -359,7 +321,72 @@ public class UnpublishedDraftsWidget extends DefaultDashboardWidget {
         page.writeEnd();
     }
 
-    private enum UserType {
+    /**
+     * Creates the query for the unpublished drafts, with all the filters in
+     * the query itself so that only one page is ever read.
+     *
+     * @param state If {@code null}, drafts in any state.
+     * @param types If {@code null}, drafts for any type.
+     * @param userType Can't be {@code null}.
+     * @param user Role or user to filter by, depending on the
+     *        {@code userType}.
+     * @param currentUser Current user.
+     * @param siteItemsPredicate May be {@code null}.
+     * @return Never {@code null}.
+     */
+    static Query<?> createQuery(
+            String state,
+            Set<ObjectType> types,
+            UserType userType,
+            Object user,
+            Object currentUser,
+            Predicate siteItemsPredicate) {
+
+        Query<?> query;
+
+        if ("draft".equals(state)) {
+            query = Query
+                    .from(Object.class)
+                    .where("_type = ? or cms.content.draft = true", Draft.class);
+
+        } else if (state != null && state.startsWith("ws.")) {
+            query = Query
+                    .from(Object.class)
+                    .where("cms.workflow.currentState = ?", state.substring(3));
+
+        } else {
+            query = Query
+                    .from(Object.class)
+                    .where("_type = ? or cms.content.draft = true or cms.workflow.currentState != missing", Draft.class);
+        }
+
+        // Drafts are filtered by the type of the object that they're for.
+        if (types != null) {
+            query.and("_type = ? or com.psddev.cms.db.Draft/objectType = ?", types, types);
+        }
+
+        if (userType == UserType.ME) {
+            query.and(Content.UPDATE_USER_FIELD + " = ?", currentUser);
+
+        } else if (userType != UserType.ANYONE) {
+            if (user instanceof ToolUser) {
+                query.and(Content.UPDATE_USER_FIELD + " = ?", user);
+
+            } else if (user instanceof ToolRole) {
+                query.and(
+                        Content.UPDATE_USER_FIELD + " = missing or " + Content.UPDATE_USER_FIELD + " = ?",
+                        Query.from(ToolUser.class).where("role = ?", user));
+            }
+        }
+
+        return query
+                .and("* matches *")
+                .and(Content.UPDATE_DATE_FIELD + " != missing")
+                .and(siteItemsPredicate)
+                .sortDescending(Content.UPDATE_DATE_FIELD);
+    }
+
+    enum UserType {
 
         ANYONE("label.anyone"),
         ME("label.me"),
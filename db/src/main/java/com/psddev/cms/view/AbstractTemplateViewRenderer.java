@@ -0,0 +1,74 @@
+package com.psddev.cms.view;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Skeletal {@link ViewRenderer} implementation for template engines that
+ * gets the compiled templates from
+ * {@link ViewTemplateLoader#getCompiledTemplate}, so that each template is
+ * only compiled once per change and shared across the threads when the
+ * loader caches them.
+ *
+ * @param <T> the compiled template type.
+ */
+public abstract class AbstractTemplateViewRenderer<T> implements ViewRenderer {
+
+    /**
+     * Returns the path to the template that should be used to render the
+     * given view.
+     *
+     * @param view the view to render.
+     * @return the path to the template. Never {@code null}.
+     */
+    protected abstract String getTemplatePath(Object view);
+
+    /**
+     * Compiles the template located at the named path. The result may be
+     * used by multiple threads at the same time.
+     *
+     * @param path the path to the template.
+     * @param loader the loader that should be used to read the template.
+     * @return the compiled template.
+     * @throws IOException if a problem occurred reading or compiling the template.
+     */
+    protected abstract T compile(String path, ViewTemplateLoader loader) throws IOException;
+
+    /**
+     * Renders the given view using the given compiled template.
+     *
+     * @param template the compiled template.
+     * @param view the view to render.
+     * @return the rendered output.
+     * @throws IOException if a problem occurred rendering the view.
+     */
+    protected abstract String renderTemplate(T template, Object view) throws IOException;
+
+    /**
+     * Returns the key that identifies how this renderer compiles the
+     * templates. Override this if the compiled templates depend on the
+     * configuration of the instance.
+     *
+     * @return the class of this renderer by default.
+     */
+    protected Object getCompilerKey() {
+        return getClass();
+    }
+
+    @Override
+    public ViewOutput render(Object view, ViewTemplateLoader loader) {
+        Preconditions.checkNotNull(loader, "Must render templates with a ViewTemplateLoader!");
+
+        try {
+            T template = loader.getCompiledTemplate(getTemplatePath(view), getCompilerKey(), this::compile);
+            String output = renderTemplate(template, view);
+
+            return () -> output;
+
+        } catch (IOException error) {
+            throw new UncheckedIOException(error);
+        }
+    }
+}
@@ -1,19 +1,19 @@
 package com.psddev.cms.view;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.net.JarURLConnection;
 import java.net.URL;
-import java.net.URLConnection;
-
-import com.psddev.dari.util.IoUtils;
 
 /**
  * Skeletal {@link ViewTemplateLoader} implementation that implements
  * {@link #getTemplate(String)} and {@link #getLastModified(String)} based on
  * the URL returned from {@link #getTemplateUrl(String)} implemented by a
  * sub-class.
+ *
+ * <p>Sub-classes can return a {@link ViewTemplateRegistry} from
+ * {@link #getRegistry()} to cache the resolved URLs and the compiled
+ * templates, and to avoid checking the templates for changes on every
+ * call.</p>
  */
 public abstract class UrlViewTemplateLoader implements ViewTemplateLoader {
 
@@ -26,35 +26,46 @@ public abstract class UrlViewTemplateLoader implements ViewTemplateLoader {
      */
     protected abstract URL getTemplateUrl(String path) throws IOException;
 
+    /**
+     * Returns the registry that caches the templates for this loader. The
+     * registry should be shared by all loaders that resolve the same paths
+     * to the same URLs.
+     *
+     * @return {@code null} by default, in which case nothing is cached.
+     */
+    protected ViewTemplateRegistry getRegistry() {
+        return null;
+    }
+
     @Override
     public InputStream getTemplate(String path) throws IOException {
-        return getTemplateUrl(path).openConnection().getInputStream();
+        ViewTemplateRegistry registry = getRegistry();
+        URL templateUrl = registry != null ? registry.getUrl(path, this::getTemplateUrl) : getTemplateUrl(path);
+
+        return templateUrl.openConnection().getInputStream();
     }
 
     @Override
     public long getLastModified(String path) throws IOException {
+        ViewTemplateRegistry registry = getRegistry();
 
-        URL templateUrl = getTemplateUrl(path);
+        if (registry != null) {
+            return registry.getLastModified(path, this::getTemplateUrl);
 
-        URLConnection urlConnection = null;
-        try {
-            urlConnection = templateUrl.openConnection();
+        } else {
+            return ViewTemplateRegistry.readLastModified(getTemplateUrl(path));
+        }
+    }
 
-            if (urlConnection instanceof JarURLConnection) {
-                URL jarURL = ((JarURLConnection) urlConnection).getJarFileURL();
-                if ("file".equals(jarURL.getProtocol())) {
-                    urlConnection = null;
-                    String file = jarURL.getFile();
-                    return new File(file).lastModified();
-                }
-            }
+    @Override
+    public <T> T getCompiledTemplate(String path, Object key, Compiler<T> compiler) throws IOException {
+        ViewTemplateRegistry registry = getRegistry();
 
-            return urlConnection.getLastModified();
+        if (registry != null) {
+            return registry.getCompiledTemplate(path, this::getTemplateUrl, key, compiler, this);
 
-        } finally {
-            if (urlConnection != null) {
-                IoUtils.closeQuietly(urlConnection.getInputStream());
-            }
+        } else {
+            return compiler.compile(path, this);
         }
     }
 }
@@ -7,12 +7,24 @@ import java.util.Map;
 
 import javax.servlet.http.Cookie;
 
+import com.psddev.dari.util.Settings;
+
 /**
  * An abstraction of an HTTP response that contains information on how a real
  * HTTP response should be constructed.
+ *
+ * <p>Since it's thrown to halt execution rather than to report an error, it
+ * doesn't capture a stack trace unless the {@value #STACK_TRACE_SETTING}
+ * setting is {@code true}.</p>
  */
 public class ViewResponse extends RuntimeException {
 
+    /**
+     * Setting key for enabling the stack trace capture, which can be useful
+     * for finding where a response was thrown while troubleshooting.
+     */
+    public static final String STACK_TRACE_SETTING = "cms/view/viewResponseStackTrace";
+
     private Integer status;
 
     private Map<String, List<String>> headers = new LinkedHashMap<>();
@@ -25,6 +37,13 @@ public class ViewResponse extends RuntimeException {
 
     private Boolean isRedirectPermanent;
 
+    /**
+     * Creates an empty response.
+     */
+    public ViewResponse() {
+        super(null, null, true, Settings.get(boolean.class, STACK_TRACE_SETTING));
+    }
+
     /**
      * Gets the status for the response.
      *
@@ -194,11 +213,6 @@ public class ViewResponse extends RuntimeException {
         return "Request is finished.";
     }
 
-    @Override
-    public synchronized Throwable fillInStackTrace() {
-        return this;
-    }
-
     /**
      * @deprecated Use {@link #redirectTemporarily(String)} instead.
      */
@@ -27,4 +27,41 @@ public interface ViewTemplateLoader {
      * @throws IOException if a problem occurred reading the last modified timestamp.
      */
     long getLastModified(String path) throws IOException;
+
+    /**
+     * Returns the compiled form of the template located at the named path.
+     * Implementations may cache the result until the template changes, so
+     * that it's only compiled once per change. Renderers can extend
+     * {@link AbstractTemplateViewRenderer} to use this.
+     *
+     * @param path the path to the template.
+     * @param key identifies the compiler, since the same template may be
+     *        compiled differently by different renderers.
+     * @param compiler compiles the template.
+     * @param <T> the compiled template type.
+     * @return the compiled template.
+     * @throws IOException if a problem occurred reading or compiling the template.
+     */
+    default <T> T getCompiledTemplate(String path, Object key, Compiler<T> compiler) throws IOException {
+        return compiler.compile(path, this);
+    }
+
+    /**
+     * Compiles a template.
+     *
+     * @param <T> the compiled template type.
+     */
+    @FunctionalInterface
+    interface Compiler<T> {
+
+        /**
+         * Compiles the template located at the named path.
+         *
+         * @param path the path to the template.
+         * @param loader the loader that should be used to read the template.
+         * @return the compiled template.
+         * @throws IOException if a problem occurred reading or compiling the template.
+         */
+        T compile(String path, ViewTemplateLoader loader) throws IOException;
+    }
 }
@@ -0,0 +1,425 @@
+package com.psddev.cms.view;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.psddev.dari.util.IoUtils;
+import com.psddev.dari.util.Settings;
+
+/**
+ * Registry of resolved templates, their last modified timestamps, and their
+ * compiled forms, shared by all {@link UrlViewTemplateLoader} instances that
+ * return it from {@link UrlViewTemplateLoader#getRegistry()}.
+ *
+ * <p>How the templates are checked for changes depends on the {@link Mode},
+ * which defaults to {@link Mode#NEVER} in production and {@link Mode#WATCH}
+ * otherwise, and can be overridden using the {@value #MODE_SETTING}
+ * setting.</p>
+ */
+public class ViewTemplateRegistry implements Closeable {
+
+    /**
+     * Setting key for the {@link Mode} name.
+     */
+    public static final String MODE_SETTING = "cms/view/templateChangeDetection";
+
+    /**
+     * Setting key for the minimum number of milliseconds between the checks
+     * in {@link Mode#INTERVAL}.
+     */
+    public static final String CHECK_INTERVAL_SETTING = "cms/view/templateCheckInterval";
+
+    public static final long DEFAULT_CHECK_INTERVAL = 2000L;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ViewTemplateRegistry.class);
+
+    /**
+     * How the templates are checked for changes.
+     */
+    public enum Mode {
+
+        /**
+         * Templates are assumed to never change once they're resolved.
+         */
+        NEVER,
+
+        /**
+         * Templates are checked at most once every
+         * {@value ViewTemplateRegistry#CHECK_INTERVAL_SETTING} milliseconds.
+         */
+        INTERVAL,
+
+        /**
+         * Templates on the local file system are only checked when a
+         * {@link WatchService} reports a change. Other templates are checked
+         * as in {@link #INTERVAL}.
+         */
+        WATCH
+    }
+
+    private final Mode mode;
+    private final long checkInterval;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentMap<WatchKey, Path> watchedDirectories = new ConcurrentHashMap<>();
+    private final WatchService watchService;
+
+    // Compilations that are running on the current thread, to detect the
+    // templates that include themselves, which would otherwise wait for
+    // their own results forever.
+    private final ThreadLocal<Set<Compiled>> compiling = ThreadLocal.withInitial(HashSet::new);
+
+    /**
+     * Creates an instance using the mode and the check interval from the
+     * settings.
+     */
+    public ViewTemplateRegistry() {
+        this(getDefaultMode(), Settings.getOrDefault(long.class, CHECK_INTERVAL_SETTING, DEFAULT_CHECK_INTERVAL));
+    }
+
+    /**
+     * Creates an instance using the given {@code mode} and
+     * {@code checkInterval}.
+     *
+     * @param mode Can't be {@code null}.
+     * @param checkInterval Milliseconds between the checks in
+     *        {@link Mode#INTERVAL}.
+     */
+    public ViewTemplateRegistry(Mode mode, long checkInterval) {
+        WatchService watchService = null;
+
+        if (mode == Mode.WATCH) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+
+            } catch (IOException | UnsupportedOperationException error) {
+                LOGGER.warn("Can't watch templates for changes! Falling back to checking them periodically.", error);
+                mode = Mode.INTERVAL;
+            }
+        }
+
+        this.mode = mode;
+        this.checkInterval = checkInterval;
+        this.watchService = watchService;
+    }
+
+    private static Mode getDefaultMode() {
+        String mode = Settings.get(String.class, MODE_SETTING);
+
+        if (mode != null) {
+            try {
+                return Mode.valueOf(mode.trim().toUpperCase());
+
+            } catch (IllegalArgumentException error) {
+                LOGGER.warn("[{}] isn't a valid template change detection mode!", mode);
+            }
+        }
+
+        return Settings.isProduction() ? Mode.NEVER : Mode.WATCH;
+    }
+
+    /**
+     * Returns the mode used to check the templates for changes.
+     *
+     * @return Never {@code null}.
+     */
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Resolves the template at the given path and caches the result.
+    private Entry resolve(String path, UrlResolver resolver) throws IOException {
+        Entry entry = entries.get(path);
+
+        if (entry == null) {
+            URL url = resolver.resolve(path);
+            Path file = mode == Mode.WATCH ? findFile(url) : null;
+
+            // Fall back to checking periodically if the file can't be
+            // watched.
+            if (file != null && !watch(file.getParent())) {
+                file = null;
+            }
+
+            entry = new Entry(url, file, readLastModified(url));
+
+            Entry existing = entries.putIfAbsent(path, entry);
+
+            if (existing != null) {
+                entry = existing;
+            }
+        }
+
+        return entry;
+    }
+
+    // Finds the file on the local file system that backs the given URL, or
+    // the JAR that contains it.
+    private static Path findFile(URL url) {
+        try {
+            if ("jar".equals(url.getProtocol())) {
+                String file = url.getFile();
+                int separatorAt = file.indexOf("!/");
+
+                if (separatorAt < 0) {
+                    return null;
+                }
+
+                url = new URL(file.substring(0, separatorAt));
+            }
+
+            if (!"file".equals(url.getProtocol())) {
+                return null;
+            }
+
+            return Paths.get(url.toURI());
+
+        } catch (IOException | URISyntaxException | IllegalArgumentException | FileSystemNotFoundException error) {
+            return null;
+        }
+    }
+
+    private boolean watch(Path directory) {
+        if (directory == null) {
+            return false;
+
+        } else if (watchedDirectories.containsValue(directory)) {
+            return true;
+        }
+
+        try {
+            WatchKey key = directory.register(
+                    watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+
+            watchedDirectories.put(key, directory);
+            return true;
+
+        } catch (IOException | RuntimeException error) {
+            LOGGER.debug("Can't watch [{}] for template changes!", directory);
+            return false;
+        }
+    }
+
+    // Marks the templates that changed since the last call as stale.
+    private void processWatchEvents() {
+        WatchKey key;
+
+        while ((key = watchService.poll()) != null) {
+            Path directory = watchedDirectories.get(key);
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW || directory == null) {
+                    entries.values().forEach(e -> e.stale = true);
+
+                } else {
+                    Path changed = directory.resolve((Path) event.context());
+
+                    entries.values().stream()
+                            .filter(e -> changed.equals(e.file))
+                            .forEach(e -> e.stale = true);
+                }
+            }
+
+            if (!key.reset()) {
+                watchedDirectories.remove(key);
+            }
+        }
+    }
+
+    static long readLastModified(URL templateUrl) throws IOException {
+        URLConnection urlConnection = null;
+        try {
+            urlConnection = templateUrl.openConnection();
+
+            if (urlConnection instanceof JarURLConnection) {
+                URL jarURL = ((JarURLConnection) urlConnection).getJarFileURL();
+                if ("file".equals(jarURL.getProtocol())) {
+                    urlConnection = null;
+                    String file = jarURL.getFile();
+                    return new File(file).lastModified();
+                }
+            }
+
+            return urlConnection.getLastModified();
+
+        } finally {
+            if (urlConnection != null) {
+                IoUtils.closeQuietly(urlConnection.getInputStream());
+            }
+        }
+    }
+
+    // Returns the entry for the given path, refreshing its last modified
+    // timestamp if it may have changed.
+    private Entry check(String path, UrlResolver resolver) throws IOException {
+        Entry entry = resolve(path, resolver);
+
+        if (mode == Mode.NEVER) {
+            return entry;
+
+        } else if (mode == Mode.WATCH && entry.file != null) {
+            processWatchEvents();
+
+            if (entry.stale) {
+                entry.stale = false;
+                entry.lastModified = readLastModified(entry.url);
+            }
+
+        // Not on the local file system, so check periodically.
+        } else {
+            long now = System.currentTimeMillis();
+
+            if (now - entry.checkTime >= checkInterval) {
+                entry.checkTime = now;
+                entry.lastModified = readLastModified(entry.url);
+            }
+        }
+
+        return entry;
+    }
+
+    URL getUrl(String path, UrlResolver resolver) throws IOException {
+        return resolve(path, resolver).url;
+    }
+
+    long getLastModified(String path, UrlResolver resolver) throws IOException {
+        return check(path, resolver).lastModified;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T getCompiledTemplate(String path, UrlResolver resolver, Object key, ViewTemplateLoader.Compiler<T> compiler, ViewTemplateLoader loader) throws IOException {
+        Entry entry = check(path, resolver);
+        long lastModified = entry.lastModified;
+        Compiled compiled = entry.compiled.get(key);
+
+        if (compiled == null || compiled.lastModified != lastModified) {
+
+            // Only claims the compilation inside the map so that the
+            // compiler can get other templates, and makes the other threads
+            // that need the same template wait for the result.
+            Compiled newCompiled = new Compiled(lastModified, new FutureTask<>(() -> compiler.compile(path, loader)));
+
+            compiled = entry.compiled.compute(key, (k, c) -> c != null && c.lastModified == lastModified ? c : newCompiled);
+
+            if (compiled == newCompiled) {
+                Set<Compiled> running = compiling.get();
+
+                running.add(newCompiled);
+
+                try {
+                    newCompiled.template.run();
+
+                } finally {
+                    running.remove(newCompiled);
+                }
+            }
+        }
+
+        if (compiling.get().contains(compiled)) {
+            throw new IOException(String.format(
+                    "Can't compile [%s] template because it includes itself!",
+                    path));
+        }
+
+        try {
+            return (T) compiled.template.get();
+
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+
+        } catch (ExecutionException error) {
+
+            // Compiles again on the next call.
+            entry.compiled.remove(key, compiled);
+
+            Throwable cause = error.getCause();
+
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+
+            } else {
+                throw new IOException(cause);
+            }
+        }
+    }
+
+    /**
+     * Forgets all resolved and compiled templates.
+     */
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    @FunctionalInterface
+    interface UrlResolver {
+
+        URL resolve(String path) throws IOException;
+    }
+
+    private static final class Entry {
+
+        public final URL url;
+        public final Path file;
+        public final ConcurrentMap<Object, Compiled> compiled = new ConcurrentHashMap<>();
+        public volatile long lastModified;
+        public volatile long checkTime;
+        public volatile boolean stale;
+
+        public Entry(URL url, Path file, long lastModified) {
+            this.url = url;
+            this.file = file;
+            this.lastModified = lastModified;
+            this.checkTime = System.currentTimeMillis();
+        }
+    }
+
+    private static final class Compiled {
+
+        public final long lastModified;
+        public final FutureTask<Object> template;
+
+        public Compiled(long lastModified, FutureTask<Object> template) {
+            this.lastModified = lastModified;
+            this.template = template;
+        }
+    }
+}
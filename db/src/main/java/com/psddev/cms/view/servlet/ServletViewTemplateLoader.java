@@ -7,7 +7,9 @@ import java.net.URL;
 import javax.servlet.ServletContext;
 
 import com.psddev.cms.view.UrlViewTemplateLoader;
+import com.psddev.cms.view.ViewTemplateRegistry;
 import com.psddev.dari.util.CodeUtils;
+import com.psddev.dari.util.IoUtils;
 
 /**
  * Loads templates in the servlet context.
@@ -15,6 +17,7 @@ import com.psddev.dari.util.CodeUtils;
 public class ServletViewTemplateLoader extends UrlViewTemplateLoader {
 
     private static final String TEMPLATE_NOT_FOUND_MESSAGE_FORMAT = "Could not find template at path [%s]!";
+    private static final String REGISTRY_ATTRIBUTE = ServletViewTemplateLoader.class.getName() + ".registry";
 
     private ServletContext servletContext;
 
@@ -34,6 +37,46 @@ public class ServletViewTemplateLoader extends UrlViewTemplateLoader {
         return template;
     }
 
+    /**
+     * Returns the registry shared by all loaders in the servlet context.
+     */
+    @Override
+    protected ViewTemplateRegistry getRegistry() {
+        ViewTemplateRegistry registry = (ViewTemplateRegistry) servletContext.getAttribute(REGISTRY_ATTRIBUTE);
+
+        if (registry == null) {
+            synchronized (ServletViewTemplateLoader.class) {
+                registry = (ViewTemplateRegistry) servletContext.getAttribute(REGISTRY_ATTRIBUTE);
+
+                if (registry == null) {
+                    registry = new ViewTemplateRegistry();
+                    servletContext.setAttribute(REGISTRY_ATTRIBUTE, registry);
+                }
+            }
+        }
+
+        return registry;
+    }
+
+    /**
+     * Closes and removes the registry shared by all loaders in the given
+     * {@code servletContext}.
+     *
+     * @param servletContext Can't be {@code null}.
+     */
+    public static void destroyRegistry(ServletContext servletContext) {
+        ViewTemplateRegistry registry;
+
+        synchronized (ServletViewTemplateLoader.class) {
+            registry = (ViewTemplateRegistry) servletContext.getAttribute(REGISTRY_ATTRIBUTE);
+            servletContext.removeAttribute(REGISTRY_ATTRIBUTE);
+        }
+
+        if (registry != null) {
+            IoUtils.closeQuietly(registry);
+        }
+    }
+
     @Override
     protected URL getTemplateUrl(String path) throws IOException {
         URL templateUrl = CodeUtils.getResource(servletContext, path);
@@ -0,0 +1,101 @@
+package com.psddev.cms.db;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+
+import com.psddev.dari.db.AtomicOperation;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.ForwardingDatabase;
+import com.psddev.dari.db.SqlDatabase;
+
+public class ContentPublishTest {
+
+    private static AtomicOperation.ReplacementException conflict() {
+        return mock(AtomicOperation.ReplacementException.class);
+    }
+
+    @Test
+    public void retriedAfterConflicts() {
+        long conflicts = Content.Static.getPublishConflictCount();
+        long fallbacks = Content.Static.getPublishLockFallbackCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = Content.Static.publishConditionally(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw conflict();
+            }
+
+            return "conditional";
+
+        }, () -> "locked");
+
+        assertEquals("conditional", result);
+        assertEquals(3, attempts.get());
+        assertEquals(conflicts + 2, Content.Static.getPublishConflictCount());
+        assertEquals(fallbacks, Content.Static.getPublishLockFallbackCount());
+    }
+
+    @Test
+    public void lockedAfterTooManyConflicts() {
+        long conflicts = Content.Static.getPublishConflictCount();
+        long fallbacks = Content.Static.getPublishLockFallbackCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = Content.Static.publishConditionally(() -> {
+            attempts.incrementAndGet();
+            throw conflict();
+
+        }, () -> "locked");
+
+        assertEquals("locked", result);
+        assertEquals(5, attempts.get());
+        assertEquals(conflicts + 5, Content.Static.getPublishConflictCount());
+        assertEquals(fallbacks + 1, Content.Static.getPublishLockFallbackCount());
+    }
+
+    // An error from a save hook isn't a conflict, and shouldn't change how
+    // the later publishes are done.
+    @Test
+    public void otherErrorsNotRetried() {
+        long conflicts = Content.Static.getPublishConflictCount();
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            Content.Static.publishConditionally(() -> {
+                attempts.incrementAndGet();
+                throw new UnsupportedOperationException("hook");
+
+            }, () -> "locked");
+
+            fail();
+
+        } catch (UnsupportedOperationException error) {
+            assertEquals("hook", error.getMessage());
+        }
+
+        assertEquals(1, attempts.get());
+        assertEquals(conflicts, Content.Static.getPublishConflictCount());
+        assertEquals("conditional", Content.Static.publishConditionally(() -> "conditional", () -> "locked"));
+    }
+
+    @Test
+    public void conditionalWritesSupport() {
+        ForwardingDatabase forwarding = new ForwardingDatabase() { };
+
+        forwarding.setDelegate(mock(SqlDatabase.class));
+
+        assertTrue(Content.Static.supportsConditionalWrites(mock(SqlDatabase.class)));
+        assertTrue(Content.Static.supportsConditionalWrites(forwarding));
+
+        forwarding.setDelegate(mock(Database.class));
+
+        assertFalse(Content.Static.supportsConditionalWrites(forwarding));
+        assertFalse(Content.Static.supportsConditionalWrites(null));
+    }
+}
@@ -0,0 +1,170 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.psddev.dari.db.State;
+import com.psddev.dari.util.ObjectUtils;
+
+public class ContentReferenceTest {
+
+    private static Map<String, Object> reference(UUID id) {
+        Map<String, Object> reference = new HashMap<>();
+
+        reference.put(State.REFERENCE_KEY, id.toString());
+        reference.put(State.TYPE_KEY, UUID.randomUUID().toString());
+        return reference;
+    }
+
+    @Test
+    public void findsReferences() {
+        UUID self = UUID.randomUUID();
+        UUID referenced = UUID.randomUUID();
+        UUID listed = UUID.randomUUID();
+        UUID embedded = UUID.randomUUID();
+        UUID linked = UUID.randomUUID();
+
+        Map<String, Object> embeddedValues = new HashMap<>();
+
+        embeddedValues.put(State.ID_KEY, UUID.randomUUID().toString());
+        embeddedValues.put(State.TYPE_KEY, UUID.randomUUID().toString());
+        embeddedValues.put("item", reference(embedded));
+
+        Map<String, Object> values = new LinkedHashMap<>();
+
+        values.put(State.ID_KEY, self.toString());
+        values.put(State.TYPE_KEY, UUID.randomUUID().toString());
+        values.put("author", reference(referenced));
+        values.put("related", Arrays.asList(reference(listed), reference(self)));
+        values.put("module", embeddedValues);
+        values.put("body", "<a data-id=\"" + linked.toString().toUpperCase() + "\">Link</a>");
+        values.put("title", "No references");
+
+        assertEquals(
+                new HashSet<>(Arrays.asList(referenced, listed, embedded, linked)),
+                ContentReference.findTargetIds(values, self));
+    }
+
+    @Test
+    public void emptyValues() {
+        assertTrue(ContentReference.findTargetIds(null, null).isEmpty());
+        assertTrue(ContentReference.findTargetIds(new HashMap<>(), UUID.randomUUID()).isEmpty());
+    }
+
+    // Compares against matching the IDs in the serialized values, which is
+    // how a full-text * matches query finds them.
+    @Test
+    public void matchesFullText() {
+        Random random = new Random(0);
+
+        for (int i = 0; i < 200; ++ i) {
+            List<UUID> ids = new ArrayList<>();
+
+            for (int j = 0; j < 20; ++ j) {
+                ids.add(UUID.randomUUID());
+            }
+
+            UUID self = ids.get(0);
+            Map<String, Object> values = randomValues(random, ids, 3);
+
+            values.put(State.ID_KEY, self.toString());
+            values.put(State.TYPE_KEY, UUID.randomUUID().toString());
+
+            Set<UUID> targetIds = ContentReference.findTargetIds(values, self);
+            String text = ObjectUtils.toJson(withoutIdsAndTypes(values)).toLowerCase();
+
+            for (UUID id : ids) {
+                assertEquals(
+                        "ID: " + id + ", values: " + values,
+                        !id.equals(self) && text.contains(id.toString()),
+                        targetIds.contains(id));
+            }
+        }
+    }
+
+    private static Map<String, Object> randomValues(Random random, List<UUID> ids, int depth) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        int size = random.nextInt(5);
+
+        for (int i = 0; i < size; ++ i) {
+            values.put("field" + i, randomValue(random, ids, depth));
+        }
+
+        return values;
+    }
+
+    private static Object randomValue(Random random, List<UUID> ids, int depth) {
+        UUID id = ids.get(random.nextInt(ids.size()));
+
+        switch (depth > 0 ? random.nextInt(7) : random.nextInt(4)) {
+            case 0 :
+                return reference(id);
+
+            case 1 :
+                return "Text " + (random.nextBoolean() ? id.toString() : id.toString().toUpperCase()) + " text";
+
+            case 2 :
+                return random.nextInt();
+
+            case 3 :
+                return "Text without references";
+
+            case 4 :
+                List<Object> list = new ArrayList<>();
+
+                for (int i = random.nextInt(4); i > 0; -- i) {
+                    list.add(randomValue(random, ids, depth - 1));
+                }
+
+                return list;
+
+            case 5 :
+                Map<String, Object> embedded = randomValues(random, ids, depth - 1);
+
+                embedded.put(State.ID_KEY, UUID.randomUUID().toString());
+                embedded.put(State.TYPE_KEY, UUID.randomUUID().toString());
+                return embedded;
+
+            default :
+                return randomValues(random, ids, depth - 1);
+        }
+    }
+
+    private static Object withoutIdsAndTypes(Object value) {
+        if (value instanceof Map) {
+            Map<Object, Object> copy = new LinkedHashMap<>();
+
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (!State.ID_KEY.equals(entry.getKey()) && !State.TYPE_KEY.equals(entry.getKey())) {
+                    copy.put(entry.getKey(), withoutIdsAndTypes(entry.getValue()));
+                }
+            }
+
+            return copy;
+
+        } else if (value instanceof List) {
+            List<Object> copy = new ArrayList<>();
+
+            for (Object item : (List<?>) value) {
+                copy.add(withoutIdsAndTypes(item));
+            }
+
+            return copy;
+
+        } else {
+            return value;
+        }
+    }
+}
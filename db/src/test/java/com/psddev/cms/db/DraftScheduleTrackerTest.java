@@ -0,0 +1,121 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+
+public class DraftScheduleTrackerTest {
+
+    private static final UUID A = new UUID(0L, 1L);
+    private static final UUID B = new UUID(0L, 2L);
+
+    private final List<String> updates = new ArrayList<>();
+
+    private void update(UUID scheduleId, int delta) {
+        updates.add(scheduleId.getLeastSignificantBits() + ":" + delta);
+    }
+
+    // Saving a draft without touching its schedule, which is the common
+    // case, shouldn't update any counts.
+    @Test
+    public void unchanged() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        for (int i = 0; i < 3; ++ i) {
+            tracker.beforeSave(false);
+            tracker.afterSave(A, this::update);
+        }
+
+        assertEquals(Collections.emptyList(), updates);
+    }
+
+    @Test
+    public void created() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.beforeSave(true);
+        tracker.afterSave(A, this::update);
+        tracker.beforeSave(false);
+        tracker.afterSave(A, this::update);
+
+        assertEquals(Arrays.asList("1:1"), updates);
+    }
+
+    @Test
+    public void moved() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.beforeChange(A);
+        tracker.beforeChange(null);
+        tracker.beforeSave(false);
+        tracker.afterSave(B, this::update);
+
+        assertEquals(Arrays.asList("2:1", "1:-1"), updates);
+    }
+
+    @Test
+    public void movedBack() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.beforeChange(A);
+        tracker.beforeChange(B);
+        tracker.beforeSave(false);
+        tracker.afterSave(A, this::update);
+
+        assertEquals(Collections.emptyList(), updates);
+    }
+
+    @Test
+    public void unscheduled() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.beforeChange(A);
+        tracker.beforeSave(false);
+        tracker.afterSave(null, this::update);
+
+        assertEquals(Arrays.asList("1:-1"), updates);
+    }
+
+    @Test
+    public void deleted() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.afterDelete(A, false, this::update);
+
+        // From the schedule that it was saved in.
+        tracker.beforeChange(B);
+        tracker.afterDelete(A, false, this::update);
+
+        assertEquals(Arrays.asList("1:-1", "2:-1"), updates);
+    }
+
+    // Schedule#trigger deletes the schedule after its drafts.
+    @Test
+    public void deletedByTrigger() {
+        DraftScheduleTracker tracker = new DraftScheduleTracker();
+
+        tracker.afterDelete(A, true, this::update);
+
+        assertEquals(Collections.emptyList(), updates);
+    }
+
+    // Content.Static#purge deletes all drafts of an object at once.
+    @Test
+    public void purged() {
+        DraftScheduleTracker.afterDeleteAll(Arrays.asList(A, null, B, A), this::update);
+
+        assertEquals(Arrays.asList("1:-2", "2:-1"), updates);
+    }
+
+    @Test
+    public void purgedUnscheduled() {
+        DraftScheduleTracker.afterDeleteAll(Arrays.asList(null, null), this::update);
+
+        assertEquals(Collections.emptyList(), updates);
+    }
+}
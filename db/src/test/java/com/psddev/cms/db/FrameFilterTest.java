@@ -0,0 +1,162 @@
+package com.psddev.cms.db;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.psddev.dari.util.HtmlWriter;
+
+@SuppressWarnings("deprecation")
+public class FrameFilterTest {
+
+    // Output of the filter before the frame body was streamed.
+    private static String captured(String body) throws IOException {
+        StringWriter output = new StringWriter();
+        HtmlWriter writer = new HtmlWriter(output);
+
+        writer.writeTag("!doctype html");
+        writer.writeStart("html");
+            writer.writeStart("body");
+                writer.writeStart("textarea", "id", "frameBody");
+                    writer.writeHtml(body);
+                writer.writeEnd();
+            writer.writeEnd();
+        writer.writeEnd();
+
+        return output.toString();
+    }
+
+    private static String streamed(String body, int writeSize, int bufferSize) throws IOException {
+        StringWriter output = new StringWriter();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        FrameFilter.FrameWriter frame = new FrameFilter.FrameWriter(response, bufferSize);
+
+        for (int i = 0, length = body.length(); i < length; i += writeSize) {
+            frame.write(body, i, Math.min(writeSize, length - i));
+        }
+
+        frame.close();
+        return output.toString();
+    }
+
+    @Test
+    public void empty() throws IOException {
+        assertEquals(captured(""), streamed("", 1, FrameFilter.FrameWriter.BUFFER_SIZE));
+    }
+
+    @Test
+    public void identical() throws IOException {
+        StringBuilder body = new StringBuilder();
+
+        // Makes sure that the escaped characters and the surrogate pairs
+        // cross the chunk boundaries, starting with the high surrogate as
+        // the last character of the first chunk.
+        while (body.length() < FrameFilter.FrameWriter.CHUNK_SIZE - 20) {
+            body.append('x');
+        }
+
+        while (body.length() < FrameFilter.FrameWriter.CHUNK_SIZE * 3) {
+            body.append("<p class=\"a&b\">'\u00e9' \uD83D\uDE00</p>\n");
+        }
+
+        String html = body.toString();
+        String expected = captured(html);
+
+        for (int bufferSize : new int[] { 0, 1000, FrameFilter.FrameWriter.BUFFER_SIZE }) {
+            for (int writeSize : new int[] { 1, 7, 1000, FrameFilter.FrameWriter.CHUNK_SIZE - 1, html.length() }) {
+                assertEquals(expected, streamed(html, writeSize, bufferSize));
+            }
+        }
+    }
+
+    // The page can still redirect after writing some output, since nothing
+    // has been written to the real response yet.
+    @Test
+    public void redirectedWhileBuffering() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FrameFilter.FrameWriter frame = new FrameFilter.FrameWriter(response);
+        FrameFilter.CapturingResponse capturing = new FrameFilter.CapturingResponse(response, frame);
+
+        capturing.getWriter().write("<p>Saving</p>");
+        capturing.setHeader("X-Test", "test");
+        capturing.sendRedirect("/next");
+        capturing.getWriter().write("<p>Ignored</p>");
+        frame.close();
+
+        assertFalse(frame.isStreaming());
+        verify(response).setHeader("X-Test", "test");
+        verify(response).sendRedirect("/next");
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    public void errorWhileBuffering() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+        FrameFilter.FrameWriter frame = new FrameFilter.FrameWriter(response);
+        FrameFilter.CapturingResponse capturing = new FrameFilter.CapturingResponse(response, frame);
+
+        capturing.getWriter().write("<p>Partial</p>");
+        capturing.sendError(HttpServletResponse.SC_NOT_FOUND);
+        frame.close();
+
+        verify(response).sendError(HttpServletResponse.SC_NOT_FOUND);
+        verify(response, never()).getWriter();
+    }
+
+    @Test
+    public void resetWhileBuffering() throws IOException {
+        StringWriter output = new StringWriter();
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(response.getWriter()).thenReturn(new PrintWriter(output));
+
+        FrameFilter.FrameWriter frame = new FrameFilter.FrameWriter(response);
+        FrameFilter.CapturingResponse capturing = new FrameFilter.CapturingResponse(response, frame);
+
+        capturing.getWriter().write("<p>Discarded</p>");
+        capturing.resetBuffer();
+        capturing.getWriter().write("<p>Kept</p>");
+        frame.close();
+
+        verify(response).resetBuffer();
+        assertEquals(captured("<p>Kept</p>"), output.toString());
+    }
+
+    // Only the large pages are streamed before the chain completes.
+    @Test
+    public void streamedAfterBufferSize() throws IOException {
+        HttpServletResponse response = mock(HttpServletResponse.class);
+
+        when(response.getWriter()).thenReturn(new PrintWriter(new StringWriter()));
+
+        FrameFilter.FrameWriter frame = new FrameFilter.FrameWriter(response, 100);
+        char[] body = new char[100];
+
+        Arrays.fill(body, 'x');
+        frame.write(body, 0, body.length);
+
+        assertFalse(frame.isStreaming());
+        verify(response, never()).getWriter();
+
+        frame.write(body, 0, 1);
+
+        assertTrue(frame.isStreaming());
+        verify(response).getWriter();
+        frame.close();
+    }
+}
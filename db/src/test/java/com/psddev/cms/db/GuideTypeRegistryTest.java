@@ -0,0 +1,146 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class GuideTypeRegistryTest {
+
+    @Test
+    public void createLockPerType() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        assertSame(GuideTypeRegistry.getCreateLock(a), GuideTypeRegistry.getCreateLock(a));
+        assertFalse(GuideTypeRegistry.getCreateLock(a) == GuideTypeRegistry.getCreateLock(b));
+    }
+
+    @Test
+    public void onlyMissingCreated() {
+        UUID existing = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+        List<Set<UUID>> created = new ArrayList<>();
+
+        GuideTypeRegistry.createMissing(
+                Arrays.asList(existing, missing),
+                ids -> Collections.singleton(existing),
+                created::add);
+
+        assertEquals(Collections.singletonList(Collections.singleton(missing)), created);
+    }
+
+    @Test
+    public void noneMissing() {
+        UUID existing = UUID.randomUUID();
+
+        GuideTypeRegistry.createMissing(
+                Collections.singleton(existing),
+                ids -> Collections.singleton(existing),
+                ids -> {
+                    throw new AssertionError();
+                });
+    }
+
+    @Test
+    public void unlockedOnFailure() {
+        UUID typeId = UUID.randomUUID();
+
+        try {
+            GuideTypeRegistry.createMissing(
+                    Collections.singleton(typeId),
+                    ids -> Collections.emptySet(),
+                    ids -> {
+                        throw new IllegalStateException();
+                    });
+
+        } catch (IllegalStateException error) {
+            // Expected.
+        }
+
+        assertFalse(GuideTypeRegistry.getCreateLock(typeId).isLocked());
+    }
+
+    // Concurrent batches with overlapping types in different orders create
+    // each guide exactly once without deadlocking.
+    @Test(timeout = 60000L)
+    public void concurrentCreation() throws Exception {
+        List<UUID> typeIds = new ArrayList<>();
+
+        for (int i = 0; i < 20; ++ i) {
+            typeIds.add(UUID.randomUUID());
+        }
+
+        Set<UUID> database = ConcurrentHashMap.newKeySet();
+        ConcurrentHashMap<UUID, AtomicInteger> creates = new ConcurrentHashMap<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int t = 0; t < 8; ++ t) {
+                List<UUID> batch = new ArrayList<>(typeIds);
+
+                Collections.shuffle(batch);
+                batch = batch.subList(0, 15);
+
+                List<UUID> finalBatch = batch;
+
+                results.add(executor.submit(() -> {
+                    start.await();
+
+                    GuideTypeRegistry.createMissing(
+                            finalBatch,
+                            ids -> {
+                                Set<UUID> found = new HashSet<>(ids);
+
+                                found.retainAll(database);
+                                return found;
+                            },
+                            ids -> {
+                                for (UUID id : ids) {
+                                    creates.computeIfAbsent(id, k -> new AtomicInteger()).incrementAndGet();
+                                    Thread.yield();
+                                    database.add(id);
+                                }
+                            });
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> result : results) {
+                result.get(1, TimeUnit.MINUTES);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertFalse(creates.isEmpty());
+
+        for (AtomicInteger count : creates.values()) {
+            assertEquals(1, count.get());
+        }
+
+        assertEquals(database, creates.keySet());
+    }
+}
@@ -0,0 +1,440 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import com.psddev.dari.util.MailMessage;
+import com.psddev.dari.util.MailProvider;
+import com.psddev.dari.util.SmsProvider;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@RunWith(MockitoJUnitRunner.class)
+public class NotificationDispatcherTest {
+
+    @Mock
+    MailProvider mail;
+
+    @Mock
+    SmsProvider sms;
+
+    MemoryQueue queue;
+    NotificationDispatcher dispatcher;
+
+    @Before
+    public void before() {
+        queue = new MemoryQueue();
+        dispatcher = new NotificationDispatcher(() -> mail, () -> sms, 4, queue);
+    }
+
+    @After
+    public void after() {
+        dispatcher.stop();
+    }
+
+    @Test
+    public void verifySendsEveryMessage() {
+        List<NotificationDispatcher.Message> messages = new ArrayList<>();
+
+        for (int i = 0; i < 200; ++ i) {
+            messages.add(new NotificationDispatcher.Message(NotificationMethod.EMAIL, "user" + i + "@example.com", "Subject", "Body", null));
+        }
+
+        messages.add(new NotificationDispatcher.Message(NotificationMethod.SMS, "5555555555", null, "Body", null));
+
+        Map<NotificationDispatcher.Message, Exception> failures = dispatcher.send(messages);
+
+        assertTrue(failures.isEmpty());
+        verify(mail, times(200)).send(any(MailMessage.class));
+        verify(sms).send(isNull(String.class), eq("5555555555"), eq("Body"));
+    }
+
+    @Test
+    public void verifyAddressesEmail() {
+        ArgumentCaptor<MailMessage> captor = ArgumentCaptor.forClass(MailMessage.class);
+
+        dispatcher.send(Arrays.asList(new NotificationDispatcher.Message(NotificationMethod.EMAIL, "user@example.com", "Subject", "Body", null)));
+
+        verify(mail).send(captor.capture());
+        assertEquals("Subject", captor.getValue().getSubject());
+        assertEquals("Body", captor.getValue().getBodyPlain());
+    }
+
+    @Test
+    public void verifyReportsFailures() {
+        NotificationDispatcher.Message good = new NotificationDispatcher.Message(NotificationMethod.SMS, "good", null, "Body", null);
+        NotificationDispatcher.Message bad = new NotificationDispatcher.Message(NotificationMethod.SMS, "bad", null, "Body", null);
+
+        doThrow(new IllegalStateException()).when(sms).send(isNull(String.class), eq("bad"), any(String.class));
+
+        Map<NotificationDispatcher.Message, Exception> failures = dispatcher.send(Arrays.asList(good, bad));
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(bad) instanceof IllegalStateException);
+        verify(sms).send(isNull(String.class), eq("good"), eq("Body"));
+    }
+
+    @Test
+    public void verifyEnqueueSendsOnce() throws Exception {
+        dispatcher.enqueue(Arrays.asList(
+                new NotificationDispatcher.Message(NotificationMethod.EMAIL, "a@example.com", "Subject", "Body", null),
+                new NotificationDispatcher.Message(NotificationMethod.EMAIL, "b@example.com", "Subject", "Body", null),
+                new NotificationDispatcher.Message(NotificationMethod.SMS, "5555555555", null, "Body", null)));
+
+        // The poller that was woken up may be sending them already.
+        drain(dispatcher);
+
+        verify(mail, times(2)).send(any(MailMessage.class));
+        verify(sms).send(isNull(String.class), eq("5555555555"), eq("Body"));
+    }
+
+    @Test
+    public void verifyRetriesWithBackoff() {
+        doThrow(new IllegalStateException("Down")).when(sms).send(isNull(String.class), eq("bad"), any(String.class));
+
+        MemoryQueue.Entry entry = queue.addEntry(new NotificationDispatcher.Message(NotificationMethod.SMS, "bad", null, "Body", null));
+        long before = System.currentTimeMillis();
+
+        assertEquals(1, dispatcher.poll());
+        assertRetry(entry, 1, before, 60000L);
+
+        // Not due again until the delay passes.
+        assertEquals(0, dispatcher.poll());
+
+        entry.nextAttemptDate = new Date(0L);
+        before = System.currentTimeMillis();
+
+        assertEquals(1, dispatcher.poll());
+        assertRetry(entry, 2, before, 120000L);
+    }
+
+    private void assertRetry(MemoryQueue.Entry entry, int attempts, long before, long delay) {
+        assertEquals(attempts, entry.attempts);
+        assertEquals("Down", entry.lastError);
+        assertFalse(entry.failed);
+        assertNull(entry.claimedBy);
+        assertTrue(entry.nextAttemptDate.getTime() >= before + delay);
+        assertTrue(entry.nextAttemptDate.getTime() <= System.currentTimeMillis() + delay);
+    }
+
+    @Test
+    public void verifyFailsAfterMaximumAttempts() {
+        doThrow(new IllegalStateException("Down")).when(sms).send(isNull(String.class), eq("bad"), any(String.class));
+
+        MemoryQueue.Entry entry = queue.addEntry(new NotificationDispatcher.Message(NotificationMethod.SMS, "bad", null, "Body", null));
+
+        entry.attempts = 4;
+
+        assertEquals(1, dispatcher.poll());
+        assertTrue(entry.failed);
+        assertEquals(5, entry.attempts);
+        assertTrue(queue.entries.contains(entry));
+
+        entry.nextAttemptDate = new Date(0L);
+
+        assertEquals(0, dispatcher.poll());
+        verify(sms, times(1)).send(isNull(String.class), eq("bad"), any(String.class));
+    }
+
+    @Test
+    public void verifySkipsClaimedDeliveries() {
+        long now = System.currentTimeMillis();
+
+        queue.addEntry(new NotificationDispatcher.Message(NotificationMethod.SMS, "claimed", null, "Body", null));
+        assertEquals(1, queue.claim("other", new Date(now), new Date(now + 60000L), 10).size());
+
+        assertEquals(0, dispatcher.poll());
+        verify(sms, times(0)).send(isNull(String.class), eq("claimed"), any(String.class));
+    }
+
+    @Test
+    public void verifyConcurrentPollsSendOnce() throws Exception {
+        Map<String, AtomicInteger> sends = new ConcurrentHashMap<>();
+
+        doAnswer(invocation -> {
+            sends.computeIfAbsent(((MailMessage) invocation.getArguments()[0]).getTo(), k -> new AtomicInteger()).incrementAndGet();
+            return null;
+        }).when(mail).send(any(MailMessage.class));
+
+        for (int i = 0; i < 500; ++ i) {
+            queue.addEntry(new NotificationDispatcher.Message(NotificationMethod.EMAIL, "user" + i + "@example.com", "Subject", "Body", null));
+        }
+
+        List<NotificationDispatcher> dispatchers = new ArrayList<>();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 4; ++ i) {
+                NotificationDispatcher other = new NotificationDispatcher(() -> mail, () -> sms, 2, queue);
+
+                dispatchers.add(other);
+                futures.add(executor.submit(() -> {
+                    drain(other);
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+
+        } finally {
+            executor.shutdownNow();
+            dispatchers.forEach(NotificationDispatcher::stop);
+        }
+
+        assertEquals(500, sends.size());
+        sends.values().forEach(count -> assertEquals(1, count.get()));
+    }
+
+    @Test
+    public void verifyLeaseSizedToBatch() {
+        assertEquals(130000L, NotificationDispatcher.calculateLeaseDuration(200, 4));
+        assertEquals(430000L, NotificationDispatcher.calculateLeaseDuration(200, 1));
+
+        List<Date> leases = new ArrayList<>();
+        MemoryQueue.Entry entry = queue.addEntry(new NotificationDispatcher.Message(NotificationMethod.SMS, "leased", null, "Body", null));
+
+        doAnswer(invocation -> {
+            leases.add(entry.nextAttemptDate);
+            return null;
+        }).when(sms).send(isNull(String.class), eq("leased"), any(String.class));
+
+        long before = System.currentTimeMillis();
+
+        assertEquals(1, dispatcher.poll());
+        assertEquals(1, leases.size());
+        assertTrue(leases.get(0).getTime() >= before + 130000L);
+        assertTrue(leases.get(0).getTime() <= System.currentTimeMillis() + 130000L);
+    }
+
+    // Uses the same lock, find and lease steps as the database queue.
+    private static List<MemoryQueue.Entry> claim(ReentrantLock lock, List<MemoryQueue.Entry> entries, String claimant, long now, long leaseUntil, int limit) {
+        return NotificationDispatcher.claim(
+                lock,
+                () -> {
+                    List<MemoryQueue.Entry> due = new ArrayList<>();
+
+                    for (MemoryQueue.Entry entry : entries) {
+                        if (due.size() >= limit) {
+                            break;
+
+                        } else if (!entry.failed && entry.nextAttemptDate.getTime() <= now) {
+                            Thread.yield();
+                            due.add(entry);
+                        }
+                    }
+
+                    return due;
+                },
+                due -> due.forEach(entry -> {
+                    entry.claimedBy = claimant;
+                    entry.nextAttemptDate = new Date(leaseUntil);
+                }));
+    }
+
+    @Test
+    public void verifyClaimIsExclusive() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        List<MemoryQueue.Entry> entries = new ArrayList<>();
+
+        for (int i = 0; i < 500; ++ i) {
+            MemoryQueue.Entry entry = new MemoryQueue.Entry(new NotificationDispatcher.Message(NotificationMethod.SMS, "user" + i, null, "Body", null));
+
+            entry.nextAttemptDate = new Date(0L);
+            entries.add(entry);
+        }
+
+        Map<MemoryQueue.Entry, AtomicInteger> claims = new ConcurrentHashMap<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 8; ++ i) {
+                String claimant = "server" + i;
+
+                futures.add(executor.submit(() -> {
+                    List<MemoryQueue.Entry> claimed;
+
+                    while (!(claimed = claim(lock, entries, claimant, 1L, 60001L, 20)).isEmpty()) {
+                        claimed.forEach(entry -> claims.computeIfAbsent(entry, k -> new AtomicInteger()).incrementAndGet());
+                    }
+
+                    return null;
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(500, claims.size());
+        claims.values().forEach(count -> assertEquals(1, count.get()));
+        assertFalse(lock.isLocked());
+    }
+
+    // A server that goes away while sending leaves its deliveries claimed
+    // until the lease ends.
+    @Test
+    public void verifyClaimExpiresWithLease() {
+        ReentrantLock lock = new ReentrantLock();
+        MemoryQueue.Entry entry = new MemoryQueue.Entry(new NotificationDispatcher.Message(NotificationMethod.SMS, "user", null, "Body", null));
+        List<MemoryQueue.Entry> entries = Arrays.asList(entry);
+        long lease = NotificationDispatcher.calculateLeaseDuration(200, 4);
+
+        entry.nextAttemptDate = new Date(0L);
+
+        assertEquals(entries, claim(lock, entries, "crashed", 0L, lease, 200));
+        assertEquals("crashed", entry.claimedBy);
+
+        assertTrue(claim(lock, entries, "other", lease - 1L, lease * 2, 200).isEmpty());
+        assertEquals("crashed", entry.claimedBy);
+
+        assertEquals(entries, claim(lock, entries, "other", lease, lease * 2, 200));
+        assertEquals("other", entry.claimedBy);
+        assertEquals(lease * 2, entry.nextAttemptDate.getTime());
+    }
+
+    @Test
+    public void verifyRestartsAfterStop() {
+        dispatcher.stop();
+        dispatcher.start();
+
+        Map<NotificationDispatcher.Message, Exception> failures = dispatcher.send(Arrays.asList(
+                new NotificationDispatcher.Message(NotificationMethod.SMS, "5555555555", null, "Body", null)));
+
+        assertTrue(failures.isEmpty());
+        verify(sms).send(isNull(String.class), eq("5555555555"), eq("Body"));
+    }
+
+    private void drain(NotificationDispatcher dispatcher) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 60000L;
+
+        while (!queue.isEmpty() && System.currentTimeMillis() < timeout) {
+            if (dispatcher.poll() == 0) {
+                Thread.sleep(10L);
+            }
+        }
+
+        assertTrue(queue.isEmpty());
+    }
+
+    // Same claim rules as the database queue, without the database.
+    private static class MemoryQueue implements NotificationDispatcher.Queue<MemoryQueue.Entry> {
+
+        public final List<Entry> entries = new ArrayList<>();
+
+        public static class Entry {
+
+            public final NotificationDispatcher.Message message;
+            public Date nextAttemptDate = new Date();
+            public boolean failed;
+            public int attempts;
+            public String lastError;
+            public String claimedBy;
+
+            public Entry(NotificationDispatcher.Message message) {
+                this.message = message;
+            }
+        }
+
+        public synchronized Entry addEntry(NotificationDispatcher.Message message) {
+            Entry entry = new Entry(message);
+
+            entries.add(entry);
+            return entry;
+        }
+
+        public synchronized boolean isEmpty() {
+            return entries.isEmpty();
+        }
+
+        @Override
+        public void add(Collection<NotificationDispatcher.Message> messages) {
+            messages.forEach(this::addEntry);
+        }
+
+        @Override
+        public synchronized List<Entry> claim(String claimant, Date now, Date leaseUntil, int limit) {
+            List<Entry> claimed = new ArrayList<>();
+
+            for (Entry entry : entries) {
+                if (claimed.size() >= limit) {
+                    break;
+
+                } else if (!entry.failed && !entry.nextAttemptDate.after(now)) {
+                    entry.claimedBy = claimant;
+                    entry.nextAttemptDate = leaseUntil;
+                    claimed.add(entry);
+                }
+            }
+
+            return claimed;
+        }
+
+        @Override
+        public NotificationDispatcher.Message getMessage(Entry entry) {
+            return entry.message;
+        }
+
+        @Override
+        public int getAttempts(Entry entry) {
+            return entry.attempts;
+        }
+
+        @Override
+        public synchronized void remove(Entry entry) {
+            entries.remove(entry);
+        }
+
+        @Override
+        public synchronized void retry(Entry entry, int attempts, String error, Date nextAttemptDate) {
+            entry.claimedBy = null;
+            entry.attempts = attempts;
+            entry.lastError = error;
+            entry.nextAttemptDate = nextAttemptDate;
+        }
+
+        @Override
+        public synchronized void fail(Entry entry, int attempts, String error) {
+            entry.claimedBy = null;
+            entry.attempts = attempts;
+            entry.lastError = error;
+            entry.failed = true;
+        }
+    }
+}
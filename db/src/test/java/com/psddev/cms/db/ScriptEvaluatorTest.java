@@ -0,0 +1,340 @@
+package com.psddev.cms.db;
+
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.script.AbstractScriptEngine;
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
+import javax.script.ScriptEngineFactory;
+import javax.script.ScriptException;
+import javax.script.SimpleBindings;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScriptEvaluatorTest {
+
+    // Understands "get <name>", "set <name>", "sleep <millis>", and
+    // "spin <millis>", which ignores the interrupts, and counts how many
+    // times the engines are created and the scripts are compiled.
+    private static class TestEngine extends AbstractScriptEngine implements Compilable {
+
+        private final TestFactory factory;
+
+        public TestEngine(TestFactory factory) {
+            this.factory = factory;
+        }
+
+        @Override
+        public CompiledScript compile(String script) throws ScriptException {
+            String[] parts = script.split(" ", 2);
+
+            if (parts.length != 2) {
+                throw new ScriptException("Invalid script!");
+            }
+
+            factory.compiles.incrementAndGet();
+
+            return new CompiledScript() {
+
+                @Override
+                public Object eval(ScriptContext context) throws ScriptException {
+                    Bindings bindings = context.getBindings(ScriptContext.ENGINE_SCOPE);
+
+                    switch (parts[0]) {
+                        case "get" :
+                            return bindings.get(parts[1]);
+
+                        case "set" :
+                            bindings.put(parts[1], "set");
+                            return null;
+
+                        case "sleep" :
+                            try {
+                                Thread.sleep(Long.parseLong(parts[1]));
+
+                            } catch (InterruptedException error) {
+                                Thread.currentThread().interrupt();
+                            }
+
+                            return null;
+
+                        case "spin" :
+                            long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Long.parseLong(parts[1]));
+
+                            while (System.nanoTime() < end) {
+                                Thread.interrupted();
+                            }
+
+                            return null;
+
+                        default :
+                            throw new ScriptException("Unknown command!");
+                    }
+                }
+
+                @Override
+                public ScriptEngine getEngine() {
+                    return TestEngine.this;
+                }
+            };
+        }
+
+        @Override
+        public CompiledScript compile(Reader script) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Object eval(String script, ScriptContext context) throws ScriptException {
+            return compile(script).eval(context);
+        }
+
+        @Override
+        public Object eval(Reader reader, ScriptContext context) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Bindings createBindings() {
+            return new SimpleBindings();
+        }
+
+        @Override
+        public ScriptEngineFactory getFactory() {
+            return factory;
+        }
+    }
+
+    private static class TestFactory implements ScriptEngineFactory {
+
+        public final AtomicInteger engines = new AtomicInteger();
+        public final AtomicInteger compiles = new AtomicInteger();
+        private final boolean threadSafe;
+
+        public TestFactory(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public String getEngineName() {
+            return "test";
+        }
+
+        @Override
+        public String getEngineVersion() {
+            return "1";
+        }
+
+        @Override
+        public List<String> getExtensions() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getMimeTypes() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public List<String> getNames() {
+            return Arrays.asList("test");
+        }
+
+        @Override
+        public String getLanguageName() {
+            return "test";
+        }
+
+        @Override
+        public String getLanguageVersion() {
+            return "1";
+        }
+
+        @Override
+        public Object getParameter(String key) {
+            return "THREADING".equals(key) && threadSafe ? "MULTITHREADED" : null;
+        }
+
+        @Override
+        public String getMethodCallSyntax(String object, String method, String... arguments) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getOutputStatement(String toDisplay) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String getProgram(String... statements) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScriptEngine getScriptEngine() {
+            engines.incrementAndGet();
+            return new TestEngine(this);
+        }
+    }
+
+    @Test
+    public void compilesOnce() throws ScriptException {
+        for (boolean threadSafe : new boolean[] { true, false }) {
+            TestFactory factory = new TestFactory(threadSafe);
+            ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(factory), 0L, 100L, 4);
+
+            for (int i = 0; i < 100; ++ i) {
+                assertEquals(i, evaluator.evaluate("test", "get object", Collections.singletonMap("object", i)));
+            }
+
+            assertEquals(1, factory.compiles.get());
+            assertEquals(1, evaluator.getStatistics().size());
+            assertEquals(100L, evaluator.getStatistics().get(0).getCount());
+            assertEquals(0L, evaluator.getStatistics().get(0).getErrorCount());
+        }
+    }
+
+    // Engines that aren't thread-safe should still be shared by all
+    // scripts on the same thread.
+    @Test
+    public void enginePerThread() throws Exception {
+        TestFactory factory = new TestFactory(false);
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(factory), 0L, 100L, 4);
+
+        for (int i = 0; i < 10; ++ i) {
+            evaluator.evaluate("test", "get object" + i, null);
+        }
+
+        assertEquals(1, factory.engines.get());
+
+        Thread thread = new Thread(() -> {
+            try {
+                evaluator.evaluate("test", "get object0", null);
+
+            } catch (ScriptException error) {
+                throw new IllegalStateException(error);
+            }
+        });
+
+        thread.start();
+        thread.join();
+
+        assertEquals(2, factory.engines.get());
+        assertEquals(11, factory.compiles.get());
+    }
+
+    @Test
+    public void evictionDiscardsCompiled() throws ScriptException {
+        TestFactory factory = new TestFactory(false);
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(factory), 0L, 1L, 4);
+
+        evaluator.evaluate("test", "get first", null);
+        evaluator.evaluate("test", "get second", null);
+        evaluator.evaluate("test", "get first", null);
+
+        assertEquals(3, factory.compiles.get());
+        assertEquals(1, factory.engines.get());
+    }
+
+    @Test
+    public void noLeaks() throws ScriptException {
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(new TestFactory(true)), 0L, 100L, 4);
+
+        evaluator.evaluate("test", "set leaked", null);
+        evaluator.evaluate("test", "get object", Collections.singletonMap("object", "first"));
+
+        assertNull(evaluator.evaluate("test", "get leaked", null));
+        assertNull(evaluator.evaluate("test", "get object", null));
+    }
+
+    @Test
+    public void timeout() throws ScriptException {
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(new TestFactory(true)), 50L, 100L, 4);
+
+        assertNull(evaluator.evaluate("test", "sleep 1", null));
+
+        try {
+            evaluator.evaluate("test", "sleep 5000", null);
+            fail();
+
+        } catch (ScriptException error) {
+            assertTrue(error.getMessage().contains("timed out"));
+        }
+
+        for (ScriptEvaluator.Statistics s : evaluator.getStatistics()) {
+            assertEquals(s.getTimeoutCount() > 0L ? 1L : 0L, s.getErrorCount());
+        }
+    }
+
+    // Scripts that ignore the interrupt keep running after the timeout, but
+    // shouldn't stop the other scripts from being evaluated.
+    @Test
+    public void stuckScripts() throws Exception {
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(new TestFactory(false)), 50L, 100L, 2);
+
+        assertTimedOut(evaluator, "spin 500");
+        assertEquals("first", evaluator.evaluate("test", "get object", Collections.singletonMap("object", "first")));
+        assertTimedOut(evaluator, "spin 500");
+
+        // Both threads are still running the scripts.
+        long start = System.nanoTime();
+
+        try {
+            evaluator.evaluate("test", "get object", null);
+            fail();
+
+        } catch (ScriptException error) {
+            assertTrue(error.getMessage().contains("already running"));
+            assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(50L));
+        }
+
+        Thread.sleep(600L);
+
+        assertEquals("second", evaluator.evaluate("test", "get object", Collections.singletonMap("object", "second")));
+    }
+
+    private void assertTimedOut(ScriptEvaluator evaluator, String script) {
+        try {
+            evaluator.evaluate("test", script, null);
+            fail();
+
+        } catch (ScriptException error) {
+            assertTrue(error.getMessage().contains("timed out"));
+        }
+    }
+
+    @Test
+    public void invalidScripts() throws ScriptException {
+        ScriptEvaluator evaluator = new ScriptEvaluator(Arrays.asList(new TestFactory(true)), 0L, 100L, 4);
+
+        try {
+            evaluator.evaluate("missing", "get object", null);
+            fail();
+
+        } catch (IllegalArgumentException error) {
+            // Expected.
+        }
+
+        try {
+            evaluator.evaluate("test", "invalid", null);
+            fail();
+
+        } catch (ScriptException error) {
+            // Expected.
+        }
+
+        assertTrue(evaluator.getStatistics().isEmpty());
+    }
+}
@@ -0,0 +1,111 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.psddev.dari.util.SparseSet;
+
+public class SiteAccessTest {
+
+    // Builds permissions the same way that the permissions field does, by
+    // adding and removing the site permissions and their prefixes.
+    private static SparseSet randomPermissions(Random random, List<UUID> siteIds) {
+        SparseSet permissions = new SparseSet(random.nextInt(4) == 0 ? "+/" : "");
+
+        for (int i = random.nextInt(12); i > 0; -- i) {
+            String permissionId;
+
+            switch (random.nextInt(6)) {
+                case 0 :
+                    permissionId = "site/global";
+                    break;
+
+                case 1 :
+                    permissionId = "site/";
+                    break;
+
+                case 2 :
+                    permissionId = "";
+                    break;
+
+                case 3 :
+                    permissionId = "area/dashboard";
+                    break;
+
+                default :
+                    permissionId = "site/" + siteIds.get(random.nextInt(siteIds.size()));
+                    break;
+            }
+
+            if (random.nextBoolean()) {
+                permissionId += "/";
+            }
+
+            if (random.nextInt(3) == 0) {
+                permissions.remove(permissionId);
+
+            } else {
+                permissions.add(permissionId);
+            }
+        }
+
+        return permissions;
+    }
+
+    @Test
+    public void matchesSparseSet() {
+        Random random = new Random(0);
+
+        for (int i = 0; i < 1000; ++ i) {
+            List<UUID> allSiteIds = new ArrayList<>();
+
+            for (int s = random.nextInt(30) + 1; s > 0; -- s) {
+                allSiteIds.add(new UUID(random.nextLong(), random.nextLong()));
+            }
+
+            // Some sites aren't known, like the ones created since the list
+            // of all sites was loaded.
+            List<UUID> knownSiteIds = allSiteIds.subList(0, random.nextInt(allSiteIds.size() + 1));
+            SparseSet permissions = randomPermissions(random, allSiteIds);
+            SiteAccess access = new SiteAccess(knownSiteIds, permissions::contains);
+            List<UUID> expectedAccessibleSiteIds = new ArrayList<>();
+
+            for (UUID siteId : knownSiteIds) {
+                if (permissions.contains("site/" + siteId)) {
+                    expectedAccessibleSiteIds.add(siteId);
+                }
+            }
+
+            assertEquals(permissions.toString(), permissions.contains("site/global"), access.isGlobalAccessible());
+            assertEquals(permissions.toString(), expectedAccessibleSiteIds, access.getAccessibleSiteIds());
+
+            for (UUID siteId : allSiteIds) {
+                assertEquals(permissions.toString(), permissions.contains("site/" + siteId), access.isAccessible(siteId));
+            }
+
+            assertFalse(access.isAccessible(null));
+        }
+    }
+
+    @Test
+    public void allAccessible() {
+        List<UUID> siteIds = new ArrayList<>();
+
+        for (int i = 0; i < 10; ++ i) {
+            siteIds.add(UUID.randomUUID());
+        }
+
+        SiteAccess access = new SiteAccess(siteIds, permissionId -> true);
+
+        assertTrue(access.isGlobalAccessible());
+        assertEquals(siteIds, access.getAccessibleSiteIds());
+        assertTrue(access.isAccessible(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,161 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SnapshotRegistryTest {
+
+    @Test
+    public void loadedOnce() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> "v" + loads.incrementAndGet());
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+
+            for (int i = 0; i < 8; ++ i) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return registry.get();
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("v1", result.get(1, TimeUnit.MINUTES));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void updated() {
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> "loaded");
+
+        registry.update(s -> s + "+saved");
+        assertEquals("null+saved", registry.getIfPresent());
+
+        registry.update(s -> s + "+saved");
+        assertEquals("null+saved+saved", registry.get());
+    }
+
+    // A load that started before a change on this server may be missing
+    // the change.
+    @Test
+    public void staleLoadDiscarded() {
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> "loaded");
+        long startGeneration = registry.getGeneration();
+
+        registry.update(s -> "saved");
+
+        assertFalse(registry.set("stale", startGeneration));
+        assertEquals("saved", registry.get());
+
+        assertTrue(registry.set("fresh", registry.getGeneration()));
+        assertEquals("fresh", registry.get());
+    }
+
+    // The current snapshot is used until the new one is loaded in the
+    // background, so that the request threads never wait.
+    @Test(timeout = 10000L)
+    public void invalidated() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> {
+            if (loads.incrementAndGet() > 1) {
+                try {
+                    loading.await();
+
+                } catch (InterruptedException error) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            return "v" + loads.get();
+        });
+
+        assertEquals("v1", registry.get());
+
+        registry.invalidate();
+        assertEquals("v1", registry.get());
+
+        loading.countDown();
+
+        while (!"v2".equals(registry.getIfPresent())) {
+            Thread.sleep(10L);
+        }
+    }
+
+    @Test
+    public void invalidatedBeforeLoad() {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> "v" + loads.incrementAndGet());
+
+        registry.invalidate();
+        assertNull(registry.getIfPresent());
+        assertEquals("v1", registry.get());
+    }
+
+    // A change on this server records the last update date, so that the
+    // next check only loads the changes from the other servers.
+    @Test
+    public void refreshedAfterRemoteUpdate() {
+        AtomicInteger loads = new AtomicInteger();
+        AtomicReference<Date> lastUpdate = new AtomicReference<>(new Date(1L));
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(String.class, () -> "v" + loads.incrementAndGet(), lastUpdate::get);
+
+        assertEquals("v1", registry.get());
+
+        lastUpdate.set(new Date(2L));
+        registry.update(s -> s + "+saved");
+        registry.refresh();
+        assertEquals("v1+saved", registry.get());
+        assertEquals(1, loads.get());
+
+        lastUpdate.set(new Date(3L));
+        registry.refresh();
+        assertEquals("v2", registry.get());
+    }
+
+    @Test(timeout = 10000L)
+    public void reloadDebounced() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        SnapshotRegistry<String> registry = new SnapshotRegistry<>(null, () -> "v" + loads.incrementAndGet());
+
+        assertEquals("v1", registry.get());
+
+        for (int i = 0; i < 10; ++ i) {
+            registry.reload();
+            assertEquals("v1", registry.get());
+        }
+
+        while (loads.get() < 2) {
+            Thread.sleep(10L);
+        }
+
+        Thread.sleep(100L);
+        assertEquals(2, loads.get());
+        assertEquals("v2", registry.get());
+    }
+}
@@ -0,0 +1,134 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TaxonomyTreeTest {
+
+    private static final UUID A = id(1);
+    private static final UUID A1 = id(2);
+    private static final UUID A2 = id(3);
+    private static final UUID A21 = id(4);
+    private static final UUID B = id(5);
+    private static final UUID C = id(6);
+
+    private static UUID id(int i) {
+        return new UUID(0L, i);
+    }
+
+    private static TaxonomyTree.Node node(UUID id, Class<?> objectClass, boolean root, Object sortValue, UUID... childIds) {
+        return new TaxonomyTree.Node(id, objectClass, root, sortValue, Arrays.asList(childIds));
+    }
+
+    //   A (sort "a") -> A2 ("b"), A1 ("a"), A2 again
+    //     A2 -> A21
+    //   B (Integer class, sort "b")
+    //   C (not a root)
+    private static TaxonomyTree create() {
+        return new TaxonomyTree(Arrays.asList(
+                node(A, String.class, true, "a", A2, A1, A2),
+                node(A1, String.class, false, "a"),
+                node(A2, String.class, false, "b", A21),
+                node(A21, String.class, false, null),
+                node(B, Integer.class, true, "b"),
+                node(C, String.class, false, "c")));
+    }
+
+    @Test
+    public void roots() {
+        TaxonomyTree tree = create();
+
+        assertEquals(Arrays.asList(A, B), tree.getRootIds(null));
+        assertEquals(Arrays.asList(A), tree.getRootIds(String.class));
+        assertEquals(Arrays.asList(B), tree.getRootIds(Number.class));
+    }
+
+    @Test
+    public void childrenSortedWithoutDuplicates() {
+        TaxonomyTree tree = create();
+
+        assertEquals(Arrays.asList(A1, A2), tree.getChildIds(A));
+        assertEquals(Arrays.asList(A21), tree.getChildIds(A2));
+        assertTrue(tree.getChildIds(B).isEmpty());
+        assertTrue(tree.getChildIds(id(100)).isEmpty());
+        assertEquals(Arrays.asList(A), tree.getParentIds(A2));
+    }
+
+    @Test
+    public void descendants() {
+        TaxonomyTree tree = create();
+        Set<UUID> descendantIds = new LinkedHashSet<>();
+
+        tree.collectDescendantIds(A, descendantIds);
+
+        assertEquals(new HashSet<>(Arrays.asList(A1, A2, A21)), descendantIds);
+        assertEquals(4, tree.getSubtreeSize(A));
+        assertEquals(1, tree.getSubtreeSize(C));
+        assertEquals(0, tree.getSubtreeSize(id(100)));
+        assertEquals(Arrays.asList(A, A2, A21), tree.getPath(A21));
+    }
+
+    @Test
+    public void cycles() {
+        TaxonomyTree tree = new TaxonomyTree(Arrays.asList(
+                node(A1, null, false, null, A2),
+                node(A2, null, false, null, A1)));
+
+        assertEquals(2, tree.getSubtreeSize(A1));
+        assertEquals(Arrays.asList(A1, A2), tree.getPath(A2));
+        assertFalse(tree.isVisible(A1, Collections.singleton(C), new HashMap<>(), new HashSet<>()));
+    }
+
+    @Test
+    public void visible() {
+        TaxonomyTree tree = create();
+        Set<UUID> matchingIds = Collections.singleton(A21);
+
+        assertTrue(tree.isVisible(A, null, new HashMap<>(), new HashSet<>()));
+        assertTrue(tree.isVisible(A, matchingIds, new HashMap<>(), new HashSet<>()));
+        assertTrue(tree.isVisible(A2, matchingIds, new HashMap<>(), new HashSet<>()));
+        assertFalse(tree.isVisible(A1, matchingIds, new HashMap<>(), new HashSet<>()));
+        assertFalse(tree.isVisible(B, matchingIds, new HashMap<>(), new HashSet<>()));
+    }
+
+    @Test
+    public void changed() {
+        TaxonomyTree tree = create();
+        List<TaxonomyTree.Node> changedNodes = new ArrayList<>();
+
+        // Moves A21 from A2 to C.
+        changedNodes.add(node(A2, String.class, false, "b"));
+        changedNodes.add(node(C, String.class, true, "c", A21));
+
+        TaxonomyTree changed = tree.with(changedNodes);
+
+        assertEquals(Arrays.asList(A, B, C), changed.getRootIds(null));
+        assertTrue(changed.getChildIds(A2).isEmpty());
+        assertEquals(Arrays.asList(C), changed.getParentIds(A21));
+
+        // The original is unchanged.
+        assertEquals(Arrays.asList(A21), tree.getChildIds(A2));
+    }
+
+    @Test
+    public void removed() {
+        TaxonomyTree tree = create().without(A2);
+
+        assertFalse(tree.contains(A2));
+        assertEquals(Arrays.asList(A1), tree.getChildIds(A));
+        assertTrue(tree.getParentIds(A21).isEmpty());
+        assertEquals(2, tree.getSubtreeSize(A));
+    }
+}
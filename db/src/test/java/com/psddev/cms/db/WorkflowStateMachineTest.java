@@ -0,0 +1,191 @@
+package com.psddev.cms.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class WorkflowStateMachineTest {
+
+    private static Map<String, Object> state(String id, String name, String displayName) {
+        Map<String, Object> state = new LinkedHashMap<>();
+
+        state.put("id", id);
+        state.put("name", name);
+        state.put("displayName", displayName);
+        return state;
+    }
+
+    private static Map<String, Object> transition(String name, String source, String target) {
+        Map<String, Object> transition = new LinkedHashMap<>();
+
+        transition.put("name", name);
+        transition.put("displayName", name + " Display");
+        transition.put("source", source);
+        transition.put("target", target);
+        return transition;
+    }
+
+    private static Map<String, Object> actions(List<Map<String, Object>> states, List<Map<String, Object>> transitions) {
+        Map<String, Object> actions = new LinkedHashMap<>();
+
+        actions.put("states", states);
+        actions.put("transitions", transitions);
+        return actions;
+    }
+
+    @Test
+    public void reviewWorkflow() {
+        WorkflowStateMachine machine = WorkflowStateMachine.compile(actions(
+                Arrays.asList(
+                        state("s1", "review", "In Review"),
+                        state("s2", "rejected", null)),
+                Arrays.asList(
+                        transition("submit", "initial", "s1"),
+                        transition("reject", "s1", "s2"),
+                        transition("resubmit", "s2", "s1"),
+                        transition("approve", "s1", "final"))));
+
+        assertEquals(Arrays.asList("review", "rejected"), names(machine.getStates()));
+        assertEquals("In Review", machine.getState("review").getDisplayName());
+        assertEquals("rejected", machine.getState("rejected").getDisplayName());
+        assertNull(machine.getState("missing"));
+        assertEquals(Arrays.asList("submit", "reject", "resubmit", "approve"), new ArrayList<>(machine.getTransitions().keySet()));
+        assertEquals(Arrays.asList("submit"), new ArrayList<>(machine.getTransitionsFrom(null).keySet()));
+        assertEquals(Arrays.asList("reject"), new ArrayList<>(machine.getTransitionsFrom("review").keySet()));
+        assertEquals(Arrays.asList("approve"), new ArrayList<>(machine.getTransitionsTo(null).keySet()));
+        assertEquals(Arrays.asList("resubmit"), new ArrayList<>(machine.getTransitionsTo("review").keySet()));
+    }
+
+    @Test
+    public void emptyActions() {
+        WorkflowStateMachine machine = WorkflowStateMachine.compile(null);
+
+        assertTrue(machine.getStates().isEmpty());
+        assertTrue(machine.getTransitions().isEmpty());
+        assertTrue(machine.getTransitionsFrom(null).isEmpty());
+        assertTrue(machine.getTransitionsTo(null).isEmpty());
+        assertTrue(WorkflowStateMachine.compile(new HashMap<>()).getTransitions().isEmpty());
+    }
+
+    // Compares against parsing the raw actions on every call, which is what
+    // the compiled state machine replaces.
+    @Test
+    public void matchesLegacyParsing() {
+        Random random = new Random(0);
+
+        for (int i = 0; i < 200; ++ i) {
+            List<Map<String, Object>> states = new ArrayList<>();
+            List<String> ids = new ArrayList<>(Arrays.asList("initial", "final"));
+            List<Map<String, Object>> transitions = new ArrayList<>();
+
+            for (int s = random.nextInt(6); s > 0; -- s) {
+                String id = "s" + s;
+
+                ids.add(id);
+                states.add(state(id, "state" + random.nextInt(8), random.nextBoolean() ? "State " + s : null));
+            }
+
+            for (int t = random.nextInt(10); t > 0; -- t) {
+                String source = ids.get(random.nextInt(ids.size()));
+                String target = ids.get(random.nextInt(ids.size()));
+
+                // The editor never creates these.
+                if ("final".equals(source) || "initial".equals(target)) {
+                    continue;
+                }
+
+                transitions.add(transition("transition" + t, source, target));
+            }
+
+            Map<String, Object> actions = actions(states, transitions);
+            WorkflowStateMachine machine = WorkflowStateMachine.compile(actions);
+
+            assertEquals(legacyStates(actions), new HashSet<>(names(machine.getStates())));
+            assertEquals(legacyTransitions(actions, null, null), describe(machine.getTransitions()));
+
+            List<String> names = new ArrayList<>(Arrays.asList("New", "Published", "missing"));
+
+            for (int s = 0; s < 8; ++ s) {
+                names.add("state" + s);
+            }
+
+            for (String name : names) {
+                assertEquals(legacyTransitions(actions, name, null), describe(machine.getTransitionsFrom(name)));
+                assertEquals(legacyTransitions(actions, null, name), describe(machine.getTransitionsTo(name)));
+            }
+        }
+    }
+
+    private static List<String> names(Iterable<WorkflowState> states) {
+        List<String> names = new ArrayList<>();
+
+        for (WorkflowState state : states) {
+            names.add(state.getName());
+        }
+
+        return names;
+    }
+
+    private static Map<String, String> describe(Map<String, WorkflowTransition> transitions) {
+        Map<String, String> descriptions = new HashMap<>();
+
+        for (Map.Entry<String, WorkflowTransition> entry : transitions.entrySet()) {
+            WorkflowTransition transition = entry.getValue();
+
+            descriptions.put(entry.getKey(), transition.getDisplayName()
+                    + ":" + transition.getSource().getName()
+                    + ":" + transition.getTarget().getName());
+        }
+
+        return descriptions;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> legacyStates(Map<String, Object> actions) {
+        Set<String> names = new HashSet<>();
+
+        for (Map<String, Object> s : (List<Map<String, Object>>) actions.get("states")) {
+            names.add((String) s.get("name"));
+        }
+
+        return names;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, String> legacyTransitions(Map<String, Object> actions, String from, String to) {
+        Map<String, String> states = new HashMap<>();
+        Map<String, String> transitions = new HashMap<>();
+
+        for (Map<String, Object> s : (List<Map<String, Object>>) actions.get("states")) {
+            states.put((String) s.get("id"), (String) s.get("name"));
+        }
+
+        states.put("initial", "New");
+        states.put("final", "Published");
+
+        for (Map<String, Object> t : (List<Map<String, Object>>) actions.get("transitions")) {
+            String name = (String) t.get("name");
+            String source = states.get(t.get("source"));
+            String target = states.get(t.get("target"));
+
+            if ((from == null || (from.equals(source) && !"Published".equals(target)))
+                    && (to == null || (to.equals(target) && !"New".equals(source)))) {
+
+                transitions.put(name, t.get("displayName") + ":" + source + ":" + target);
+            }
+        }
+
+        return transitions;
+    }
+}
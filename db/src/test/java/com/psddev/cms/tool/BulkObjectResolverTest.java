@@ -0,0 +1,98 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class BulkObjectResolverTest {
+
+    List<Collection<UUID>> queries;
+    List<UUID> existing;
+    BulkObjectResolver resolver;
+
+    @Before
+    public void before() {
+        queries = new ArrayList<>();
+        existing = new ArrayList<>();
+
+        for (int i = 0; i < 100; ++ i) {
+            existing.add(UUID.randomUUID());
+        }
+
+        resolver = new BulkObjectResolver(ids -> {
+            Map<UUID, Object> objects = new HashMap<>();
+
+            queries.add(new ArrayList<>(ids));
+
+            for (UUID id : ids) {
+                if (existing.contains(id)) {
+                    objects.put(id, "object-" + id);
+                }
+            }
+
+            return objects;
+        });
+    }
+
+    @Test
+    public void findAllUsesSingleQuery() {
+        List<UUID> ids = new ArrayList<>(existing);
+
+        Collections.reverse(ids);
+
+        List<Object> objects = resolver.findAll(ids);
+
+        assertEquals(1, queries.size());
+        assertEquals(100, queries.get(0).size());
+        assertEquals(100, objects.size());
+
+        for (int i = 0; i < ids.size(); ++ i) {
+            assertEquals("object-" + ids.get(i), objects.get(i));
+        }
+    }
+
+    @Test
+    public void findAllSkipsMissingAndInvalid() {
+        UUID missing = UUID.randomUUID();
+        List<Object> objects = resolver.findAll(Arrays.asList(existing.get(0), missing, "invalid", null, existing.get(1).toString()));
+
+        assertEquals(1, queries.size());
+        assertEquals(Arrays.asList("object-" + existing.get(0), "object-" + existing.get(1)), objects);
+    }
+
+    @Test
+    public void prefetchedIdsLoadTogether() {
+        resolver.prefetch(existing.subList(0, 50));
+
+        for (UUID id : existing.subList(0, 50)) {
+            assertEquals("object-" + id, resolver.find(id));
+        }
+
+        assertEquals(1, queries.size());
+    }
+
+    @Test
+    public void missingIdsAreOnlyQueriedOnce() {
+        UUID missing = UUID.randomUUID();
+
+        assertNull(resolver.find(missing));
+        assertNull(resolver.find(missing));
+        assertNull(resolver.find(null));
+
+        resolver.prefetch(Arrays.asList(missing, existing.get(0)));
+        resolver.find(existing.get(0));
+
+        assertEquals(2, queries.size());
+        assertEquals(Arrays.asList(existing.get(0)), queries.get(1));
+    }
+}
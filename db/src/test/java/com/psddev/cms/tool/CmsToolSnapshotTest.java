@@ -0,0 +1,107 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CmsToolSnapshotTest {
+
+    private static CmsToolSnapshot create(int i) {
+        boolean flag = i % 2 == 0;
+        String css = "v" + i;
+
+        return new CmsToolSnapshot(flag, flag, flag, flag, flag, css, Collections.singletonMap("cms-group-class", css));
+    }
+
+    @Test
+    public void verifyNewerVersionWins() {
+        CmsToolSnapshot older = create(0);
+        CmsToolSnapshot newer = create(1);
+
+        CmsToolSnapshot.swap(newer);
+        CmsToolSnapshot.swap(older);
+
+        assertEquals(newer.getVersion(), CmsToolSnapshot.get().getVersion());
+    }
+
+    // A load that started before CmsTool was saved on this server may
+    // return the older settings.
+    @Test
+    public void verifyStaleLoadDropped() {
+        CmsToolSnapshot.swap(create(0));
+
+        long startGeneration = CmsToolSnapshot.getGeneration();
+        CmsToolSnapshot saved = create(1);
+        CmsToolSnapshot loaded = create(2);
+
+        CmsToolSnapshot.swap(saved);
+
+        assertFalse(CmsToolSnapshot.swap(loaded, startGeneration));
+        assertEquals(saved.getVersion(), CmsToolSnapshot.get().getVersion());
+
+        assertTrue(CmsToolSnapshot.swap(create(3), CmsToolSnapshot.getGeneration()));
+        assertEquals("v3", CmsToolSnapshot.get().getDefaultTextOverlayCss());
+    }
+
+    @Test
+    public void verifyConsistentVersionPerRequest() throws Exception {
+        CmsToolSnapshot.swap(create(0));
+
+        ExecutorService executor = Executors.newFixedThreadPool(9);
+        AtomicBoolean done = new AtomicBoolean();
+
+        try {
+            List<Future<?>> readers = new ArrayList<>();
+
+            for (int r = 0; r < 8; ++ r) {
+                readers.add(executor.submit(() -> {
+                    long lastVersion = 0L;
+
+                    while (!done.get()) {
+                        CmsToolSnapshot snapshot = CmsToolSnapshot.get();
+                        boolean flag = snapshot.isRemoveTrailingSlashes();
+                        String css = snapshot.getDefaultTextOverlayCss();
+
+                        assertTrue(snapshot.getVersion() >= lastVersion);
+                        assertEquals(flag, snapshot.isDisableInvisibleContentPreview());
+                        assertEquals(flag, snapshot.isEnableAbTesting());
+                        assertEquals(flag, snapshot.isDisplaySiteInSearchResult());
+                        assertEquals(flag, snapshot.isDisableContentLocking());
+                        assertEquals(css, snapshot.getTextCssClasses().get("cms-group-class"));
+                        assertEquals(flag, Integer.parseInt(css.substring(1)) % 2 == 0);
+
+                        lastVersion = snapshot.getVersion();
+                    }
+                }));
+            }
+
+            Future<?> writer = executor.submit(() -> {
+                for (int i = 1; i <= 10000; ++ i) {
+                    CmsToolSnapshot.swap(create(i));
+                }
+            });
+
+            writer.get(1, TimeUnit.MINUTES);
+            done.set(true);
+
+            for (Future<?> reader : readers) {
+                reader.get(1, TimeUnit.MINUTES);
+            }
+
+            assertEquals("v10000", CmsToolSnapshot.get().getDefaultTextOverlayCss());
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
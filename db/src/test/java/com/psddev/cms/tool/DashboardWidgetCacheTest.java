@@ -0,0 +1,127 @@
+package com.psddev.cms.tool;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.google.common.base.Ticker;
+
+public class DashboardWidgetCacheTest {
+
+    private static class FakeTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        public void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+
+    private static final UUID A = new UUID(0L, 1L);
+    private static final UUID B = new UUID(0L, 2L);
+
+    private static final DashboardWidgetCachePolicy NUMBERS = new DashboardWidgetCachePolicy(
+            DashboardWidgetCachePolicy.Scope.USER,
+            30,
+            TimeUnit.SECONDS,
+            Number.class);
+
+    private static final DashboardWidgetCachePolicy TEXTS = new DashboardWidgetCachePolicy(
+            DashboardWidgetCachePolicy.Scope.SITE,
+            30,
+            TimeUnit.SECONDS,
+            CharSequence.class);
+
+    @Test
+    public void expires() {
+        FakeTicker ticker = new FakeTicker();
+        DashboardWidgetCache cache = new DashboardWidgetCache(true, 100, ticker);
+
+        cache.put("numbers", NUMBERS, A, "html", cache.register(NUMBERS));
+        ticker.advance(29, TimeUnit.SECONDS);
+        assertEquals("html", cache.getIfPresent("numbers"));
+
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertNull(cache.getIfPresent("numbers"));
+    }
+
+    @Test
+    public void invalidatedByType() {
+        DashboardWidgetCache cache = new DashboardWidgetCache(true, 100, new FakeTicker());
+
+        cache.put("numbers", NUMBERS, A, "numbers", cache.register(NUMBERS));
+        cache.put("texts", TEXTS, null, "texts", cache.register(TEXTS));
+
+        cache.invalidate(Object.class);
+        assertEquals("numbers", cache.getIfPresent("numbers"));
+        assertEquals("texts", cache.getIfPresent("texts"));
+
+        cache.invalidate(Integer.class);
+        assertNull(cache.getIfPresent("numbers"));
+        assertEquals("texts", cache.getIfPresent("texts"));
+
+        cache.invalidate(String.class);
+        assertNull(cache.getIfPresent("texts"));
+    }
+
+    // Output rendered while an invalidating type was saved may be stale.
+    @Test
+    public void invalidatedWhileRendering() {
+        DashboardWidgetCache cache = new DashboardWidgetCache(true, 100, new FakeTicker());
+        long generation = cache.register(NUMBERS);
+
+        cache.invalidate(Long.class);
+        cache.put("numbers", NUMBERS, A, "stale", generation);
+        assertNull(cache.getIfPresent("numbers"));
+
+        cache.put("numbers", NUMBERS, A, "fresh", cache.register(NUMBERS));
+        assertEquals("fresh", cache.getIfPresent("numbers"));
+    }
+
+    @Test
+    public void invalidatedByUser() {
+        DashboardWidgetCache cache = new DashboardWidgetCache(true, 100, new FakeTicker());
+
+        cache.put("a", NUMBERS, A, "a", cache.register(NUMBERS));
+        cache.put("b", NUMBERS, B, "b", cache.register(NUMBERS));
+        cache.put("texts", TEXTS, null, "texts", cache.register(TEXTS));
+
+        cache.invalidateUser(A);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("b", cache.getIfPresent("b"));
+        assertEquals("texts", cache.getIfPresent("texts"));
+    }
+
+    // Only the output of the user that was saved is rejected.
+    @Test
+    public void invalidatedByUserWhileRendering() {
+        DashboardWidgetCache cache = new DashboardWidgetCache(true, 100, new FakeTicker());
+        long generation = cache.register(NUMBERS);
+
+        cache.invalidateUser(A);
+        cache.put("a", NUMBERS, A, "stale", generation);
+        cache.put("b", NUMBERS, B, "b", generation);
+        assertNull(cache.getIfPresent("a"));
+        assertEquals("b", cache.getIfPresent("b"));
+
+        cache.put("a", NUMBERS, A, "fresh", cache.register(NUMBERS));
+        assertEquals("fresh", cache.getIfPresent("a"));
+    }
+
+    @Test
+    public void disabled() {
+        DashboardWidgetCache cache = new DashboardWidgetCache(false, 100, new FakeTicker());
+
+        cache.put("numbers", NUMBERS, A, "html", cache.register(NUMBERS));
+        assertNull(cache.getIfPresent("numbers"));
+    }
+}
@@ -0,0 +1,146 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import com.google.common.base.Ticker;
+
+public class RemoteWidgetCacheTest {
+
+    private static class FakeTicker extends Ticker {
+
+        private final AtomicLong nanos = new AtomicLong();
+
+        @Override
+        public long read() {
+            return nanos.get();
+        }
+
+        public void advance(long duration, TimeUnit unit) {
+            nanos.addAndGet(unit.toNanos(duration));
+        }
+    }
+
+    @Test
+    public void coalesced() throws Exception {
+        RemoteWidgetCache cache = new RemoteWidgetCache(0L, 100, Ticker.systemTicker());
+        AtomicInteger renders = new AtomicInteger();
+        CountDownLatch rendering = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+
+            results.add(executor.submit(() -> cache.get("key", () -> {
+                renders.incrementAndGet();
+                rendering.countDown();
+                release.await();
+                return "output";
+            })));
+
+            rendering.await();
+
+            for (int i = 0; i < 7; ++ i) {
+                results.add(executor.submit(() -> cache.get("key", () -> {
+                    renders.incrementAndGet();
+                    return "output";
+                })));
+            }
+
+            // Give the other calls time to join the one in flight.
+            Thread.sleep(100L);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("output", result.get(5, TimeUnit.SECONDS));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, renders.get());
+
+        // Not kept once finished since caching is disabled.
+        assertFalse(cache.isEnabled());
+        assertNull(cache.getIfPresent("key"));
+        cache.get("key", () -> {
+            renders.incrementAndGet();
+            return "output";
+        });
+
+        assertEquals(2, renders.get());
+    }
+
+    @Test
+    public void cached() throws Exception {
+        RemoteWidgetCache cache = new RemoteWidgetCache(TimeUnit.MINUTES.toMillis(1), 100, Ticker.systemTicker());
+        AtomicInteger renders = new AtomicInteger();
+
+        for (int i = 0; i < 10; ++ i) {
+            assertEquals("output", cache.get("key", () -> {
+                renders.incrementAndGet();
+                return "output";
+            }));
+        }
+
+        assertEquals(1, renders.get());
+        assertEquals("output", cache.getIfPresent("key"));
+    }
+
+    @Test
+    public void errorsNotCached() throws Exception {
+        RemoteWidgetCache cache = new RemoteWidgetCache(TimeUnit.MINUTES.toMillis(1), 100, Ticker.systemTicker());
+
+        try {
+            cache.get("key", () -> {
+                throw new IllegalStateException();
+            });
+
+            fail();
+
+        } catch (IllegalStateException error) {
+            // Expected.
+        }
+
+        assertNull(cache.getIfPresent("key"));
+        assertEquals("output", cache.get("key", () -> "output"));
+    }
+
+    // A result that's rendered again with a different output shouldn't be
+    // revalidated using the ETag of the old output.
+    @Test
+    public void etagFromOutput() throws Exception {
+        FakeTicker ticker = new FakeTicker();
+        RemoteWidgetCache cache = new RemoteWidgetCache(TimeUnit.MINUTES.toMillis(1), 100, ticker);
+
+        assertNull(cache.getEtagIfPresent("key"));
+        cache.get("key", () -> "first");
+
+        String firstEtag = cache.getEtagIfPresent("key");
+
+        assertEquals(RemoteWidget.createEtag("first"), firstEtag);
+
+        ticker.advance(1, TimeUnit.MINUTES);
+        assertNull(cache.getEtagIfPresent("key"));
+        cache.get("key", () -> "second");
+
+        assertNotEquals(firstEtag, cache.getEtagIfPresent("key"));
+        assertEquals(RemoteWidget.createEtag("second"), cache.getEtagIfPresent("key"));
+    }
+}
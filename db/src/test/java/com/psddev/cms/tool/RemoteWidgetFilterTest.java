@@ -0,0 +1,57 @@
+package com.psddev.cms.tool;
+
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RemoteWidgetFilterTest {
+
+    private static final UUID USER_ID = new UUID(0L, 1L);
+
+    @Test
+    public void token() {
+        RemoteWidgetFilter filter = new RemoteWidgetFilter(false);
+        String token = RemoteWidget.createUserToken(USER_ID);
+
+        assertEquals(USER_ID, filter.findUserId(token, null));
+        assertEquals(USER_ID, filter.findUserId(token, null));
+    }
+
+    // An invalid token shouldn't fall back to the plain user ID.
+    @Test
+    public void invalidToken() {
+        RemoteWidgetFilter filter = new RemoteWidgetFilter(false);
+        String token = RemoteWidget.createUserToken(USER_ID);
+
+        assertNull(filter.findUserId(token + "0", USER_ID.toString()));
+        assertNull(filter.findUserId("invalid", USER_ID.toString()));
+    }
+
+    @Test
+    public void expiredToken() {
+        String token = RemoteWidget.createUserToken(USER_ID);
+        long expiration = RemoteWidget.getUserTokenExpiration(token);
+
+        assertEquals(RemoteWidget.USER_TOKEN_DURATION, expiration - System.currentTimeMillis(), 1000.0);
+        assertEquals(0L, RemoteWidget.getUserTokenExpiration("invalid"));
+    }
+
+    @Test
+    public void legacyUserId() {
+        RemoteWidgetFilter filter = new RemoteWidgetFilter(true);
+
+        assertEquals(USER_ID, filter.findUserId(null, USER_ID.toString()));
+        assertNull(filter.findUserId(null, null));
+    }
+
+    // Anyone can send the plain user ID, so it's ignored by default.
+    @Test
+    public void legacyUserIdNotAllowed() {
+        RemoteWidgetFilter filter = new RemoteWidgetFilter(false);
+
+        assertNull(filter.findUserId(null, USER_ID.toString()));
+        assertEquals(USER_ID, filter.findUserId(RemoteWidget.createUserToken(USER_ID), null));
+    }
+}
@@ -0,0 +1,177 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SearchResultSelectionTest {
+
+    private static List<UUID> createIds(int count) {
+        List<UUID> ids = new ArrayList<>();
+
+        for (int i = 0; i < count; ++ i) {
+            ids.add(UUID.randomUUID());
+        }
+
+        return ids;
+    }
+
+    @Test
+    public void unionWithinMaximum() {
+        List<UUID> ids = createIds(3);
+
+        assertEquals(SortedIdSet.of(ids), SearchResultSelection.union(SortedIdSet.of(ids.subList(0, 1)), ids, 3));
+    }
+
+    // The items are added in the given order until the selection is full.
+    @Test
+    public void unionCapped() {
+        List<UUID> existing = createIds(2);
+        List<UUID> added = createIds(5);
+        SortedIdSet union = SearchResultSelection.union(SortedIdSet.of(existing), added, 4);
+
+        assertEquals(4, union.size());
+        assertTrue(union.containsAll(existing));
+        assertTrue(union.containsAll(added.subList(0, 2)));
+    }
+
+    @Test
+    public void unionFull() {
+        SortedIdSet ids = SortedIdSet.of(createIds(2));
+
+        assertSame(ids, SearchResultSelection.union(ids, createIds(1), 2));
+    }
+
+    // Converts the selection even if the update doesn't change the IDs.
+    @Test
+    public void legacyConverted() {
+        MemoryStore store = new MemoryStore(SortedIdSet.of(createIds(2)), true);
+
+        assertEquals(0, SearchResultSelection.updateItemIds(new ReentrantLock(), store, ids -> ids));
+        assertEquals(1, store.saves);
+        assertEquals(1, store.legacyDeletes);
+        assertFalse(store.legacy);
+
+        assertEquals(0, SearchResultSelection.updateItemIds(new ReentrantLock(), store, ids -> ids));
+        assertEquals(1, store.saves);
+        assertEquals(1, store.legacyDeletes);
+    }
+
+    @Test
+    public void unchangedNotSaved() {
+        List<UUID> ids = createIds(2);
+        MemoryStore store = new MemoryStore(SortedIdSet.of(ids), false);
+
+        assertEquals(0, SearchResultSelection.updateItemIds(new ReentrantLock(), store, i -> i.union(ids)));
+        assertEquals(0, store.saves);
+
+        assertEquals(-1, SearchResultSelection.updateItemIds(new ReentrantLock(), store, i -> i.difference(ids.subList(0, 1))));
+        assertEquals(1, store.saves);
+        assertEquals(SortedIdSet.of(ids.subList(1, 2)), store.ids);
+    }
+
+    @Test
+    public void unlockedOnFailure() {
+        ReentrantLock lock = new ReentrantLock();
+
+        try {
+            SearchResultSelection.updateItemIds(lock, new MemoryStore(SortedIdSet.empty(), false), ids -> {
+                throw new IllegalStateException();
+            });
+
+        } catch (IllegalStateException error) {
+            // Expected.
+        }
+
+        assertFalse(lock.isLocked());
+    }
+
+    // Concurrent changes, such as from multiple checkboxes, aren't lost.
+    @Test(timeout = 60000L)
+    public void concurrentUpdates() throws Exception {
+        ReentrantLock lock = new ReentrantLock();
+        MemoryStore store = new MemoryStore(SortedIdSet.empty(), false);
+        List<UUID> ids = createIds(200);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+
+            for (UUID id : ids) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return SearchResultSelection.updateItemIds(lock, store, i -> i.union(Collections.singleton(id)));
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<Integer> result : results) {
+                assertEquals(Integer.valueOf(1), result.get(1, TimeUnit.MINUTES));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(SortedIdSet.of(ids), store.ids);
+        assertEquals(Arrays.asList(200, 200), Arrays.asList(store.ids.size(), store.saves));
+    }
+
+    // Simulates the saved copy, which is only safe to change while holding
+    // the lock.
+    private static class MemoryStore implements SearchResultSelection.ItemIdStore {
+
+        private SortedIdSet ids;
+        private boolean legacy;
+        private int saves;
+        private int legacyDeletes;
+
+        public MemoryStore(SortedIdSet ids, boolean legacy) {
+            this.ids = ids;
+            this.legacy = legacy;
+        }
+
+        @Override
+        public SortedIdSet load() {
+            SortedIdSet loaded = ids;
+
+            Thread.yield();
+            return loaded;
+        }
+
+        @Override
+        public boolean isLegacy() {
+            return legacy;
+        }
+
+        @Override
+        public void save(SortedIdSet newIds) {
+            Thread.yield();
+
+            ids = newIds;
+            legacy = false;
+            ++ saves;
+        }
+
+        @Override
+        public void deleteLegacyItems() {
+            ++ legacyDeletes;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.psddev.dari.util.PaginatedResult;
+
+public class SearchResultSparklinesTest {
+
+    static final String FIELD_NAME = "views";
+
+    Map<Object, SearchResultSparklines.Sums> storage;
+    List<Object> items;
+    AtomicInteger queries;
+    SearchResultSparklines.Loader loader;
+
+    @Before
+    public void before() {
+        Random random = new Random(0);
+        DateTime start = new DateTime().dayOfMonth().roundFloorCopy().minusDays(7);
+
+        storage = new HashMap<>();
+        items = new ArrayList<>();
+        queries = new AtomicInteger();
+
+        for (int i = 0; i < 50; ++ i) {
+            String item = "item" + i;
+            Map<DateTime, Double> sumsByDate = new LinkedHashMap<>();
+
+            for (int d = 0; d < 8; ++ d) {
+                if (random.nextInt(4) > 0) {
+                    sumsByDate.put(start.plusDays(d), (double) random.nextInt(100));
+                }
+            }
+
+            items.add(item);
+            storage.put(item, new SearchResultSparklines.Sums(1000.0 + random.nextInt(1000) + (i % 3 == 0 ? 0.5 : 0.0), sumsByDate));
+        }
+
+        // Sorted in descending order by the metric field like the search.
+        items.sort((x, y) -> Double.compare(storage.get(y).getTotal(), storage.get(x).getTotal()));
+
+        // Costs the same as the default loader, which reads the total and
+        // the daily sums of each item separately.
+        loader = (loadItems, fieldName, loadStart) -> {
+            Map<Object, SearchResultSparklines.Sums> sums = new HashMap<>();
+
+            for (Object item : loadItems) {
+                queries.addAndGet(2);
+                sums.put(item, storage.get(item));
+            }
+
+            return sums;
+        };
+    }
+
+    private double queryMaxSum() {
+        queries.incrementAndGet();
+        return storage.get(items.get(0)).getTotal();
+    }
+
+    // Same as the per-row rendering that this replaces, which queried the
+    // maximum sum once per request.
+    private String legacyPath(Object item, double maxSum) {
+        Map<DateTime, Double> sumEntries = loader.load(Collections.singletonList(item), FIELD_NAME, null).get(item).getSumsByDate();
+
+        if (sumEntries.isEmpty()) {
+            return null;
+        }
+
+        long minMillis = Long.MAX_VALUE;
+        long maxMillis = Long.MIN_VALUE;
+
+        for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
+            long sumMillis = sumEntry.getKey().getMillis();
+
+            if (sumMillis < minMillis) {
+                minMillis = sumMillis;
+            }
+
+            if (sumMillis > maxMillis) {
+                maxMillis = sumMillis;
+            }
+        }
+
+        double cumulativeSum = 0.0;
+        StringBuilder path = new StringBuilder();
+        double xRange = maxMillis - minMillis;
+
+        for (Map.Entry<DateTime, Double> sumEntry : sumEntries.entrySet()) {
+            cumulativeSum += sumEntry.getValue();
+
+            path.append('L');
+            path.append((sumEntry.getKey().getMillis() - minMillis) / xRange * 35);
+            path.append(',');
+            path.append(18 - cumulativeSum / maxSum * 18);
+        }
+
+        path.setCharAt(0, 'M');
+        return path.toString();
+    }
+
+    private void assertSamePaths(long offset, int limit) {
+        List<Object> pageItems = items.subList((int) offset, (int) offset + limit);
+        List<String> legacyPaths = new ArrayList<>();
+        double legacyMaxSum = queryMaxSum();
+
+        for (Object item : pageItems) {
+            legacyPaths.add(legacyPath(item, legacyMaxSum));
+        }
+
+        int legacyQueries = queries.getAndSet(0);
+        SearchResultSparklines sparklines = new SearchResultSparklines(
+                new PaginatedResult<>(offset, limit, items.size(), pageItems),
+                FIELD_NAME,
+                loader,
+                this::queryMaxSum);
+
+        for (int i = 0; i < pageItems.size(); ++ i) {
+            assertEquals(legacyPaths.get(i), sparklines.createPath(pageItems.get(i)));
+        }
+
+        // Only the maximum sum query on the first page is saved.
+        assertEquals(limit * 2 + 1, legacyQueries);
+        assertEquals(limit * 2 + (offset == 0 ? 0 : 1), queries.get());
+    }
+
+    @Test
+    public void firstPage() {
+        assertSamePaths(0, 20);
+    }
+
+    @Test
+    public void laterPage() {
+        assertSamePaths(20, 20);
+    }
+
+    @Test
+    public void emptySums() {
+        assertNull(SearchResultSparklines.createPath(new HashMap<>(), 1.0));
+    }
+
+    @Test
+    public void itemOutsideResult() {
+        SearchResultSparklines sparklines = new SearchResultSparklines(
+                new PaginatedResult<>(0, 10, items.size(), items.subList(0, 10)),
+                FIELD_NAME,
+                loader,
+                this::queryMaxSum);
+
+        assertEquals(storage.get(items.get(30)), sparklines.getSums(items.get(30)));
+        assertEquals(storage.get(items.get(30)), sparklines.getSums(items.get(30)));
+        assertEquals(22, queries.get());
+    }
+}
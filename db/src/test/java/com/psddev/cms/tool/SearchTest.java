@@ -0,0 +1,76 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.psddev.dari.db.ObjectField;
+import com.psddev.dari.db.ObjectIndex;
+import com.psddev.dari.db.ObjectStruct;
+import com.psddev.dari.db.PredicateParser;
+
+public class SearchTest {
+
+    /**
+     * Creates a struct with a visibility index on each of the given
+     * {@code visibilityFields}, and a regular index on {@code name}
+     * that should be ignored.
+     */
+    public static ObjectStruct createStruct(String... visibilityFields) {
+        ObjectStruct struct = mock(ObjectStruct.class);
+        List<ObjectIndex> indexes = new ArrayList<>();
+
+        for (String name : visibilityFields) {
+            indexes.add(createIndex(struct, name, true));
+        }
+
+        indexes.add(createIndex(struct, "name", false));
+        doReturn(indexes).when(struct).getIndexes();
+
+        return struct;
+    }
+
+    private static ObjectIndex createIndex(ObjectStruct struct, String name, boolean visibility) {
+        ObjectIndex index = mock(ObjectIndex.class);
+        ObjectField field = mock(ObjectField.class);
+
+        doReturn(visibility).when(index).isVisibility();
+        doReturn(Collections.singletonList(name)).when(index).getFields();
+        doReturn(name).when(field).getUniqueName();
+        doReturn(field).when(struct).getField(name);
+
+        return index;
+    }
+
+    @Test
+    public void visiblePredicate() {
+        assertEquals(
+                PredicateParser.Static.parse("cms.content.trashed = missing and cms.workflow.currentState = missing").toString(),
+                String.valueOf(Search.getVisiblePredicate(Arrays.asList(
+                        createStruct("cms.content.trashed"),
+                        createStruct("cms.workflow.currentState"),
+                        createStruct()))));
+    }
+
+    @Test
+    public void visiblePredicateSharedField() {
+        assertEquals(
+                PredicateParser.Static.parse("cms.content.trashed = missing").toString(),
+                String.valueOf(Search.getVisiblePredicate(Arrays.asList(
+                        createStruct("cms.content.trashed"),
+                        createStruct("cms.content.trashed")))));
+    }
+
+    @Test
+    public void visiblePredicateWithoutVisibilityFields() {
+        assertNull(Search.getVisiblePredicate(Arrays.asList(createStruct(), createStruct())));
+        assertNull(Search.getVisiblePredicate(Collections.<ObjectStruct>emptyList()));
+    }
+}
@@ -0,0 +1,124 @@
+package com.psddev.cms.tool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class SortedIdSetTest {
+
+    private static List<UUID> randomIds(Random random, List<UUID> pool, int size) {
+        List<UUID> ids = new ArrayList<>();
+
+        for (int i = 0; i < size; ++ i) {
+            ids.add(pool.get(random.nextInt(pool.size())));
+        }
+
+        return ids;
+    }
+
+    // Compares against a TreeSet, which orders the IDs the same way.
+    @Test
+    public void matchesTreeSet() {
+        Random random = new Random(0);
+        List<UUID> pool = new ArrayList<>();
+
+        for (int i = 0; i < 100; ++ i) {
+            pool.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        for (int i = 0; i < 500; ++ i) {
+            List<UUID> initial = randomIds(random, pool, random.nextInt(60));
+            List<UUID> added = randomIds(random, pool, random.nextInt(20));
+            List<UUID> removed = randomIds(random, pool, random.nextInt(20));
+            TreeSet<UUID> expected = new TreeSet<>(initial);
+            SortedIdSet actual = SortedIdSet.of(initial);
+
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+
+            expected.addAll(added);
+            actual = actual.union(added);
+
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+
+            expected.removeAll(removed);
+            actual = actual.difference(removed);
+
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(actual));
+            assertEquals(expected.size(), actual.size());
+            assertEquals(actual, SortedIdSet.decode(actual.encode()));
+
+            for (UUID id : pool) {
+                assertEquals(expected.contains(id), actual.contains(id));
+            }
+
+            UUID after = random.nextBoolean() ? null : pool.get(random.nextInt(pool.size()));
+            List<UUID> expectedAfter = new ArrayList<>(after != null ? expected.tailSet(after, false) : expected);
+
+            assertEquals(expectedAfter.subList(0, Math.min(10, expectedAfter.size())), actual.after(after, 10));
+        }
+    }
+
+    @Test
+    public void keysetPagination() {
+        Random random = new Random(0);
+        List<UUID> ids = new ArrayList<>();
+
+        for (int i = 0; i < 1234; ++ i) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        SortedIdSet set = SortedIdSet.of(ids);
+        List<UUID> paginated = new ArrayList<>();
+
+        for (List<UUID> page = set.after(null, 100); !page.isEmpty(); page = set.after(page.get(page.size() - 1), 100)) {
+            paginated.addAll(page);
+        }
+
+        assertEquals(new ArrayList<>(new TreeSet<>(ids)), paginated);
+    }
+
+    @Test
+    public void chunks() {
+        Random random = new Random(0);
+        List<UUID> ids = new ArrayList<>();
+
+        for (int i = 0; i < 250; ++ i) {
+            ids.add(new UUID(random.nextLong(), random.nextLong()));
+        }
+
+        SortedIdSet set = SortedIdSet.of(ids);
+        List<UUID> chunked = new ArrayList<>();
+        List<Integer> sizes = new ArrayList<>();
+
+        for (List<UUID> chunk : set.chunks(100)) {
+            chunked.addAll(chunk);
+            sizes.add(chunk.size());
+        }
+
+        assertEquals(new ArrayList<>(set), chunked);
+        assertEquals(Arrays.asList(100, 100, 50), sizes);
+        assertFalse(SortedIdSet.empty().chunks(100).iterator().hasNext());
+    }
+
+    @Test
+    public void unchangedReturnsSame() {
+        UUID id = UUID.randomUUID();
+        SortedIdSet set = SortedIdSet.of(Arrays.asList(id, null));
+
+        assertSame(set, set.union(Arrays.asList(id)));
+        assertSame(set, set.difference(Arrays.asList(UUID.randomUUID())));
+        assertSame(SortedIdSet.empty(), set.difference(Arrays.asList(id)));
+        assertFalse(set.contains("not an ID"));
+        assertTrue(SortedIdSet.decode(null).isEmpty());
+        assertTrue(SortedIdSet.decode(SortedIdSet.empty().encode()).isEmpty());
+    }
+}
@@ -0,0 +1,43 @@
+package com.psddev.cms.tool.page;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class ExportContentJobStatusTest {
+
+    @Test
+    public void wholeFile() {
+        assertNull(ExportContentJobStatus.parseRange(null, 100L));
+        assertNull(ExportContentJobStatus.parseRange("", 100L));
+        assertNull(ExportContentJobStatus.parseRange("bytes=-", 100L));
+        assertNull(ExportContentJobStatus.parseRange("bytes=0-10,20-30", 100L));
+        assertNull(ExportContentJobStatus.parseRange("items=0-10", 100L));
+        assertNull(ExportContentJobStatus.parseRange("bytes=99999999999999999999-", 100L));
+    }
+
+    @Test
+    public void fromStart() {
+        assertArrayEquals(new long[] { 10L, 99L }, ExportContentJobStatus.parseRange("bytes=10-", 100L));
+        assertArrayEquals(new long[] { 10L, 19L }, ExportContentJobStatus.parseRange(" bytes=10-19 ", 100L));
+    }
+
+    @Test
+    public void clampedToLength() {
+        assertArrayEquals(new long[] { 90L, 99L }, ExportContentJobStatus.parseRange("bytes=90-1000", 100L));
+    }
+
+    @Test
+    public void suffix() {
+        assertArrayEquals(new long[] { 80L, 99L }, ExportContentJobStatus.parseRange("bytes=-20", 100L));
+        assertArrayEquals(new long[] { 0L, 99L }, ExportContentJobStatus.parseRange("bytes=-200", 100L));
+    }
+
+    @Test
+    public void unsatisfiable() {
+        assertEquals(0, ExportContentJobStatus.parseRange("bytes=100-", 100L).length);
+        assertEquals(0, ExportContentJobStatus.parseRange("bytes=20-10", 100L).length);
+        assertEquals(0, ExportContentJobStatus.parseRange("bytes=0-", 0L).length);
+    }
+}
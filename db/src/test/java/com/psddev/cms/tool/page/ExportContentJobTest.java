@@ -0,0 +1,181 @@
+package com.psddev.cms.tool.page;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ExportContentJobTest {
+
+    private ExecutorService executor;
+
+    @Before
+    public void before() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void after() {
+        executor.shutdownNow();
+    }
+
+    private static List<List<?>> createPartitions(int count, int size) {
+        List<List<?>> partitions = new ArrayList<>();
+
+        for (int p = 0; p < count; ++ p) {
+            List<Integer> items = new ArrayList<>();
+
+            for (int i = 0; i < size; ++ i) {
+                items.add(p * size + i);
+            }
+
+            partitions.add(items);
+        }
+
+        return partitions;
+    }
+
+    // Later partitions finish first, but are written in order.
+    private static String export(List<?> items, Random random) {
+        try {
+            Thread.sleep(random.nextInt(5));
+
+        } catch (InterruptedException error) {
+            Thread.currentThread().interrupt();
+        }
+
+        return items.stream().map(i -> i + "\n").collect(Collectors.joining());
+    }
+
+    @Test
+    public void writtenInOrder() throws Exception {
+        List<List<?>> partitions = createPartitions(50, 10);
+        StringWriter output = new StringWriter();
+        List<Long> progress = new ArrayList<>();
+        Random random = new Random(0);
+
+        long written = ExportContentJob.writePartitions(
+                partitions.iterator(),
+                items -> export(items, random),
+                executor,
+                4,
+                output,
+                progress::add,
+                () -> true);
+
+        StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 500; ++ i) {
+            expected.append(i).append('\n');
+        }
+
+        assertEquals(500L, written);
+        assertEquals(expected.toString(), output.toString());
+        assertEquals(50, progress.size());
+        assertEquals(Long.valueOf(10L), progress.get(0));
+        assertEquals(Long.valueOf(500L), progress.get(49));
+    }
+
+    // Only a few partitions are read ahead, so that a large export isn't
+    // held in memory.
+    @Test
+    public void boundedReadAhead() throws Exception {
+        AtomicInteger read = new AtomicInteger();
+        AtomicInteger maximumAhead = new AtomicInteger();
+        List<List<?>> partitions = createPartitions(50, 1);
+        StringWriter output = new StringWriter();
+        AtomicInteger written = new AtomicInteger();
+
+        ExportContentJob.writePartitions(
+                partitions.stream().peek(p -> read.incrementAndGet()).iterator(),
+                items -> items.get(0) + ",",
+                executor,
+                2,
+                output,
+                w -> {
+                    written.set((int) w);
+                    maximumAhead.accumulateAndGet(read.get() - written.get(), Math::max);
+                },
+                () -> true);
+
+        assertTrue(maximumAhead.get() <= 4);
+    }
+
+    @Test
+    public void stopped() throws Exception {
+        List<List<?>> partitions = createPartitions(50, 10);
+        AtomicInteger checks = new AtomicInteger();
+
+        long written = ExportContentJob.writePartitions(
+                partitions.iterator(),
+                items -> "",
+                executor,
+                1,
+                new StringWriter(),
+                w -> { },
+                () -> checks.incrementAndGet() <= 3);
+
+        assertEquals(30L, written);
+    }
+
+    @Test
+    public void failurePropagated() throws Exception {
+        try {
+            ExportContentJob.writePartitions(
+                    Arrays.<List<?>>asList(Arrays.asList(1), Arrays.asList(2)).iterator(),
+                    items -> {
+                        throw new IOException("Broken");
+                    },
+                    executor,
+                    1,
+                    new StringWriter(),
+                    w -> { },
+                    () -> true);
+
+            fail();
+
+        } catch (ExecutionException error) {
+            assertEquals("Broken", error.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void sortedByIds() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        UUID missing = UUID.randomUUID();
+
+        assertEquals(
+                Arrays.asList(c, a, b),
+                ExportContentJob.sortByIds(Arrays.asList(a, b, c), Arrays.asList(c, missing, a, b), Function.identity()));
+    }
+
+    @Test
+    public void orphaned() {
+        long now = System.currentTimeMillis();
+
+        assertTrue(ExportContentJob.isOrphaned(null, new Date(now - 1L), now));
+        assertFalse(ExportContentJob.isOrphaned(null, new Date(now + 1L), now));
+        assertFalse(ExportContentJob.isOrphaned(new Date(now - 2L), new Date(now - 1L), now));
+        assertFalse(ExportContentJob.isOrphaned(null, null, now));
+    }
+}
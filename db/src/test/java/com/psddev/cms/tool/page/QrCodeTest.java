@@ -0,0 +1,128 @@
+package com.psddev.cms.tool.page;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.imageio.ImageIO;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.RGBLuminanceSource;
+import com.google.zxing.Result;
+import com.google.zxing.ResultMetadataType;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+public class QrCodeTest {
+
+    private static final String DATA = "otpauth://totp/Brightspot:editor@example.com?secret=JBSWY3DPEHPK3PXP&issuer=Brightspot";
+
+    private static final Pattern VIEW_BOX_PATTERN = Pattern.compile("viewBox=\"0 0 (\\d+) (\\d+)\"");
+    private static final Pattern RUN_PATTERN = Pattern.compile("M(\\d+) (\\d+)h(\\d+)v1h-\\d+z");
+
+    private static Result decode(BufferedImage image) throws Exception {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int[] pixels = image.getRGB(0, 0, width, height, null, 0, width);
+
+        return new QRCodeReader().decode(new BinaryBitmap(new HybridBinarizer(new RGBLuminanceSource(width, height, pixels))));
+    }
+
+    // Paints the runs in the SVG path, scaled up so that the reader doesn't
+    // have to work at one pixel per module.
+    private static BufferedImage rasterize(String svg, int scale) {
+        Matcher viewBox = VIEW_BOX_PATTERN.matcher(svg);
+
+        assertTrue(viewBox.find());
+
+        int width = Integer.parseInt(viewBox.group(1));
+        int height = Integer.parseInt(viewBox.group(2));
+        BufferedImage image = new BufferedImage(width * scale, height * scale, BufferedImage.TYPE_INT_RGB);
+
+        for (int y = 0; y < image.getHeight(); ++ y) {
+            for (int x = 0; x < image.getWidth(); ++ x) {
+                image.setRGB(x, y, 0xffffff);
+            }
+        }
+
+        for (Matcher run = RUN_PATTERN.matcher(svg); run.find();) {
+            int startX = Integer.parseInt(run.group(1));
+            int startY = Integer.parseInt(run.group(2));
+            int length = Integer.parseInt(run.group(3));
+
+            for (int y = startY * scale; y < (startY + 1) * scale; ++ y) {
+                for (int x = startX * scale; x < (startX + length) * scale; ++ x) {
+                    image.setRGB(x, y, 0x000000);
+                }
+            }
+        }
+
+        return image;
+    }
+
+    @Test
+    public void pngRoundTrip() throws Exception {
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            QrCode.Output output = QrCode.createPng(DATA, 200, level);
+
+            assertEquals("image/png", output.contentType);
+
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(output.bytes));
+
+            assertEquals(200, image.getWidth());
+            assertEquals(200, image.getHeight());
+
+            Result result = decode(image);
+
+            assertEquals(DATA, result.getText());
+            assertEquals(level.name(), result.getResultMetadata().get(ResultMetadataType.ERROR_CORRECTION_LEVEL));
+        }
+    }
+
+    @Test
+    public void svgRoundTrip() throws Exception {
+        for (ErrorCorrectionLevel level : ErrorCorrectionLevel.values()) {
+            QrCode.Output output = QrCode.createSvg(DATA, 200, level);
+
+            assertEquals("image/svg+xml", output.contentType);
+
+            String svg = new String(output.bytes, StandardCharsets.UTF_8);
+
+            assertTrue(svg.contains("width=\"200\" height=\"200\""));
+
+            Result result = decode(rasterize(svg, 4));
+
+            assertEquals(DATA, result.getText());
+            assertEquals(level.name(), result.getResultMetadata().get(ResultMetadataType.ERROR_CORRECTION_LEVEL));
+        }
+    }
+
+    // More error correction needs more modules for the same data.
+    @Test
+    public void errorCorrectionLevels() throws Exception {
+        int lowWidth = QrCode.encode(DATA, 0, ErrorCorrectionLevel.L).getWidth();
+        int highWidth = QrCode.encode(DATA, 0, ErrorCorrectionLevel.H).getWidth();
+
+        assertTrue(lowWidth < highWidth);
+        assertTrue(QrCode.encode(DATA, 0, ErrorCorrectionLevel.M).getWidth() >= lowWidth);
+        assertTrue(QrCode.encode(DATA, 0, ErrorCorrectionLevel.Q).getWidth() <= highWidth);
+    }
+
+    @Test
+    public void sameOutputSameEtag() throws Exception {
+        QrCode.Output first = QrCode.createPng(DATA, 200, ErrorCorrectionLevel.M);
+        QrCode.Output second = QrCode.createPng(DATA, 200, ErrorCorrectionLevel.M);
+        QrCode.Output other = QrCode.createPng(DATA, 200, ErrorCorrectionLevel.H);
+
+        assertEquals(first.etag, second.etag);
+        assertNotEquals(first.etag, other.etag);
+    }
+}
@@ -0,0 +1,119 @@
+package com.psddev.cms.tool.widget;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.psddev.cms.db.Content;
+import com.psddev.cms.tool.DashboardWidgetCache;
+import com.psddev.cms.tool.Search;
+import com.psddev.cms.tool.SearchTest;
+import com.psddev.dari.db.Database;
+import com.psddev.dari.db.Predicate;
+import com.psddev.dari.db.PredicateParser;
+import com.psddev.dari.db.Query;
+import com.psddev.dari.util.PaginatedResult;
+
+public class DashboardWidgetQueryTest {
+
+    private static final UUID USER_ID = new UUID(0L, 1L);
+    private static final UUID ROLE_ID = new UUID(0L, 2L);
+    private static final UUID SITE_ID = new UUID(0L, 3L);
+
+    // Permissions of a role that's restricted to one site, and the
+    // visibility indexes of the trash and the workflows.
+    private static final Predicate SITE_PREDICATE = PredicateParser.Static.parse("cms.site.owner = ?", SITE_ID);
+    private static final Predicate VISIBILITY_PREDICATE = Search.getVisiblePredicate(Arrays.asList(
+            SearchTest.createStruct("cms.content.trashed"),
+            SearchTest.createStruct("cms.workflow.currentState")));
+
+    private Database database;
+
+    @Before
+    public void before() {
+        database = mock(Database.class);
+
+        // Far more items than fit on a page.
+        doReturn(new PaginatedResult<>(0L, 20, 10000L, Collections.nCopies(20, "item")))
+                .when(database)
+                .readPartial(any(Query.class), anyLong(), anyInt());
+    }
+
+    private void assertFiltered(Query<?> query, String... keys) {
+        String predicate = String.valueOf(query.getPredicate());
+
+        for (String key : keys) {
+            assertTrue(key + " not in " + predicate, predicate.contains(key));
+        }
+
+        assertEquals(1, query.getSorters().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assertReads(int count) {
+        verify(database, times(count)).readPartial(any(Query.class), eq(0L), eq(20));
+        verify(database, never()).readAll(any(Query.class));
+        verify(database, never()).readCount(any(Query.class));
+    }
+
+    @Test
+    public void recentActivityForRestrictedRole() {
+        Query<?> query = RecentActivityWidget.createQuery(
+                null,
+                RecentActivityWidget.Type.ROLE,
+                ROLE_ID,
+                USER_ID,
+                SITE_PREDICATE,
+                VISIBILITY_PREDICATE);
+
+        assertFiltered(query, "cms.site.owner", "cms.content.trashed", "cms.workflow.currentState", Content.UPDATE_USER_FIELD);
+
+        query.using(database);
+
+        PaginatedResult<?> result = query.select(0L, 20);
+
+        assertEquals(20, result.getItems().size());
+        assertTrue(result.hasNext());
+        assertReads(1);
+    }
+
+    @Test
+    public void unpublishedDraftsForRestrictedUser() {
+        Query<?> query = UnpublishedDraftsWidget.createQuery(
+                "ws.review",
+                null,
+                UnpublishedDraftsWidget.UserType.ME,
+                null,
+                USER_ID,
+                SITE_PREDICATE);
+
+        assertFiltered(query, "cms.site.owner", "cms.workflow.currentState", Content.UPDATE_USER_FIELD);
+
+        query.using(database);
+
+        assertEquals(20, query.select(0L, 20).getItems().size());
+        assertReads(1);
+    }
+
+    // The results depend on the user's permissions, so they're only cached
+    // when the duration is configured.
+    @Test
+    public void resultsNotCachedByDefault() {
+        assertNull(DashboardWidgetCache.createResultPolicy());
+    }
+}
@@ -0,0 +1,291 @@
+package com.psddev.cms.view;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.psddev.dari.util.IoUtils;
+
+public class ViewTemplateRegistryTest {
+
+    private Path directory;
+    private AtomicInteger resolves;
+    private AtomicInteger compiles;
+
+    @Before
+    public void before() throws IOException {
+        directory = Files.createTempDirectory("templates");
+        resolves = new AtomicInteger();
+        compiles = new AtomicInteger();
+
+        write("a", "A", 1000L);
+        write("b", "B", 1000L);
+    }
+
+    @After
+    public void after() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+
+        Files.delete(directory);
+    }
+
+    private void write(String name, String content, long lastModified) throws IOException {
+        Path file = directory.resolve(name);
+
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified));
+    }
+
+    private ViewTemplateLoader createLoader(ViewTemplateRegistry registry) {
+        return new UrlViewTemplateLoader() {
+
+            @Override
+            protected URL getTemplateUrl(String path) throws IOException {
+                resolves.incrementAndGet();
+                return directory.resolve(path).toUri().toURL();
+            }
+
+            @Override
+            protected ViewTemplateRegistry getRegistry() {
+                return registry;
+            }
+        };
+    }
+
+    private String compile(String path, ViewTemplateLoader loader) throws IOException {
+        compiles.incrementAndGet();
+
+        try (InputStream input = loader.getTemplate(path)) {
+            return IoUtils.toString(input, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void resolvedOnce() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        assertEquals(1000L, loader.getLastModified("a"));
+        assertEquals(1000L, loader.getLastModified("a"));
+        loader.getTemplate("a").close();
+
+        assertEquals(1, resolves.get());
+    }
+
+    @Test
+    public void neverChecked() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+
+        write("a", "A2", 2000L);
+
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+        assertEquals(1000L, loader.getLastModified("a"));
+        assertEquals(1, compiles.get());
+    }
+
+    @Test
+    public void compiledOncePerChange() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.INTERVAL, 0L));
+
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+        assertEquals(1, compiles.get());
+
+        write("a", "A2", 2000L);
+
+        assertEquals("A2", loader.getCompiledTemplate("a", "key", this::compile));
+        assertEquals("A2", loader.getCompiledTemplate("a", "key", this::compile));
+        assertEquals(2, compiles.get());
+    }
+
+    @Test
+    public void throttled() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.INTERVAL, TimeUnit.HOURS.toMillis(1L)));
+
+        assertEquals(1000L, loader.getLastModified("a"));
+
+        write("a", "A2", 2000L);
+
+        assertEquals(1000L, loader.getLastModified("a"));
+    }
+
+    @Test
+    public void compiledPerKey() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        loader.getCompiledTemplate("a", "first", this::compile);
+        loader.getCompiledTemplate("a", "second", this::compile);
+        loader.getCompiledTemplate("a", "first", this::compile);
+
+        assertEquals(2, compiles.get());
+    }
+
+    @Test
+    public void failureNotCached() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        try {
+            loader.getCompiledTemplate("a", "key", (path, l) -> {
+                throw new IOException("Broken");
+            });
+
+            fail();
+
+        } catch (IOException error) {
+            assertEquals("Broken", error.getMessage());
+        }
+
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+    }
+
+    // A compiler may get other compiled templates, such as partials, while
+    // compiling.
+    @Test
+    public void nestedCompile() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        String compiled = loader.getCompiledTemplate("a", "outer", (path, l) ->
+                compile(path, l)
+                        + l.getCompiledTemplate("a", "inner", this::compile)
+                        + l.getCompiledTemplate("b", "outer", this::compile));
+
+        assertEquals("AAB", compiled);
+        assertEquals(3, compiles.get());
+    }
+
+    // A template that includes itself, such as through an alias, would
+    // otherwise wait for its own compilation forever.
+    @Test(timeout = 10000L)
+    public void selfInclude() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+
+        try {
+            loader.getCompiledTemplate("a", "key", (path, l) ->
+                    compile(path, l) + l.getCompiledTemplate("a", "key", this::compile));
+
+            fail();
+
+        } catch (IOException error) {
+            assertTrue(error.getMessage().contains("includes itself"));
+        }
+
+        // The failure isn't cached.
+        assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+    }
+
+    @Test(timeout = 30000L)
+    public void watched() throws Exception {
+        try (ViewTemplateRegistry registry = new ViewTemplateRegistry(ViewTemplateRegistry.Mode.WATCH, TimeUnit.HOURS.toMillis(1L))) {
+            ViewTemplateLoader loader = createLoader(registry);
+
+            assertEquals(ViewTemplateRegistry.Mode.WATCH, registry.getMode());
+            assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+            assertEquals("A", loader.getCompiledTemplate("a", "key", this::compile));
+            assertEquals(1, compiles.get());
+
+            // Picked up without waiting for the check interval.
+            write("a", "A2", 2000L);
+
+            while (!"A2".equals(loader.getCompiledTemplate("a", "key", this::compile))) {
+                Thread.sleep(50L);
+            }
+
+            assertEquals(2000L, loader.getLastModified("a"));
+            assertEquals(2, compiles.get());
+
+            // Other templates in the same directory aren't affected.
+            assertEquals("B", loader.getCompiledTemplate("b", "key", this::compile));
+            assertEquals(3, compiles.get());
+        }
+    }
+
+    @Test
+    public void concurrentCompileOnce() throws Exception {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.INTERVAL, 0L));
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<String>> results = new ArrayList<>();
+
+            for (int i = 0; i < 8; ++ i) {
+                results.add(executor.submit(() -> {
+                    start.await();
+
+                    return loader.getCompiledTemplate("a", "key", (path, l) -> {
+                        try {
+                            Thread.sleep(50L);
+
+                        } catch (InterruptedException error) {
+                            Thread.currentThread().interrupt();
+                        }
+
+                        return compile(path, l);
+                    });
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<String> result : results) {
+                assertEquals("A", result.get(1, TimeUnit.MINUTES));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, compiles.get());
+    }
+
+    @Test
+    public void rendererUsesCompiledTemplates() throws IOException {
+        ViewTemplateLoader loader = createLoader(new ViewTemplateRegistry(ViewTemplateRegistry.Mode.NEVER, 0L));
+        ViewRenderer renderer = new AbstractTemplateViewRenderer<String>() {
+
+            @Override
+            protected String getTemplatePath(Object view) {
+                return "a";
+            }
+
+            @Override
+            protected String compile(String path, ViewTemplateLoader l) throws IOException {
+                return ViewTemplateRegistryTest.this.compile(path, l);
+            }
+
+            @Override
+            protected String renderTemplate(String template, Object view) {
+                return template + view;
+            }
+        };
+
+        assertEquals("A1", renderer.render(1, loader).get());
+        assertEquals("A2", renderer.render(2, loader).get());
+        assertEquals(1, compiles.get());
+    }
+}
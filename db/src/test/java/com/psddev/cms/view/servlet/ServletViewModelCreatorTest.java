@@ -0,0 +1,241 @@
+package com.psddev.cms.view.servlet;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import com.psddev.cms.view.ViewModel;
+import com.psddev.dari.util.Converter;
+import com.psddev.dari.util.TypeDefinition;
+
+public class ServletViewModelCreatorTest {
+
+    private static final Converter CONVERTER = new Converter(); static {
+        CONVERTER.putAllStandardFunctions();
+    }
+
+    public static class BasicViewModel extends ViewModel<Object> {
+
+        @HttpParameter
+        public String name;
+
+        @HttpParameter("n")
+        public int number;
+
+        @HttpParameter("tag")
+        public List<String> tags;
+
+        @HttpParameter
+        public String missing = "default";
+
+        @HttpHeader("X-Test")
+        public String header;
+
+        @HttpRequestAttribute
+        public Object attribute;
+
+        public String notAnnotated = "untouched";
+    }
+
+    public static class ChildViewModel extends BasicViewModel {
+
+        @HttpParameter("childName")
+        public String name;
+
+        @HttpParameter
+        private final String frozen = null;
+
+        public String getFrozen() {
+            return frozen;
+        }
+    }
+
+    // The reflective walk that ServletViewModelCreator did on every view
+    // model before it compiled the plan per class.
+    private static void updateReflectively(HttpServletRequest request, Object viewModel) {
+        try {
+            for (Map.Entry<String, List<Field>> entry : TypeDefinition.getInstance(viewModel.getClass()).getAllSerializableFields().entrySet()) {
+                Field field = entry.getValue().get(entry.getValue().size() - 1);
+                String fieldName = field.getName();
+                Object fieldValue = null;
+
+                for (Annotation viewModelAnnotation : field.getAnnotations()) {
+                    ServletViewRequestAnnotationProcessorClass annotation = viewModelAnnotation.annotationType().getAnnotation(
+                            ServletViewRequestAnnotationProcessorClass.class);
+
+                    if (annotation != null && annotation.value() != null) {
+                        @SuppressWarnings("unchecked")
+                        ServletViewRequestAnnotationProcessor<Annotation> annotationProcessor
+                                = (ServletViewRequestAnnotationProcessor<Annotation>) TypeDefinition.getInstance(annotation.value()).newInstance();
+
+                        fieldValue = annotationProcessor.getValue(request, fieldName, viewModelAnnotation);
+                        break;
+                    }
+                }
+
+                if (fieldValue != null) {
+                    if (fieldValue instanceof Collection && !Collection.class.isAssignableFrom(field.getType())) {
+                        fieldValue = !((Collection<?>) fieldValue).isEmpty()
+                                ? ((Collection<?>) fieldValue).iterator().next()
+                                : null;
+                    }
+
+                    field.set(viewModel, CONVERTER.convert(field.getGenericType(), fieldValue));
+                }
+            }
+
+        } catch (IllegalAccessException error) {
+            throw new IllegalStateException(error);
+
+        } catch (RuntimeException error) {
+            // Logged and ignored, like the creator does.
+        }
+    }
+
+    private static HttpServletRequest createRequest(Map<String, String[]> parameters, Map<String, List<String>> headers, Map<String, Object> attributes) {
+        HttpServletRequest request = mock(HttpServletRequest.class);
+
+        doAnswer(invocation -> parameters.get((String) invocation.getArguments()[0]))
+                .when(request)
+                .getParameterValues(anyString());
+
+        doAnswer(invocation -> Collections.enumeration(headers.getOrDefault((String) invocation.getArguments()[0], Collections.emptyList())))
+                .when(request)
+                .getHeaders(anyString());
+
+        doAnswer(invocation -> attributes.get((String) invocation.getArguments()[0]))
+                .when(request)
+                .getAttribute(anyString());
+
+        return request;
+    }
+
+    private static <T extends ViewModel<Object>> T create(Class<T> viewModelClass, HttpServletRequest request) {
+        T viewModel = TypeDefinition.getInstance(viewModelClass).newInstance();
+
+        new ServletViewModelCreator(request).beforeViewModelOnCreate(viewModel);
+        return viewModel;
+    }
+
+    private static <T extends ViewModel<Object>> T createReflectively(Class<T> viewModelClass, HttpServletRequest request) {
+        T viewModel = TypeDefinition.getInstance(viewModelClass).newInstance();
+
+        updateReflectively(request, viewModel);
+        return viewModel;
+    }
+
+    // Compares every instance field, including the shadowed and the
+    // inherited ones.
+    private static void assertSameFields(Object expected, Object actual) throws IllegalAccessException {
+        assertEquals(expected.getClass(), actual.getClass());
+
+        for (Class<?> c = expected.getClass(); c != null; c = c.getSuperclass()) {
+            for (Field field : c.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+
+                    Object expectedValue = field.get(expected);
+                    Object actualValue = field.get(actual);
+
+                    assertTrue(
+                            c.getSimpleName() + "#" + field.getName() + ": " + expectedValue + " != " + actualValue,
+                            Objects.deepEquals(expectedValue, actualValue));
+                }
+            }
+        }
+    }
+
+    private static <T extends ViewModel<Object>> T assertEquivalent(Class<T> viewModelClass, HttpServletRequest request) throws IllegalAccessException {
+        T viewModel = create(viewModelClass, request);
+
+        assertSameFields(createReflectively(viewModelClass, request), viewModel);
+        return viewModel;
+    }
+
+    private static Map<String, String[]> createParameters() {
+        Map<String, String[]> parameters = new HashMap<>();
+
+        parameters.put("name", new String[] { "alpha", "beta" });
+        parameters.put("childName", new String[] { "child" });
+        parameters.put("n", new String[] { "42" });
+        parameters.put("tag", new String[] { "a", "b", "c" });
+        parameters.put("frozen", new String[] { "thawed" });
+        return parameters;
+    }
+
+    @Test
+    public void basic() throws IllegalAccessException {
+        HttpServletRequest request = createRequest(
+                createParameters(),
+                Collections.singletonMap("X-Test", Arrays.asList("first", "second")),
+                Collections.singletonMap("attribute", 1.5));
+
+        BasicViewModel viewModel = assertEquivalent(BasicViewModel.class, request);
+
+        assertEquals("alpha", viewModel.name);
+        assertEquals(42, viewModel.number);
+        assertEquals(Arrays.asList("a", "b", "c"), viewModel.tags);
+        assertNull(viewModel.missing);
+        assertEquals("first", viewModel.header);
+        assertEquals(1.5, viewModel.attribute);
+        assertEquals("untouched", viewModel.notAnnotated);
+    }
+
+    @Test
+    public void inheritedAndFinal() throws IllegalAccessException {
+        HttpServletRequest request = createRequest(
+                createParameters(),
+                Collections.emptyMap(),
+                Collections.emptyMap());
+
+        ChildViewModel viewModel = assertEquivalent(ChildViewModel.class, request);
+
+        assertEquals("child", viewModel.name);
+        assertEquals(42, ((BasicViewModel) viewModel).number);
+        assertEquals("thawed", viewModel.getFrozen());
+    }
+
+    // A value that may not convert is handled the same way by both.
+    @Test
+    public void failedConversion() throws IllegalAccessException {
+        Map<String, String[]> parameters = createParameters();
+
+        parameters.put("n", new String[] { "not a number" });
+
+        assertEquivalent(BasicViewModel.class, createRequest(parameters, Collections.emptyMap(), Collections.emptyMap()));
+        assertEquivalent(ChildViewModel.class, createRequest(parameters, Collections.emptyMap(), Collections.emptyMap()));
+    }
+
+    // The plan is compiled once, but must still read each request.
+    @Test
+    public void planReusedAcrossRequests() throws IllegalAccessException {
+        for (String name : Arrays.asList("one", "two", "three")) {
+            Map<String, String[]> parameters = createParameters();
+
+            parameters.put("name", new String[] { name });
+
+            BasicViewModel viewModel = assertEquivalent(
+                    BasicViewModel.class,
+                    createRequest(parameters, Collections.emptyMap(), Collections.emptyMap()));
+
+            assertEquals(name, viewModel.name);
+        }
+    }
+}
@@ -2,23 +2,32 @@ package com.psddev.cms.hunspell;
 
 import com.atlascopco.hunspell.Hunspell;
 import com.google.common.base.Preconditions;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.cache.RemovalListener;
 import com.google.common.cache.RemovalNotification;
 import com.psddev.cms.nlp.SpellChecker;
+import com.psddev.dari.util.Settings;
 
 import javax.annotation.ParametersAreNonnullByDefault;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
 
 /**
  * Spell checker implementation using
@@ -31,6 +40,13 @@ import java.util.Optional;
  * <p>For example, if the locale is {@code ko-KR}, the affix file should be
  * named {@code HunspellDictionary_ko_KR.aff}, and the dictionary file should
  * be named {@code HunspellDictionary_ko_KR.dic}.</p>
+ *
+ * <p>The native Hunspell handles aren't thread-safe, so each dictionary is
+ * backed by a pool of handles that are checked out for the duration of a
+ * single {@link #suggest} or {@link #check} call. The size of each pool can
+ * be changed using the {@value #POOL_SIZE_SETTING} setting, and the number
+ * of suggestions cached per dictionary using the
+ * {@value #SUGGESTION_CACHE_SIZE_SETTING} setting.</p>
  */
 public class HunspellSpellChecker implements SpellChecker {
 
@@ -48,37 +64,56 @@ public class HunspellSpellChecker implements SpellChecker {
      */
     public static final String DICTIONARY_FILE_SUFFIX = ".dic";
 
-    private final LoadingCache<String, Optional<Hunspell>> hunspells = CacheBuilder
+    public static final String POOL_SIZE_SETTING = "cms/hunspell/poolSize";
+    public static final String SUGGESTION_CACHE_SIZE_SETTING = "cms/hunspell/suggestionCacheSize";
+
+    private static final List<String> CORRECT = Collections.emptyList();
+
+    private final int poolSize;
+    private final long suggestionCacheSize;
+
+    private final LoadingCache<String, Optional<HunspellPool>> pools = CacheBuilder
             .newBuilder()
-            .removalListener(new RemovalListener<String, Optional<Hunspell>>() {
+            .removalListener(new RemovalListener<String, Optional<HunspellPool>>() {
 
                 @Override
                 @ParametersAreNonnullByDefault
-                public void onRemoval(RemovalNotification<String, Optional<Hunspell>> removalNotification) {
-                    Optional<Hunspell> hunspellOptional = removalNotification.getValue();
+                public void onRemoval(RemovalNotification<String, Optional<HunspellPool>> removalNotification) {
+                    Optional<HunspellPool> poolOptional = removalNotification.getValue();
 
-                    if (hunspellOptional != null) {
-                        hunspellOptional.ifPresent(Hunspell::close);
+                    if (poolOptional != null) {
+                        poolOptional.ifPresent(HunspellPool::close);
                     }
                 }
             })
-            .build(new CacheLoader<String, Optional<Hunspell>>() {
+            .build(new CacheLoader<String, Optional<HunspellPool>>() {
 
                 @Override
                 @ParametersAreNonnullByDefault
-                public Optional<Hunspell> load(String name) throws IOException {
+                public Optional<HunspellPool> load(String name) throws IOException {
                     try (InputStream affixInput = getClass().getResourceAsStream("/" + name + AFFIX_FILE_SUFFIX)) {
                         if (affixInput != null) {
                             try (InputStream dictionaryInput = getClass().getResourceAsStream("/" + name + DICTIONARY_FILE_SUFFIX)) {
                                 if (dictionaryInput != null) {
-                                    String tmpdir = System.getProperty("java.io.tmpdir");
-                                    Path affixPath = Paths.get(tmpdir, name + AFFIX_FILE_SUFFIX);
-                                    Path dictionaryPath = Paths.get(tmpdir, name + DICTIONARY_FILE_SUFFIX);
+                                    Path directory = Files.createTempDirectory("cms-hunspell");
+                                    Path affixPath = directory.resolve(name + AFFIX_FILE_SUFFIX);
+                                    Path dictionaryPath = directory.resolve(name + DICTIONARY_FILE_SUFFIX);
 
                                     Files.copy(affixInput, affixPath, StandardCopyOption.REPLACE_EXISTING);
                                     Files.copy(dictionaryInput, dictionaryPath, StandardCopyOption.REPLACE_EXISTING);
+                                    affixPath.toFile().deleteOnExit();
+                                    dictionaryPath.toFile().deleteOnExit();
+                                    directory.toFile().deleteOnExit();
 
-                                    return Optional.of(new Hunspell(dictionaryPath.toString(), affixPath.toString()));
+                                    return Optional.of(new HunspellPool(
+                                            dictionaryPath,
+                                            affixPath,
+                                            poolSize >= 0
+                                                    ? poolSize
+                                                    : Settings.getOrDefault(int.class, POOL_SIZE_SETTING, Runtime.getRuntime().availableProcessors()),
+                                            suggestionCacheSize >= 0L
+                                                    ? suggestionCacheSize
+                                                    : Settings.getOrDefault(long.class, SUGGESTION_CACHE_SIZE_SETTING, 10000L)));
                                 }
                             }
                         }
@@ -88,11 +123,32 @@ public class HunspellSpellChecker implements SpellChecker {
                 }
             });
 
-    private Hunspell findHunspell(Locale locale) {
+    /**
+     * Creates an instance that's configured using the
+     * {@value #POOL_SIZE_SETTING} and the
+     * {@value #SUGGESTION_CACHE_SIZE_SETTING} settings.
+     */
+    public HunspellSpellChecker() {
+        this(-1, -1L);
+    }
+
+    /**
+     * @param poolSize Maximum number of native handles per dictionary. If
+     *        negative, uses the {@value #POOL_SIZE_SETTING} setting.
+     * @param suggestionCacheSize Maximum number of suggestions cached per
+     *        dictionary. {@code 0} disables the cache. If negative, uses
+     *        the {@value #SUGGESTION_CACHE_SIZE_SETTING} setting.
+     */
+    HunspellSpellChecker(int poolSize, long suggestionCacheSize) {
+        this.poolSize = poolSize;
+        this.suggestionCacheSize = suggestionCacheSize;
+    }
+
+    private HunspellPool findPool(Locale locale) {
         return SpellChecker.createDictionaryNames("HunspellDictionary", locale)
                 .stream()
-                .map(l -> hunspells.getUnchecked(l).orElse(null))
-                .filter(h -> h != null)
+                .map(l -> pools.getUnchecked(l).orElse(null))
+                .filter(p -> p != null)
                 .findFirst()
                 .orElse(null);
     }
@@ -101,7 +157,7 @@ public class HunspellSpellChecker implements SpellChecker {
     public boolean isSupported(Locale locale) {
         Preconditions.checkNotNull(locale);
 
-        return findHunspell(locale) != null;
+        return findPool(locale) != null;
     }
 
     @Override
@@ -116,16 +172,115 @@ public class HunspellSpellChecker implements SpellChecker {
         Preconditions.checkNotNull(locale);
         Preconditions.checkNotNull(word);
 
-        Hunspell hunspell = findHunspell(locale);
+        return check(locale, Collections.singleton(word)).get(word);
+    }
+
+    @Override
+    public Map<String, List<String>> check(Locale locale, Collection<String> words) {
+        Preconditions.checkNotNull(locale);
+        Preconditions.checkNotNull(words);
+
+        HunspellPool pool = findPool(locale);
 
-        if (hunspell == null) {
+        if (pool == null) {
             throw new UnsupportedOperationException();
+        }
+
+        Map<String, List<String>> results = new LinkedHashMap<>();
+        List<String> uncached = new ArrayList<>();
+
+        for (String word : words) {
+            if (word != null && !results.containsKey(word)) {
+                List<String> suggestions = pool.suggestions.getIfPresent(word);
+
+                results.put(word, suggestions);
+
+                if (suggestions == null) {
+                    uncached.add(word);
+                }
+            }
+        }
+
+        if (!uncached.isEmpty()) {
+            Hunspell hunspell = pool.checkout();
+
+            try {
+                for (String word : uncached) {
+                    List<String> suggestions = hunspell.spell(word)
+                            ? CORRECT
+                            : Collections.unmodifiableList(new ArrayList<>(hunspell.suggest(word)));
+
+                    pool.suggestions.put(word, suggestions);
+                    results.put(word, suggestions);
+                }
+
+            } finally {
+                pool.checkin(hunspell);
+            }
+        }
+
+        // Correctly spelled words are cached as an empty list but reported
+        // as null per the SpellChecker#suggest contract.
+        results.replaceAll((word, suggestions) -> suggestions == CORRECT ? null : suggestions);
+
+        return results;
+    }
+
+    /**
+     * Pool of native Hunspell handles that all share the same dictionary
+     * files, along with the suggestions cache for that dictionary.
+     */
+    private static final class HunspellPool {
+
+        private final Path dictionaryPath;
+        private final Path affixPath;
+        private final BlockingQueue<Hunspell> idle = new LinkedBlockingQueue<>();
+        private final List<Hunspell> all = Collections.synchronizedList(new ArrayList<>());
+        private final Semaphore permits;
+        private final Cache<String, List<String>> suggestions;
+
+        public HunspellPool(Path dictionaryPath, Path affixPath, int size, long suggestionCacheSize) {
+            this.dictionaryPath = dictionaryPath;
+            this.affixPath = affixPath;
+            this.permits = new Semaphore(Math.max(size, 1), true);
+            this.suggestions = CacheBuilder
+                    .newBuilder()
+                    .maximumSize(suggestionCacheSize)
+                    .build();
+        }
+
+        public Hunspell checkout() {
+            permits.acquireUninterruptibly();
+
+            try {
+                Hunspell hunspell = idle.poll();
+
+                if (hunspell == null) {
+                    hunspell = new Hunspell(dictionaryPath.toString(), affixPath.toString());
+                    all.add(hunspell);
+                }
+
+                return hunspell;
+
+            } catch (RuntimeException error) {
+                permits.release();
+                throw error;
+            }
+        }
+
+        public void checkin(Hunspell hunspell) {
+            idle.offer(hunspell);
+            permits.release();
+        }
 
-        } else if (hunspell.spell(word)) {
-            return null;
+        public void close() {
+            synchronized (all) {
+                all.forEach(Hunspell::close);
+                all.clear();
+            }
 
-        } else {
-            return hunspell.suggest(word);
+            idle.clear();
+            suggestions.invalidateAll();
         }
     }
 }
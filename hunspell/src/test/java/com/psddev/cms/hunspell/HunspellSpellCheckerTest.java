@@ -0,0 +1,86 @@
+package com.psddev.cms.hunspell;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class HunspellSpellCheckerTest {
+
+    private static final List<String> WORDS = Arrays.asList(
+            "hello", "helo", "computer", "compuetr", "house", "hosue", "hello", "helo");
+
+    HunspellSpellChecker checker;
+
+    @Before
+    public void before() {
+        checker = new HunspellSpellChecker();
+    }
+
+    @Test
+    public void verifySupported() {
+        assertTrue(checker.isSupported(Locale.ENGLISH));
+        assertTrue(checker.isSupported(Locale.US));
+        assertFalse(checker.isSupported(Locale.KOREAN));
+    }
+
+    @Test
+    public void verifySuggest() {
+        assertNull(checker.suggest(Locale.ENGLISH, "hello"));
+        assertNotNull(checker.suggest(Locale.ENGLISH, "helo"));
+        assertTrue(checker.suggest(Locale.ENGLISH, "helo").contains("hello"));
+    }
+
+    @Test
+    public void verifyCheckDeduplicates() {
+        Map<String, List<String>> results = checker.check(Locale.ENGLISH, WORDS);
+
+        assertEquals(6, results.size());
+        assertNull(results.get("hello"));
+        assertNull(results.get("computer"));
+        assertTrue(results.get("compuetr").contains("computer"));
+    }
+
+    // The suggestion cache is disabled so that every call goes through the
+    // native handles, and the pool is smaller than the number of threads
+    // so that the handles are shared.
+    @Test
+    public void verifyConcurrentChecks() throws Exception {
+        Map<String, List<String>> expected = new HunspellSpellChecker(1, 0L).check(Locale.ENGLISH, WORDS);
+        HunspellSpellChecker uncached = new HunspellSpellChecker(4, 0L);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+
+        try {
+            List<Future<Map<String, List<String>>>> futures = new ArrayList<>();
+
+            for (int i = 0; i < 1000; ++ i) {
+                Callable<Map<String, List<String>>> task = i % 2 == 0
+                        ? () -> uncached.check(Locale.ENGLISH, WORDS)
+                        : () -> uncached.check(Locale.US, WORDS);
+
+                futures.add(executor.submit(task));
+            }
+
+            for (Future<Map<String, List<String>>> future : futures) {
+                assertEquals(expected, future.get(1, TimeUnit.MINUTES));
+            }
+
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
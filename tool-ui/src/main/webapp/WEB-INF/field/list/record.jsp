@@ -4,6 +4,7 @@ com.psddev.cms.db.BulkUploadDraft,
 com.psddev.cms.db.Content,
 com.psddev.cms.db.Renderer,
 com.psddev.cms.db.ToolUi,
+com.psddev.cms.tool.BulkObjectResolver,
 com.psddev.cms.tool.PageWriter,
 com.psddev.cms.tool.ToolPageContext,
 
@@ -25,6 +26,7 @@ com.psddev.dari.util.StorageItem,
 
 java.io.IOException,
 java.util.ArrayList,
+java.util.Arrays,
 java.util.Collections,
 java.util.Date,
 java.util.HashMap,
@@ -121,12 +123,7 @@ if ((Boolean) request.getAttribute("isFormPost")) {
     } else {
         fieldValue.clear();
 
-        for (UUID id : wp.uuidParams(inputName)) {
-            Object item = Query.fromAll().where("_id = ?", id).resolveInvisible().first();
-            if (item != null) {
-                fieldValue.add(item);
-            }
-        }
+        fieldValue.addAll(BulkObjectResolver.getInstance(request).findAll(Arrays.asList(wp.uuidParams(inputName))));
     }
 
     if (!ObjectUtils.isBlank(field.as(Renderer.FieldData.class).getListLayouts())) {
@@ -6,6 +6,7 @@ com.psddev.cms.db.ToolUi,
 com.psddev.cms.db.ToolUser,
 com.psddev.cms.db.ToolUserSearch,
 com.psddev.cms.db.WorkStream,
+com.psddev.cms.tool.BulkObjectResolver,
 com.psddev.cms.tool.PageWriter,
 com.psddev.cms.tool.Search,
 com.psddev.cms.tool.Tool,
@@ -155,6 +156,21 @@ if (selectedType != null) {
     }
 }
 
+// Load all filter values in a single query.
+BulkObjectResolver filterResolver = BulkObjectResolver.getInstance(request);
+
+filterResolver.prefetch(search.getGlobalFilters().values());
+
+for (Map.Entry<String, ObjectField> entry : fieldFilters.entrySet()) {
+    Map<String, String> filterValue = search.getFieldFilters().get(entry.getKey());
+
+    if (filterValue != null
+            && !ImmutableSet.of(ObjectField.BOOLEAN_TYPE, ObjectField.DATE_TYPE, ObjectField.NUMBER_TYPE, ObjectField.TEXT_TYPE).contains(entry.getValue().getInternalItemType())) {
+
+        filterResolver.prefetch(filterValue.values());
+    }
+}
+
 if (wp.isFormPost()) {
     String workStreamName = wp.param(String.class, "workStreamName");
 
@@ -274,6 +290,7 @@ writer.start("div", "class", "searchForm");
 
                 writer.writeElement("input", "type", "hidden", "name", Search.IS_ONLY_PATHED, "value", search.isOnlyPathed());
                 writer.writeElement("input", "type", "hidden", "name", Search.ADDITIONAL_QUERY_PARAMETER, "value", search.getAdditionalPredicate());
+                writer.writeElement("input", "type", "hidden", "name", Search.SELECTION_PARAMETER, "value", search.getSelectionId());
                 writer.writeElement("input", "type", "hidden", "name", Search.PARENT_PARAMETER, "value", search.getParentId());
                 writer.writeElement("input", "type", "hidden", "name", Search.PARENT_TYPE_PARAMETER, "value", search.getParentTypeId());
                 writer.writeElement("input", "type", "hidden", "name", Search.SUGGESTIONS_PARAMETER, "value", search.isSuggestions());
@@ -320,6 +337,7 @@ writer.start("div", "class", "searchForm");
 
                 writer.writeElement("input", "type", "hidden", "name", Search.IS_ONLY_PATHED, "value", search.isOnlyPathed());
                 writer.writeElement("input", "type", "hidden", "name", Search.ADDITIONAL_QUERY_PARAMETER, "value", search.getAdditionalPredicate());
+                writer.writeElement("input", "type", "hidden", "name", Search.SELECTION_PARAMETER, "value", search.getSelectionId());
                 writer.writeElement("input", "type", "hidden", "name", Search.PARENT_PARAMETER, "value", search.getParentId());
                 writer.writeElement("input", "type", "hidden", "name", Search.PARENT_TYPE_PARAMETER, "value", search.getParentTypeId());
                 writer.writeElement("input", "type", "hidden", "name", Search.SUGGESTIONS_PARAMETER, "value", search.isSuggestions());
@@ -353,7 +371,7 @@ writer.start("div", "class", "searchForm");
                                         "data-type-name", filter.getInternalName());
 
                                     for (int i = 0; i < Integer.parseInt(search.getGlobalFilters().get(filterId + "#")); i++) {
-                                        State filterState = State.getInstance(Query.from(Object.class).where("_id = ?", search.getGlobalFilters().get(filterId + i)).first());
+                                        State filterState = State.getInstance(filterResolver.find(search.getGlobalFilters().get(filterId + i)));
                                         writer.writeStart("div", "class", "searchFilterItem");
                                         writer.writeElement("input",
                                                 "type", "text",
@@ -370,7 +388,7 @@ writer.start("div", "class", "searchForm");
                                 writer.end();
 
                             } else {
-                            State filterState = State.getInstance(Query.from(Object.class).where("_id = ?", search.getGlobalFilters().get(filterId)).first());
+                            State filterState = State.getInstance(filterResolver.find(search.getGlobalFilters().get(filterId)));
 
                             writer.start("div",
                                     "class", "searchFilter",
@@ -543,7 +561,7 @@ writer.start("div", "class", "searchForm");
 
                             } else if (searchFilterMultiple) {
                                 for (int i = 0; i < Integer.parseInt(filterValue.get("#")); i++) {
-                                    State fieldState = State.getInstance(Query.from(Object.class).where("_id = ?", filterValue.get(Integer.toString(i))).first());
+                                    State fieldState = State.getInstance(filterResolver.find(filterValue.get(Integer.toString(i))));
 
                                     wp.writeStart("div", "class", "searchFilterItem");
                                     wp.writeObjectSelect(field, fieldState,
@@ -562,7 +580,7 @@ writer.start("div", "class", "searchForm");
                                 }
 
                             } else {
-                                State fieldState = State.getInstance(Query.from(Object.class).where("_id = ?", fieldValue).first());
+                                State fieldState = State.getInstance(filterResolver.find(fieldValue));
 
                                 wp.writeStart("div", "class", "searchFilterItem");
                                 wp.writeObjectSelect(field, fieldState,
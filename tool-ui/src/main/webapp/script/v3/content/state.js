@@ -15,9 +15,63 @@ define([ 'jquery', 'bsp-utils' ], function($, bsp_utils) {
       var $form = $(form);
       var running;
       var rerun;
+      var resync;
       var idleTimeout;
       var idle = true;
 
+      // Lets the server remember the inputs so that only the changed ones
+      // need to be submitted.
+      var sessionId = Math.random().toString(36).substring(2) + (+new Date()).toString(36);
+      var lastInputs;
+
+      function serializeInputs() {
+        var inputs = { };
+
+        // If we are looking at a content update, then the current state (for viewing the diff) resides in the form
+        // as well. We need to remove that from the form post or it messes up the dynamic values that return.
+        $.each($form.find('[name]').not($form.find('.contentDiffCurrent [name]')).serializeArray(), function(i, pair) {
+          (inputs[pair.name] = inputs[pair.name] || [ ]).push(pair.value);
+        });
+
+        return inputs;
+      }
+
+      function serializeValues(name, values) {
+        return $.map(values, function(value) {
+          return '&' + encodeURIComponent(name) + '=' + encodeURIComponent(value);
+        }).join('');
+      }
+
+      function serializeChanges(inputs) {
+        var data = '_sid=' + sessionId;
+
+        if (!lastInputs) {
+          $.each(inputs, function(name, values) {
+            data += serializeValues(name, values);
+          });
+
+          return data;
+        }
+
+        data += '&_delta=true';
+
+        $.each(inputs, function(name, values) {
+          var lastValues = lastInputs[name];
+
+          if (!lastValues || lastValues.join('\u0000') !== values.join('\u0000')) {
+            data += serializeValues(name, values);
+          }
+        });
+
+        $.each(lastInputs, function(name) {
+          if (!inputs.hasOwnProperty(name)) {
+            data += '&_dr=' + encodeURIComponent(name);
+          }
+        });
+
+        return data;
+      }
+
       function update() {
         if ($form.find(
                 '.repeatableForm:not(.plugin-repeatable),' +
@@ -59,15 +113,15 @@ define([ 'jquery', 'bsp-utils' ], function($, bsp_utils) {
           });
         }
 
+        var inputs = serializeInputs();
+
         $.ajax({
           'type': 'post',
           'url': CONTEXT_PATH + 'contentState?idle=' + (!!idle) + (questionAt > -1 ? '&' + action.substring(questionAt + 1) : ''),
           'cache': false,
           'dataType': 'json',
 
-          // If we are looking at a content update, then the current state (for viewing the diff) resides in the form
-          // as well. We need to remove that from the form post or it messes up the dynamic values that return.
-          'data': $form.find('[name]').not($form.find('.contentDiffCurrent [name]')).serialize() + $dynamicTexts.map(function() {
+          'data': serializeChanges(inputs) + $dynamicTexts.map(function() {
             var $element = $(this);
 
             return '&_dti=' + ($element.closest('[data-object-id]').attr('data-object-id') || '') +
@@ -80,6 +134,16 @@ define([ 'jquery', 'bsp-utils' ], function($, bsp_utils) {
           }).get().join(''),
 
           'success': function(data) {
+
+            // Server doesn't have the previous inputs so send everything.
+            if (data._resync) {
+              lastInputs = null;
+              resync = true;
+              return;
+            }
+
+            lastInputs = inputs;
+
             $form.trigger('cms-updateContentState', [ data ]);
 
             $dynamicTexts.each(function(index) {
@@ -144,8 +208,17 @@ define([ 'jquery', 'bsp-utils' ], function($, bsp_utils) {
             $form.resize();
           },
 
+          'error': function() {
+            lastInputs = null;
+          },
+
           'complete': function() {
-            if (rerun) {
+            if (resync) {
+              running = false;
+              resync = false;
+              update();
+
+            } else if (rerun) {
               setTimeout(function() {
                 running = false;
                 rerun = false;